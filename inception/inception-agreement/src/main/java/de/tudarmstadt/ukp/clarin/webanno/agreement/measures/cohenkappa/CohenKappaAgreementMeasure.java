@@ -18,12 +18,7 @@
 package de.tudarmstadt.ukp.clarin.webanno.agreement.measures.cohenkappa;
 
 import static de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementUtils.makeCodingStudy;
-import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.doDiff;
-import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.DiffAdapterRegistry.getDiffAdapters;
-import static java.util.Arrays.asList;
-import static java.util.stream.Collectors.toCollection;
 
-import java.util.LinkedHashSet;
 import java.util.Map;
 
 import org.apache.uima.cas.CAS;
@@ -32,37 +27,27 @@ import org.dkpro.statistics.agreement.coding.CohenKappaAgreement;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.DefaultAgreementTraits;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding.CodingAgreementMeasure_ImplBase;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding.FullCodingAgreementResult;
+import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
-import de.tudarmstadt.ukp.clarin.webanno.model.Tag;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 
 public class CohenKappaAgreementMeasure
     extends CodingAgreementMeasure_ImplBase<DefaultAgreementTraits>
 {
-    private final AnnotationSchemaService annotationService;
-
     public CohenKappaAgreementMeasure(AnnotationFeature aFeature, DefaultAgreementTraits aTraits,
             AnnotationSchemaService aAnnotationService)
     {
-        super(aFeature, aTraits);
-        annotationService = aAnnotationService;
+        super(aFeature, aTraits, aAnnotationService);
     }
 
     @Override
-    public FullCodingAgreementResult getAgreement(Map<String, CAS> aCasMap)
+    protected FullCodingAgreementResult calculateAgreement(Map<String, CAS> aCasMap,
+            CasDiff aDiff)
     {
         var feature = getFeature();
 
-        var adapters = getDiffAdapters(annotationService, asList(feature.getLayer()));
-
-        var diff = doDiff(adapters, aCasMap);
-
-        var tagset = annotationService.listTags(feature.getTagset()).stream() //
-                .map(Tag::getName) //
-                .collect(toCollection(LinkedHashSet::new));
-
-        var agreementResult = makeCodingStudy(diff, feature.getLayer().getName(), feature.getName(),
-                tagset, true, aCasMap);
+        var agreementResult = makeCodingStudy(aDiff, feature.getLayer().getName(),
+                feature.getName(), getTagset(), true, aCasMap);
 
         if (agreementResult.getStudy().getItemCount() == 0) {
             agreementResult.setAgreement(Double.NaN);
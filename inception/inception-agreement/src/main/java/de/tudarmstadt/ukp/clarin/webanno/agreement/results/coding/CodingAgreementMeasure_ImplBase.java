@@ -17,15 +17,91 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding;
 
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.doDiff;
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.DiffAdapterRegistry.getDiffAdapters;
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.stream.Collectors.toCollection;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.uima.cas.CAS;
+
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasure_ImplBase;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.DefaultAgreementTraits;
+import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.Tag;
+import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 
 public abstract class CodingAgreementMeasure_ImplBase<T extends DefaultAgreementTraits>
     extends AgreementMeasure_ImplBase<FullCodingAgreementResult, T>
 {
-    public CodingAgreementMeasure_ImplBase(AnnotationFeature aFeature, T aTraits)
+    private final AnnotationSchemaService annotationService;
+
+    private volatile Set<String> tagset;
+
+    public CodingAgreementMeasure_ImplBase(AnnotationFeature aFeature, T aTraits,
+            AnnotationSchemaService aAnnotationService)
     {
         super(aFeature, aTraits);
+        annotationService = aAnnotationService;
     }
+
+    @Override
+    public FullCodingAgreementResult getAgreement(Map<String, CAS> aCasMap)
+    {
+        return calculateAgreement(aCasMap, diff(aCasMap));
+    }
+
+    /**
+     * Calculates the agreement between the CASes in the given map based on a diff which may also
+     * include further CASes. This allows calculating the diff only once per document when the
+     * agreement between many pairs of annotators needs to be calculated.
+     * 
+     * @param aCasMap
+     *            the CASes to calculate the agreement on.
+     * @param aDiff
+     *            a diff which includes at least the given CASes, e.g. obtained from
+     *            {@link #diff(Map)}.
+     * @return the agreement.
+     */
+    public FullCodingAgreementResult getAgreement(Map<String, CAS> aCasMap, CasDiff aDiff)
+    {
+        return calculateAgreement(aCasMap, aDiff.subset(aCasMap.keySet()));
+    }
+
+    /**
+     * @param aCasMap
+     *            the CASes to compare.
+     * @return a diff of the given CASes on the layer of the feature this measure is calculated on.
+     */
+    public CasDiff diff(Map<String, CAS> aCasMap)
+    {
+        var adapters = getDiffAdapters(annotationService, asList(getFeature().getLayer()));
+
+        return doDiff(adapters, aCasMap);
+    }
+
+    /**
+     * @return the names of the tags in the tagset of the feature. The tags are only loaded once
+     *         per measure instance.
+     */
+    protected Set<String> getTagset()
+    {
+        var result = tagset;
+        if (result == null) {
+            var tags = annotationService.listTags(getFeature().getTagset()).stream() //
+                    .map(Tag::getName) //
+                    .collect(toCollection(LinkedHashSet::new));
+            result = unmodifiableSet(tags);
+            tagset = result;
+        }
+        return result;
+    }
+
+    protected abstract FullCodingAgreementResult calculateAgreement(Map<String, CAS> aCasMap,
+            CasDiff aDiff);
 }
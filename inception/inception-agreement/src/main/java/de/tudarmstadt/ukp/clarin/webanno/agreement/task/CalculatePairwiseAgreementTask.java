@@ -21,18 +21,27 @@ import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.SHA
 import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasUpgradeMode.AUTO_CAS_UPGRADE;
 import static de.tudarmstadt.ukp.clarin.webanno.model.SourceDocumentState.CURATION_FINISHED;
 import static de.tudarmstadt.ukp.clarin.webanno.model.SourceDocumentState.CURATION_IN_PROGRESS;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.BULK;
 import static de.tudarmstadt.ukp.inception.support.WebAnnoConst.CURATION_USER;
 import static java.util.Arrays.asList;
 import static java.util.Comparator.comparing;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-
-import org.apache.commons.lang3.concurrent.LazyInitializer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.fit.util.FSUtil;
 import org.slf4j.Logger;
@@ -43,11 +52,14 @@ import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementSummary;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.PairwiseAgreementResult;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasure;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.DefaultAgreementTraits;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding.CodingAgreementMeasure_ImplBase;
+import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageSession;
 import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
+import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import de.tudarmstadt.ukp.inception.scheduling.Task;
 import de.tudarmstadt.ukp.inception.support.logging.LogMessage;
 import de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil;
@@ -57,27 +69,33 @@ public class CalculatePairwiseAgreementTask
 {
     public static final String TYPE = "CalculatePairwiseAgreementTask";
 
+    private static final int DEFAULT_THREADS = Math
+            .max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
     private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
     private @Autowired DocumentService documentService;
+    private @Autowired SchedulingService schedulingService;
 
     private final List<String> annotators;
     private final DefaultAgreementTraits traits;
     private final AnnotationFeature feature;
     private final AgreementMeasure<?> measure;
     private final Map<SourceDocument, List<AnnotationDocument>> allAnnDocs;
+    private final int threads;
 
     private PairwiseAgreementResult summary;
 
     public CalculatePairwiseAgreementTask(Builder<? extends Builder<?>> aBuilder)
     {
-        super(aBuilder.withType(TYPE));
+        super(aBuilder.withType(TYPE).withPriority(BULK));
 
         annotators = aBuilder.annotators;
         traits = aBuilder.traits;
         feature = aBuilder.feature;
         measure = aBuilder.measure;
         allAnnDocs = aBuilder.allAnnDocs;
+        threads = aBuilder.threads;
     }
 
     @Override
@@ -85,79 +103,195 @@ public class CalculatePairwiseAgreementTask
     {
         summary = new PairwiseAgreementResult(feature, traits);
 
-        var maxProgress = allAnnDocs.size();
-        var progress = 0;
-
         var docs = allAnnDocs.keySet().stream() //
                 .sorted(comparing(SourceDocument::getName)) //
                 .toList();
 
-        for (var doc : docs) {
+        // The results are collected per document and merged in document order afterwards so that
+        // the summary does not depend on the order in which the workers finish
+        var results = new AtomicReferenceArray<List<PairResult>>(docs.size());
+        var processedDocuments = new AtomicInteger();
+
+        var workerCount = Math.max(1, Math.min(threads, docs.size()));
+        if (schedulingService != null) {
+            workerCount = Math.max(1,
+                    Math.min(workerCount, schedulingService.getNumberOfBulkThreads()));
+        }
+
+        if (workerCount == 1) {
             var monitor = getMonitor();
+            for (var i = 0; i < docs.size(); i++) {
+                monitor.yieldIfRequested();
+                if (monitor.isCancelled()) {
+                    break;
+                }
+
+                calculateAgreementOnDocument(docs, i, processedDocuments, results);
+            }
+        }
+        else {
+            var executor = Executors.newFixedThreadPool(workerCount,
+                    new BasicThreadFactory.Builder() //
+                            .daemon(true) //
+                            .namingPattern("agreement-worker-%d") //
+                            .build());
+            try {
+                calculateAgreementInBatches(docs, executor, workerCount, processedDocuments,
+                        results);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException e) {
+                LOG.error("Error calculating agreement", e.getCause());
+            }
+            finally {
+                executor.shutdownNow();
+            }
+        }
+
+        for (var i = 0; i < docs.size(); i++) {
+            var docResults = results.get(i);
+            if (docResults == null) {
+                continue;
+            }
+
+            for (var res : docResults) {
+                summary.mergeResult(res.annotator1(), res.annotator2(), res.summary());
+            }
+        }
+    }
+
+    /**
+     * Hands the documents to the workers in batches of one document per worker. Only the thread of
+     * the task itself is known to the scheduler, so it yields between two batches. As no document
+     * is handed out while the task yields, none of its workers are busy when another task takes
+     * over its thread.
+     */
+    private void calculateAgreementInBatches(List<SourceDocument> aDocs, ExecutorService aExecutor,
+            int aWorkerCount, AtomicInteger aProcessedDocuments,
+            AtomicReferenceArray<List<PairResult>> aResults)
+        throws InterruptedException, ExecutionException
+    {
+        var monitor = getMonitor();
+
+        var nextDocIndex = 0;
+        while (nextDocIndex < aDocs.size()) {
+            monitor.yieldIfRequested();
             if (monitor.isCancelled()) {
                 break;
             }
 
-            monitor.setProgressWithMessage(progress, maxProgress,
-                    LogMessage.info(this, doc.getName()));
-
-            try (var session = CasStorageSession.openNested()) {
-                for (int m = 0; m < annotators.size(); m++) {
-                    var annotator1 = annotators.get(m);
-                    var maybeCas1 = LazyInitializer.<Optional<CAS>> builder()
-                            .setInitializer(() -> loadCas(doc, annotator1, allAnnDocs)).get();
-
-                    for (int n = 0; n < annotators.size(); n++) {
-                        if (!(n < m)) {
-                            // Triangle matrix mirrored
-                            continue;
-                        }
-
-                        var annotator2 = annotators.get(n);
-
-                        if ((CURATION_USER.equals(annotator1) || CURATION_USER.equals(annotator2))
-                                && !asList(CURATION_IN_PROGRESS, CURATION_FINISHED)
-                                        .contains(doc.getState())) {
-                            LOG.trace("Skipping combination {}/{}@{}: {} not in a curation state",
-                                    annotator1, annotator2, doc, annotator1);
-                            summary.mergeResult(annotator1, annotator2, AgreementSummary
-                                    .skipped(feature.getLayer().getName(), feature.getName()));
-                            continue;
-                        }
-
-                        if (maybeCas1.get().isEmpty()) {
-                            LOG.trace("Skipping combination {}/{}@{}: {} has no data", annotator1,
-                                    annotator2, doc, annotator1);
-                            summary.mergeResult(annotator1, annotator2, AgreementSummary
-                                    .skipped(feature.getLayer().getName(), feature.getName()));
-                            continue;
-                        }
-
-                        var maybeCas2 = LazyInitializer.<Optional<CAS>> builder()
-                                .setInitializer(() -> loadCas(doc, annotator2, allAnnDocs)).get();
-
-                        if (maybeCas2.get().isEmpty()) {
-                            LOG.trace("Skipping combination {}/{}@{}: {} has no data", annotator1,
-                                    annotator2, doc, annotator2);
-                            summary.mergeResult(annotator1, annotator2, AgreementSummary
-                                    .skipped(feature.getLayer().getName(), feature.getName()));
-                            continue;
-                        }
-
-                        var casMap = new LinkedHashMap<String, CAS>();
-                        casMap.put(annotator1, maybeCas1.get().get());
-                        casMap.put(annotator2, maybeCas2.get().get());
-                        var res = AgreementSummary.of(measure.getAgreement(casMap));
-                        summary.mergeResult(annotator1, annotator2, res);
-                    }
-                }
+            var batch = new ArrayList<Future<?>>();
+            for (var i = 0; i < aWorkerCount && nextDocIndex < aDocs.size(); i++) {
+                var docIndex = nextDocIndex++;
+                batch.add(aExecutor.submit(() -> calculateAgreementOnDocument(aDocs, docIndex,
+                        aProcessedDocuments, aResults)));
+            }
+
+            for (var worker : batch) {
+                worker.get();
+            }
+        }
+    }
+
+    /**
+     * Each document is processed in its own CAS storage session, so a worker only holds the CASes
+     * of the document it is currently working on and the memory needed is bounded by the number
+     * of workers.
+     */
+    private void calculateAgreementOnDocument(List<SourceDocument> aDocs, int aDocIndex,
+            AtomicInteger aProcessedDocuments, AtomicReferenceArray<List<PairResult>> aResults)
+    {
+        var doc = aDocs.get(aDocIndex);
+
+        try (var session = CasStorageSession.openNested()) {
+            aResults.set(aDocIndex, calculateAgreement(doc));
+        }
+        catch (Exception e) {
+            LOG.error("Unable to load data", e);
+        }
 
-                progress++;
+        getMonitor().setProgressWithMessage(aProcessedDocuments.incrementAndGet(), aDocs.size(),
+                LogMessage.info(this, doc.getName()));
+    }
+
+    /**
+     * Calculates the agreement between all pairs of annotators on the given document. The CASes
+     * of all annotators are loaded once and, for coding measures, a single diff is calculated
+     * across all of them from which the pairwise diffs are derived.
+     */
+    private List<PairResult> calculateAgreement(SourceDocument aDoc) throws IOException
+    {
+        var casMap = new LinkedHashMap<String, CAS>();
+        for (var annotator : annotators) {
+            var maybeCas = loadCas(aDoc, annotator, allAnnDocs);
+            if (maybeCas.isPresent()) {
+                casMap.put(annotator, maybeCas.get());
             }
-            catch (Exception e) {
-                LOG.error("Unable to load data", e);
+        }
+
+        CasDiff diff = null;
+        if (measure instanceof CodingAgreementMeasure_ImplBase<?> codingMeasure
+                && casMap.size() > 1) {
+            diff = codingMeasure.diff(casMap);
+        }
+
+        var results = new ArrayList<PairResult>();
+        for (int m = 0; m < annotators.size(); m++) {
+            var annotator1 = annotators.get(m);
+
+            for (int n = 0; n < m; n++) {
+                // Triangle matrix mirrored
+                var annotator2 = annotators.get(n);
+
+                if ((CURATION_USER.equals(annotator1) || CURATION_USER.equals(annotator2))
+                        && !asList(CURATION_IN_PROGRESS, CURATION_FINISHED)
+                                .contains(aDoc.getState())) {
+                    LOG.trace("Skipping combination {}/{}@{}: {} not in a curation state",
+                            annotator1, annotator2, aDoc, annotator1);
+                    results.add(skipped(annotator1, annotator2));
+                    continue;
+                }
+
+                if (!casMap.containsKey(annotator1)) {
+                    LOG.trace("Skipping combination {}/{}@{}: {} has no data", annotator1,
+                            annotator2, aDoc, annotator1);
+                    results.add(skipped(annotator1, annotator2));
+                    continue;
+                }
+
+                if (!casMap.containsKey(annotator2)) {
+                    LOG.trace("Skipping combination {}/{}@{}: {} has no data", annotator1,
+                            annotator2, aDoc, annotator2);
+                    results.add(skipped(annotator1, annotator2));
+                    continue;
+                }
+
+                var pairCasMap = new LinkedHashMap<String, CAS>();
+                pairCasMap.put(annotator1, casMap.get(annotator1));
+                pairCasMap.put(annotator2, casMap.get(annotator2));
+
+                Serializable res;
+                if (diff != null) {
+                    res = ((CodingAgreementMeasure_ImplBase<?>) measure).getAgreement(pairCasMap,
+                            diff);
+                }
+                else {
+                    res = measure.getAgreement(pairCasMap);
+                }
+
+                results.add(new PairResult(annotator1, annotator2, AgreementSummary.of(res)));
             }
         }
+
+        return results;
+    }
+
+    private PairResult skipped(String aAnnotator1, String aAnnotator2)
+    {
+        return new PairResult(aAnnotator1, aAnnotator2,
+                AgreementSummary.skipped(feature.getLayer().getName(), feature.getName()));
     }
 
     private CAS loadInitialCas(SourceDocument aDocument) throws IOException
@@ -218,6 +352,9 @@ public class CalculatePairwiseAgreementTask
         return summary;
     }
 
+    private static record PairResult(String annotator1, String annotator2,
+            AgreementSummary summary) {}
+
     public static Builder<Builder<?>> builder()
     {
         return new Builder<>();
@@ -231,6 +368,7 @@ public class CalculatePairwiseAgreementTask
         private AnnotationFeature feature;
         private AgreementMeasure<?> measure;
         private Map<SourceDocument, List<AnnotationDocument>> allAnnDocs;
+        private int threads = DEFAULT_THREADS;
 
         protected Builder()
         {
@@ -272,6 +410,19 @@ public class CalculatePairwiseAgreementTask
             return (T) this;
         }
 
+        /**
+         * @param aThreads
+         *            the number of documents processed in parallel. Each document being processed
+         *            requires the CASes of all annotators to be in memory. The number is capped
+         *            at the number of threads the scheduler allows for bulk tasks.
+         */
+        @SuppressWarnings("unchecked")
+        public T withThreads(int aThreads)
+        {
+            threads = aThreads;
+            return (T) this;
+        }
+
         public CalculatePairwiseAgreementTask build()
         {
             return new CalculatePairwiseAgreementTask(this);
@@ -21,6 +21,7 @@ import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.SHA
 import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasUpgradeMode.AUTO_CAS_UPGRADE;
 import static de.tudarmstadt.ukp.clarin.webanno.model.SourceDocumentState.CURATION_FINISHED;
 import static de.tudarmstadt.ukp.clarin.webanno.model.SourceDocumentState.CURATION_IN_PROGRESS;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.BULK;
 import static de.tudarmstadt.ukp.inception.support.WebAnnoConst.CURATION_USER;
 import static java.util.Arrays.asList;
 import static java.util.Comparator.comparing;
@@ -73,7 +74,7 @@ public class CalculatePerDocumentAgreementTask
 
     public CalculatePerDocumentAgreementTask(Builder<? extends Builder<?>> aBuilder)
     {
-        super(aBuilder.withType(TYPE));
+        super(aBuilder.withType(TYPE).withPriority(BULK));
 
         annotators = new HashSet<>(aBuilder.annotators);
         traits = aBuilder.traits;
@@ -96,6 +97,7 @@ public class CalculatePerDocumentAgreementTask
 
         for (var doc : docs) {
             var monitor = getMonitor();
+            monitor.yieldIfRequested();
             if (monitor.isCancelled()) {
                 break;
             }
@@ -35,6 +35,9 @@ public class CasHolder
     private Exception exception;
     private boolean typeSystemOutdated = false;
     private boolean deleted = false;
+    private long timestamp = -1;
+    private long size = 0;
+    private long cacheGeneration = -1;
 
     public CasHolder(CasKey aKey)
     {
@@ -111,6 +114,47 @@ public class CasHolder
         return deleted;
     }
 
+    /**
+     * @return timestamp of the CAS file from which the CAS was loaded or {@code -1} if unknown.
+     */
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    public void setTimestamp(long aTimestamp)
+    {
+        timestamp = aTimestamp;
+    }
+
+    /**
+     * @return size of the CAS file from which the CAS was loaded in bytes or {@code 0} if unknown.
+     */
+    public long getSize()
+    {
+        return size;
+    }
+
+    public void setSize(long aSize)
+    {
+        size = aSize;
+    }
+
+    /**
+     * @return generation of the off-heap CAS cache at the time the CAS was loaded or {@code -1}
+     *         if the CAS is not subject to off-heap caching.
+     * @see OffHeapCasCache#getGeneration(long)
+     */
+    public long getCacheGeneration()
+    {
+        return cacheGeneration;
+    }
+
+    public void setCacheGeneration(long aCacheGeneration)
+    {
+        cacheGeneration = aCacheGeneration;
+    }
+
     public static CasHolder of(CasKey aKey, SupplierThrowingException<CAS> aSupplier)
     {
         try {
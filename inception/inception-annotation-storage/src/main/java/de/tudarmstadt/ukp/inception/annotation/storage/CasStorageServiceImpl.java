@@ -39,6 +39,7 @@ import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -56,6 +57,7 @@ import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.impl.CASImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.transaction.event.TransactionalEventListener;
@@ -63,6 +65,7 @@ import org.springframework.util.ConcurrentReferenceHashMap;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.github.benmanes.caffeine.cache.Scheduler;
 import com.github.benmanes.caffeine.cache.stats.CacheStats;
 
@@ -74,11 +77,13 @@ import de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasStorageServiceAction;
 import de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasStorageServiceLoader;
 import de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasUpgradeMode;
 import de.tudarmstadt.ukp.clarin.webanno.api.casstorage.ConcurentCasModificationException;
+import de.tudarmstadt.ukp.clarin.webanno.api.type.CASMetadata;
 import de.tudarmstadt.ukp.clarin.webanno.diag.CasDoctor;
 import de.tudarmstadt.ukp.clarin.webanno.diag.CasDoctorException;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageCacheProperties;
 import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageWriteBehindProperties;
 import de.tudarmstadt.ukp.inception.annotation.storage.driver.CasStorageDriver;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.schema.api.event.LayerConfigurationChangedEvent;
@@ -91,7 +96,7 @@ import de.tudarmstadt.ukp.inception.support.logging.BaseLoggers;
  * </p>
  */
 public class CasStorageServiceImpl
-    implements CasStorageService
+    implements CasStorageService, DisposableBean
 {
     private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
@@ -108,8 +113,10 @@ public class CasStorageServiceImpl
     private final Set<CasHolder> exclusiveAccessHolders = synchronizedSet(
             newSetFromMap(new WeakHashMap<>()));
     private final Cache<CasKey, CasHolder> sharedAccessCache;
+    private final OffHeapCasCache offHeapCache;
 
     private final CasStorageDriver driver;
+    private final CasWriteBehindQueue writeBehindQueue;
 
     public static enum RepairAndUpgradeFlags
     {
@@ -130,9 +137,29 @@ public class CasStorageServiceImpl
      * @param aSchemaService
      *            (optional) if present, CAS upgrades can be performed
      */
+    public CasStorageServiceImpl(CasStorageDriver aDriver,
+            CasStorageCacheProperties aCasStorageProperties, CasDoctor aCasDoctor,
+            AnnotationSchemaService aSchemaService)
+    {
+        this(aDriver, aCasStorageProperties, null, aCasDoctor, aSchemaService);
+    }
+
+    /**
+     * @param aDriver
+     *            a storage driver implementation
+     * @param aCasStorageProperties
+     *            storage configuration properties
+     * @param aWriteBehindProperties
+     *            (optional) if present and enabled, CASes are written in the background
+     * @param aCasDoctor
+     *            (optional) if present, CAS validation can take place
+     * @param aSchemaService
+     *            (optional) if present, CAS upgrades can be performed
+     */
     @Autowired
     public CasStorageServiceImpl(CasStorageDriver aDriver,
             CasStorageCacheProperties aCasStorageProperties,
+            @Autowired(required = false) CasStorageWriteBehindProperties aWriteBehindProperties,
             @Autowired(required = false) CasDoctor aCasDoctor,
             @Autowired(required = false) AnnotationSchemaService aSchemaService)
     {
@@ -168,25 +195,89 @@ public class CasStorageServiceImpl
         // Max. time we wait for a CAS to become available before giving up with an error
         config.setMaxWait(casStorageProperties.getCasBorrowWaitTimeout());
         // We do not have to set maxTotal because the default is already to have no limit (-1)
-        exclusiveAccessPool = new GenericKeyedObjectPool<>(new PooledCasHolderFactory(), config);
+        exclusiveAccessPool = new GenericKeyedObjectPool<>(
+                new PooledCasHolderFactory(this::compactDroppedCas), config);
 
-        sharedAccessCache = Caffeine.newBuilder() //
+        var offHeapCacheSize = casStorageProperties.getOffHeapCasCacheSize();
+        if (offHeapCacheSize != null && offHeapCacheSize.toBytes() > 0) {
+            offHeapCache = new OffHeapCasCache(offHeapCacheSize.toBytes());
+        }
+        else {
+            offHeapCache = null;
+        }
+
+        var sharedAccessCacheBuilder = Caffeine.newBuilder() //
                 .scheduler(Scheduler.systemScheduler()) //
                 .expireAfterAccess(casStorageProperties.getIdleCasEvictionDelay()) //
-                .maximumSize(casStorageProperties.getSharedCasCacheSize()) //
                 .recordStats() //
-                .evictionListener((key, value, cause) -> {
+                .evictionListener((CasKey key, CasHolder value, RemovalCause cause) -> {
                     LOG.debug("Marked CAS for eviction from shared-access pool: {} [{}]", value,
                             cause);
                 }) //
-                .build();
+                .removalListener((CasKey key, CasHolder value, RemovalCause cause) -> {
+                    // CASes which are dropped because they are outdated must not be kept, but
+                    // CASes which are dropped because of memory pressure or lack of use can be
+                    // moved to the off-heap cache. This happens asynchronously.
+                    if (offHeapCache != null && value != null && cause.wasEvicted()) {
+                        offHeapCache.put(value);
+                    }
+                });
+
+        var maxWeight = casStorageProperties.getSharedCasCacheMaxWeight();
+        if (maxWeight != null && maxWeight.toBytes() > 0) {
+            // Weights are in KB so that large CASes do not overflow the int weight
+            sharedAccessCacheBuilder //
+                    .maximumWeight(maxWeight.toKilobytes()) //
+                    .weigher((CasKey key, CasHolder value) -> (int) Math.min(Integer.MAX_VALUE,
+                            Math.max(1, value.getSize() / 1024)));
+        }
+        else {
+            sharedAccessCacheBuilder.maximumSize(casStorageProperties.getSharedCasCacheSize());
+        }
+
+        sharedAccessCache = sharedAccessCacheBuilder.build();
 
         if (casDoctor == null) {
             LOG.info("CAS doctor not available - unable to check/repair CASes");
         }
 
-        BaseLoggers.BOOT_LOG.info("CAS cache size: {} instances",
-                casStorageProperties.getSharedCasCacheSize());
+        if (maxWeight != null && maxWeight.toBytes() > 0) {
+            BaseLoggers.BOOT_LOG.info("CAS cache size: {} (estimated from CAS file sizes)",
+                    maxWeight);
+        }
+        else {
+            BaseLoggers.BOOT_LOG.info("CAS cache size: {} instances",
+                    casStorageProperties.getSharedCasCacheSize());
+        }
+
+        if (offHeapCache != null) {
+            BaseLoggers.BOOT_LOG.info("Off-heap CAS cache size: {}", offHeapCacheSize);
+        }
+
+        if (aWriteBehindProperties != null && aWriteBehindProperties.isEnabled()) {
+            writeBehindQueue = new CasWriteBehindQueue(driver, aWriteBehindProperties.getThreads(),
+                    aWriteBehindProperties.getMaxPendingWrites());
+            BaseLoggers.BOOT_LOG.info("CAS write-behind enabled - threads: {}  max-pending: {}",
+                    aWriteBehindProperties.getThreads(),
+                    aWriteBehindProperties.getMaxPendingWrites());
+        }
+        else {
+            writeBehindQueue = null;
+        }
+    }
+
+    @Override
+    public void destroy()
+    {
+        // Make sure that all pending writes are persisted before the application shuts down
+        if (writeBehindQueue != null) {
+            writeBehindQueue.close();
+        }
+    }
+
+    public Optional<CasWriteBehindQueue> getWriteBehindQueue()
+    {
+        return Optional.ofNullable(writeBehindQueue);
     }
 
     public long getSharedAccessCacheSize()
@@ -199,6 +290,21 @@ public class CasStorageServiceImpl
         return sharedAccessCache.stats();
     }
 
+    /**
+     * @return the estimated total size of the CASes in the shared cache in KB if the cache is
+     *         limited by weight.
+     */
+    public OptionalLong getSharedAccessCacheWeight()
+    {
+        return sharedAccessCache.policy().eviction().map(e -> e.weightedSize())
+                .orElse(OptionalLong.empty());
+    }
+
+    public Optional<OffHeapCasCache> getOffHeapCache()
+    {
+        return Optional.ofNullable(offHeapCache);
+    }
+
     @Override
     public void writeCas(SourceDocument aDocument, CAS aCas, String aUserName)
         throws IOException, CasSessionException
@@ -237,7 +343,9 @@ public class CasStorageServiceImpl
                             + "] on document [" + mCas.get().getSourceDocumentId() + "]");
                 }
 
-                realWriteCas(aDocument, aUserName, aCas);
+                // Managed CASes are protected by the session, so nobody else can access them while
+                // they are persisted in the background
+                realWriteCasBehind(aDocument, aUserName, aCas);
             }
             else {
                 try (var access = new WithExclusiveAccess(aDocument, aUserName)) {
@@ -267,6 +375,9 @@ public class CasStorageServiceImpl
             // Drop the CAS from the shared CAS it gets re-loaded on the next access - no effect if
             // the CAS is not present in the shared cache
             sharedAccessCache.invalidate(new CasKey(aDocument, aUserName));
+            if (offHeapCache != null) {
+                offHeapCache.invalidate(new CasKey(aDocument, aUserName));
+            }
 
             session.getManagedState(aCas).ifPresent(SessionManagedCas::incrementWriteCount);
         }
@@ -414,16 +525,24 @@ public class CasStorageServiceImpl
                 try (var access = new WithExclusiveAccess(aDocument, aUsername)) {
                     // Since we promise to only read the CAS, we don't have to worry about it being
                     // locked to a particular thread...
-                    casHolder = sharedAccessCache
-                            .get(new CasKey(aDocument, aUsername),
-                                    (key) -> CasHolder.of(key,
-                                            () -> getRealCas(readOrCreateUnmanagedCas(aDocument,
-                                                    aUsername, aSupplier, aUpgradeMode,
-                                                    aAccessMode))));
-                    var size = getSharedAccessCacheSize();
-                    var max = casStorageProperties.getSharedCasCacheSize();
-                    if (size > (max * 0.9)) {
-                        LOG.warn("Shared access CAS cache is >= 90% full: {} / {}", size, max);
+                    casHolder = sharedAccessCache.get(new CasKey(aDocument, aUsername),
+                            (key) -> loadSharedCas(key, aDocument, aUsername, aSupplier,
+                                    aUpgradeMode, aAccessMode));
+                    var maxWeight = casStorageProperties.getSharedCasCacheMaxWeight();
+                    var weight = getSharedAccessCacheWeight();
+                    if (maxWeight != null && weight.isPresent()) {
+                        var max = maxWeight.toKilobytes();
+                        if (weight.getAsLong() > (max * 0.9)) {
+                            LOG.warn("Shared access CAS cache is >= 90% full: {}KB / {}KB",
+                                    weight.getAsLong(), max);
+                        }
+                    }
+                    else {
+                        var size = getSharedAccessCacheSize();
+                        var max = casStorageProperties.getSharedCasCacheSize();
+                        if (size > (max * 0.9)) {
+                            LOG.warn("Shared access CAS cache is >= 90% full: {} / {}", size, max);
+                        }
                     }
                 }
             }
@@ -469,6 +588,47 @@ public class CasStorageServiceImpl
         }
     }
 
+    private CasHolder loadSharedCas(CasKey aKey, SourceDocument aDocument, String aUsername,
+            CasProvider aSupplier, CasUpgradeMode aUpgradeMode, CasAccessMode aAccessMode)
+    {
+        var cacheGeneration = offHeapCache != null
+                ? offHeapCache.getGeneration(aKey.getProjectId())
+                : -1;
+
+        var holder = CasHolder.of(aKey, () -> {
+            if (offHeapCache != null) {
+                flushWriteBehind(aDocument, aUsername);
+                var timestamp = driver.getCasMetadata(aDocument, aUsername)
+                        .map(CasStorageMetadata::getTimestamp);
+                if (timestamp.isPresent()) {
+                    var cas = offHeapCache.rehydrate(aKey, timestamp.get());
+                    if (cas.isPresent()) {
+                        LOG.trace("Rehydrated CAS for [{}]@{} from off-heap cache", aUsername,
+                                aDocument);
+                        return cas.get();
+                    }
+                }
+            }
+
+            return getRealCas(readOrCreateUnmanagedCas(aDocument, aUsername, aSupplier,
+                    aUpgradeMode, aAccessMode));
+        });
+
+        if (holder.isCasSet()) {
+            try {
+                holder.setSize(driver.getCasFileSize(aDocument, aUsername).orElse(0l));
+                holder.setTimestamp(driver.getCasMetadata(aDocument, aUsername)
+                        .map(CasStorageMetadata::getTimestamp).orElse(-1l));
+                holder.setCacheGeneration(cacheGeneration);
+            }
+            catch (IOException e) {
+                LOG.warn("Unable to determine size of CAS for [{}]@{}", aUsername, aDocument, e);
+            }
+        }
+
+        return holder;
+    }
+
     private CasHolder borrowCas(CasKey aKey)
     {
         try {
@@ -583,6 +743,9 @@ public class CasStorageServiceImpl
             }
         }
 
+        // Make sure we do not read a version that is about to be replaced by a pending write
+        flushWriteBehind(aDocument, aUsername);
+
         // If the CAS exists on disk already, load it from there
         if (driver.existsCas(aDocument, aUsername)) {
             source = "disk";
@@ -645,6 +808,10 @@ public class CasStorageServiceImpl
     {
         try (var logCtx = withProjectLogger(aDocument.getProject());
                 var access = new WithExclusiveAccess(aDocument, aUsername)) {
+            if (writeBehindQueue != null) {
+                writeBehindQueue.forget(new CasKey(aDocument, aUsername));
+            }
+
             var fileWasDeleted = driver.deleteCas(aDocument, aUsername);
 
             // Drop the CAS from the shared CAS it doesn't ghost around. Also set the deleted flag
@@ -656,6 +823,9 @@ public class CasStorageServiceImpl
                 sharedCasHolder.setDeleted(true);
             }
             sharedAccessCache.invalidate(key);
+            if (offHeapCache != null) {
+                offHeapCache.invalidate(key);
+            }
 
             // Drop the CAS from the exclusive access pool. This is done my marking it as deleted
             // and then releasing it (returning it to the pool). Upon return, the deleted flag
@@ -758,6 +928,7 @@ public class CasStorageServiceImpl
                 session.add(aDocument.getId(), aDataOwner, EXCLUSIVE_WRITE_ACCESS,
                         access.getHolder());
 
+                flushWriteBehind(aDocument, aDataOwner);
                 driver.exportCas(aDocument, aDataOwner, aStream);
             }
             finally {
@@ -783,6 +954,9 @@ public class CasStorageServiceImpl
                 session.add(aDocument.getId(), aDataOwner, EXCLUSIVE_WRITE_ACCESS,
                         access.getHolder());
 
+                if (writeBehindQueue != null) {
+                    writeBehindQueue.forget(new CasKey(aDocument, aDataOwner));
+                }
                 driver.importCas(aDocument, aDataOwner, aStream);
             }
             finally {
@@ -821,6 +995,7 @@ public class CasStorageServiceImpl
                 session.add(aDocument.getId(), aDataOwner, EXCLUSIVE_WRITE_ACCESS,
                         access.getHolder());
 
+                flushWriteBehind(aDocument, aDataOwner);
                 var cas = aLoader.load(aDocument, aDataOwner);
                 access.setCas(cas);
 
@@ -851,6 +1026,12 @@ public class CasStorageServiceImpl
         // Ensure that the CAS is not being re-written and temporarily unavailable while we check
         // for its existence
         try (var access = new WithExclusiveAccess(aDocument, aUser)) {
+            // A pending write creates the CAS if it does not exist yet
+            if (writeBehindQueue != null
+                    && writeBehindQueue.isPending(new CasKey(aDocument, aUser))) {
+                return true;
+            }
+
             return driver.existsCas(aDocument, aUser);
         }
         catch (IOException e) {
@@ -870,6 +1051,7 @@ public class CasStorageServiceImpl
         // Ensure that the CAS is not being re-written and temporarily unavailable while we check
         // for its existence
         try (var access = new WithExclusiveAccess(aDocument, aUser)) {
+            flushWriteBehind(aDocument, aUser);
             return driver.getCasFileSize(aDocument, aUser);
         }
         catch (IOException e) {
@@ -1016,7 +1198,15 @@ public class CasStorageServiceImpl
         // Ensure that the CAS is not being re-written and temporarily unavailable while we check
         // for its timestamp
         try (var access = new WithExclusiveAccess(aDocument, aUser)) {
-            return driver.getCasMetadata(aDocument, aUser).map(CasStorageMetadata::getTimestamp);
+            var timestamp = driver.getCasMetadata(aDocument, aUser)
+                    .map(CasStorageMetadata::getTimestamp);
+
+            if (writeBehindQueue != null) {
+                return writeBehindQueue.getEffectiveTimestamp(new CasKey(aDocument, aUser),
+                        timestamp);
+            }
+
+            return timestamp;
         }
         catch (IOException e) {
             throw e;
@@ -1037,7 +1227,31 @@ public class CasStorageServiceImpl
         // Ensure that the CAS is not being re-written and temporarily unavailable while we check
         // for its timestamp
         try (var access = new WithExclusiveAccess(aDocument, aUser)) {
-            return driver.verifyCasTimestamp(aDocument, aUser, aExpectedTimeStamp, aContextAction);
+            if (writeBehindQueue == null) {
+                return driver.verifyCasTimestamp(aDocument, aUser, aExpectedTimeStamp,
+                        aContextAction);
+            }
+
+            // While writes are pending, the file on disk is not up-to-date, so we check against
+            // the logical timestamp of the last submitted write instead
+            var key = new CasKey(aDocument, aUser);
+            if (writeBehindQueue.isPending(key)) {
+                var logicalTimestamp = writeBehindQueue.getEffectiveTimestamp(key,
+                        Optional.empty());
+                if (logicalTimestamp.isPresent() && logicalTimestamp.get() != aExpectedTimeStamp) {
+                    throw new ConcurentCasModificationException("While [" + aContextAction
+                            + "], the CAS storage detected a concurrent modification to the "
+                            + "annotation CAS for user [" + aUser + "] in document " + aDocument
+                            + " or project " + aDocument.getProject() + " (expected: "
+                            + aExpectedTimeStamp + " actual pending: " + logicalTimestamp.get()
+                            + ")");
+                }
+                return logicalTimestamp;
+            }
+
+            var diskTimestamp = driver.verifyCasTimestamp(aDocument, aUser,
+                    writeBehindQueue.toDiskTimestamp(key, aExpectedTimeStamp), aContextAction);
+            return writeBehindQueue.getEffectiveTimestamp(key, diskTimestamp);
         }
         catch (IOException e) {
             throw e;
@@ -1085,6 +1299,9 @@ public class CasStorageServiceImpl
 
         // Drop all cached CASes from the updated project from the cache so the CASes get loaded
         // with an updated type system on next access
+        if (offHeapCache != null) {
+            offHeapCache.invalidateProject(aEvent.getProject().getId());
+        }
         sharedAccessCache.asMap().keySet()
                 .removeIf(key -> Objects.equals(key.getProjectId(), aEvent.getProject().getId()));
     }
@@ -1105,7 +1322,83 @@ public class CasStorageServiceImpl
                     aDocument.getProject());
         }
 
+        if (writeBehindQueue == null) {
+            driver.writeCas(aDocument, aUserName, aCas);
+            return;
+        }
+
+        // Writing synchronously must not overtake pending background writes. Also, the CAS may
+        // carry a logical timestamp handed out by the write-behind queue which we need to map
+        // back to the timestamp on disk for the concurrent modification check in the driver.
+        var key = new CasKey(aDocument, aUserName);
+        writeBehindQueue.flush(key);
+        var lastChanged = aCas.getTypeSystem().getType(CASMetadata._TypeName) != null
+                ? CasMetadataUtils.getLastChanged(aCas)
+                : -1l;
+        if (lastChanged >= 0) {
+            CasMetadataUtils.addOrUpdateCasMetadata(aCas,
+                    writeBehindQueue.toDiskTimestamp(key, lastChanged), aDocument, aUserName);
+        }
+
         driver.writeCas(aDocument, aUserName, aCas);
+
+        driver.getCasMetadata(aDocument, aUserName).ifPresent(
+                meta -> writeBehindQueue.synchronouslyWritten(key, meta.getTimestamp()));
+    }
+
+    /**
+     * Writes the CAS in the background if write-behind is enabled. Otherwise or if the
+     * write-behind queue is full, the CAS is written synchronously.
+     */
+    private void realWriteCasBehind(SourceDocument aDocument, String aUserName, CAS aCas)
+        throws IOException
+    {
+        if (writeBehindQueue == null) {
+            realWriteCas(aDocument, aUserName, aCas);
+            return;
+        }
+
+        // Analysis happens on the request thread so that problems are reported to the caller
+        analyze(aDocument, aUserName, aCas);
+
+        LOG.debug("Scheduling background write of annotations for [{}]@{} in {}", aUserName,
+                aDocument, aDocument.getProject());
+
+        if (!writeBehindQueue.submit(aDocument, aUserName, aCas)) {
+            LOG.debug("Write-behind queue full - writing synchronously");
+            realWriteCas(aDocument, aUserName, aCas);
+        }
+    }
+
+    /**
+     * Gives the driver a chance to consolidate the data of a CAS which has been dropped from the
+     * exclusive access pool. This runs while the pool still blocks other attempts to borrow the
+     * CAS.
+     */
+    private void compactDroppedCas(CasHolder aHolder)
+    {
+        if (!aHolder.isCasSet() || aHolder.isDeleted()) {
+            return;
+        }
+
+        var key = aHolder.getKey();
+        try {
+            if (writeBehindQueue != null) {
+                writeBehindQueue.flush(key);
+            }
+
+            driver.compactCas(key.getProjectId(), key.getDocumentId(), key.getUserId());
+        }
+        catch (Exception e) {
+            LOG.warn("Unable to compact CAS {}", key, e);
+        }
+    }
+
+    private void flushWriteBehind(SourceDocument aDocument, String aUserName) throws IOException
+    {
+        if (writeBehindQueue != null) {
+            writeBehindQueue.flush(new CasKey(aDocument, aUserName));
+        }
     }
 
     public static class LoggingDefaultEvictionPolicy
@@ -115,9 +115,78 @@ public class CasStorageServiceSharedAccessCacheAdapter
         return casStorageProperties.getSharedCasCacheSize();
     }
 
+    @ManagedAttribute
+    public long getActiveWeightKB()
+    {
+        return casStorageService.getSharedAccessCacheWeight().orElse(-1);
+    }
+
+    @ManagedAttribute
+    public long getMaxWeightKB()
+    {
+        var maxWeight = casStorageProperties.getSharedCasCacheMaxWeight();
+        return maxWeight != null ? maxWeight.toKilobytes() : -1;
+    }
+
+    @ManagedAttribute
+    public long getOffHeapHitCount()
+    {
+        return casStorageService.getOffHeapCache().map(OffHeapCasCache::getHitCount).orElse(0l);
+    }
+
+    @ManagedAttribute
+    public long getOffHeapMissCount()
+    {
+        return casStorageService.getOffHeapCache().map(OffHeapCasCache::getMissCount).orElse(0l);
+    }
+
+    @ManagedAttribute
+    public long getOffHeapStaleCount()
+    {
+        return casStorageService.getOffHeapCache().map(OffHeapCasCache::getStaleCount).orElse(0l);
+    }
+
+    @ManagedAttribute
+    public long getOffHeapDemotionCount()
+    {
+        return casStorageService.getOffHeapCache().map(OffHeapCasCache::getDemotionCount)
+                .orElse(0l);
+    }
+
+    @ManagedAttribute
+    public long getOffHeapTotalRehydrationTime()
+    {
+        return casStorageService.getOffHeapCache().map(OffHeapCasCache::getTotalRehydrationTime)
+                .orElse(0l);
+    }
+
+    @ManagedAttribute
+    public long getOffHeapActiveCount()
+    {
+        return casStorageService.getOffHeapCache().map(OffHeapCasCache::getSize).orElse(0l);
+    }
+
+    @ManagedAttribute
+    public long getOffHeapActiveBytes()
+    {
+        return casStorageService.getOffHeapCache().map(OffHeapCasCache::getBytes).orElse(0l);
+    }
+
+    @ManagedAttribute
+    public long getOffHeapActiveUncompressedBytes()
+    {
+        return casStorageService.getOffHeapCache().map(OffHeapCasCache::getUncompressedBytes)
+                .orElse(0l);
+    }
+
     @ManagedAttribute
     public double getUtilizationRate()
     {
+        var maxWeight = getMaxWeightKB();
+        if (maxWeight > 0) {
+            return (double) getActiveWeightKB() / maxWeight;
+        }
+
         long max = getMaxCount();
 
         if (max == 0) {
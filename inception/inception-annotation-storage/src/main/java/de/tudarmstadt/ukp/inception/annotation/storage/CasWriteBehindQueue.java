@@ -0,0 +1,577 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.annotation.storage;
+
+import static java.lang.Math.max;
+import static java.lang.System.currentTimeMillis;
+import static java.lang.Thread.NORM_PRIORITY;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.uima.cas.CAS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.annotation.storage.driver.CasSnapshot;
+import de.tudarmstadt.ukp.inception.annotation.storage.driver.CasStorageDriver;
+
+/**
+ * Persists CASes in the background. The caller only pays for taking a snapshot of the CAS via
+ * {@link CasStorageDriver#takeSnapshot}. The snapshot already has the form in which the driver
+ * persists it, so the background writer only has to hand it to
+ * {@link CasStorageDriver#writeSnapshot}. Writes to the same CAS are persisted in the order they
+ * were submitted.
+ * <p>
+ * If the driver records changes as deltas (cf. {@code cas-storage.delta-cas-serialization}), the
+ * snapshot may be a delta relative to the last full snapshot of the CAS. Such a delta can only be
+ * written after the full snapshot it builds on. Thus, the queue holds at most one full snapshot
+ * and one delta per CAS: a new full snapshot replaces everything that is still waiting to be
+ * written and a new delta replaces the waiting delta (deltas are cumulative).
+ * <p>
+ * If a background write fails, the snapshot is kept and the queue stops writing the CAS in the
+ * background. The next attempt to write, read or flush the CAS retries the write synchronously
+ * and reports the error to that caller if it fails again.
+ * <p>
+ * Because the CAS file on disk is only updated some time after the write has been submitted, the
+ * queue hands out a <i>logical timestamp</i> for each write. This timestamp is stored in the CAS
+ * metadata of the submitted CAS and it is what {@link #getEffectiveTimestamp} reports for the CAS
+ * as long as the file on disk has not been changed by anybody else.
+ * <p>
+ * The bookkeeping for a CAS is dropped as soon as all its writes have been persisted. Only the
+ * mapping between the logical timestamp of the last write and the timestamp of the file on disk
+ * is retained (in a bounded cache) because CASes carrying the logical timestamp may still be in
+ * use.
+ */
+public class CasWriteBehindQueue
+    implements AutoCloseable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private static final int MAX_TRACKED_DISK_TIMESTAMPS = 10_000;
+
+    private final CasStorageDriver driver;
+    private final ExecutorService executor;
+    private final int maxPendingWrites;
+    private final Map<CasKey, KeyState> states = new ConcurrentHashMap<>();
+    private final Cache<CasKey, DiskTimestamp> diskTimestamps = Caffeine.newBuilder() //
+            .maximumSize(MAX_TRACKED_DISK_TIMESTAMPS) //
+            .build();
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final AtomicLong submittedWrites = new AtomicLong();
+    private final AtomicLong coalescedWrites = new AtomicLong();
+
+    public CasWriteBehindQueue(CasStorageDriver aDriver, int aThreads, int aMaxPendingWrites)
+    {
+        driver = aDriver;
+        maxPendingWrites = aMaxPendingWrites;
+        executor = Executors.newFixedThreadPool(aThreads, new BasicThreadFactory.Builder() //
+                .daemon(true) //
+                .namingPattern("cas-write-behind-%d") //
+                .priority(NORM_PRIORITY) //
+                .build());
+    }
+
+    /**
+     * Takes a snapshot of the given CAS and schedules it for writing.
+     * 
+     * @param aDocument
+     *            the document.
+     * @param aUser
+     *            the data owner.
+     * @param aCas
+     *            the CAS.
+     * @return {@code false} if the queue is full and the CAS has not been scheduled. In this case,
+     *         the caller should write the CAS synchronously.
+     * @throws IOException
+     *             if the snapshot could not be taken or if a previous background write of the CAS
+     *             has failed.
+     */
+    public boolean submit(SourceDocument aDocument, String aUser, CAS aCas) throws IOException
+    {
+        var key = new CasKey(aDocument, aUser);
+
+        long timestamp;
+        while (true) {
+            var state = states.computeIfAbsent(key, this::newKeyState);
+            synchronized (state) {
+                if (state.retired) {
+                    // The state has been dropped by the background writer in the meantime
+                    continue;
+                }
+
+                retryFailedWrites(key, state);
+
+                if (!state.hasPending() && pendingWrites.get() >= maxPendingWrites) {
+                    return false;
+                }
+
+                var snapshot = driver.takeSnapshot(aDocument, aUser, aCas);
+                timestamp = max(currentTimeMillis(), state.logicalTimestamp + 1);
+                state.logicalTimestamp = timestamp;
+
+                var write = new PendingWrite(aDocument, aUser, snapshot, timestamp);
+                if (snapshot.isDelta()) {
+                    enqueueDelta(key, state, write);
+                }
+                else {
+                    enqueueFull(key, state, write);
+                }
+                submittedWrites.incrementAndGet();
+
+                if (!state.scheduled) {
+                    state.scheduled = true;
+                    executor.execute(() -> drain(key, state));
+                }
+                break;
+            }
+        }
+
+        // The caller owns the CAS, so we can safely update its metadata here
+        CasMetadataUtils.addOrUpdateCasMetadata(aCas, timestamp, aDocument, aUser);
+
+        return true;
+    }
+
+    private void enqueueFull(CasKey aKey, KeyState aState, PendingWrite aWrite)
+    {
+        // A full snapshot contains everything the waiting snapshots contain
+        if (aState.pendingFull != null || aState.pendingDelta != null) {
+            coalescedWrites.incrementAndGet();
+            LOG.trace("Coalescing pending writes of {}", aKey);
+        }
+
+        if (aState.pendingFull == null) {
+            pendingWrites.incrementAndGet();
+        }
+        if (aState.pendingDelta != null) {
+            pendingWrites.decrementAndGet();
+        }
+
+        aState.pendingFull = aWrite;
+        aState.pendingDelta = null;
+    }
+
+    private void enqueueDelta(CasKey aKey, KeyState aState, PendingWrite aWrite)
+    {
+        // Deltas are cumulative, so the new delta contains everything the waiting one contains.
+        // A waiting full snapshot must be kept though because the delta builds on it.
+        if (aState.pendingDelta != null) {
+            coalescedWrites.incrementAndGet();
+            LOG.trace("Coalescing pending delta of {}", aKey);
+        }
+        else {
+            pendingWrites.incrementAndGet();
+        }
+
+        aState.pendingDelta = aWrite;
+    }
+
+    /**
+     * Waits until all writes submitted for the given CAS have been persisted. Writes which have
+     * failed in the background are retried.
+     * 
+     * @param aKey
+     *            the CAS key.
+     * @throws IOException
+     *             if a write of the CAS has failed again.
+     */
+    public void flush(CasKey aKey) throws IOException
+    {
+        var state = states.get(aKey);
+        if (state == null) {
+            return;
+        }
+
+        synchronized (state) {
+            state.awaitIdle();
+            try {
+                retryFailedWrites(aKey, state);
+            }
+            finally {
+                retireIfIdle(aKey, state);
+            }
+        }
+    }
+
+    /**
+     * Waits until all writes submitted so far have been persisted. Writes which have failed in the
+     * background are retried.
+     */
+    public void flushAll()
+    {
+        for (var entry : states.entrySet()) {
+            var state = entry.getValue();
+            synchronized (state) {
+                state.awaitIdle();
+                try {
+                    retryFailedWrites(entry.getKey(), state);
+                }
+                catch (IOException e) {
+                    LOG.error("Unable to write CAS {}", entry.getKey(), e);
+                }
+                finally {
+                    retireIfIdle(entry.getKey(), state);
+                }
+            }
+        }
+    }
+
+    /**
+     * Flushes the given CAS and then forgets everything about it. This must be called when the
+     * CAS file is deleted or replaced.
+     * 
+     * @param aKey
+     *            the CAS key.
+     * @throws IOException
+     *             if a background write of the CAS has failed.
+     */
+    public void forget(CasKey aKey) throws IOException
+    {
+        try {
+            flush(aKey);
+        }
+        finally {
+            states.remove(aKey);
+            diskTimestamps.invalidate(aKey);
+        }
+    }
+
+    /**
+     * Updates the bookkeeping after the CAS has been written synchronously by the caller.
+     * 
+     * @param aKey
+     *            the CAS key.
+     * @param aDiskTimestamp
+     *            the timestamp of the CAS file after the write.
+     */
+    public void synchronouslyWritten(CasKey aKey, long aDiskTimestamp)
+    {
+        var state = states.get(aKey);
+        if (state == null) {
+            diskTimestamps.invalidate(aKey);
+            return;
+        }
+
+        synchronized (state) {
+            state.logicalTimestamp = max(state.logicalTimestamp, aDiskTimestamp);
+            state.diskTimestamp = aDiskTimestamp;
+            state.diskLogicalTimestamp = aDiskTimestamp;
+            // The file on disk now carries the same timestamp as the CAS, so there is nothing
+            // left to translate
+            diskTimestamps.invalidate(aKey);
+        }
+    }
+
+    /**
+     * Translates a CAS timestamp as recorded in the CAS metadata of a managed CAS into the
+     * timestamp the storage driver expects, i.e. the timestamp of the CAS file on disk.
+     * 
+     * @param aKey
+     *            the CAS key.
+     * @param aTimestamp
+     *            the timestamp from the CAS metadata.
+     * @return the corresponding disk timestamp or the given timestamp if no translation is
+     *         necessary.
+     */
+    public long toDiskTimestamp(CasKey aKey, long aTimestamp)
+    {
+        var state = states.get(aKey);
+        if (state == null) {
+            var known = diskTimestamps.getIfPresent(aKey);
+            if (known != null && aTimestamp == known.logical()) {
+                return known.disk();
+            }
+            return aTimestamp;
+        }
+
+        synchronized (state) {
+            if (state.diskTimestamp >= 0 && aTimestamp == state.diskLogicalTimestamp) {
+                return state.diskTimestamp;
+            }
+            return aTimestamp;
+        }
+    }
+
+    /**
+     * @param aKey
+     *            the CAS key.
+     * @param aDiskTimestamp
+     *            the current timestamp of the CAS file on disk (if it exists).
+     * @return the timestamp of the CAS as seen by the users of the CAS storage. If there are
+     *         pending writes, this is the logical timestamp of the last submitted write. If the
+     *         last write to the file on disk was done by the queue, it is the logical timestamp of
+     *         that write. Otherwise, it is the disk timestamp.
+     */
+    public Optional<Long> getEffectiveTimestamp(CasKey aKey, Optional<Long> aDiskTimestamp)
+    {
+        var state = states.get(aKey);
+        if (state == null) {
+            var known = diskTimestamps.getIfPresent(aKey);
+            if (known != null && aDiskTimestamp.isPresent()
+                    && aDiskTimestamp.get() == known.disk()) {
+                return Optional.of(known.logical());
+            }
+            return aDiskTimestamp;
+        }
+
+        synchronized (state) {
+            if (state.isBusy()) {
+                return Optional.of(state.logicalTimestamp);
+            }
+
+            if (aDiskTimestamp.isPresent() && state.diskTimestamp >= 0
+                    && aDiskTimestamp.get() == state.diskTimestamp) {
+                return Optional.of(state.diskLogicalTimestamp);
+            }
+
+            return aDiskTimestamp;
+        }
+    }
+
+    public boolean isPending(CasKey aKey)
+    {
+        var state = states.get(aKey);
+        if (state == null) {
+            return false;
+        }
+
+        synchronized (state) {
+            return state.isBusy();
+        }
+    }
+
+    public int getPendingWrites()
+    {
+        return pendingWrites.get();
+    }
+
+    public long getSubmittedWrites()
+    {
+        return submittedWrites.get();
+    }
+
+    public long getCoalescedWrites()
+    {
+        return coalescedWrites.get();
+    }
+
+    /**
+     * @return the number of CASes for which writes are pending (including writes which have failed
+     *         in the background).
+     */
+    public int getTrackedCases()
+    {
+        return states.size();
+    }
+
+    private KeyState newKeyState(CasKey aKey)
+    {
+        var state = new KeyState();
+        var known = diskTimestamps.getIfPresent(aKey);
+        if (known != null) {
+            state.logicalTimestamp = known.logical();
+            state.diskTimestamp = known.disk();
+            state.diskLogicalTimestamp = known.logical();
+        }
+        return state;
+    }
+
+    /**
+     * Drops the state of the given CAS if all its writes have been persisted. Must be called while
+     * holding the lock on the state.
+     */
+    private void retireIfIdle(CasKey aKey, KeyState aState)
+    {
+        if (aState.retired || aState.isBusy()) {
+            return;
+        }
+
+        if (aState.diskTimestamp >= 0) {
+            diskTimestamps.put(aKey,
+                    new DiskTimestamp(aState.diskTimestamp, aState.diskLogicalTimestamp));
+        }
+
+        aState.retired = true;
+        states.remove(aKey, aState);
+    }
+
+    private void drain(CasKey aKey, KeyState aState)
+    {
+        while (true) {
+            PendingWrite write;
+            synchronized (aState) {
+                write = aState.failure == null ? aState.nextPending() : null;
+                if (write == null) {
+                    aState.scheduled = false;
+                    aState.notifyAll();
+                    retireIfIdle(aKey, aState);
+                    return;
+                }
+            }
+
+            try {
+                persist(aState, write);
+            }
+            catch (Exception e) {
+                // The snapshot remains in the queue and is retried synchronously on the next
+                // access to the CAS
+                LOG.error("Unable to write CAS for [{}]@{} in background - will retry on next "
+                        + "access", write.user(), write.document(), e);
+                synchronized (aState) {
+                    aState.failure = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Synchronously writes the snapshots which could not be written in the background. Must be
+     * called while holding the lock on the state and after the background writer has stopped.
+     */
+    private void retryFailedWrites(CasKey aKey, KeyState aState) throws IOException
+    {
+        if (aState.failure == null) {
+            return;
+        }
+
+        LOG.info("Retrying failed background write of {}", aKey);
+
+        PendingWrite write;
+        while ((write = aState.nextPending()) != null) {
+            try {
+                persist(aState, write);
+            }
+            catch (Exception e) {
+                aState.failure = e;
+                throw new IOException("Unable to write CAS for [" + write.user() + "]@"
+                        + write.document() + " (background write failed before)", e);
+            }
+        }
+
+        aState.failure = null;
+    }
+
+    private void persist(KeyState aState, PendingWrite aWrite) throws IOException
+    {
+        // Consecutive background writes build on each other. The snapshot may still carry the
+        // logical timestamp of a previous write, but the driver needs to check against the file
+        // timestamp which was produced by that write.
+        long expectedDiskTimestamp;
+        synchronized (aState) {
+            expectedDiskTimestamp = aState.diskTimestamp >= 0 ? aState.diskTimestamp
+                    : aWrite.snapshot().getTimestamp();
+        }
+
+        var diskTimestamp = driver.writeSnapshot(aWrite.document(), aWrite.user(),
+                aWrite.snapshot(), expectedDiskTimestamp);
+
+        synchronized (aState) {
+            aState.diskTimestamp = diskTimestamp;
+            aState.diskLogicalTimestamp = aWrite.timestamp();
+
+            // A newer snapshot may have replaced the written one in the meantime
+            if (aState.pendingFull == aWrite) {
+                aState.pendingFull = null;
+                pendingWrites.decrementAndGet();
+            }
+            else if (aState.pendingDelta == aWrite) {
+                aState.pendingDelta = null;
+                pendingWrites.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        flushAll();
+
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record PendingWrite(SourceDocument document, String user, CasSnapshot snapshot,
+            long timestamp)
+    {}
+
+    private record DiskTimestamp(long disk, long logical)
+    {}
+
+    private static class KeyState
+    {
+        private PendingWrite pendingFull;
+        private PendingWrite pendingDelta;
+        private boolean scheduled;
+        private long logicalTimestamp = -1;
+        private long diskTimestamp = -1;
+        private long diskLogicalTimestamp = -1;
+        private Exception failure;
+        private boolean retired;
+
+        private void awaitIdle()
+        {
+            while (scheduled) {
+                try {
+                    wait();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        private boolean hasPending()
+        {
+            return pendingFull != null || pendingDelta != null;
+        }
+
+        private boolean isBusy()
+        {
+            return scheduled || hasPending();
+        }
+
+        /**
+         * @return the next snapshot to write. A waiting full snapshot must be written before the
+         *         delta which builds on it.
+         */
+        private PendingWrite nextPending()
+        {
+            return pendingFull != null ? pendingFull : pendingDelta;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.annotation.storage;
+
+import static de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil.getRealCas;
+import static java.lang.System.currentTimeMillis;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.TypeSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xerial.snappy.Snappy;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem.CasPersistenceUtils;
+import de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil;
+
+/**
+ * Second tier of the shared read-only CAS cache. CASes evicted from the shared cache are kept here
+ * in compressed binary form in direct (off-heap) buffers. Turning such a buffer back into a CAS is
+ * considerably cheaper than loading (and possibly upgrading) it from disk again.
+ * <p>
+ * Like the annotation files written with the shared type system serialization, the buffers only
+ * contain the CAS data in binary form 6. The type system is serialized once and shared by all
+ * entries using it. Entries are weighed by the uncompressed size of their data, so the cache size
+ * bounds the amount of CAS data kept rather than the amount of compressed data.
+ * <p>
+ * Each entry remembers the timestamp of the CAS file it was created from. It is only used if the
+ * CAS on disk still has the same timestamp. Additionally, each project has a generation which is
+ * incremented when the CASes of the project need to be re-loaded, e.g. because the type system has
+ * changed. CASes loaded before that are not accepted anymore.
+ */
+public class OffHeapCasCache
+{
+    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final Cache<CasKey, Entry> cache;
+    private final Cache<TypeSystem, byte[]> typeSystems = Caffeine.newBuilder() //
+            .weakKeys() //
+            .build();
+    private final Map<Long, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong staleCount = new AtomicLong();
+    private final AtomicLong demotionCount = new AtomicLong();
+    private final AtomicLong rehydrationTime = new AtomicLong();
+
+    public OffHeapCasCache(long aMaxBytes)
+    {
+        cache = Caffeine.newBuilder() //
+                .maximumWeight(aMaxBytes) //
+                .weigher((CasKey key, Entry value) -> (int) Math.min(Integer.MAX_VALUE,
+                        value.uncompressedSize())) //
+                .build();
+    }
+
+    /**
+     * Stores a compressed copy of the CAS in the given holder.
+     *
+     * @param aHolder
+     *            the holder of a CAS that is being evicted from the shared cache.
+     */
+    public void put(CasHolder aHolder)
+    {
+        var key = aHolder.getKey();
+        if (!aHolder.isCasSet() || aHolder.getTimestamp() < 0
+                || aHolder.getCacheGeneration() != getGeneration(key.getProjectId())) {
+            return;
+        }
+
+        try {
+            var realCas = getRealCas(aHolder.getCas());
+            var typeSystem = realCas.getTypeSystem();
+            if (typeSystems.getIfPresent(typeSystem) == null) {
+                typeSystems.put(typeSystem,
+                        CasPersistenceUtils.writeTypeSystemToByteArray(realCas));
+            }
+
+            var data = CasPersistenceUtils.writeUncompressedForm6(realCas);
+            var compressed = Snappy.compress(data);
+
+            var buffer = ByteBuffer.allocateDirect(compressed.length);
+            buffer.put(compressed);
+            buffer.flip();
+
+            // If the project was invalidated while we were compressing the CAS, we must drop it
+            var entry = new Entry(aHolder.getTimestamp(), typeSystem, buffer, data.length);
+            cache.asMap().compute(key, (k, v) -> aHolder.getCacheGeneration() == getGeneration(
+                    k.getProjectId()) ? entry : v);
+            demotionCount.incrementAndGet();
+        }
+        catch (IOException | OutOfMemoryError e) {
+            // Direct memory is limited separately from the heap - if it is exhausted, we simply do
+            // not keep the CAS
+            LOG.warn("Unable to move CAS {} to off-heap cache", key, e);
+        }
+    }
+
+    /**
+     * Restores a CAS from the cache.
+     *
+     * @param aKey
+     *            the key of the CAS.
+     * @param aTimestamp
+     *            the current timestamp of the CAS file.
+     * @return the CAS if there is a copy matching the given timestamp.
+     */
+    public Optional<CAS> rehydrate(CasKey aKey, long aTimestamp) throws IOException
+    {
+        var entry = cache.getIfPresent(aKey);
+
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return Optional.empty();
+        }
+
+        if (entry.timestamp() != aTimestamp) {
+            cache.invalidate(aKey);
+            staleCount.incrementAndGet();
+            missCount.incrementAndGet();
+            return Optional.empty();
+        }
+
+        // The entry refers to the type system, so it cannot have been dropped
+        var typeSystem = typeSystems.getIfPresent(entry.typeSystem());
+
+        var start = currentTimeMillis();
+
+        CAS cas;
+        try {
+            cas = WebAnnoCasUtil.createCas();
+        }
+        catch (UIMAException e) {
+            throw new IOException("Unable to create empty CAS", e);
+        }
+
+        var compressed = new byte[entry.data().capacity()];
+        entry.data().duplicate().get(compressed);
+        CasPersistenceUtils.readForm6(cas, new ByteArrayInputStream(Snappy.uncompress(compressed)),
+                new ByteArrayInputStream(typeSystem));
+
+        rehydrationTime.addAndGet(currentTimeMillis() - start);
+        hitCount.incrementAndGet();
+
+        // Like CASes loaded from disk, the rehydrated CAS is shared across threads, so it must not
+        // be bound to the thread that happened to rehydrate it
+        return Optional.of(getRealCas(cas));
+    }
+
+    public void invalidate(CasKey aKey)
+    {
+        cache.invalidate(aKey);
+    }
+
+    public void invalidateProject(long aProjectId)
+    {
+        generations.computeIfAbsent(aProjectId, id -> new AtomicLong()).incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> key.getProjectId() == aProjectId);
+    }
+
+    public long getGeneration(long aProjectId)
+    {
+        var generation = generations.get(aProjectId);
+        return generation != null ? generation.get() : 0;
+    }
+
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    public long getStaleCount()
+    {
+        return staleCount.get();
+    }
+
+    public long getDemotionCount()
+    {
+        return demotionCount.get();
+    }
+
+    /**
+     * @return total time spent turning cached data back into CASes in milliseconds.
+     */
+    public long getTotalRehydrationTime()
+    {
+        return rehydrationTime.get();
+    }
+
+    public long getSize()
+    {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * @return the amount of off-heap memory used by the cached data.
+     */
+    public long getBytes()
+    {
+        return cache.asMap().values().stream().mapToLong(e -> e.data().capacity()).sum();
+    }
+
+    /**
+     * @return the uncompressed size of the cached data which is what the cache size is limited by.
+     */
+    public long getUncompressedBytes()
+    {
+        return cache.asMap().values().stream().mapToLong(Entry::uncompressedSize).sum();
+    }
+
+    private record Entry(long timestamp, TypeSystem typeSystem, ByteBuffer data,
+            long uncompressedSize)
+    {}
+}
@@ -19,6 +19,8 @@ package de.tudarmstadt.ukp.inception.annotation.storage;
 
 import static org.apache.commons.pool2.PooledObjectState.RETURNING;
 
+import java.util.function.Consumer;
+
 import org.apache.commons.pool2.BaseKeyedPooledObjectFactory;
 import org.apache.commons.pool2.PooledObject;
 import org.apache.commons.pool2.impl.DefaultPooledObject;
@@ -26,6 +28,24 @@ import org.apache.commons.pool2.impl.DefaultPooledObject;
 public class PooledCasHolderFactory
     extends BaseKeyedPooledObjectFactory<CasKey, CasHolder>
 {
+    private final Consumer<CasHolder> destroyListener;
+
+    public PooledCasHolderFactory()
+    {
+        this(null);
+    }
+
+    /**
+     * @param aDestroyListener
+     *            (optional) called when a holder is dropped from the pool, e.g. because it has been
+     *            idle for too long. The pool does not hand out a new holder for the same key until
+     *            the listener returns.
+     */
+    public PooledCasHolderFactory(Consumer<CasHolder> aDestroyListener)
+    {
+        destroyListener = aDestroyListener;
+    }
+
     @Override
     public CasHolder create(CasKey aKey) throws Exception
     {
@@ -38,6 +58,14 @@ public class PooledCasHolderFactory
         return new DefaultPooledObject<CasHolder>(aCas);
     }
 
+    @Override
+    public void destroyObject(CasKey aKey, PooledObject<CasHolder> aP) throws Exception
+    {
+        if (destroyListener != null) {
+            destroyListener.accept(aP.getObject());
+        }
+    }
+
     @Override
     public boolean validateObject(CasKey aKey, PooledObject<CasHolder> aP)
     {
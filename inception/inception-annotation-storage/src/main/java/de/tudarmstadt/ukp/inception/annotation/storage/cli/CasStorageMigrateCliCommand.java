@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.annotation.storage.cli;
+
+import static java.util.Arrays.asList;
+
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnNotWebApplication;
+import org.springframework.stereotype.Component;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.inception.annotation.storage.driver.CasStorageDriver;
+import de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem.FileSystemCasStorageDriver;
+import de.tudarmstadt.ukp.inception.project.api.ProjectService;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+@ConditionalOnNotWebApplication
+@Component
+@Command( //
+        name = "migrate", //
+        description = { //
+                "Converts all annotation files to the currently configured storage format.", //
+                "NOTE: Do not run this while the server is running!" })
+public class CasStorageMigrateCliCommand
+    implements Callable<Integer>
+{
+    private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    @Option(names = { "--project-slug" }, description = "Migrate only the given project")
+    private String slug;
+
+    private final ProjectService projectService;
+    private final CasStorageDriver driver;
+
+    public CasStorageMigrateCliCommand(ProjectService aProjectService, CasStorageDriver aDriver)
+    {
+        projectService = aProjectService;
+        driver = aDriver;
+    }
+
+    @Override
+    public Integer call() throws Exception
+    {
+        if (!(driver instanceof FileSystemCasStorageDriver fsDriver)) {
+            LOG.error("CAS storage driver [{}] does not support format migration",
+                    driver.getClass().getName());
+            return 1;
+        }
+
+        for (var project : selectProjects()) {
+            LOG.info("Migrating annotation files of project {}", project);
+            var converted = fsDriver.migrateStorageFormat(project.getId());
+            LOG.info("Converted {} annotation files in project {}", converted, project);
+        }
+
+        return 0;
+    }
+
+    private List<Project> selectProjects()
+    {
+        if (slug != null) {
+            return asList(projectService.getProjectBySlug(slug));
+        }
+
+        return projectService.listProjects();
+    }
+}
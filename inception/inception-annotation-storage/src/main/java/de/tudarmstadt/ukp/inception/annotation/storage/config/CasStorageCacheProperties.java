@@ -19,6 +19,8 @@ package de.tudarmstadt.ukp.inception.annotation.storage.config;
 
 import java.time.Duration;
 
+import org.springframework.util.unit.DataSize;
+
 public interface CasStorageCacheProperties
 {
     /**
@@ -44,4 +46,18 @@ public interface CasStorageCacheProperties
      * @return number of CAS instances that should be kept in memory for shared-read-only access.
      */
     long getSharedCasCacheSize();
+
+    /**
+     * @return maximum total size of the CASes kept in memory for shared-read-only access. The size
+     *         of a CAS is estimated from the size of its file in the storage. If this is set, it
+     *         replaces the limit given by {@link #getSharedCasCacheSize()}.
+     */
+    DataSize getSharedCasCacheMaxWeight();
+
+    /**
+     * @return maximum uncompressed size of the CASes that were evicted from the shared-read-only
+     *         cache and are kept as compressed copies in off-heap memory. If zero, no off-heap
+     *         copies are kept.
+     */
+    DataSize getOffHeapCasCacheSize();
 }
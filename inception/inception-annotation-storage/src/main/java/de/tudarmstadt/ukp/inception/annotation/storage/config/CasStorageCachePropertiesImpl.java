@@ -20,6 +20,7 @@ package de.tudarmstadt.ukp.inception.annotation.storage.config;
 import java.time.Duration;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 /**
  * <p>
@@ -34,6 +35,8 @@ public class CasStorageCachePropertiesImpl
     private Duration minIdleCasTime = Duration.ofMinutes(5);
     private Duration casBorrowWaitTimeout = Duration.ofMinutes(3);
     private long sharedCasCacheSize = getDefaultCasCacheSize();
+    private DataSize sharedCasCacheMaxWeight;
+    private DataSize offHeapCasCacheSize = DataSize.ofBytes(0);
 
     @Override
     public Duration getIdleCasEvictionDelay()
@@ -68,6 +71,28 @@ public class CasStorageCachePropertiesImpl
         sharedCasCacheSize = aSharedCasCacheSize;
     }
 
+    @Override
+    public DataSize getSharedCasCacheMaxWeight()
+    {
+        return sharedCasCacheMaxWeight;
+    }
+
+    public void setSharedCasCacheMaxWeight(DataSize aSharedCasCacheMaxWeight)
+    {
+        sharedCasCacheMaxWeight = aSharedCasCacheMaxWeight;
+    }
+
+    @Override
+    public DataSize getOffHeapCasCacheSize()
+    {
+        return offHeapCasCacheSize;
+    }
+
+    public void setOffHeapCasCacheSize(DataSize aOffHeapCasCacheSize)
+    {
+        offHeapCasCacheSize = aOffHeapCasCacheSize;
+    }
+
     @Override
     public Duration getMinIdleCasTime()
     {
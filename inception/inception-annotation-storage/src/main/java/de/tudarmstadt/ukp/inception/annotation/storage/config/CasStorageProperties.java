@@ -27,5 +27,24 @@ public interface CasStorageProperties
 
     boolean isCompressedCasSerialization();
 
+    /**
+     * @return whether to store CAS files without an embedded type system, referring instead to a
+     *         type system blob which is stored only once per project.
+     */
+    boolean isSharedTypeSystemCasSerialization();
+
+    /**
+     * @return whether to store the changes made to a CAS since it was loaded as a delta file next
+     *         to the CAS file instead of rewriting the entire file on every change. Requires
+     *         {@link #isSharedTypeSystemCasSerialization()}.
+     */
+    boolean isDeltaCasSerialization();
+
+    /**
+     * @return size of the delta relative to the size of the CAS file at which the delta is
+     *         compacted into a new CAS file.
+     */
+    double getDeltaCompactionRatio();
+
     Duration getFileSystemTimestampAccuracy();
 }
@@ -35,6 +35,9 @@ public class CasStoragePropertiesImpl
 {
     private boolean compressedCasSerialization = true;
     private boolean paranoidCasSerialization = false;
+    private boolean sharedTypeSystemCasSerialization = false;
+    private boolean deltaCasSerialization = false;
+    private double deltaCompactionRatio = 0.5d;
     private boolean traceAccess = false;
     private Duration fileSystemTimestampAccuracy = Duration.ofMillis(0);
 
@@ -75,6 +78,45 @@ public class CasStoragePropertiesImpl
         return compressedCasSerialization;
     }
 
+    @ManagedAttribute
+    public void setSharedTypeSystemCasSerialization(boolean aSharedTypeSystemCasSerialization)
+    {
+        sharedTypeSystemCasSerialization = aSharedTypeSystemCasSerialization;
+    }
+
+    @Override
+    @ManagedAttribute
+    public boolean isSharedTypeSystemCasSerialization()
+    {
+        return sharedTypeSystemCasSerialization;
+    }
+
+    @ManagedAttribute
+    public void setDeltaCasSerialization(boolean aDeltaCasSerialization)
+    {
+        deltaCasSerialization = aDeltaCasSerialization;
+    }
+
+    @Override
+    @ManagedAttribute
+    public boolean isDeltaCasSerialization()
+    {
+        return deltaCasSerialization;
+    }
+
+    @ManagedAttribute
+    public void setDeltaCompactionRatio(double aDeltaCompactionRatio)
+    {
+        deltaCompactionRatio = aDeltaCompactionRatio;
+    }
+
+    @Override
+    @ManagedAttribute
+    public double getDeltaCompactionRatio()
+    {
+        return deltaCompactionRatio;
+    }
+
     @ManagedAttribute
     public void setFileSystemTimestampAccuracy(Duration aFileSystemTimestampAccuracy)
     {
@@ -37,17 +37,19 @@ import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 
 @Configuration
 @EnableConfigurationProperties({ CasStorageCachePropertiesImpl.class,
-        CasStorageBackupProperties.class, CasStoragePropertiesImpl.class })
+        CasStorageBackupProperties.class, CasStoragePropertiesImpl.class,
+        CasStorageWriteBehindProperties.class })
 public class CasStorageServiceAutoConfiguration
 {
     @Bean(CasStorageService.SERVICE_NAME)
     public CasStorageService casStorageService(CasStorageDriver aDriver,
             @Autowired(required = false) CasDoctor aCasDoctor,
             @Autowired(required = false) AnnotationSchemaService aSchemaService,
-            CasStorageCacheProperties aCasStorageProperties)
+            CasStorageCacheProperties aCasStorageProperties,
+            CasStorageWriteBehindProperties aWriteBehindProperties)
     {
-        return new CasStorageServiceImpl(aDriver, aCasStorageProperties, aCasDoctor,
-                aSchemaService);
+        return new CasStorageServiceImpl(aDriver, aCasStorageProperties, aWriteBehindProperties,
+                aCasDoctor, aSchemaService);
     }
 
     @Bean
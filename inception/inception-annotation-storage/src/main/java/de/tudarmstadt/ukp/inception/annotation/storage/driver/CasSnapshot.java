@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.annotation.storage.driver;
+
+/**
+ * A CAS serialized in the form in which a {@link CasStorageDriver} persists it. A snapshot is
+ * taken on the thread which owns the CAS and can then be persisted from any other thread without
+ * touching the CAS again.
+ */
+public interface CasSnapshot
+{
+    /**
+     * @return the timestamp of the CAS on disk which was recorded in the CAS metadata when the
+     *         snapshot was taken or {@code -1} if the CAS did not carry any CAS metadata.
+     */
+    long getTimestamp();
+
+    /**
+     * @return whether the snapshot only holds the changes made since the last full snapshot of the
+     *         same CAS. Such a snapshot can only be persisted after the full snapshot.
+     */
+    boolean isDelta();
+
+    /**
+     * @return the size of the serialized data in bytes.
+     */
+    long getSize();
+}
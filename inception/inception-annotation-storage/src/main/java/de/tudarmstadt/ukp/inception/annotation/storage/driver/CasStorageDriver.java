@@ -34,6 +34,47 @@ public interface CasStorageDriver
 
     void writeCas(SourceDocument aDocument, String aUser, CAS aCas) throws IOException;
 
+    /**
+     * Serializes the CAS into the form in which it is persisted. This must be called by the thread
+     * owning the CAS. Taking a snapshot may update the CAS (e.g. the document ID) and the internal
+     * bookkeeping the driver uses to serialize only the changes made since the last snapshot.
+     * 
+     * @param aDocument
+     *            the document.
+     * @param aUser
+     *            the data owner.
+     * @param aCas
+     *            the CAS.
+     * @return the snapshot.
+     * @throws IOException
+     *             if the CAS could not be serialized.
+     */
+    CasSnapshot takeSnapshot(SourceDocument aDocument, String aUser, CAS aCas) throws IOException;
+
+    /**
+     * Persists a snapshot taken by {@link #takeSnapshot}. Snapshots of the same CAS must be
+     * persisted in the order they were taken. A delta snapshot can only be persisted if the full
+     * snapshot it builds on has been persisted before.
+     * 
+     * @param aDocument
+     *            the document.
+     * @param aUser
+     *            the data owner.
+     * @param aSnapshot
+     *            the snapshot.
+     * @param aExpectedTimestamp
+     *            the timestamp the CAS is expected to have on disk or {@code -1} if the CAS was
+     *            not loaded from disk.
+     * @return the timestamp of the CAS on disk after the snapshot has been persisted.
+     * @throws ConcurentCasModificationException
+     *             if the CAS on disk does not have the expected timestamp.
+     * @throws IOException
+     *             if the snapshot could not be persisted.
+     */
+    long writeSnapshot(SourceDocument aDocument, String aUser, CasSnapshot aSnapshot,
+            long aExpectedTimestamp)
+        throws IOException;
+
     void exportCas(SourceDocument aDocument, String aUser, OutputStream aStream) throws IOException;
 
     void importCas(SourceDocument aDocument, String aUser, InputStream aStream) throws IOException;
@@ -50,4 +91,23 @@ public interface CasStorageDriver
         throws IOException, ConcurentCasModificationException;
 
     Optional<Long> getCasFileSize(SourceDocument aDocument, String aUser) throws IOException;
+
+    /**
+     * Consolidates the data stored for the given CAS, e.g. by merging changes which have been
+     * recorded incrementally into a single representation. The CAS storage calls this when the CAS
+     * is no longer held in memory. Nobody else accesses the CAS while this method is running.
+     * 
+     * @param aProjectId
+     *            the project ID.
+     * @param aDocumentId
+     *            the document ID.
+     * @param aUser
+     *            the data owner.
+     * @throws IOException
+     *             if the CAS could not be compacted.
+     */
+    default void compactCas(long aProjectId, long aDocumentId, String aUser) throws IOException
+    {
+        // Nothing to do by default
+    }
 }
@@ -20,12 +20,17 @@ package de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem;
 import static de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil.getRealCas;
 import static java.io.ObjectInputFilter.Config.createFilter;
 import static java.lang.String.join;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static org.apache.uima.cas.SerialFormat.XMI;
 import static org.apache.uima.cas.impl.Serialization.deserializeCASComplete;
 import static org.apache.uima.cas.impl.Serialization.serializeCASComplete;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -37,14 +42,28 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Marker;
+import org.apache.uima.cas.impl.BinaryCasSerDes6;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.CompressLevel;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.CompressStrat;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.ReuseInfo;
 import org.apache.uima.cas.impl.CASCompleteSerializer;
 import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.cas.impl.CASMgrSerializer;
 import org.apache.uima.cas.impl.CASSerializer;
+import org.apache.uima.cas.impl.MarkerImpl;
+import org.apache.uima.cas.impl.TypeSystemImpl;
 import org.apache.uima.util.CasIOUtils;
+import org.apache.uima.util.CasLoadMode;
 import org.apache.uima.util.TypeSystemUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -68,6 +87,24 @@ public final class CasPersistenceUtils
     private final static byte[] SNAPPY_MAGIC = new byte[] { (byte) 0xff, 0x06, 0x00, 0x00, 0x73,
             0x4e, 0x61, 0x50, 0x70, 0x59, };
 
+    /**
+     * Header of CAS files which do not embed the type system but only refer to a type system blob
+     * stored separately in the type system folder of the project. The header is followed by the
+     * SHA-256 hash of the type system blob (hex encoded) and then by the CAS in binary form 6
+     * without type system.
+     */
+    private final static byte[] SHARED_TS_MAGIC = "INCEpTION-CAS-TSREF-1\n".getBytes(US_ASCII);
+
+    private final static int SHARED_TS_HASH_LENGTH = 64;
+
+    public static final String TYPE_SYSTEM_BLOB_EXTENSION = ".tsi";
+
+    /**
+     * Header of delta files. The header is followed by the length and the modification timestamp of
+     * the snapshot file the delta belongs to and then by the delta in binary form 6.
+     */
+    private final static byte[] DELTA_MAGIC = "INCEpTION-CAS-DELTA-1\n".getBytes(US_ASCII);
+
     private CasPersistenceUtils()
     {
         // No instances
@@ -81,6 +118,11 @@ public final class CasPersistenceUtils
         }
     }
 
+    static void writeSerializedCas(CAS aCas, OutputStream aOut) throws IOException
+    {
+        write(aOut, aCas);
+    }
+
     static void writeSerializedCasCompressed(CAS aCas, File aFile) throws IOException
     {
         FileUtils.forceMkdir(aFile.getParentFile());
@@ -89,10 +131,190 @@ public final class CasPersistenceUtils
         }
     }
 
+    /**
+     * Writes the CAS in binary form 6 without the type system. Instead, the type system and index
+     * definitions are stored once as a content-addressed blob in the given type system folder and
+     * the CAS file only refers to that blob by its hash.
+     * 
+     * @param aCas
+     *            the CAS to write.
+     * @param aFile
+     *            the target file.
+     * @param aTypeSystemFolder
+     *            the folder holding the type system blobs.
+     * @return the serialization information required to later write deltas against the written
+     *         CAS.
+     * @throws IOException
+     *             if the CAS or the type system blob cannot be written.
+     */
+    static ReuseInfo writeSharedTypeSystemCas(CAS aCas, File aFile, File aTypeSystemFolder)
+        throws IOException
+    {
+        FileUtils.forceMkdir(aFile.getParentFile());
+
+        try (var os = new FileOutputStream(aFile)) {
+            return writeSharedTypeSystemCas(aCas, os, aTypeSystemFolder);
+        }
+    }
+
+    /**
+     * Like {@link #writeSharedTypeSystemCas(CAS, File, File)} but writes the CAS to the given
+     * stream. The type system blob is still written to the type system folder.
+     */
+    static ReuseInfo writeSharedTypeSystemCas(CAS aCas, OutputStream aOut,
+            File aTypeSystemFolder)
+        throws IOException
+    {
+        var realCas = getRealCas(aCas);
+        // UIMA-6162 Workaround: synchronize CAS during de/serialization
+        synchronized (((CASImpl) realCas).getBaseCAS()) {
+            var hash = writeTypeSystemBlob(realCas, aTypeSystemFolder);
+
+            try {
+                aOut.write(SHARED_TS_MAGIC);
+                aOut.write(hash.getBytes(US_ASCII));
+                var serDes = new BinaryCasSerDes6(realCas);
+                serDes.serialize(aOut);
+                return serDes.getReuseInfo();
+            }
+            catch (IOException e) {
+                throw e;
+            }
+            catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * Serializes all changes made to the CAS since the given mark in binary form 6 delta format.
+     * 
+     * @param aCas
+     *            the CAS to serialize.
+     * @param aMark
+     *            the mark which was created right after the last full serialization of the CAS.
+     * @param aReuseInfo
+     *            the serialization information obtained from the last full serialization.
+     * @return the serialized delta.
+     * @throws IOException
+     *             if the delta cannot be serialized.
+     */
+    static byte[] serializeDelta(CAS aCas, Marker aMark, ReuseInfo aReuseInfo) throws IOException
+    {
+        var realCas = getRealCas(aCas);
+        // UIMA-6162 Workaround: synchronize CAS during de/serialization
+        synchronized (((CASImpl) realCas).getBaseCAS()) {
+            try (var bos = new ByteArrayOutputStream()) {
+                new BinaryCasSerDes6(realCas, (MarkerImpl) aMark, (TypeSystemImpl) null,
+                        aReuseInfo).serialize(bos);
+                return bos.toByteArray();
+            }
+            catch (IOException e) {
+                throw e;
+            }
+            catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes a delta file holding the changes against the given CAS snapshot file. The delta is
+     * first written to a temporary file and then moved in place so that readers never observe a
+     * partially written delta.
+     * 
+     * @param aDeltaFile
+     *            the delta file.
+     * @param aSnapshotFile
+     *            the snapshot file the delta applies to.
+     * @param aDelta
+     *            the delta as produced by {@link #serializeDelta}.
+     * @throws IOException
+     *             if the delta cannot be written.
+     */
+    static void writeDelta(File aDeltaFile, File aSnapshotFile, byte[] aDelta)
+        throws IOException
+    {
+        var tempFile = new File(aDeltaFile.getPath() + ".tmp");
+        try (var os = new DataOutputStream(new FileOutputStream(tempFile))) {
+            os.write(DELTA_MAGIC);
+            os.writeLong(aSnapshotFile.length());
+            os.writeLong(aSnapshotFile.lastModified());
+            os.write(aDelta);
+        }
+        Files.move(tempFile.toPath(), aDeltaFile.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    private static String writeTypeSystemBlob(CAS aCas, File aTypeSystemFolder)
+        throws IOException
+    {
+        byte[] tsi;
+        try (var bos = new ByteArrayOutputStream()) {
+            CasIOUtils.writeTypeSystem(aCas, bos, true);
+            tsi = bos.toByteArray();
+        }
+
+        var hash = sha256Hex(tsi);
+        var blobFile = new File(aTypeSystemFolder, hash + TYPE_SYSTEM_BLOB_EXTENSION);
+        if (blobFile.exists()) {
+            return hash;
+        }
+
+        // Write to a temporary file first and then move it in place so that concurrent writers
+        // never observe a partially written blob
+        FileUtils.forceMkdir(aTypeSystemFolder);
+        var tempFile = Files.createTempFile(aTypeSystemFolder.toPath(), hash, ".tmp");
+        try {
+            Files.write(tempFile, tsi);
+            Files.move(tempFile, blobFile.toPath(), ATOMIC_MOVE);
+            LOG.debug("Stored new type system blob [{}]", blobFile);
+        }
+        catch (IOException e) {
+            // Another writer may have won the race - that is fine as long as the blob exists now
+            if (!blobFile.exists()) {
+                throw e;
+            }
+        }
+        finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+        return hash;
+    }
+
+    private static String sha256Hex(byte[] aData)
+    {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(aData));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public static void writeSerializedCasParanoid(CAS aCas, File aFile) throws IOException
     {
         FileUtils.forceMkdir(aFile.getParentFile());
 
+        var serializer = serializeCasParanoid(aCas, aFile);
+        try (var os = new FileOutputStream(aFile)) {
+            write(os, serializer);
+        }
+    }
+
+    /**
+     * Like {@link #writeSerializedCasParanoid(CAS, File)} but writes the CAS to the given stream.
+     * The file is only used to name the debugging output if the CAS cannot be serialized.
+     */
+    static void writeSerializedCasParanoid(CAS aCas, OutputStream aOut, File aFile)
+        throws IOException
+    {
+        write(aOut, serializeCasParanoid(aCas, aFile));
+    }
+
+    private static CASCompleteSerializer serializeCasParanoid(CAS aCas, File aFile)
+        throws IOException
+    {
         var realCas = getRealCas(aCas);
         // UIMA-6162 Workaround: synchronize CAS during de/serialization
         synchronized (((CASImpl) realCas).getBaseCAS()) {
@@ -115,9 +337,7 @@ public final class CasPersistenceUtils
                 throw new IOException(e);
             }
 
-            try (var os = new FileOutputStream(aFile)) {
-                write(os, serializer);
-            }
+            return serializer;
         }
     }
 
@@ -137,6 +357,74 @@ public final class CasPersistenceUtils
         }
     }
 
+    /**
+     * Serializes the type system and index definitions of the CAS. CASes serialized using
+     * {@link #writeUncompressedForm6} can be read back using this data.
+     * 
+     * @param aCas
+     *            the CAS.
+     * @return the serialized type system.
+     * @throws IOException
+     *             if the type system cannot be serialized.
+     */
+    public static byte[] writeTypeSystemToByteArray(CAS aCas) throws IOException
+    {
+        try (var bos = new ByteArrayOutputStream()) {
+            CasIOUtils.writeTypeSystem(aCas, bos, true);
+            return bos.toByteArray();
+        }
+    }
+
+    /**
+     * Serializes the CAS in binary form 6 without the type system and without the compression
+     * that form 6 normally applies. The size of the result thus reflects the actual amount of
+     * data in the CAS.
+     * 
+     * @param aCas
+     *            the CAS.
+     * @return the serialized CAS.
+     * @throws IOException
+     *             if the CAS cannot be serialized.
+     */
+    public static byte[] writeUncompressedForm6(CAS aCas) throws IOException
+    {
+        var realCas = getRealCas(aCas);
+        // UIMA-6162 Workaround: synchronize CAS during de/serialization
+        synchronized (((CASImpl) realCas).getBaseCAS()) {
+            try (var bos = new ByteArrayOutputStream()) {
+                new BinaryCasSerDes6(realCas, (MarkerImpl) null, (TypeSystemImpl) null,
+                        (ReuseInfo) null, false, CompressLevel.None, CompressStrat.Default)
+                                .serialize(bos);
+                return bos.toByteArray();
+            }
+            catch (IOException e) {
+                throw e;
+            }
+            catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * Reads a CAS serialized in binary form 6 using the given type system.
+     * 
+     * @param aCas
+     *            the CAS to read into. It is re-initialized with the given type system.
+     * @param aIn
+     *            the serialized CAS.
+     * @param aTypeSystem
+     *            the type system as serialized by {@link #writeTypeSystemToByteArray}.
+     * @throws IOException
+     *             if the CAS cannot be read.
+     */
+    public static void readForm6(CAS aCas, InputStream aIn, InputStream aTypeSystem)
+        throws IOException
+    {
+        CasIOUtils.load(aIn, aTypeSystem, aCas, CasLoadMode.REINIT);
+        removeSpuriousDocumentAnnotations(aCas);
+    }
+
     private static void write(OutputStream aOut, CAS aCas) throws IOException, FileNotFoundException
     {
         var serializer = serializeCASComplete((CASImpl) getRealCas(aCas));
@@ -191,16 +479,164 @@ public final class CasPersistenceUtils
     }
 
     public static void readSerializedCas(CAS aCas, File aFile) throws IOException
+    {
+        readSerializedCas(aCas, aFile, null);
+    }
+
+    /**
+     * Reads a CAS file. Files in the shared type system format are resolved against the given type
+     * system folder. Legacy files embedding the complete CAS serializer are read as usual.
+     * 
+     * @param aCas
+     *            the CAS to load the data into.
+     * @param aFile
+     *            the CAS file.
+     * @param aTypeSystemFolder
+     *            the folder holding the type system blobs. May be {@code null} if only legacy files
+     *            are expected.
+     * @throws IOException
+     *             if the CAS cannot be read.
+     */
+    public static void readSerializedCas(CAS aCas, File aFile, File aTypeSystemFolder)
+        throws IOException
+    {
+        readSerializedCas(aCas, aFile, aTypeSystemFolder, null);
+    }
+
+    /**
+     * Reads a CAS file and applies the changes from the given delta file if it exists and belongs
+     * to the CAS file. Delta files that do not match the CAS file are stale (e.g. because the
+     * system was interrupted after writing a new snapshot but before removing the delta) and are
+     * ignored.
+     * 
+     * @param aCas
+     *            the CAS to load the data into.
+     * @param aFile
+     *            the CAS file.
+     * @param aTypeSystemFolder
+     *            the folder holding the type system blobs. May be {@code null} if only legacy files
+     *            are expected.
+     * @param aDeltaFile
+     *            the delta file. May be {@code null}.
+     * @throws IOException
+     *             if the CAS cannot be read.
+     */
+    public static void readSerializedCas(CAS aCas, File aFile, File aTypeSystemFolder,
+            File aDeltaFile)
+        throws IOException
     {
         var realCas = getRealCas(aCas);
         // UIMA-6162 Workaround: synchronize CAS during de/serialization
         synchronized (((CASImpl) realCas).getBaseCAS()) {
+            boolean shared;
             try (var bis = new BufferedInputStream(new FileInputStream(aFile))) {
-                readSerializedCas(realCas, maybeUncompress(bis));
+                var hash = readTypeSystemReference(bis);
+                shared = hash != null;
+                if (shared) {
+                    readSharedTypeSystemCas(realCas, bis, aFile, aTypeSystemFolder, hash);
+                }
+                else {
+                    readSerializedCas(realCas, maybeUncompress(bis));
+                }
+            }
+
+            if (shared && aDeltaFile != null && aDeltaFile.exists()) {
+                applyDelta(realCas, aFile, aDeltaFile);
+            }
+        }
+    }
+
+    private static void applyDelta(CAS aCas, File aSnapshotFile, File aDeltaFile)
+        throws IOException
+    {
+        try (var is = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(aDeltaFile)))) {
+            var magic = is.readNBytes(DELTA_MAGIC.length);
+            if (!Arrays.equals(magic, DELTA_MAGIC)) {
+                throw new IOException("Delta file [" + aDeltaFile + "] has an invalid header");
             }
+
+            var snapshotLength = is.readLong();
+            var snapshotTimestamp = is.readLong();
+            if (snapshotLength != aSnapshotFile.length()
+                    || snapshotTimestamp != aSnapshotFile.lastModified()) {
+                LOG.warn("Ignoring stale delta file [{}] which does not belong to [{}]",
+                        aDeltaFile, aSnapshotFile);
+                return;
+            }
+
+            // Re-serializing the snapshot reproduces the sequence numbers which the writer used
+            // as the basis for the delta
+            var snapshotSerDes = new BinaryCasSerDes6(aCas);
+            snapshotSerDes.serialize(NullOutputStream.INSTANCE);
+
+            new BinaryCasSerDes6(aCas, (MarkerImpl) null, (TypeSystemImpl) null,
+                    snapshotSerDes.getReuseInfo()).deserialize(is);
+        }
+        catch (IOException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IOException(e);
         }
     }
 
+    /**
+     * @param aFile
+     *            a CAS file.
+     * @return whether the given file is stored in the shared type system format.
+     * @throws IOException
+     *             if the file cannot be read.
+     */
+    public static boolean isSharedTypeSystemCas(File aFile) throws IOException
+    {
+        try (var bis = new BufferedInputStream(new FileInputStream(aFile))) {
+            return readTypeSystemReference(bis) != null;
+        }
+    }
+
+    private static void readSharedTypeSystemCas(CAS aCas, InputStream aIn, File aFile,
+            File aTypeSystemFolder, String aHash)
+        throws IOException
+    {
+        if (aTypeSystemFolder == null) {
+            throw new IOException("CAS file [" + aFile
+                    + "] refers to a shared type system but no type system folder is available");
+        }
+
+        var blobFile = new File(aTypeSystemFolder, aHash + TYPE_SYSTEM_BLOB_EXTENSION);
+        if (!blobFile.exists()) {
+            throw new FileNotFoundException("Type system blob [" + blobFile
+                    + "] referenced by CAS file [" + aFile + "] not found");
+        }
+
+        try (var tsi = new BufferedInputStream(new FileInputStream(blobFile))) {
+            CasIOUtils.load(aIn, tsi, aCas, CasLoadMode.REINIT);
+        }
+
+        removeSpuriousDocumentAnnotations(aCas);
+    }
+
+    /**
+     * Checks if the stream starts with the shared type system header. If it does, the header is
+     * consumed and the type system hash is returned. Otherwise, the stream is reset to its
+     * original position and {@code null} is returned.
+     */
+    private static String readTypeSystemReference(BufferedInputStream aIn) throws IOException
+    {
+        var headerLength = SHARED_TS_MAGIC.length + SHARED_TS_HASH_LENGTH;
+        aIn.mark(headerLength);
+        var header = aIn.readNBytes(headerLength);
+
+        if (header.length < headerLength || !Arrays.equals(header, 0, SHARED_TS_MAGIC.length,
+                SHARED_TS_MAGIC, 0, SHARED_TS_MAGIC.length)) {
+            aIn.reset();
+            return null;
+        }
+
+        return new String(header, SHARED_TS_MAGIC.length, SHARED_TS_HASH_LENGTH, US_ASCII);
+    }
+
     public static void readSerializedCas(CAS aCas, InputStream is) throws IOException
     {
         try (var ois = new ObjectInputStream(is)) {
@@ -208,21 +644,26 @@ public final class CasPersistenceUtils
             var serializer = (CASCompleteSerializer) ois.readObject();
             deserializeCASComplete(serializer, (CASImpl) aCas);
 
-            // Workaround for UIMA adding back deleted DocumentAnnotations
-            // https://issues.apache.org/jira/browse/UIMA-6199
-            // If there is a DocumentMetaData annotation, then we can drop any of the default UIMA
-            // DocumentAnnotation instances (excluding the DocumentMetaData of course)
-            if (!aCas.select(DocumentMetaData.class.getName()).isEmpty()) {
-                aCas.select(CAS.TYPE_NAME_DOCUMENT_ANNOTATION).filter(
-                        fs -> !DocumentMetaData.class.getName().equals(fs.getType().getName()))
-                        .forEach(aCas::removeFsFromIndexes);
-            }
+            removeSpuriousDocumentAnnotations(aCas);
         }
         catch (ClassNotFoundException e) {
             throw new IOException(e);
         }
     }
 
+    private static void removeSpuriousDocumentAnnotations(CAS aCas)
+    {
+        // Workaround for UIMA adding back deleted DocumentAnnotations
+        // https://issues.apache.org/jira/browse/UIMA-6199
+        // If there is a DocumentMetaData annotation, then we can drop any of the default UIMA
+        // DocumentAnnotation instances (excluding the DocumentMetaData of course)
+        if (!aCas.select(DocumentMetaData.class.getName()).isEmpty()) {
+            aCas.select(CAS.TYPE_NAME_DOCUMENT_ANNOTATION)
+                    .filter(fs -> !DocumentMetaData.class.getName().equals(fs.getType().getName()))
+                    .forEach(aCas::removeFsFromIndexes);
+        }
+    }
+
     private static InputStream maybeUncompress(BufferedInputStream bis) throws IOException
     {
         byte[] buf = new byte[32];
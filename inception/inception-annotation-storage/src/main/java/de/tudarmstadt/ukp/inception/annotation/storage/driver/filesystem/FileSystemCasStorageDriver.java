@@ -21,6 +21,7 @@ import static de.tudarmstadt.ukp.inception.project.api.ProjectService.ANNOTATION
 import static de.tudarmstadt.ukp.inception.project.api.ProjectService.DOCUMENT_FOLDER;
 import static de.tudarmstadt.ukp.inception.project.api.ProjectService.PROJECT_FOLDER;
 import static de.tudarmstadt.ukp.inception.support.logging.BaseLoggers.BOOT_LOG;
+import static de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil.getRealCas;
 import static de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil.setDocumentId;
 import static java.lang.System.currentTimeMillis;
 import static java.nio.file.Files.move;
@@ -30,9 +31,11 @@ import static java.util.regex.Pattern.quote;
 import static org.apache.commons.io.comparator.LastModifiedFileComparator.LASTMODIFIED_COMPARATOR;
 import static org.apache.commons.lang3.time.DurationFormatUtils.formatDurationHMS;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -46,13 +49,20 @@ import java.util.regex.Matcher;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.commons.lang3.Validate;
 import org.apache.uima.UIMAException;
 import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.CASRuntimeException;
+import org.apache.uima.cas.Marker;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.ReuseInfo;
+import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.fit.util.FSUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 
@@ -63,6 +73,7 @@ import de.tudarmstadt.ukp.inception.annotation.storage.CasMetadataUtils;
 import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageMetadata;
 import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageBackupProperties;
 import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageProperties;
+import de.tudarmstadt.ukp.inception.annotation.storage.driver.CasSnapshot;
 import de.tudarmstadt.ukp.inception.annotation.storage.driver.CasStorageDriver;
 import de.tudarmstadt.ukp.inception.documents.api.RepositoryProperties;
 import de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil;
@@ -73,6 +84,8 @@ public class FileSystemCasStorageDriver
 {
     public static final String SER_CAS_EXTENSION = ".ser";
     public static final String OLD_EXTENSION = ".old";
+    public static final String DELTA_EXTENSION = ".delta";
+    public static final String TYPE_SYSTEM_FOLDER = "cas-typesystems";
 
     private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
@@ -80,6 +93,8 @@ public class FileSystemCasStorageDriver
     private final CasStorageProperties casStorageProperties;
     private final CasStorageBackupProperties backupProperties;
     private final LoadingCache<File, InternalMetadata> metadataCache;
+    private final Cache<CAS, DeltaBase> deltaBases;
+    private final Cache<CAS, Marker> markedCases;
 
     public FileSystemCasStorageDriver(RepositoryProperties aRepositoryProperties,
             CasStorageBackupProperties aBackupProperties,
@@ -98,6 +113,26 @@ public class FileSystemCasStorageDriver
             metadataCache = null;
         }
 
+        deltaBases = Caffeine.newBuilder() //
+                .weakKeys() //
+                .expireAfterAccess(Duration.ofHours(1)) //
+                .build();
+
+        markedCases = Caffeine.newBuilder() //
+                .weakKeys() //
+                .build();
+
+        if (casStorageProperties.isDeltaCasSerialization()) {
+            if (isDeltaEnabled()) {
+                BOOT_LOG.info("CAS delta files enabled - compaction ratio: {}",
+                        casStorageProperties.getDeltaCompactionRatio());
+            }
+            else {
+                BOOT_LOG.warn("CAS delta files require shared type system serialization and are "
+                        + "not compatible with paranoid serialization - delta files disabled");
+            }
+        }
+
         if (backupProperties.getInterval() > 0) {
             BOOT_LOG.info("CAS backups enabled - interval: {}sec  max-backups: {}  max-age: {}sec",
                     backupProperties.getInterval(), backupProperties.getKeep().getNumber(),
@@ -147,9 +182,11 @@ public class FileSystemCasStorageDriver
         }
 
         try {
-            CasPersistenceUtils.readSerializedCas(cas, casFile);
+            CasPersistenceUtils.readSerializedCas(cas, casFile,
+                    getTypeSystemFolder(aDocument.getProject().getId()), getDeltaFile(casFile));
             // Add/update the CAS metadata
-            CasMetadataUtils.addOrUpdateCasMetadata(cas, casFile.lastModified(), aDocument, aUser);
+            CasMetadataUtils.addOrUpdateCasMetadata(cas, getCasTimestamp(casFile), aDocument,
+                    aUser);
         }
         catch (Exception e) {
             throw new IOException("Annotation document of user [" + aUser + "] for source document "
@@ -167,6 +204,71 @@ public class FileSystemCasStorageDriver
     @Override
     public void writeCas(SourceDocument aDocument, String aUserName, CAS aCas) throws IOException
     {
+        var snapshot = takeSnapshot(aDocument, aUserName, aCas);
+        var lastModified = writeSnapshot(aDocument, aUserName, snapshot, snapshot.getTimestamp());
+
+        // Update the timestamp in the CAS in case we attempt to save it a second time. This
+        // happens for example in an annotation replacement operation (change layer of existing
+        // annotation) which is implemented as a delete/create operation with an intermediate
+        // save.
+        CasMetadataUtils.addOrUpdateCasMetadata(aCas, lastModified, aDocument, aUserName);
+    }
+
+    @Override
+    public CasSnapshot takeSnapshot(SourceDocument aDocument, String aUserName, CAS aCas)
+        throws IOException
+    {
+        setDocumentId(aCas, aUserName);
+
+        var timestamp = getLastChangedOnDisk(aCas);
+        var casFile = getCasFile(aDocument, aUserName);
+        var baseCas = getBaseCas(aCas);
+
+        // If only a few changes were made since the last full snapshot, only record these as a
+        // delta instead of rewriting the entire file
+        var base = isDeltaEnabled() ? deltaBases.getIfPresent(baseCas) : null;
+        if (base != null && base.isApplicable(baseCas, casFile)) {
+            var delta = CasPersistenceUtils.serializeDelta(baseCas, base.mark, base.reuseInfo);
+            if (delta.length <= base.snapshotSize
+                    * casStorageProperties.getDeltaCompactionRatio()) {
+                return new FileSystemCasSnapshot(delta, base, timestamp, true);
+            }
+
+            LOG.debug("Delta for [{}] exceeds compaction threshold ({} bytes) - compacting",
+                    casFile, delta.length);
+        }
+
+        byte[] data;
+        ReuseInfo reuseInfo;
+        try (var bos = new ByteArrayOutputStream()) {
+            reuseInfo = serializeCas(aDocument.getProject().getId(), aCas, casFile, bos);
+            data = bos.toByteArray();
+        }
+
+        // Remember the state of the CAS at the time of the snapshot so subsequent snapshots can
+        // be taken as deltas
+        var mark = isDeltaEnabled() && reuseInfo != null ? createMarkIfPossible(baseCas) : null;
+        if (mark != null) {
+            base = new DeltaBase(data.length, baseCas.getTypeSystem(), mark, reuseInfo);
+            deltaBases.put(baseCas, base);
+        }
+        else {
+            base = null;
+            deltaBases.invalidate(baseCas);
+        }
+
+        return new FileSystemCasSnapshot(data, base, timestamp, false);
+    }
+
+    @Override
+    public long writeSnapshot(SourceDocument aDocument, String aUserName, CasSnapshot aSnapshot,
+            long aExpectedTimestamp)
+        throws IOException
+    {
+        Validate.isInstanceOf(FileSystemCasSnapshot.class, aSnapshot,
+                "Snapshot was not taken by this driver");
+        var snapshot = (FileSystemCasSnapshot) aSnapshot;
+
         var t0 = currentTimeMillis();
 
         LOG.debug("Preparing to update annotations for user [{}] on document {} " //
@@ -182,7 +284,35 @@ public class FileSystemCasStorageDriver
 
         // Check if there was a concurrent change to the file on disk
         if (currentVersion.exists()) {
-            failOnConcurrentModification(aCas, currentVersion, aDocument, aUserName, "writing");
+            failOnConcurrentModification(aExpectedTimestamp, currentVersion, aDocument, aUserName,
+                    "writing");
+        }
+
+        var deltaFile = getDeltaFile(currentVersion);
+        if (snapshot.isDelta()) {
+            if (!snapshot.base.isOnDisk(currentVersion)) {
+                throw new IOException("Annotation file [" + currentVersion
+                        + "] does not contain the snapshot which the delta builds on");
+            }
+
+            CasPersistenceUtils.writeDelta(deltaFile, currentVersion, snapshot.data);
+
+            var lastModified = getCasTimestamp(currentVersion);
+            if (metadataCache != null) {
+                metadataCache.get(currentVersion).writeSuccess(lastModified);
+            }
+
+            var duration = currentTimeMillis() - t0;
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Updated annotation delta for user [{}] on document {} in project {} " //
+                        + "{} bytes in {}ms (file timestamp: {})", aUserName, aDocument,
+                        aDocument.getProject(), deltaFile.length(), duration,
+                        formatTimestamp(lastModified));
+            }
+
+            WicketUtil.serverTiming("realWriteCas", duration);
+            return lastModified;
         }
 
         // Save current version
@@ -193,16 +323,7 @@ public class FileSystemCasStorageDriver
             }
 
             // Now write the new version to "<username>.ser" or CURATION_USER.ser
-            setDocumentId(aCas, aUserName);
-            if (casStorageProperties.isParanoidCasSerialization()) {
-                CasPersistenceUtils.writeSerializedCasParanoid(aCas, currentVersion);
-            }
-            else if (casStorageProperties.isCompressedCasSerialization()) {
-                CasPersistenceUtils.writeSerializedCasCompressed(aCas, currentVersion);
-            }
-            else {
-                CasPersistenceUtils.writeSerializedCas(aCas, currentVersion);
-            }
+            Files.write(currentVersion.toPath(), snapshot.data);
         }
         catch (Exception e) {
             LOG.error("There was an error while trying to write the CAS to [" + currentVersion
@@ -240,17 +361,19 @@ public class FileSystemCasStorageDriver
                     currentVersion.length(), currentVersion.length() - oldVersion.length());
         }
 
-        // If the saving was successful, we delete the old version
+        // If the saving was successful, we delete the old version and the delta which belonged
+        // to it
         if (oldVersion.exists()) {
             FileUtils.forceDelete(oldVersion);
         }
+        Files.deleteIfExists(deltaFile.toPath());
+
+        // Deltas taken against this snapshot can now be written
+        if (snapshot.base != null) {
+            snapshot.base.persisted(currentVersion);
+        }
 
-        // Update the timestamp in the CAS in case we attempt to save it a second time. This
-        // happens for example in an annotation replacement operation (change layer of existing
-        // annotation) which is implemented as a delete/create operation with an intermediate
-        // save.
         var lastModified = currentVersion.lastModified();
-        CasMetadataUtils.addOrUpdateCasMetadata(aCas, lastModified, aDocument, aUserName);
         if (metadataCache != null) {
             metadataCache.get(currentVersion).writeSuccess(lastModified);
         }
@@ -261,13 +384,100 @@ public class FileSystemCasStorageDriver
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("Updated annotations for user [{}] on document {} in project {} " //
-                    + "{} bytes in {}ms (file timestamp: {}, compression: {})", aUserName,
+                    + "{} bytes in {}ms (file timestamp: {}, compression: {})", aUserName,
                     aDocument, aDocument.getProject(), currentVersion.length(), duration,
                     formatTimestamp(lastModified),
                     casStorageProperties.isCompressedCasSerialization());
         }
 
         WicketUtil.serverTiming("realWriteCas", duration);
+
+        return lastModified;
+    }
+
+    private void writeCasFile(long aProjectId, CAS aCas, File aFile) throws IOException
+    {
+        FileUtils.forceMkdir(aFile.getParentFile());
+        try (var os = new FileOutputStream(aFile)) {
+            serializeCas(aProjectId, aCas, aFile, os);
+        }
+    }
+
+    /**
+     * @return the serialization information required to take deltas against the serialized CAS
+     *         or {@code null} if the CAS was not serialized in a format supporting deltas.
+     */
+    private ReuseInfo serializeCas(long aProjectId, CAS aCas, File aCasFile, OutputStream aOut)
+        throws IOException
+    {
+        if (casStorageProperties.isParanoidCasSerialization()) {
+            CasPersistenceUtils.writeSerializedCasParanoid(aCas, aOut, aCasFile);
+        }
+        else if (casStorageProperties.isSharedTypeSystemCasSerialization()) {
+            return CasPersistenceUtils.writeSharedTypeSystemCas(aCas, aOut,
+                    getTypeSystemFolder(aProjectId));
+        }
+        else if (casStorageProperties.isCompressedCasSerialization()) {
+            CasPersistenceUtils.writeSnappyCompressed(aOut, aCas);
+        }
+        else {
+            CasPersistenceUtils.writeSerializedCas(aCas, aOut);
+        }
+
+        return null;
+    }
+
+    private boolean isDeltaEnabled()
+    {
+        return casStorageProperties.isDeltaCasSerialization()
+                && casStorageProperties.isSharedTypeSystemCasSerialization()
+                && !casStorageProperties.isParanoidCasSerialization();
+    }
+
+    /**
+     * UIMA supports only a single mark per CAS and that mark cannot be moved. If the CAS has
+     * already been marked for an earlier snapshot, the changes relative to that mark include
+     * changes that are already part of the new snapshot. Thus, no delta can be taken against the
+     * new snapshot and the CAS is always written in full until it is loaded again.
+     * 
+     * @return a new mark or {@code null} if the CAS has already been marked.
+     */
+    private Marker createMarkIfPossible(CAS aBaseCas)
+    {
+        if (markedCases.getIfPresent(aBaseCas) != null) {
+            return null;
+        }
+
+        try {
+            var mark = aBaseCas.createMarker();
+            markedCases.put(aBaseCas, mark);
+            return mark;
+        }
+        catch (CASRuntimeException e) {
+            // The CAS has been marked by someone else
+            LOG.debug("Unable to mark CAS for delta serialization: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static CAS getBaseCas(CAS aCas)
+    {
+        return ((CASImpl) getRealCas(aCas)).getBaseCAS();
+    }
+
+    static File getDeltaFile(File aCasFile)
+    {
+        return new File(aCasFile.getPath() + DELTA_EXTENSION);
+    }
+
+    /**
+     * @return the effective modification time of the CAS, i.e. the time of the last write to either
+     *         the CAS file or its delta file.
+     */
+    private static long getCasTimestamp(File aCasFile)
+    {
+        // lastModified() returns 0 for non-existing files, so a missing delta does not matter
+        return Math.max(aCasFile.lastModified(), getDeltaFile(aCasFile).lastModified());
     }
 
     /**
@@ -292,6 +502,119 @@ public class FileSystemCasStorageDriver
         return annotationFolder;
     }
 
+    /**
+     * @param aProjectId
+     *            the project of interest.
+     * @return the folder where the type system blobs referenced by CAS files in the shared type
+     *         system format are stored. The folder is not created by this method.
+     */
+    public File getTypeSystemFolder(long aProjectId)
+    {
+        return new File(repositoryProperties.getPath(),
+                "/" + PROJECT_FOLDER + "/" + aProjectId + "/" + TYPE_SYSTEM_FOLDER);
+    }
+
+    /**
+     * Rewrites all annotation files of the given project which are not yet in the currently
+     * configured storage format. This is meant to be run offline, i.e. while no users are working
+     * on the project. The modification timestamps of the files are preserved.
+     * 
+     * @param aProjectId
+     *            the project to migrate.
+     * @return the number of files that were converted.
+     * @throws IOException
+     *             if a file could not be converted.
+     */
+    public int migrateStorageFormat(long aProjectId) throws IOException
+    {
+        var documentsFolder = new File(repositoryProperties.getPath(),
+                "/" + PROJECT_FOLDER + "/" + aProjectId + "/" + DOCUMENT_FOLDER);
+        var documentFolders = documentsFolder.listFiles(File::isDirectory);
+        if (documentFolders == null) {
+            return 0;
+        }
+
+        var targetShared = casStorageProperties.isSharedTypeSystemCasSerialization()
+                && !casStorageProperties.isParanoidCasSerialization();
+
+        var converted = 0;
+        for (var documentFolder : documentFolders) {
+            var annotationFolder = new File(documentFolder, ANNOTATION_FOLDER);
+            var casFiles = annotationFolder
+                    .listFiles(f -> f.isFile() && f.getName().endsWith(SER_CAS_EXTENSION));
+            if (casFiles == null) {
+                continue;
+            }
+
+            for (var casFile : casFiles) {
+                if (CasPersistenceUtils.isSharedTypeSystemCas(casFile) == targetShared) {
+                    continue;
+                }
+
+                rewriteCasFile(aProjectId, casFile);
+                converted++;
+
+                LOG.debug("Converted annotation file [{}] to {} format", casFile,
+                        targetShared ? "shared type system" : "legacy");
+            }
+        }
+
+        return converted;
+    }
+
+    /**
+     * Merges the delta file of the given CAS (if any) into a new snapshot. This is meant to be
+     * called when the CAS is no longer held in memory by the CAS storage. Otherwise, every read
+     * would have to apply the delta until the CAS is saved in full again. The caller must ensure
+     * that nobody else accesses the CAS while it is compacted. The timestamp of the CAS does not
+     * change, so copies of the CAS which are still in use elsewhere remain valid.
+     */
+    @Override
+    public void compactCas(long aProjectId, long aDocumentId, String aUser) throws IOException
+    {
+        var casFile = getCasFile(aProjectId, aDocumentId, aUser);
+        if (!casFile.exists() || !getDeltaFile(casFile).exists()) {
+            return;
+        }
+
+        var t0 = currentTimeMillis();
+
+        rewriteCasFile(aProjectId, casFile);
+
+        LOG.debug("Compacted annotations for user [{}] on document [{}] in project [{}] in {}ms",
+                aUser, aDocumentId, aProjectId, currentTimeMillis() - t0);
+    }
+
+    /**
+     * Rewrites the given CAS file including its delta (if any) in the currently configured format
+     * and removes the delta file. The timestamp of the CAS is preserved.
+     */
+    private void rewriteCasFile(long aProjectId, File aCasFile) throws IOException
+    {
+        CAS cas;
+        try {
+            cas = WebAnnoCasUtil.createCas();
+        }
+        catch (UIMAException e) {
+            throw new IOException("Unable to create empty CAS", e);
+        }
+
+        var deltaFile = getDeltaFile(aCasFile);
+        CasPersistenceUtils.readSerializedCas(cas, aCasFile, getTypeSystemFolder(aProjectId),
+                deltaFile);
+
+        var lastModified = getCasTimestamp(aCasFile);
+        var tempFile = new File(aCasFile.getPath() + OLD_EXTENSION);
+        writeCasFile(aProjectId, cas, tempFile);
+        move(tempFile.toPath(), aCasFile.toPath(), REPLACE_EXISTING);
+        Files.deleteIfExists(deltaFile.toPath());
+        aCasFile.setLastModified(lastModified);
+
+        if (metadataCache != null) {
+            metadataCache.get(aCasFile).writeSuccess(lastModified);
+        }
+    }
+
     private void manageHistory(File aCurrentVersion, SourceDocument aDocument, String aUserName)
         throws IOException
     {
@@ -401,7 +724,26 @@ public class FileSystemCasStorageDriver
         Validate.notNull(aDocument, "Source document must be specified");
         Validate.notBlank(aUser, "User must be specified");
 
-        try (var is = Files.newInputStream(getCasFile(aDocument, aUser).toPath())) {
+        var casFile = getCasFile(aDocument, aUser);
+
+        // Files in the shared type system format cannot be interpreted without the type system
+        // blob of the project, so we export them in the self-contained legacy format
+        if (CasPersistenceUtils.isSharedTypeSystemCas(casFile)) {
+            CAS cas;
+            try {
+                cas = WebAnnoCasUtil.createCas();
+            }
+            catch (UIMAException e) {
+                throw new IOException("Unable to create empty CAS", e);
+            }
+
+            CasPersistenceUtils.readSerializedCas(cas, casFile,
+                    getTypeSystemFolder(aDocument.getProject().getId()), getDeltaFile(casFile));
+            CasPersistenceUtils.writeSnappyCompressed(CloseShieldOutputStream.wrap(aStream), cas);
+            return;
+        }
+
+        try (var is = Files.newInputStream(casFile.toPath())) {
             IOUtils.copyLarge(is, aStream);
         }
     }
@@ -413,9 +755,11 @@ public class FileSystemCasStorageDriver
         Validate.notNull(aDocument, "Source document must be specified");
         Validate.notBlank(aUser, "User must be specified");
 
-        try (var os = Files.newOutputStream(getCasFile(aDocument, aUser).toPath())) {
+        var casFile = getCasFile(aDocument, aUser);
+        try (var os = Files.newOutputStream(casFile.toPath())) {
             IOUtils.copyLarge(aStream, os);
         }
+        Files.deleteIfExists(getDeltaFile(casFile).toPath());
     }
 
     public File getCasFile(long aProjectId, long aDocumentId, String aUser) throws IOException
@@ -432,6 +776,8 @@ public class FileSystemCasStorageDriver
             metadataCache.invalidate(casFile);
         }
 
+        Files.deleteIfExists(getDeltaFile(casFile).toPath());
+
         return casFile.delete();
     }
 
@@ -446,7 +792,7 @@ public class FileSystemCasStorageDriver
     {
         var file = getCasFile(aDocument, aUser);
         if (file.exists()) {
-            return Optional.of(file.length());
+            return Optional.of(file.length() + getDeltaFile(file).length());
         }
 
         return Optional.empty();
@@ -476,7 +822,7 @@ public class FileSystemCasStorageDriver
             return Optional.empty();
         }
 
-        var diskLastModified = casFile.lastModified();
+        var diskLastModified = getCasTimestamp(casFile);
         if (Math.abs(diskLastModified - aExpectedTimeStamp) > casStorageProperties
                 .getFileSystemTimestampAccuracy().toMillis()) {
             StringBuilder lastWriteMsg = new StringBuilder();
@@ -508,36 +854,44 @@ public class FileSystemCasStorageDriver
         return Optional.of(diskLastModified);
     }
 
-    private void failOnConcurrentModification(CAS aCas, File aCasFile, SourceDocument aDocument,
-            String aUsername, String aContextAction)
+    private void failOnConcurrentModification(long aExpectedTimestamp, File aCasFile,
+            SourceDocument aDocument, String aUsername, String aContextAction)
         throws IOException
+    {
+        if (aExpectedTimestamp < 0) {
+            LOG.warn(
+                    "Annotation file [{}] of user [{}] for document {} in project "
+                            + "{} does not contain CASMetadata yet - unable to check for "
+                            + "concurrent modifications",
+                    aCasFile.getName(), aUsername, aDocument, aDocument.getProject());
+            return;
+        }
+
+        verifyCasTimestamp(aDocument, aUsername, aExpectedTimestamp, aContextAction);
+    }
+
+    /**
+     * @return the timestamp of the CAS on disk as recorded in the CAS metadata or {@code -1} if the
+     *         CAS does not contain CAS metadata.
+     */
+    private static long getLastChangedOnDisk(CAS aCas) throws IOException
     {
         // If the type system of the CAS does not yet support CASMetadata, then we do not add it
         // and wait for the next regular CAS upgrade before we include this data.
         if (aCas.getTypeSystem().getType(CASMetadata._TypeName) == null) {
-            LOG.warn("Annotation file [{}] of user [{}] for document {} in project {} "
-                    + "does not support CASMetadata yet - unable to detect concurrent modifications",
-                    aCasFile.getName(), aUsername, aDocument, aDocument.getProject());
-            return;
+            return -1;
         }
 
         var cmds = aCas.select(CASMetadata._TypeName).asList();
         if (cmds.isEmpty()) {
-            LOG.warn(
-                    "Annotation file [{}] of user [{}] for document {} in project "
-                            + "{} does not contain CASMetadata yet - unable to check for "
-                            + "concurrent modifications",
-                    aCasFile.getName(), aUsername, aDocument, aDocument.getProject());
-            return;
+            return -1;
         }
 
         if (cmds.size() > 1) {
             throw new IOException("CAS contains more than one CASMetadata instance");
         }
 
-        var cmd = cmds.get(0);
-        var lastKnownUpdate = FSUtil.getFeature(cmd, "lastChangedOnDisk", Long.class);
-        verifyCasTimestamp(aDocument, aUsername, lastKnownUpdate, aContextAction);
+        return FSUtil.getFeature(cmds.get(0), "lastChangedOnDisk", Long.class);
     }
 
     private static String formatTimestamp(long aTime)
@@ -576,6 +930,98 @@ public class FileSystemCasStorageDriver
         }
     }
 
+    /**
+     * The state of a CAS at the time of its last full snapshot. All changes made to the CAS since
+     * then can be serialized as a delta. The delta is <b>cumulative</b>: UIMA supports only a
+     * single mark per CAS and binary form 6 deltas can only be applied to the serialization they
+     * were created against. Thus, the delta file is not a log to which each write appends its
+     * changes, but it is replaced on every write and its size grows with the number of changes
+     * since the full snapshot. Once it exceeds the compaction ratio, a new full snapshot is taken.
+     */
+    private static final class DeltaBase
+    {
+        private final long snapshotSize;
+        private final TypeSystem typeSystem;
+        private final Marker mark;
+        private final ReuseInfo reuseInfo;
+        // Set once the full snapshot has been written to disk
+        private volatile long fileLength = -1;
+        private volatile long fileTimestamp = -1;
+
+        private DeltaBase(long aSnapshotSize, TypeSystem aTypeSystem, Marker aMark,
+                ReuseInfo aReuseInfo)
+        {
+            snapshotSize = aSnapshotSize;
+            typeSystem = aTypeSystem;
+            mark = aMark;
+            reuseInfo = aReuseInfo;
+        }
+
+        private void persisted(File aCasFile)
+        {
+            fileLength = aCasFile.length();
+            fileTimestamp = aCasFile.lastModified();
+        }
+
+        /**
+         * @return whether the given CAS file contains the full snapshot.
+         */
+        private boolean isOnDisk(File aCasFile)
+        {
+            return fileTimestamp == aCasFile.lastModified() && fileLength == aCasFile.length();
+        }
+
+        /**
+         * @return whether a delta against this base can still be interpreted by a reader of the
+         *         given CAS file. This is not the case if the CAS file has been replaced in the
+         *         meantime or if the CAS was reset or its type system changed (e.g. by an upgrade).
+         *         If the full snapshot has not been written yet, the delta has to be written after
+         *         it.
+         */
+        private boolean isApplicable(CAS aCas, File aCasFile)
+        {
+            return mark.isValid() //
+                    && typeSystem == aCas.getTypeSystem() //
+                    && (fileTimestamp < 0 || isOnDisk(aCasFile));
+        }
+    }
+
+    private static final class FileSystemCasSnapshot
+        implements CasSnapshot
+    {
+        private final byte[] data;
+        private final DeltaBase base;
+        private final long timestamp;
+        private final boolean delta;
+
+        private FileSystemCasSnapshot(byte[] aData, DeltaBase aBase, long aTimestamp,
+                boolean aDelta)
+        {
+            data = aData;
+            base = aBase;
+            timestamp = aTimestamp;
+            delta = aDelta;
+        }
+
+        @Override
+        public long getTimestamp()
+        {
+            return timestamp;
+        }
+
+        @Override
+        public boolean isDelta()
+        {
+            return delta;
+        }
+
+        @Override
+        public long getSize()
+        {
+            return data.length;
+        }
+    }
+
     public static class Metadata
         implements CasStorageMetadata
     {
@@ -585,8 +1031,8 @@ public class FileSystemCasStorageDriver
 
         public Metadata(File aFile)
         {
-            timestamp = aFile.lastModified();
-            size = aFile.length();
+            timestamp = getCasTimestamp(aFile);
+            size = aFile.length() + getDeltaFile(aFile).length();
             path = aFile.getAbsolutePath();
         }
 
@@ -35,12 +35,14 @@ import static org.apache.uima.fit.util.JCasUtil.select;
 import static org.apache.uima.util.CasCreationUtils.mergeTypeSystems;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.awaitility.Awaitility.await;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Proxy;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -50,6 +52,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.CASException;
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
 import org.junit.jupiter.api.BeforeEach;
@@ -67,6 +70,7 @@ import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageBackupProperties;
 import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageCachePropertiesImpl;
 import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStoragePropertiesImpl;
+import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageWriteBehindProperties;
 import de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem.FileSystemCasStorageDriver;
 import de.tudarmstadt.ukp.inception.documents.api.RepositoryProperties;
 import de.tudarmstadt.ukp.inception.documents.api.RepositoryPropertiesImpl;
@@ -168,6 +172,55 @@ public class CasStorageServiceImplTest
         }
     }
 
+    @Test
+    public void testWriteBehind() throws Exception
+    {
+        var writeBehindProperties = new CasStorageWriteBehindProperties();
+        writeBehindProperties.setEnabled(true);
+        sut = new CasStorageServiceImpl(driver, new CasStorageCachePropertiesImpl(),
+                writeBehindProperties, null, null);
+
+        try (var casStorageSession = openNested(true)) {
+            var cas = WebAnnoCasUtil.createCas(mergeTypeSystems(
+                    asList(createTypeSystemDescription(), getInternalTypeSystem()))).getJCas();
+            cas.setDocumentText("This is a test");
+            casStorageSession.add("cas", EXCLUSIVE_WRITE_ACCESS, cas.getCas());
+
+            var doc = makeSourceDocument(9l, 9l, "test");
+            var user = "test";
+
+            sut.writeCas(doc, cas.getCas(), user);
+            var timestamp = sut.getCasTimestamp(doc, user).get();
+            assertThat(sut.existsCas(doc, user)).isTrue();
+            assertThat(sut.verifyCasTimestamp(doc, user, timestamp, "test")).contains(timestamp);
+
+            cas.setDocumentLanguage("de");
+            sut.writeCas(doc, cas.getCas(), user);
+            assertThat(sut.getCasTimestamp(doc, user).get()).isGreaterThan(timestamp);
+
+            var cas2 = sut.readCas(doc, user, UNMANAGED_ACCESS);
+            assertThat(cas2.getDocumentText()).isEqualTo("This is a test");
+            assertThat(cas2.getDocumentLanguage()).isEqualTo("de");
+
+            // Once everything has been persisted, the queue no longer tracks the CAS but the
+            // logical timestamp in the CAS must still be accepted
+            sut.getWriteBehindQueue().get().flushAll();
+            assertThat(sut.getWriteBehindQueue().get().getTrackedCases()).isZero();
+            var persistedTimestamp = sut.getCasTimestamp(doc, user).get();
+            assertThat(sut.verifyCasTimestamp(doc, user, persistedTimestamp, "test"))
+                    .contains(persistedTimestamp);
+            cas.setDocumentLanguage("en");
+            sut.writeCas(doc, cas.getCas(), user);
+            assertThat(sut.getCasTimestamp(doc, user).get()).isGreaterThan(persistedTimestamp);
+        }
+        finally {
+            sut.destroy();
+        }
+
+        assertThat(sut.getWriteBehindQueue().get().getPendingWrites()).isZero();
+        assertThat(driver.existsCas(makeSourceDocument(9l, 9l, "test"), "test")).isTrue();
+    }
+
     @Test
     public void testReadOrCreateCas() throws Exception
     {
@@ -638,6 +691,52 @@ public class CasStorageServiceImplTest
         }
     };
 
+    @Test
+    public void thatDeltaIsCompactedWhenCasIsDroppedFromPool() throws Exception
+    {
+        var casStorageProperties = new CasStoragePropertiesImpl();
+        casStorageProperties.setSharedTypeSystemCasSerialization(true);
+        casStorageProperties.setDeltaCasSerialization(true);
+        casStorageProperties.setDeltaCompactionRatio(10.0d);
+        driver = new FileSystemCasStorageDriver(repositoryProperties,
+                new CasStorageBackupProperties(), casStorageProperties);
+
+        var cacheProperties = new CasStorageCachePropertiesImpl();
+        cacheProperties.setIdleCasEvictionDelay(Duration.ofMillis(100));
+        cacheProperties.setMinIdleCasTime(Duration.ofMillis(100));
+        sut = new CasStorageServiceImpl(driver, cacheProperties, null, null);
+
+        var doc = makeSourceDocument(11l, 11l, "test");
+        var user = "test";
+        var casFile = driver.getCasFile(doc, user);
+        var deltaFile = new File(casFile.getPath() + FileSystemCasStorageDriver.DELTA_EXTENSION);
+
+        try {
+            try (var session = openNested(true)) {
+                var cas = createCasFile(doc, user, "This is a test").getCas();
+                sut.writeCas(doc, cas, user);
+                cas.addFsToIndexes(cas.createAnnotation(cas.getAnnotationType(), 0, 4));
+                sut.writeCas(doc, cas, user);
+            }
+
+            assertThat(deltaFile).exists();
+            var timestamp = casFile.lastModified();
+
+            await().atMost(Duration.ofSeconds(10)).until(() -> !deltaFile.exists());
+
+            assertThat(casFile.lastModified()).isEqualTo(timestamp);
+            try (var session = openNested(true)) {
+                var cas = sut.readCas(doc, user, UNMANAGED_ACCESS);
+                assertThat(cas.select(Annotation.class).asList()) //
+                        .extracting(Annotation::getCoveredText) //
+                        .contains("This");
+            }
+        }
+        finally {
+            sut.destroy();
+        }
+    }
+
     private CAS makeCas(String aText) throws IOException
     {
         try {
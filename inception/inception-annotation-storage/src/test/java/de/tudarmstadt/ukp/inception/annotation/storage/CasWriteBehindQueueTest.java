@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.annotation.storage;
+
+import static de.tudarmstadt.ukp.inception.annotation.storage.CasMetadataUtils.getInternalTypeSystem;
+import static de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem.FileSystemCasStorageDriver.DELTA_EXTENSION;
+import static java.util.Arrays.asList;
+import static org.apache.uima.fit.factory.TypeSystemDescriptionFactory.createTypeSystemDescription;
+import static org.apache.uima.util.CasCreationUtils.mergeTypeSystems;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageBackupProperties;
+import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStoragePropertiesImpl;
+import de.tudarmstadt.ukp.inception.annotation.storage.driver.CasSnapshot;
+import de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem.FileSystemCasStorageDriver;
+import de.tudarmstadt.ukp.inception.documents.api.RepositoryPropertiesImpl;
+import de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil;
+
+class CasWriteBehindQueueTest
+{
+    private static final String USER = "user";
+
+    private @TempDir File testFolder;
+
+    private AtomicInteger failures;
+    private FileSystemCasStorageDriver driver;
+    private CasWriteBehindQueue sut;
+    private SourceDocument doc;
+    private CasKey key;
+
+    @BeforeEach
+    void setup()
+    {
+        var repositoryProperties = new RepositoryPropertiesImpl();
+        repositoryProperties.setPath(testFolder);
+
+        var casStorageProperties = new CasStoragePropertiesImpl();
+        casStorageProperties.setSharedTypeSystemCasSerialization(true);
+        casStorageProperties.setDeltaCasSerialization(true);
+        casStorageProperties.setDeltaCompactionRatio(10.0d);
+
+        failures = new AtomicInteger();
+        driver = new FileSystemCasStorageDriver(repositoryProperties,
+                new CasStorageBackupProperties(), casStorageProperties)
+        {
+            @Override
+            public long writeSnapshot(SourceDocument aDocument, String aUser,
+                    CasSnapshot aSnapshot, long aExpectedTimestamp)
+                throws IOException
+            {
+                if (failures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                    throw new IOException("Simulated write failure");
+                }
+                return super.writeSnapshot(aDocument, aUser, aSnapshot, aExpectedTimestamp);
+            }
+        };
+
+        sut = new CasWriteBehindQueue(driver, 1, 10);
+
+        var project = new Project();
+        project.setId(1l);
+        doc = new SourceDocument();
+        doc.setProject(project);
+        doc.setId(1l);
+        doc.setName("doc");
+        key = new CasKey(doc, USER);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        sut.close();
+    }
+
+    @Test
+    void thatChangesAreWrittenAsDeltaInTheBackground() throws Exception
+    {
+        var cas = makeCas("This is a test");
+        assertThat(sut.submit(doc, USER, cas)).isTrue();
+
+        cas.addFsToIndexes(cas.createAnnotation(cas.getAnnotationType(), 0, 4));
+        assertThat(sut.submit(doc, USER, cas)).isTrue();
+
+        sut.flush(key);
+
+        var casFile = driver.getCasFile(doc, USER);
+        assertThat(new File(casFile.getPath() + DELTA_EXTENSION)).exists();
+        assertThat(driver.readCas(doc, USER).select(Annotation.class).asList()) //
+                .extracting(Annotation::getCoveredText) //
+                .contains("This");
+        assertThat(sut.getPendingWrites()).isZero();
+        assertThat(sut.getTrackedCases()).isZero();
+    }
+
+    @Test
+    void thatFailedBackgroundWriteIsRetriedOnNextAccess() throws Exception
+    {
+        failures.set(1);
+
+        var cas = makeCas("This is a test");
+        assertThat(sut.submit(doc, USER, cas)).isTrue();
+
+        sut.flush(key);
+
+        assertThat(driver.existsCas(doc, USER)).isTrue();
+        assertThat(sut.isPending(key)).isFalse();
+        assertThat(sut.getPendingWrites()).isZero();
+    }
+
+    @Test
+    void thatRepeatedFailureIsReportedAndSnapshotIsKept() throws Exception
+    {
+        failures.set(2);
+
+        var cas = makeCas("This is a test");
+        assertThat(sut.submit(doc, USER, cas)).isTrue();
+
+        assertThatExceptionOfType(IOException.class) //
+                .isThrownBy(() -> sut.flush(key));
+        assertThat(sut.isPending(key)).isTrue();
+        assertThat(driver.existsCas(doc, USER)).isFalse();
+
+        sut.flush(key);
+
+        assertThat(sut.isPending(key)).isFalse();
+        assertThat(driver.readCas(doc, USER).getDocumentText()).isEqualTo("This is a test");
+    }
+
+    private CAS makeCas(String aText) throws Exception
+    {
+        var cas = WebAnnoCasUtil.createCas(
+                mergeTypeSystems(asList(createTypeSystemDescription(), getInternalTypeSystem())));
+        cas.setDocumentText(aText);
+        return cas;
+    }
+}
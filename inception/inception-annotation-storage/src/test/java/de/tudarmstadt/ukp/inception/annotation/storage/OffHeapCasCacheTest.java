@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.annotation.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.uima.jcas.tcas.Annotation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem.CasPersistenceUtils;
+import de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil;
+
+public class OffHeapCasCacheTest
+{
+    private OffHeapCasCache sut;
+    private CasKey key;
+    private CasHolder holder;
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        sut = new OffHeapCasCache(10 * 1024 * 1024);
+
+        key = new CasKey(1l, 1l, "user");
+
+        var cas = WebAnnoCasUtil.createCas();
+        cas.setDocumentText("This is a test");
+
+        holder = new CasHolder(key, cas);
+        holder.setTimestamp(1000l);
+        holder.setCacheGeneration(sut.getGeneration(key.getProjectId()));
+    }
+
+    @Test
+    public void thatCasCanBeRehydrated() throws Exception
+    {
+        sut.put(holder);
+
+        var cas = sut.rehydrate(key, 1000l);
+
+        assertThat(cas).isPresent();
+        assertThat(cas.get().getDocumentText()).isEqualTo("This is a test");
+        assertThat(sut.getHitCount()).isEqualTo(1);
+        assertThat(sut.getBytes()).isPositive();
+    }
+
+    @Test
+    public void thatAnnotationsAreRehydrated() throws Exception
+    {
+        holder.getCas().addFsToIndexes(
+                holder.getCas().createAnnotation(holder.getCas().getAnnotationType(), 0, 4));
+        sut.put(holder);
+
+        var cas = sut.rehydrate(key, 1000l).get();
+
+        assertThat(cas.select(Annotation.class).asList()) //
+                .extracting(Annotation::getCoveredText) //
+                .contains("This");
+    }
+
+    @Test
+    public void thatEntriesAreWeighedByUncompressedSize() throws Exception
+    {
+        sut.put(holder);
+
+        assertThat(sut.getUncompressedBytes()) //
+                .isEqualTo(CasPersistenceUtils.writeUncompressedForm6(holder.getCas()).length);
+    }
+
+    @Test
+    public void thatRehydratedCasCanBeReadFromAnotherThread() throws Exception
+    {
+        sut.put(holder);
+
+        var cas = sut.rehydrate(key, 1000l).get();
+
+        var text = CompletableFuture.supplyAsync(cas::getDocumentText).get();
+
+        assertThat(text).isEqualTo("This is a test");
+    }
+
+    @Test
+    public void thatOutdatedCasIsNotRehydrated() throws Exception
+    {
+        sut.put(holder);
+
+        assertThat(sut.rehydrate(key, 2000l)).isEmpty();
+        assertThat(sut.getStaleCount()).isEqualTo(1);
+        assertThat(sut.getSize()).isZero();
+    }
+
+    @Test
+    public void thatCasLoadedBeforeProjectInvalidationIsNotAccepted() throws Exception
+    {
+        sut.invalidateProject(key.getProjectId());
+        sut.put(holder);
+
+        assertThat(sut.rehydrate(key, 1000l)).isEmpty();
+        assertThat(sut.getMissCount()).isEqualTo(1);
+    }
+}
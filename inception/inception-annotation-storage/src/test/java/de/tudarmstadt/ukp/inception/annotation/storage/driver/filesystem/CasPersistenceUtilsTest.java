@@ -116,4 +116,46 @@ public class CasPersistenceUtilsTest
         assertThat(actualCas.getDocumentText()).isEqualTo(originalCas.getDocumentText());
         assertThat(actualCas.getDocumentLanguage()).isEqualTo(originalCas.getDocumentLanguage());
     }
+
+    @Test
+    void thatSharedTypeSystemCasCanBeSavedAndLoaded(@TempDir Path aTempDir) throws Exception
+    {
+        File target1 = aTempDir.resolve("out1.ser").toFile();
+        File target2 = aTempDir.resolve("out2.ser").toFile();
+        File tsFolder = aTempDir.resolve("typesystems").toFile();
+
+        CAS originalCas = WebAnnoCasUtil.createCas(createTypeSystemDescription());
+        originalCas.setDocumentText("This is a test.");
+        originalCas.setDocumentLanguage("en");
+        CasPersistenceUtils.writeSharedTypeSystemCas(originalCas, target1, tsFolder);
+        CasPersistenceUtils.writeSharedTypeSystemCas(originalCas, target2, tsFolder);
+
+        assertThat(CasPersistenceUtils.isSharedTypeSystemCas(target1)).isTrue();
+        assertThat(tsFolder.listFiles()).hasSize(1);
+
+        CAS actualCas = CasCreationUtils.createCas((TypeSystemDescription) null, null, null);
+        CasPersistenceUtils.readSerializedCas(actualCas, target2, tsFolder);
+
+        assertThat(actualCas.getDocumentText()).isEqualTo(originalCas.getDocumentText());
+        assertThat(actualCas.getDocumentLanguage()).isEqualTo(originalCas.getDocumentLanguage());
+        assertThat(actualCas.getTypeSystem().getType(DocumentMetaData.class.getName()))
+                .isNotNull();
+    }
+
+    @Test
+    void thatLegacyCasIsNotDetectedAsSharedTypeSystemCas(@TempDir Path aTempDir) throws Exception
+    {
+        File target = aTempDir.resolve("out.ser").toFile();
+
+        CAS originalCas = WebAnnoCasUtil.createCas(createTypeSystemDescription());
+        originalCas.setDocumentText("This is a test.");
+        CasPersistenceUtils.writeSerializedCasCompressed(originalCas, target);
+
+        assertThat(CasPersistenceUtils.isSharedTypeSystemCas(target)).isFalse();
+
+        CAS actualCas = WebAnnoCasUtil.createCas(createTypeSystemDescription());
+        CasPersistenceUtils.readSerializedCas(actualCas, target, aTempDir.toFile());
+
+        assertThat(actualCas.getDocumentText()).isEqualTo(originalCas.getDocumentText());
+    }
 }
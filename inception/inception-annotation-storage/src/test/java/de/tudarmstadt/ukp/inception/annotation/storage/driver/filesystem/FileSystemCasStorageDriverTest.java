@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem;
+
+import static de.tudarmstadt.ukp.inception.annotation.storage.CasMetadataUtils.getInternalTypeSystem;
+import static java.util.Arrays.asList;
+import static org.apache.uima.fit.factory.TypeSystemDescriptionFactory.createTypeSystemDescription;
+import static org.apache.uima.util.CasCreationUtils.mergeTypeSystems;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+
+import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageBackupProperties;
+import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStoragePropertiesImpl;
+import de.tudarmstadt.ukp.inception.documents.api.RepositoryPropertiesImpl;
+import de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil;
+
+class FileSystemCasStorageDriverTest
+{
+    {
+        System.setProperty(CASImpl.ALWAYS_HOLD_ONTO_FSS, "true");
+    }
+
+    private @TempDir File testFolder;
+
+    private CasStoragePropertiesImpl casStorageProperties;
+    private FileSystemCasStorageDriver sut;
+    private SourceDocument doc;
+
+    @BeforeEach
+    void setup()
+    {
+        var repositoryProperties = new RepositoryPropertiesImpl();
+        repositoryProperties.setPath(testFolder);
+
+        casStorageProperties = new CasStoragePropertiesImpl();
+        casStorageProperties.setSharedTypeSystemCasSerialization(true);
+        casStorageProperties.setDeltaCasSerialization(true);
+        casStorageProperties.setDeltaCompactionRatio(10.0d);
+
+        sut = new FileSystemCasStorageDriver(repositoryProperties,
+                new CasStorageBackupProperties(), casStorageProperties);
+
+        var project = new Project();
+        project.setId(1l);
+
+        doc = new SourceDocument();
+        doc.setProject(project);
+        doc.setId(1l);
+        doc.setName("test");
+    }
+
+    @Test
+    void thatChangesAreWrittenAsDeltaAndReplayedOnRead() throws Exception
+    {
+        var cas = WebAnnoCasUtil.createCas(
+                mergeTypeSystems(asList(createTypeSystemDescription(), getInternalTypeSystem())));
+        cas.setDocumentText("This is a test.");
+        cas.addFsToIndexes(cas.createAnnotation(cas.getAnnotationType(), 0, 4));
+
+        // The first write creates a full snapshot
+        sut.writeCas(doc, "user", cas);
+        var casFile = sut.getCasFile(doc, "user");
+        var deltaFile = FileSystemCasStorageDriver.getDeltaFile(casFile);
+        assertThat(deltaFile).doesNotExist();
+
+        // Subsequent writes are only recorded in the delta file
+        cas.addFsToIndexes(cas.createAnnotation(cas.getAnnotationType(), 5, 7));
+        sut.writeCas(doc, "user", cas);
+        assertThat(deltaFile).exists();
+
+        cas.select(Annotation.class).filter(a -> a.getBegin() == 0).forEach(a -> a.setEnd(2));
+        sut.writeCas(doc, "user", cas);
+
+        var actual = sut.readCas(doc, "user");
+        assertThat(actual.select(Annotation.class).asList()) //
+                .extracting(Annotation::getCoveredText) //
+                .contains("Th", "is");
+        assertThat(sut.getCasMetadata(doc, "user").get().getTimestamp())
+                .isEqualTo(Math.max(casFile.lastModified(), deltaFile.lastModified()));
+    }
+
+    @Test
+    void thatDeltaIsCompactedWhenExceedingThreshold() throws Exception
+    {
+        casStorageProperties.setDeltaCompactionRatio(0.0d);
+
+        var cas = WebAnnoCasUtil.createCas(
+                mergeTypeSystems(asList(createTypeSystemDescription(), getInternalTypeSystem())));
+        cas.setDocumentText("This is a test.");
+
+        sut.writeCas(doc, "user", cas);
+        cas.addFsToIndexes(cas.createAnnotation(cas.getAnnotationType(), 5, 7));
+        sut.writeCas(doc, "user", cas);
+
+        var deltaFile = FileSystemCasStorageDriver.getDeltaFile(sut.getCasFile(doc, "user"));
+        assertThat(deltaFile).doesNotExist();
+
+        var actual = sut.readCas(doc, "user");
+        assertThat(actual.select(Annotation.class).asList()) //
+                .extracting(Annotation::getCoveredText) //
+                .contains("is");
+    }
+
+    @Test
+    void thatCompactedCasCanBeWrittenAgain() throws Exception
+    {
+        var cas = WebAnnoCasUtil.createCas(
+                mergeTypeSystems(asList(createTypeSystemDescription(), getInternalTypeSystem())));
+        cas.setDocumentText("This is a test.");
+
+        sut.writeCas(doc, "user", cas);
+        cas.addFsToIndexes(cas.createAnnotation(cas.getAnnotationType(), 5, 7));
+        sut.writeCas(doc, "user", cas);
+
+        // Force a compaction, i.e. a second snapshot of the same CAS
+        casStorageProperties.setDeltaCompactionRatio(0.0d);
+        cas.addFsToIndexes(cas.createAnnotation(cas.getAnnotationType(), 8, 9));
+        sut.writeCas(doc, "user", cas);
+
+        casStorageProperties.setDeltaCompactionRatio(0.5d);
+        cas.addFsToIndexes(cas.createAnnotation(cas.getAnnotationType(), 10, 14));
+        sut.writeCas(doc, "user", cas);
+
+        var actual = sut.readCas(doc, "user");
+        assertThat(actual.select(Annotation.class).asList()) //
+                .extracting(Annotation::getCoveredText) //
+                .contains("is", "a", "test");
+        assertThat(sut.getCasMetadata(doc, "user")).isPresent();
+    }
+
+    @Test
+    void thatCompactionMergesDeltaAndKeepsTimestamp() throws Exception
+    {
+        var cas = WebAnnoCasUtil.createCas(
+                mergeTypeSystems(asList(createTypeSystemDescription(), getInternalTypeSystem())));
+        cas.setDocumentText("This is a test.");
+
+        sut.writeCas(doc, "user", cas);
+        cas.addFsToIndexes(cas.createAnnotation(cas.getAnnotationType(), 5, 7));
+        sut.writeCas(doc, "user", cas);
+
+        var casFile = sut.getCasFile(doc, "user");
+        var deltaFile = FileSystemCasStorageDriver.getDeltaFile(casFile);
+        assertThat(deltaFile).exists();
+        var timestamp = sut.getCasMetadata(doc, "user").get().getTimestamp();
+
+        sut.compactCas(doc.getProject().getId(), doc.getId(), "user");
+
+        assertThat(deltaFile).doesNotExist();
+        assertThat(sut.getCasMetadata(doc, "user").get().getTimestamp()).isEqualTo(timestamp);
+        var actual = sut.readCas(doc, "user");
+        assertThat(actual.select(Annotation.class).asList()) //
+                .extracting(Annotation::getCoveredText) //
+                .contains("is");
+    }
+}
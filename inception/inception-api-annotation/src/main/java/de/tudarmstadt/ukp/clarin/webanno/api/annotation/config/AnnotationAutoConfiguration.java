@@ -40,6 +40,7 @@ import de.tudarmstadt.ukp.inception.preferences.PreferencesService;
 import de.tudarmstadt.ukp.inception.rendering.coloring.ColoringService;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.schema.api.config.AnnotationSchemaProperties;
+import de.tudarmstadt.ukp.inception.schema.api.feature.FeatureSupportRegistry;
 import de.tudarmstadt.ukp.inception.schema.api.layer.LayerSupportRegistry;
 
 @Configuration
@@ -54,9 +55,11 @@ public class AnnotationAutoConfiguration
 
     @Bean
     public PreRenderer preRenderer(LayerSupportRegistry aLayerSupportRegistry,
+            FeatureSupportRegistry aFeatureSupportRegistry,
             AnnotationSchemaService aAnnotationService)
     {
-        return new PreRendererImpl(aLayerSupportRegistry, aAnnotationService);
+        return new PreRendererImpl(aLayerSupportRegistry, aFeatureSupportRegistry,
+                aAnnotationService);
     }
 
     @Bean
@@ -17,17 +17,31 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering;
 
+import static de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil.getRealCas;
 import static java.lang.System.currentTimeMillis;
+import static java.util.Collections.emptyList;
 import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toUnmodifiableList;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.annotation.Order;
@@ -37,12 +51,15 @@ import com.github.benmanes.caffeine.cache.LoadingCache;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.config.AnnotationAutoConfiguration;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.inception.rendering.Renderer;
 import de.tudarmstadt.ukp.inception.rendering.pipeline.RenderStep;
 import de.tudarmstadt.ukp.inception.rendering.request.RenderRequest;
 import de.tudarmstadt.ukp.inception.rendering.vmodel.VDocument;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.schema.api.event.LayerConfigurationChangedEvent;
+import de.tudarmstadt.ukp.inception.schema.api.feature.FeatureSupportRegistry;
 import de.tudarmstadt.ukp.inception.schema.api.layer.LayerSupport;
 import de.tudarmstadt.ukp.inception.schema.api.layer.LayerSupportRegistry;
 
@@ -53,33 +70,54 @@ import de.tudarmstadt.ukp.inception.schema.api.layer.LayerSupportRegistry;
  */
 @Order(RenderStep.RENDER_STRUCTURE)
 public class PreRendererImpl
-    implements PreRenderer
+    implements PreRenderer, DisposableBean
 {
     public static final String ID = "PreRenderer";
 
     private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+    /**
+     * Rendering only few layers in parallel does not pay off the overhead of merging the results.
+     */
+    private static final int MIN_LAYERS_FOR_PARALLEL_RENDERING = 4;
+
     private final AnnotationSchemaService annotationService;
     private final LayerSupportRegistry layerSupportRegistry;
+    private final FeatureSupportRegistry featureSupportRegistry;
+    private final ExecutorService executor;
 
-    private LoadingCache<Project, List<AnnotationFeature>> supportedFeaturesCache;
-    private LoadingCache<Project, List<AnnotationFeature>> allFeaturesCache;
+    private LoadingCache<Project, Map<Long, List<AnnotationFeature>>> supportedFeaturesCache;
+    private LoadingCache<Project, Map<Long, List<AnnotationFeature>>> allFeaturesCache;
 
     @Autowired
     public PreRendererImpl(LayerSupportRegistry aLayerSupportRegistry,
+            FeatureSupportRegistry aFeatureSupportRegistry,
             AnnotationSchemaService aAnnotationService)
     {
         layerSupportRegistry = aLayerSupportRegistry;
+        featureSupportRegistry = aFeatureSupportRegistry;
         annotationService = aAnnotationService;
 
         supportedFeaturesCache = Caffeine.newBuilder() //
                 .expireAfterAccess(5, MINUTES) //
                 .maximumSize(10 * 1024) //
-                .build(annotationService::listSupportedFeatures);
+                .build(project -> groupByLayer(annotationService.listSupportedFeatures(project)));
         allFeaturesCache = Caffeine.newBuilder() //
                 .expireAfterAccess(5, MINUTES) //
                 .maximumSize(10 * 1024) //
-                .build(annotationService::listAnnotationFeature);
+                .build(project -> groupByLayer(annotationService.listAnnotationFeature(project)));
+
+        var threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        executor = Executors.newFixedThreadPool(threads, new BasicThreadFactory.Builder() //
+                .namingPattern("layer-renderer-%d") //
+                .daemon(true) //
+                .build());
+    }
+
+    @Override
+    public void destroy()
+    {
+        executor.shutdownNow();
     }
 
     @Override
@@ -115,20 +153,33 @@ public class PreRendererImpl
         var supportedFeatures = supportedFeaturesCache.get(project);
         var allFeatures = allFeaturesCache.get(project);
 
-        // Render (custom) layers
-        for (var layer : aRequest.getVisibleLayers()) {
-            var layerSupportedFeatures = supportedFeatures.stream() //
-                    .filter(feature -> feature.getLayer().equals(layer)) //
-                    .toList();
-            var layerAllFeatures = allFeatures.stream() //
-                    .filter(feature -> feature.getLayer().equals(layer)) //
-                    .toList();
+        // Set up the renderers on the calling thread - this may require access to the database
+        var layers = aRequest.getVisibleLayers();
+        var renderers = new ArrayList<Renderer>(layers.size());
+        for (var layer : layers) {
+            var layerAllFeatures = allFeatures.getOrDefault(layer.getId(), emptyList());
             // We need to pass in *all* the annotation features here because we also to that in
             // other places where we create renderers - and the set of features must always be
             // the same because otherwise the IDs of armed slots would be inconsistent
             LayerSupport<?, ?> layerSupport = layerSupportRegistry.getLayerSupport(layer);
-            var renderer = layerSupport.createRenderer(layer, () -> layerAllFeatures);
-            renderer.render(aRequest, layerSupportedFeatures, aResponse);
+            renderers.add(layerSupport.createRenderer(layer, () -> layerAllFeatures));
+        }
+
+        // Render (custom) layers
+        var concurrentLayers = layers.stream() //
+                .map(layer -> isRenderableConcurrently(layer, allFeatures)) //
+                .toList();
+        if (concurrentLayers.stream().filter(Boolean::booleanValue)
+                .count() < MIN_LAYERS_FOR_PARALLEL_RENDERING) {
+            for (int i = 0; i < layers.size(); i++) {
+                var layerSupportedFeatures = supportedFeatures
+                        .getOrDefault(layers.get(i).getId(), emptyList());
+                renderers.get(i).render(aRequest, layerSupportedFeatures, aResponse);
+            }
+        }
+        else {
+            renderInParallel(aResponse, aRequest, layers, concurrentLayers, renderers,
+                    supportedFeatures);
         }
 
         if (LOG.isTraceEnabled()) {
@@ -140,6 +191,94 @@ public class PreRendererImpl
         }
     }
 
+    /**
+     * Renders each layer into its own document and then merges these documents in the order of the
+     * layers so that the result does not depend on which layer is rendered first.
+     * <p>
+     * Layers are rendered on the worker threads if all their features can be rendered
+     * concurrently. The remaining layers, e.g. layers with concept features which need to look up
+     * the knowledge base, are rendered on the request thread while the workers are busy.
+     * <p>
+     * The CAS of the request is usually bound to the request thread. The workers get the
+     * underlying CAS instead. This is safe because layer renderers only read the CAS of the
+     * request. Layers rendered by the workers must not access the CAS storage or the database
+     * because there is no CAS storage session and no transaction on the workers.
+     */
+    private void renderInParallel(VDocument aResponse, RenderRequest aRequest,
+            List<AnnotationLayer> aLayers, List<Boolean> aConcurrentLayers,
+            List<Renderer> aRenderers, Map<Long, List<AnnotationFeature>> aSupportedFeatures)
+    {
+        var workerRequest = aRequest.withCas(getRealCas(aRequest.getCas()));
+        var futures = new ArrayList<Future<VDocument>>(aLayers.size());
+        for (int i = 0; i < aLayers.size(); i++) {
+            if (!aConcurrentLayers.get(i)) {
+                futures.add(null);
+                continue;
+            }
+
+            var renderer = aRenderers.get(i);
+            var layerSupportedFeatures = aSupportedFeatures.getOrDefault(aLayers.get(i).getId(),
+                    emptyList());
+            futures.add(executor.submit(() -> renderLayer(aResponse, workerRequest, renderer,
+                    layerSupportedFeatures)));
+        }
+
+        try {
+            for (int i = 0; i < aLayers.size(); i++) {
+                if (futures.get(i) == null) {
+                    var layerSupportedFeatures = aSupportedFeatures
+                            .getOrDefault(aLayers.get(i).getId(), emptyList());
+                    futures.set(i, CompletableFuture.completedFuture(renderLayer(aResponse,
+                            aRequest, aRenderers.get(i), layerSupportedFeatures)));
+                }
+            }
+
+            for (var future : futures) {
+                aResponse.merge(future.get());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rendering layers", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Unable to render layers", e.getCause());
+        }
+        finally {
+            futures.stream() //
+                    .filter(Objects::nonNull) //
+                    .forEach(future -> future.cancel(true));
+        }
+    }
+
+    private VDocument renderLayer(VDocument aResponse, RenderRequest aRequest,
+            Renderer aRenderer, List<AnnotationFeature> aFeatures)
+    {
+        var partial = new VDocument();
+        partial.setWindow(aResponse.getWindowBegin(), aResponse.getWindowEnd());
+        aRenderer.render(aRequest, aFeatures, partial);
+        return partial;
+    }
+
+    private boolean isRenderableConcurrently(AnnotationLayer aLayer,
+            Map<Long, List<AnnotationFeature>> aAllFeatures)
+    {
+        return aAllFeatures.getOrDefault(aLayer.getId(), emptyList()).stream() //
+                .allMatch(feature -> featureSupportRegistry.findExtension(feature) //
+                        .map(support -> support.isRenderableConcurrently(feature)) //
+                        .orElse(false));
+    }
+
+    private static Map<Long, List<AnnotationFeature>> groupByLayer(
+            List<AnnotationFeature> aFeatures)
+    {
+        return aFeatures.stream().collect(groupingBy(feature -> feature.getLayer().getId(),
+                LinkedHashMap::new, toUnmodifiableList()));
+    }
+
     @EventListener
     public void beforeLayerConfigurationChanged(LayerConfigurationChangedEvent aEvent)
     {
@@ -323,6 +323,13 @@ public class LinkFeatureSupport
         return false;
     }
 
+    @Override
+    public boolean isRenderableConcurrently(AnnotationFeature aFeature)
+    {
+        // Link feature labels are never rendered and the links only refer to the same CAS
+        return true;
+    }
+
     @Override
     public boolean isFeatureValueEqual(AnnotationFeature aFeature, FeatureStructure aFS1,
             FeatureStructure aFS2)
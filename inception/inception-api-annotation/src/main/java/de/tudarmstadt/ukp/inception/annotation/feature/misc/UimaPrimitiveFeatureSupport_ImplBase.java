@@ -62,4 +62,11 @@ public abstract class UimaPrimitiveFeatureSupport_ImplBase<T>
     {
         aTD.addFeature(aFeature.getName(), aFeature.getDescription(), aFeature.getType());
     }
+
+    @Override
+    public boolean isRenderableConcurrently(AnnotationFeature aFeature)
+    {
+        // Primitive values are rendered from the annotation alone
+        return true;
+    }
 }
@@ -225,4 +225,10 @@ public class RelationEndpointFeatureSupport
         // End-points are merged as part of copying the annotation position
         return false;
     }
+
+    @Override
+    public boolean isRenderableConcurrently(AnnotationFeature aFeature)
+    {
+        return true;
+    }
 }
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering;
+
+import static de.tudarmstadt.ukp.inception.support.WebAnnoConst.SPAN_TYPE;
+import static java.util.stream.Collectors.toList;
+import static org.apache.uima.cas.CAS.TYPE_NAME_STRING;
+import static org.apache.uima.fit.factory.CasFactory.createCas;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.inception.rendering.Renderer;
+import de.tudarmstadt.ukp.inception.rendering.request.RenderRequest;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VDocument;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VID;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VObject;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VRange;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VSpan;
+import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
+import de.tudarmstadt.ukp.inception.schema.api.adapter.TypeAdapter;
+import de.tudarmstadt.ukp.inception.schema.api.feature.FeatureSupport;
+import de.tudarmstadt.ukp.inception.schema.api.feature.FeatureSupportRegistry;
+import de.tudarmstadt.ukp.inception.schema.api.layer.LayerSupport;
+import de.tudarmstadt.ukp.inception.schema.api.layer.LayerSupportRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class PreRendererImplTest
+{
+    private static final String CONCEPT_TYPE = "kb:<ANY>";
+
+    private @Mock AnnotationSchemaService schemaService;
+    private @Mock LayerSupportRegistry layerSupportRegistry;
+    private @Mock LayerSupport<?, ?> layerSupport;
+    private @Mock FeatureSupportRegistry featureSupportRegistry;
+    private @Mock FeatureSupport<?> stringFeatureSupport;
+    private @Mock FeatureSupport<?> conceptFeatureSupport;
+
+    private Project project;
+    private SourceDocument document;
+    private CAS cas;
+    private Map<Long, Thread> renderingThreads;
+
+    private PreRendererImpl sut;
+
+    @BeforeEach
+    void setup() throws Exception
+    {
+        project = new Project("test");
+        project.setId(1l);
+
+        document = new SourceDocument("test.txt", project, null);
+
+        cas = createCas();
+        cas.setDocumentText("This is a test.");
+
+        renderingThreads = new ConcurrentHashMap<>();
+
+        doReturn(layerSupport).when(layerSupportRegistry).getLayerSupport(any());
+        doAnswer(call -> new RecordingRenderer(call.getArgument(0))).when(layerSupport)
+                .createRenderer(any(), any());
+
+        // Concept features look up the knowledge base while rendering, so they cannot be
+        // rendered by the workers
+        doAnswer(call -> {
+            AnnotationFeature feature = call.getArgument(0);
+            return Optional.of(CONCEPT_TYPE.equals(feature.getType()) ? conceptFeatureSupport
+                    : stringFeatureSupport);
+        }).when(featureSupportRegistry).findExtension(any());
+        when(stringFeatureSupport.isRenderableConcurrently(any())).thenReturn(true);
+
+        sut = new PreRendererImpl(layerSupportRegistry, featureSupportRegistry, schemaService);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        sut.destroy();
+    }
+
+    @Test
+    void thatLayersWithConceptFeaturesAreRenderedOnRequestThread()
+    {
+        var layers = createLayers(5);
+        var features = new ArrayList<AnnotationFeature>();
+        layers.forEach(layer -> features.add(new AnnotationFeature(layer.getId(), layer, "value",
+                layer.getId() == 3l ? CONCEPT_TYPE : TYPE_NAME_STRING)));
+        when(schemaService.listSupportedFeatures(project)).thenReturn(features);
+        when(schemaService.listAnnotationFeature(project)).thenReturn(features);
+
+        var vdoc = new VDocument();
+        sut.render(vdoc, request(layers));
+
+        assertThat(renderingThreads.get(3l)).isSameAs(Thread.currentThread());
+        assertThat(renderingThreads).containsOnlyKeys(1l, 2l, 3l, 4l, 5l);
+        assertThat(renderingThreads.values()).filteredOn(t -> t != Thread.currentThread())
+                .hasSize(4);
+        assertThat(vdoc.spans()) //
+                .extracting(VSpan::getVid) //
+                .containsExactly(new VID(1), new VID(2), new VID(3), new VID(4), new VID(5));
+    }
+
+    @Test
+    void thatTooFewConcurrentlyRenderableLayersAreRenderedOnRequestThread()
+    {
+        var layers = createLayers(4);
+        var features = new ArrayList<AnnotationFeature>();
+        layers.forEach(layer -> features.add(new AnnotationFeature(layer.getId(), layer, "value",
+                layer.getId() == 4l ? CONCEPT_TYPE : TYPE_NAME_STRING)));
+        when(schemaService.listSupportedFeatures(project)).thenReturn(features);
+        when(schemaService.listAnnotationFeature(project)).thenReturn(features);
+
+        var vdoc = new VDocument();
+        sut.render(vdoc, request(layers));
+
+        assertThat(renderingThreads).containsOnlyKeys(1l, 2l, 3l, 4l);
+        assertThat(renderingThreads.values()).containsOnly(Thread.currentThread());
+        assertThat(vdoc.spans()) //
+                .extracting(VSpan::getVid) //
+                .containsExactly(new VID(1), new VID(2), new VID(3), new VID(4));
+    }
+
+    private List<AnnotationLayer> createLayers(int aCount)
+    {
+        return LongStream.rangeClosed(1, aCount) //
+                .mapToObj(id -> {
+                    var layer = new AnnotationLayer("custom.Span" + id, "Span " + id, SPAN_TYPE,
+                            project, false, null, null);
+                    layer.setId(id);
+                    return layer;
+                }) //
+                .collect(toList());
+    }
+
+    private RenderRequest request(List<AnnotationLayer> aLayers)
+    {
+        return RenderRequest.builder() //
+                .withDocument(document, new User("user")) //
+                .withWindow(0, cas.getDocumentText().length()) //
+                .withCas(cas) //
+                .withVisibleLayers(aLayers) //
+                .withAllLayers(aLayers) //
+                .build();
+    }
+
+    private class RecordingRenderer
+        implements Renderer
+    {
+        private final AnnotationLayer layer;
+
+        RecordingRenderer(AnnotationLayer aLayer)
+        {
+            layer = aLayer;
+        }
+
+        @Override
+        public void render(RenderRequest aRequest, List<AnnotationFeature> aFeatures,
+                VDocument aResponse)
+        {
+            renderingThreads.put(layer.getId(), Thread.currentThread());
+            aResponse.add(new VSpan(layer, new VID(layer.getId().intValue()), new VRange(0, 4),
+                    Map.of()));
+        }
+
+        @Override
+        public List<VObject> render(RenderRequest aRequest, List<AnnotationFeature> aFeatures,
+                VDocument aResponse, AnnotationFS aFS)
+        {
+            return List.of();
+        }
+
+        @Override
+        public List<Annotation> selectAnnotationsInWindow(RenderRequest aRequest,
+                int aWindowBegin, int aWindowEnd)
+        {
+            return List.of();
+        }
+
+        @Override
+        public TypeAdapter getTypeAdapter()
+        {
+            return null;
+        }
+
+        @Override
+        public FeatureSupportRegistry getFeatureSupportRegistry()
+        {
+            return featureSupportRegistry;
+        }
+    }
+}
@@ -36,6 +36,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -203,6 +205,77 @@ public interface FormatSupport
     default File write(SourceDocument aDocument, CAS aCas, File aTargetFolder,
             boolean aStripExtension)
         throws ResourceInitializationException, AnalysisEngineProcessException, IOException
+    {
+        writeToFolder(aDocument, aCas, aTargetFolder, aStripExtension);
+
+        // If the writer produced more than one file, we package it up as a ZIP file
+        if (aTargetFolder.listFiles().length > 1) {
+            var exportFile = createTempFile("inception-document", ".zip");
+            zipFolder(aTargetFolder, exportFile);
+            return exportFile;
+        }
+
+        // If the writer produced only a single file, then that is the result
+        var exportedFile = aTargetFolder.listFiles()[0];
+        // temp-file prefix must be at least 3 chars
+        var baseName = rightPad(getBaseName(exportedFile.getName()), 3, "_");
+        var extension = getExtension(exportedFile.getName());
+        var exportFile = createTempFile(baseName, "." + extension);
+        copyFile(exportedFile, exportFile);
+        return exportFile;
+    }
+
+    /**
+     * Writes the given CAS to the given stream. In contrast to
+     * {@link #write(SourceDocument, CAS, File, boolean)}, the result is not copied to a temporary
+     * file first.
+     * 
+     * @param aDocument
+     *            the document to which the CAS belongs.
+     * @param aCas
+     *            the CAS to write.
+     * @param aFileName
+     *            the name of the document file from which the writer derives the names of its
+     *            output files.
+     * @param aTargetFolder
+     *            an empty folder to which the writer can write its output.
+     * @param aStripExtension
+     *            whether to strip the original file extension from the file name.
+     * @param aOut
+     *            the stream to write to. The stream is not closed.
+     * @return the name of the written file. If the writer produced more than one file, these are
+     *         written as a ZIP file which is named after the document file and has the extension
+     *         {@code .zip}.
+     * @throws ResourceInitializationException
+     *             if the writer could not be initialized.
+     * @throws AnalysisEngineProcessException
+     *             if the writer failed.
+     * @throws IOException
+     *             if there was an I/O-level problem.
+     */
+    default String write(SourceDocument aDocument, CAS aCas, String aFileName,
+            File aTargetFolder, boolean aStripExtension, OutputStream aOut)
+        throws ResourceInitializationException, AnalysisEngineProcessException, IOException
+    {
+        writeToFolder(aDocument, aCas, aTargetFolder, aStripExtension);
+
+        // If the writer produced more than one file, we package it up as a ZIP file
+        var files = aTargetFolder.listFiles();
+        if (files.length > 1) {
+            zipFolder(aTargetFolder, aOut);
+            return (aStripExtension ? getBaseName(aFileName) : aFileName) + ".zip";
+        }
+
+        // If the writer produced only a single file, then that is the result
+        try (var is = Files.newInputStream(files[0].toPath())) {
+            is.transferTo(aOut);
+        }
+        return files[0].getName();
+    }
+
+    private void writeToFolder(SourceDocument aDocument, CAS aCas, File aTargetFolder,
+            boolean aStripExtension)
+        throws ResourceInitializationException, AnalysisEngineProcessException
     {
         var writer = getWriterDescription(aDocument.getProject(), null, aCas);
         addConfigurationParameters(writer, //
@@ -223,21 +296,5 @@ public interface FormatSupport
         finally {
             destroy(engine);
         }
-
-        // If the writer produced more than one file, we package it up as a ZIP file
-        if (aTargetFolder.listFiles().length > 1) {
-            var exportFile = createTempFile("inception-document", ".zip");
-            zipFolder(aTargetFolder, exportFile);
-            return exportFile;
-        }
-
-        // If the writer produced only a single file, then that is the result
-        var exportedFile = aTargetFolder.listFiles()[0];
-        // temp-file prefix must be at least 3 chars
-        var baseName = rightPad(getBaseName(exportedFile.getName()), 3, "_");
-        var extension = getExtension(exportedFile.getName());
-        var exportFile = createTempFile(baseName, "." + extension);
-        copyFile(exportedFile, exportFile);
-        return exportFile;
     }
 }
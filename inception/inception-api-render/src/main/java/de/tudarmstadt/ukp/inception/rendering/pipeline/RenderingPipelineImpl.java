@@ -54,6 +54,9 @@ public class RenderingPipelineImpl
 
         var vdoc = new VDocument();
 
+        // The steps run one after another on the request thread. Some of them read other CASes
+        // from the CAS storage or access the database, which are both bound to the request
+        // thread. Only the layers are rendered in parallel (see PreRendererImpl).
         for (var step : renderStepExtensionPoint.getExtensions(aRequest)) {
             var start = currentTimeMillis();
             step.render(vdoc, aRequest);
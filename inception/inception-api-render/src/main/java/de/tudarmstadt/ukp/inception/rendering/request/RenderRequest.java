@@ -157,6 +157,30 @@ public class RenderRequest
         return sessionOwner;
     }
 
+    /**
+     * @param aCas
+     *            the CAS to use instead of the CAS of this request.
+     * @return a copy of this request which refers to the given CAS.
+     */
+    public RenderRequest withCas(CAS aCas)
+    {
+        var builder = builder() //
+                .withDocument(sourceDocument, annotationUser) //
+                .withSessionOwner(sessionOwner) //
+                .withConstraints(constraints) //
+                .withWindow(windowBeginOffset, windowEndOffset) //
+                .withText(includeText) //
+                .withClipSpans(clipSpans) //
+                .withClipArcs(clipArcs) //
+                .withLongArcs(longArcs) //
+                .withAllLayers(allLayers) //
+                .withVisibleLayers(visibleLayers) //
+                .withColoringStrategyOverride(coloringStrategyOverride) //
+                .withCas(aCas);
+        builder.state = state;
+        return builder.build();
+    }
+
     public static Builder builder()
     {
         return new Builder();
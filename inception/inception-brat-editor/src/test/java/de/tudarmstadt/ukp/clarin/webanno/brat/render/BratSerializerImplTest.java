@@ -19,10 +19,14 @@ package de.tudarmstadt.ukp.clarin.webanno.brat.render;
 
 import static de.tudarmstadt.ukp.clarin.webanno.model.AnchoringMode.SINGLE_TOKEN;
 import static de.tudarmstadt.ukp.clarin.webanno.model.OverlapMode.NO_OVERLAP;
+import static de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil.createCas;
+import static de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil.getRealCas;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
+import static java.util.Collections.nCopies;
 import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngine;
 import static org.apache.uima.fit.factory.CollectionReaderFactory.createReader;
+import static org.apache.uima.fit.factory.TypeSystemDescriptionFactory.createTypeSystemDescription;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.contentOf;
 import static org.mockito.ArgumentMatchers.any;
@@ -72,6 +76,7 @@ import de.tudarmstadt.ukp.inception.annotation.layer.span.SpanLayerSupport;
 import de.tudarmstadt.ukp.inception.editor.state.AnnotatorStateImpl;
 import de.tudarmstadt.ukp.inception.rendering.request.RenderRequest;
 import de.tudarmstadt.ukp.inception.rendering.vmodel.VDocument;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VSpan;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.schema.service.FeatureSupportRegistryImpl;
 import de.tudarmstadt.ukp.inception.support.json.JSONUtil;
@@ -156,7 +161,7 @@ class BratSerializerImplTest
         when(schemaService.listAnnotationFeature(any(Project.class)))
                 .thenReturn(asList(posFeature));
 
-        preRenderer = new PreRendererImpl(layerRegistry, schemaService);
+        preRenderer = new PreRendererImpl(layerRegistry, featureSupportRegistry, schemaService);
         labelRenderer = new LabelRenderer();
         colorRenderer = new ColorRenderer(schemaService, new ColoringServiceImpl(schemaService));
         sut = new BratSerializerImpl(new BratAnnotationEditorPropertiesImpl());
@@ -281,6 +286,56 @@ class BratSerializerImplTest
                 .isEqualToNormalizingNewlines(contentOf(new File(jsonFilePath), UTF_8));
     }
 
+    @Test
+    void thatLayersCanBeRenderedInParallelFromThreadLockedCas() throws Exception
+    {
+        when(schemaService.getAdapter(any(AnnotationLayer.class))).then(_call -> {
+            AnnotationLayer layer = _call.getArgument(0);
+            return layerRegistry.getLayerSupport(layer).createAdapter(layer,
+                    () -> asList(posFeature));
+        });
+
+        var file = "src/test/resources/tcf04-karin-wl.xml";
+
+        var cas = createCas(createTypeSystemDescription());
+        var reader = createReader(TcfReader.class, TcfReader.PARAM_SOURCE_LOCATION, file);
+        reader.getNext(getRealCas(cas));
+        var state = new AnnotatorStateImpl(Mode.ANNOTATION);
+        state.setPagingStrategy(new SentenceOrientedPagingStrategy());
+        state.getPreferences().setWindowSize(10);
+        state.setFirstVisibleUnit(getFirstSentence(cas));
+        state.setProject(project);
+        state.setDocument(sourceDocument, asList(sourceDocument));
+
+        var sequentialRequest = RenderRequest.builder() //
+                .withState(state) //
+                .withWindow(state.getWindowBeginOffset(), state.getWindowEndOffset()) //
+                .withCas(cas) //
+                .withVisibleLayers(schemaService.listAnnotationLayer(project)) //
+                .build();
+
+        // Rendering the same layer repeatedly is enough to exceed the threshold for rendering
+        // the layers in parallel
+        var parallelRequest = RenderRequest.builder() //
+                .withState(state) //
+                .withWindow(state.getWindowBeginOffset(), state.getWindowEndOffset()) //
+                .withCas(cas) //
+                .withVisibleLayers(nCopies(4, posLayer)) //
+                .build();
+
+        var sequentialVDoc = new VDocument();
+        preRenderer.render(sequentialVDoc, sequentialRequest);
+
+        var parallelVDoc = new VDocument();
+        preRenderer.render(parallelVDoc, parallelRequest);
+
+        assertThat(parallelVDoc.spans()) //
+                .isNotEmpty() //
+                .extracting(VSpan::getVid) //
+                .containsExactlyInAnyOrderElementsOf(
+                        sequentialVDoc.spans().stream().map(VSpan::getVid).toList());
+    }
+
     static AnnotationFS getFirstSentence(CAS aCas)
     {
         return aCas.select(Sentence.class).nullOK().get();
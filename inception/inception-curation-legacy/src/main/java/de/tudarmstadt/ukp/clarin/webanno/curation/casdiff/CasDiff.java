@@ -38,7 +38,9 @@ import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -142,6 +144,108 @@ public class CasDiff
         return diff;
     }
 
+    /**
+     * Derive the differences between some of the CASes from this diff. The result is the same as
+     * calculating the diff on only these CASes, but the annotations do not need to be compared
+     * again. This is useful when e.g. the agreement between many pairs of annotators needs to be
+     * calculated on the same document. Tags and values added to the configuration sets during
+     * agreement calculation are not copied.
+     * 
+     * @param aCasGroupIds
+     *            the IDs of the CASes to keep.
+     * @return a diff between the given CASes.
+     */
+    public CasDiff subset(Collection<String> aCasGroupIds)
+    {
+        var casGroupIds = new HashSet<>(aCasGroupIds);
+
+        var diff = new CasDiff(begin, end, diffAdapters.values());
+
+        for (var e : casses.entrySet()) {
+            if (casGroupIds.contains(e.getKey())) {
+                diff.casses.put(e.getKey(), e.getValue());
+            }
+        }
+
+        for (var configSet : configSets.values()) {
+            ConfigurationSet subsetConfigSet = null;
+            for (var cfg : configSet.getConfigurations()) {
+                var subsetCfg = cfg.subset(casGroupIds);
+                if (subsetCfg.getCasGroupIds().isEmpty()) {
+                    continue;
+                }
+
+                if (subsetConfigSet == null) {
+                    subsetConfigSet = new ConfigurationSet(configSet.getPosition());
+                    diff.configSets.put(configSet.getPosition(), subsetConfigSet);
+                }
+
+                subsetConfigSet.addConfiguration(subsetCfg);
+            }
+
+            if (subsetConfigSet != null) {
+                for (var casGroupId : configSet.getCasGroupIds()) {
+                    if (casGroupIds.contains(casGroupId)) {
+                        subsetConfigSet.addCasGroupId(casGroupId);
+                    }
+                }
+            }
+        }
+
+        return diff;
+    }
+
+    /**
+     * Replace the CAS of the given CAS group and update the diff accordingly. Only the
+     * configurations of the given CAS group are recalculated, so the cost is proportional to the
+     * number of annotations in that CAS instead of the number of annotations in all CASes. The
+     * result is the same as calculating the diff from scratch, except that the order of
+     * configurations within a configuration set may differ.
+     *
+     * @param aCasGroupId
+     *            the ID of the CAS group to update.
+     * @param aCas
+     *            the new CAS of the group.
+     */
+    public void updateCas(String aCasGroupId, CAS aCas)
+    {
+        removeConfigurations(aCasGroupId);
+
+        for (var adapter : List.copyOf(diffAdapters.values())) {
+            addCas(aCasGroupId, aCas, adapter.getType());
+        }
+    }
+
+    /**
+     * Remove all configurations of the given CAS group from the diff. Configuration sets that only
+     * contained configurations of the given CAS group are removed entirely.
+     *
+     * @param aCasGroupId
+     *            the ID of the CAS group to remove.
+     */
+    public void removeCas(String aCasGroupId)
+    {
+        removeConfigurations(aCasGroupId);
+        casses.remove(aCasGroupId);
+    }
+
+    private void removeConfigurations(String aCasGroupId)
+    {
+        var i = configSets.values().iterator();
+        while (i.hasNext()) {
+            var configSet = i.next();
+            if (!configSet.getCasGroupIds().contains(aCasGroupId)) {
+                continue;
+            }
+
+            configSet.removeCasGroupId(aCasGroupId);
+
+            if (configSet.getConfigurations().isEmpty()) {
+                i.remove();
+            }
+        }
+    }
+
     private DiffAdapter getAdapter(String aType)
     {
         var adapter = diffAdapters.get(aType);
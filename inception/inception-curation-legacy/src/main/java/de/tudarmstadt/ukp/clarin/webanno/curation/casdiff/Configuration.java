@@ -103,6 +103,47 @@ public class Configuration
         add(aCasGroupId, new AID(ICasUtil.getAddr(aFS), aFeature, aSlot));
     }
 
+    void remove(String aCasGroupId)
+    {
+        fsAddresses.remove(aCasGroupId);
+
+        if (duplicates != null) {
+            duplicates.remove(aCasGroupId);
+            if (duplicates.isEmpty()) {
+                duplicates = null;
+            }
+        }
+    }
+
+    /**
+     * @param aCasGroupIds
+     *            the CAS groups to keep.
+     * @return a copy of this configuration which only contains the given CAS groups.
+     */
+    Configuration subset(Set<String> aCasGroupIds)
+    {
+        var copy = new Configuration(position);
+
+        for (var e : fsAddresses.entrySet()) {
+            if (aCasGroupIds.contains(e.getKey())) {
+                copy.fsAddresses.put(e.getKey(), e.getValue());
+            }
+        }
+
+        if (duplicates != null) {
+            for (var e : duplicates.entrySet()) {
+                if (aCasGroupIds.contains(e.getKey())) {
+                    if (copy.duplicates == null) {
+                        copy.duplicates = new TreeMap<>();
+                    }
+                    copy.duplicates.put(e.getKey(), new ArrayList<>(e.getValue()));
+                }
+            }
+        }
+
+        return copy;
+    }
+
     public AID getRepresentativeAID()
     {
         var e = fsAddresses.entrySet().iterator().next();
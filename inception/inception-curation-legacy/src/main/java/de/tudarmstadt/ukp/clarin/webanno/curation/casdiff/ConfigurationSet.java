@@ -119,6 +119,27 @@ public class ConfigurationSet
         casGroupIds.add(aCasGroupId);
     }
 
+    /**
+     * Removes the given CAS group from this set and from all its configurations. Configurations
+     * which were only observed in the given CAS group are removed.
+     * 
+     * @param aCasGroupId
+     *            a CAS ID
+     */
+    public void removeCasGroupId(String aCasGroupId)
+    {
+        casGroupIds.remove(aCasGroupId);
+
+        var i = configurations.iterator();
+        while (i.hasNext()) {
+            var cfg = i.next();
+            cfg.remove(aCasGroupId);
+            if (cfg.getCasGroupIds().isEmpty()) {
+                i.remove();
+            }
+        }
+    }
+
     /**
      * @return the different configurations observed in this set.
      */
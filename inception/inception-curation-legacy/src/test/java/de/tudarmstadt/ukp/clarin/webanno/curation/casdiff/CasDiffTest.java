@@ -205,6 +205,74 @@ public class CasDiffTest
         assertThat(calculateState(result)).isEqualTo(DISAGREE);
     }
 
+    @Test
+    public void subsetTest() throws Exception
+    {
+        var casByUser = load( //
+                "casdiff/someDifferences/user1.conll", //
+                "casdiff/someDifferences/user2.conll", //
+                "casdiff/someDifferences/user1.conll");
+
+        var diffAdapters = asList(POS_DIFF_ADAPTER);
+
+        var diff = doDiff(diffAdapters, casByUser);
+
+        var pairwiseCasByUser = new LinkedHashMap<String, CAS>();
+        pairwiseCasByUser.put("user1", casByUser.get("user1"));
+        pairwiseCasByUser.put("user2", casByUser.get("user2"));
+        var expected = doDiff(diffAdapters, pairwiseCasByUser).toResult();
+
+        var result = diff.subset(asList("user1", "user2")).toResult();
+
+        assertThat(result.getCasGroupIds()).containsExactly("user1", "user2");
+        assertThat(result.size()).isEqualTo(expected.size());
+        assertThat(result.getDifferingConfigurationSets()).hasSize(4);
+        assertThat(result.getIncompleteConfigurationSets()).isEmpty();
+
+        var agreeingResult = diff.subset(asList("user1", "user3")).toResult();
+
+        assertThat(agreeingResult.getDifferingConfigurationSets()).isEmpty();
+        assertThat(calculateState(agreeingResult)).isEqualTo(AGREE);
+    }
+
+    @Test
+    public void updateCasTest() throws Exception
+    {
+        var casByUser = load( //
+                "casdiff/someDifferences/user1.conll", //
+                "casdiff/someDifferences/user1.conll", //
+                "casdiff/someDifferences/user2.conll");
+
+        var diffAdapters = asList(POS_DIFF_ADAPTER);
+
+        var diff = doDiff(diffAdapters, casByUser);
+        assertThat(diff.toResult().getDifferingConfigurationSets()).isNotEmpty();
+
+        var user3Cas = casByUser.get("user3");
+        diff.updateCas("user2", user3Cas);
+
+        var expectedCasByUser = new LinkedHashMap<String, CAS>();
+        expectedCasByUser.put("user1", casByUser.get("user1"));
+        expectedCasByUser.put("user2", user3Cas);
+        expectedCasByUser.put("user3", user3Cas);
+        var expected = doDiff(diffAdapters, expectedCasByUser).toResult();
+
+        var result = diff.toResult();
+
+        assertThat(result.getCasGroupIds()).containsExactly("user1", "user2", "user3");
+        assertThat(result.size()).isEqualTo(expected.size());
+        assertThat(result.getDifferingConfigurationSets()).hasSize(4);
+        assertThat(result.getIncompleteConfigurationSets()).isEmpty();
+
+        diff.removeCas("user1");
+
+        var agreeingResult = diff.toResult();
+
+        assertThat(agreeingResult.getCasGroupIds()).containsExactly("user2", "user3");
+        assertThat(agreeingResult.getDifferingConfigurationSets()).isEmpty();
+        assertThat(calculateState(agreeingResult)).isEqualTo(AGREE);
+    }
+
     @Test
     public void singleNoDifferencesTest() throws Exception
     {
@@ -26,6 +26,8 @@ import org.apache.commons.lang3.tuple.Pair;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VDocument;
+
 public class ViewportState
 {
     private final ViewportDefinition vpd;
@@ -34,6 +36,7 @@ public class ViewportState
             new ConcurrentHashMap<>());
 
     private JsonNode json;
+    private VDocument vdoc;
 
     public ViewportState(ViewportDefinition aVpd)
     {
@@ -50,6 +53,21 @@ public class ViewportState
         json = aJson;
     }
 
+    public synchronized void setState(VDocument aVDocument, JsonNode aJson)
+    {
+        vdoc = aVDocument;
+        json = aJson;
+    }
+
+    /**
+     * @return the rendering from which the current JSON was generated. May be {@code null} if the
+     *         JSON was set directly.
+     */
+    public synchronized VDocument getVDocument()
+    {
+        return vdoc;
+    }
+
     public synchronized JsonNode getJson()
     {
         return json;
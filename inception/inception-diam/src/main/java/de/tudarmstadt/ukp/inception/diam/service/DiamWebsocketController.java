@@ -17,6 +17,10 @@
  */
 package de.tudarmstadt.ukp.inception.diam.service;
 
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.EXCLUSIVE_WRITE_ACCESS;
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.SHARED_READ_ONLY_ACCESS;
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasUpgradeMode.AUTO_CAS_UPGRADE;
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasUpgradeMode.NO_CAS_UPGRADE;
 import static de.tudarmstadt.ukp.inception.support.logging.Logging.KEY_REPOSITORY_PATH;
 import static de.tudarmstadt.ukp.inception.support.logging.Logging.KEY_USERNAME;
 import static de.tudarmstadt.ukp.inception.websocket.config.WebSocketConstants.PARAM_DOCUMENT;
@@ -26,14 +30,20 @@ import static de.tudarmstadt.ukp.inception.websocket.config.WebSocketConstants.T
 import static de.tudarmstadt.ukp.inception.websocket.config.WebSocketConstants.TOPIC_ELEMENT_PROJECT;
 import static de.tudarmstadt.ukp.inception.websocket.config.WebSocketConstants.TOPIC_ELEMENT_USER;
 import static java.lang.Integer.MAX_VALUE;
+import static java.util.Collections.emptyList;
 
 import java.io.IOException;
 import java.security.Principal;
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.event.EventListener;
@@ -52,8 +62,10 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.flipkart.zjsonpatch.JsonDiff;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.preferences.UserPreferencesService;
+import de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode;
 import de.tudarmstadt.ukp.clarin.webanno.constraints.ConstraintsService;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
@@ -72,6 +84,8 @@ import de.tudarmstadt.ukp.inception.project.api.ProjectService;
 import de.tudarmstadt.ukp.inception.recommendation.api.event.TransientAnnotationStateChangedEvent;
 import de.tudarmstadt.ukp.inception.rendering.pipeline.RenderingPipeline;
 import de.tudarmstadt.ukp.inception.rendering.request.RenderRequest;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VDocument;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VDocumentDelta;
 import de.tudarmstadt.ukp.inception.rendering.vmodel.serialization.VDocumentSerializerExtensionPoint;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.support.json.JSONUtil;
@@ -85,6 +99,7 @@ import jakarta.servlet.ServletContext;
 @ConditionalOnExpression("${websocket.enabled:true}")
 @Controller
 public class DiamWebsocketController
+    implements DisposableBean
 {
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -128,7 +143,12 @@ public class DiamWebsocketController
     private final UserPreferencesService userPreferencesService;
     private final ConstraintsService constraintsService;
 
+    private static final int UPDATE_THREADS = 2;
+    private static final Duration UPDATE_DELAY = Duration.ofMillis(50);
+
     private final LoadingCache<ViewportDefinition, ViewportState> activeViewports;
+    private final Map<ViewportKey, Set<ViewportDefinition>> viewportIndex;
+    private final ViewportUpdateDispatcher updateDispatcher;
 
     public DiamWebsocketController(SimpMessagingTemplate aMsgTemplate,
             RenderingPipeline aRenderingPipeline, DocumentService aDocumentService,
@@ -151,7 +171,20 @@ public class DiamWebsocketController
 
         activeViewports = Caffeine.newBuilder() //
                 .expireAfterAccess(Duration.ofMinutes(aServletContext.getSessionTimeout())) //
+                .removalListener((ViewportDefinition vpd, ViewportState vps,
+                        RemovalCause cause) -> unindexViewport(vpd)) //
                 .build(this::initState);
+        viewportIndex = new ConcurrentHashMap<>();
+        // Updates rendered in the background must not interfere with the CASes which are in use
+        // by the request threads, so they use the shared read-only CASes
+        updateDispatcher = new ViewportUpdateDispatcher(UPDATE_THREADS, UPDATE_DELAY,
+                (vpd, begin, end) -> sendUpdate(vpd, begin, end, SHARED_READ_ONLY_ACCESS));
+    }
+
+    @Override
+    public void destroy()
+    {
+        updateDispatcher.close();
     }
 
     @EventListener
@@ -191,17 +224,33 @@ public class DiamWebsocketController
         activeViewports.invalidate(aVpd);
     }
 
+    /**
+     * Called when a viewport has been closed or has expired from the active viewports.
+     */
+    private void unindexViewport(ViewportDefinition aVpd)
+    {
+        var key = new ViewportKey(aVpd.getDocumentId(), aVpd.getUser());
+        viewportIndex.computeIfPresent(key, (k, vpds) -> {
+            // The viewport may have been opened again in the meantime
+            if (!activeViewports.asMap().containsKey(aVpd)) {
+                vpds.remove(aVpd);
+            }
+            return vpds.isEmpty() ? null : vpds;
+        });
+    }
+
     @TransactionalEventListener(fallbackExecution = true)
     public void onAfterCasWritten(AfterCasWrittenEvent aEvent)
     {
-        sendUpdate(aEvent.getDocument());
+        var doc = aEvent.getDocument();
+        dispatchUpdate(doc.getDocument().getId(), doc.getUser(), 0, MAX_VALUE);
     }
 
     @EventListener
     public void onTransientAnnotationStateChanged(TransientAnnotationStateChangedEvent aEvent)
     {
         var doc = aEvent.getDocument();
-        sendUpdate(doc.getProject().getId(), doc.getId(), aEvent.getUser(), 0, MAX_VALUE);
+        dispatchUpdate(doc.getId(), aEvent.getUser(), 0, MAX_VALUE);
     }
 
     @SubscribeMapping(DOCUMENT_VIEWPORT_TOPIC_TEMPLATE)
@@ -226,15 +275,20 @@ public class DiamWebsocketController
 
             // Ensure that the viewport is registered
             var vps = activeViewports.get(vpd);
+            viewportIndex.computeIfAbsent(new ViewportKey(aDocumentId, aDataOwner),
+                    $ -> ConcurrentHashMap.newKeySet()).add(vpd);
 
             log.trace("Subscribing {} to {}", aHeaderAccessor.getSessionId(), vpd.getTopic());
             vps.addSubscription(aHeaderAccessor.getSessionId(),
                     aHeaderAccessor.getSubscriptionId());
 
-            var json = render(project, aDocumentId, aDataOwner, aViewportBegin, aViewportEnd,
-                    aFormat);
-            vps.setJson(json);
-            return json;
+            synchronized (vps) {
+                var rendering = render(project, aDocumentId, aDataOwner, aViewportBegin,
+                        aViewportEnd, EXCLUSIVE_WRITE_ACCESS);
+                var json = serialize(rendering, aFormat);
+                vps.setState(rendering.vdoc(), json);
+                return json;
+            }
         }
         finally {
             MDC.remove(KEY_REPOSITORY_PATH);
@@ -273,8 +327,19 @@ public class DiamWebsocketController
     // }
     // }
 
-    private JsonNode render(Project aProject, long aDocumentId, String aDataOwner,
-            int aViewportBegin, int aViewportEnd, String aFormat)
+    private Rendering render(Project aProject, long aDocumentId, String aDataOwner,
+            int aViewportBegin, int aViewportEnd, CasAccessMode aAccessMode)
+        throws IOException
+    {
+        var request = prepareRenderRequest(aProject, aDocumentId, aDataOwner, aAccessMode) //
+                .withWindow(aViewportBegin, aViewportEnd) //
+                .build();
+
+        return new Rendering(request, renderingPipeline.render(request));
+    }
+
+    private RenderRequest.Builder prepareRenderRequest(Project aProject, long aDocumentId,
+            String aDataOwner, CasAccessMode aAccessMode)
         throws IOException
     {
         var doc = documentService.getSourceDocument(aProject.getId(), aDocumentId);
@@ -283,7 +348,10 @@ public class DiamWebsocketController
 
         var constraints = constraintsService.getMergedConstraints(aProject);
 
-        var cas = documentService.readAnnotationCas(doc, aDataOwner);
+        // Shared read-only access can only be used with CAS upgrades
+        var upgradeMode = aAccessMode == SHARED_READ_ONLY_ACCESS ? AUTO_CAS_UPGRADE
+                : NO_CAS_UPGRADE;
+        var cas = documentService.readAnnotationCas(doc, aDataOwner, upgradeMode, aAccessMode);
 
         var prefs = userPreferencesService.loadPreferences(doc.getProject(), sessionOwner,
                 Mode.ANNOTATION);
@@ -295,26 +363,58 @@ public class DiamWebsocketController
 
         var allLayers = schemaService.listAnnotationLayer(aProject);
 
-        var request = RenderRequest.builder() //
+        return RenderRequest.builder() //
                 .withSessionOwner(userRepository.getCurrentUser()) //
                 .withDocument(doc, dataOwner) //
                 .withConstraints(constraints) //
-                .withWindow(aViewportBegin, aViewportEnd) //
                 .withCas(cas) //
                 .withVisibleLayers(layers) //
-                .withAllLayers(allLayers) //
-                .build();
+                .withAllLayers(allLayers);
+    }
 
-        var vdoc = renderingPipeline.render(request);
+    /**
+     * Renders only the part of the viewport affected by the update and splices it into the
+     * previous rendering of the viewport. If that is not possible, the entire viewport is
+     * rendered.
+     */
+    private Rendering renderUpdate(Project aProject, ViewportDefinition aVpd, VDocument aPrevious,
+            int aUpdateBegin, int aUpdateEnd, CasAccessMode aAccessMode)
+        throws IOException
+    {
+        var builder = prepareRenderRequest(aProject, aVpd.getDocumentId(), aVpd.getUser(),
+                aAccessMode);
+
+        // The serializers always need the request for the entire viewport
+        var request = builder.withWindow(aVpd.getBegin(), aVpd.getEnd()).build();
+
+        var range = ViewportSplice.renderRange(aPrevious, aVpd.getBegin(), aVpd.getEnd(),
+                aUpdateBegin, aUpdateEnd);
+        if (range.isPresent()) {
+            var begin = range.get().getBegin();
+            var end = range.get().getEnd();
+            var partial = renderingPipeline.render(builder.withWindow(begin, end).build());
+            var spliced = ViewportSplice.splice(aPrevious, aVpd.getBegin(), aVpd.getEnd(),
+                    partial, begin, end);
+            if (spliced.isPresent()) {
+                log.trace("Viewport {} updated by rendering only [{}-{}]", aVpd, begin, end);
+                return new Rendering(request, spliced.get());
+            }
+        }
 
+        return new Rendering(request, renderingPipeline.render(request));
+    }
+
+    private JsonNode serialize(Rendering aRendering, String aFormat)
+    {
         if (FORMAT_LEGACY.equals(aFormat)) {
-            return JSONUtil.getObjectMapper().valueToTree(new MViewportInit(vdoc));
+            return JSONUtil.getObjectMapper().valueToTree(new MViewportInit(aRendering.vdoc()));
         }
 
         var serializer = vDocumentSerializerExtensionPoint.getExtension(aFormat).orElseThrow(
                 () -> new IllegalStateException("Unsupported format [" + aFormat + "]"));
 
-        return JSONUtil.getObjectMapper().valueToTree(serializer.render(vdoc, request));
+        return JSONUtil.getObjectMapper()
+                .valueToTree(serializer.render(aRendering.vdoc(), aRendering.request()));
     }
 
     private ViewportState initState(ViewportDefinition aVpd)
@@ -322,40 +422,77 @@ public class DiamWebsocketController
         return new ViewportState(aVpd);
     }
 
-    private void sendUpdate(AnnotationDocument aDoc)
+    /**
+     * Immediately renders and sends an update to all viewports affected by the given range. Unlike
+     * updates triggered by events, this is done on the calling thread and without coalescing.
+     */
+    void sendUpdate(AnnotationDocument aDoc, int aUpdateBegin, int aUpdateEnd)
     {
-        sendUpdate(aDoc.getProject().getId(), aDoc.getDocument().getId(), aDoc.getUser(), 0,
-                MAX_VALUE);
+        for (var vpd : findViewports(aDoc.getDocument().getId(), aDoc.getUser(), aUpdateBegin,
+                aUpdateEnd)) {
+            sendUpdate(vpd, aUpdateBegin, aUpdateEnd, EXCLUSIVE_WRITE_ACCESS);
+        }
     }
 
-    void sendUpdate(AnnotationDocument aDoc, int aUpdateBegin, int aUpdateEnd)
+    private void dispatchUpdate(long aDocumentId, String aUser, int aUpdateBegin, int aUpdateEnd)
     {
-        sendUpdate(aDoc.getProject().getId(), aDoc.getDocument().getId(), aDoc.getUser(),
-                aUpdateBegin, aUpdateEnd);
+        for (var vpd : findViewports(aDocumentId, aUser, aUpdateBegin, aUpdateEnd)) {
+            updateDispatcher.dispatch(vpd, aUpdateBegin, aUpdateEnd);
+        }
     }
 
-    private void sendUpdate(long aProjectId, long aDocumentId, String aUser, int aUpdateBegin,
-            int aUpdateEnd)
+    private List<ViewportDefinition> findViewports(long aDocumentId, String aUser,
+            int aUpdateBegin, int aUpdateEnd)
     {
-        activeViewports.asMap().entrySet().stream() //
-                .filter(e -> e.getKey().matches(aDocumentId, aUser, aUpdateBegin, aUpdateEnd)) //
-                .forEach(e -> sendUpdate(e.getKey(), e.getValue(), aProjectId, aDocumentId, aUser,
-                        aUpdateBegin, aUpdateEnd));
+        var vpds = viewportIndex.get(new ViewportKey(aDocumentId, aUser));
+        if (vpds == null) {
+            return emptyList();
+        }
+
+        return vpds.stream() //
+                .filter(vpd -> vpd.matches(aDocumentId, aUser, aUpdateBegin, aUpdateEnd)) //
+                .toList();
     }
 
-    private void sendUpdate(ViewportDefinition vpd, ViewportState vps, long aProjectId,
-            long aDocumentId, String aUser, int aUpdateBegin, int aUpdateEnd)
+    private void sendUpdate(ViewportDefinition vpd, int aUpdateBegin, int aUpdateEnd,
+            CasAccessMode aAccessMode)
     {
-        // MDC.put(KEY_REPOSITORY_PATH, repositoryProperties.getPath().toString());
+        var vps = activeViewports.getIfPresent(vpd);
+        if (vps == null) {
+            // Viewport has been closed in the meantime
+            return;
+        }
+
+        // Updates of the same viewport must not overlap, otherwise an older rendering might be
+        // compared against or might overwrite a newer one
+        synchronized (vps) {
+            sendUpdate(vpd, vps, aUpdateBegin, aUpdateEnd, aAccessMode);
+        }
+    }
 
+    private void sendUpdate(ViewportDefinition vpd, ViewportState vps, int aUpdateBegin,
+            int aUpdateEnd, CasAccessMode aAccessMode)
+    {
         try (var session = CasStorageSession.openNested()) {
             var project = projectService.getProject(vpd.getProjectId());
-            var newJson = render(project, vpd.getDocumentId(), vpd.getUser(), vpd.getBegin(),
-                    vpd.getEnd(), vpd.getFormat());
+            var rendering = renderUpdate(project, vpd, vps.getVDocument(), aUpdateBegin,
+                    aUpdateEnd, aAccessMode);
+
+            // Compare the renderings first - if nothing visible in the viewport changed, we can
+            // skip serializing the viewport and calculating the JSON diff entirely
+            var delta = VDocumentDelta.of(vps.getVDocument(), rendering.vdoc());
+            if (delta.isEmpty()) {
+                log.trace("Viewport {} unchanged - not sending update", vpd);
+                return;
+            }
+
+            log.trace("Viewport {} changed: {}", vpd, delta);
+
+            var newJson = serialize(rendering, vpd.getFormat());
 
             var diff = JsonDiff.asJson(vps.getJson(), newJson);
 
-            vps.setJson(newJson);
+            vps.setState(rendering.vdoc(), newJson);
 
             msgTemplate.convertAndSend("/topic" + vpd.getTopic(),
                     new MViewportUpdate(aUpdateBegin, aUpdateEnd, diff));
@@ -363,10 +500,6 @@ public class DiamWebsocketController
         catch (Exception ex) {
             log.error("Unable to render update", ex);
         }
-
-        // finally {
-        // MDC.remove(KEY_REPOSITORY_PATH);
-        // }
     }
 
     private Project getProject(long aProjectId) throws AccessDeniedException
@@ -396,4 +529,8 @@ public class DiamWebsocketController
             throw new AccessDeniedException(aMessage);
         }
     }
+
+    private static record Rendering(RenderRequest request, VDocument vdoc) {}
+
+    private static record ViewportKey(long documentId, String user) {}
 }
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.diam.service;
+
+import static de.tudarmstadt.ukp.inception.annotation.layer.relation.RelationRenderer.VID_AFTER;
+import static de.tudarmstadt.ukp.inception.annotation.layer.relation.RelationRenderer.VID_BEFORE;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import org.apache.uima.cas.text.AnnotationPredicates;
+
+import de.tudarmstadt.ukp.inception.annotation.layer.chain.ChainLayerSupport;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VAnnotationMarker;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VDocument;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VID;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VObject;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VSpan;
+import de.tudarmstadt.ukp.inception.support.annotation.OffsetSpan;
+
+/**
+ * Updates the rendering of a viewport by rendering only the part of the viewport affected by an
+ * update and splicing it into the previous rendering of the viewport.
+ * <p>
+ * Whenever the result of the splice might differ from a rendering of the entire viewport, no
+ * splice is produced and the caller has to render the entire viewport instead. This is e.g. the
+ * case if an annotation in the partial rendering has been clipped, if an arc connects to an
+ * annotation outside the partial rendering or if chains are involved.
+ */
+final class ViewportSplice
+{
+    private ViewportSplice()
+    {
+        // No instances
+    }
+
+    /**
+     * Determines the range that needs to be rendered in order to update the viewport. The range
+     * covers the part of the update within the viewport and is extended to fully include any
+     * annotation of the previous rendering overlapping it as well as the annotations connected to
+     * these by arcs.
+     * 
+     * @param aPrevious
+     *            the previous rendering of the viewport.
+     * @param aViewportBegin
+     *            the begin of the viewport.
+     * @param aViewportEnd
+     *            the end of the viewport.
+     * @param aUpdateBegin
+     *            the begin of the update.
+     * @param aUpdateEnd
+     *            the end of the update.
+     * @return the range to render or nothing if the entire viewport needs to be rendered.
+     */
+    static Optional<OffsetSpan> renderRange(VDocument aPrevious, int aViewportBegin,
+            int aViewportEnd, int aUpdateBegin, int aUpdateEnd)
+    {
+        if (aPrevious == null) {
+            return Optional.empty();
+        }
+
+        // All calculations are relative to the viewport, just like the ranges in the rendering
+        var length = aViewportEnd - aViewportBegin;
+        var begin = max(aUpdateBegin, aViewportBegin) - aViewportBegin;
+        var end = min(aUpdateEnd, aViewportEnd) - aViewportBegin;
+
+        var grown = true;
+        while (grown && (begin > 0 || end < length) && begin <= end) {
+            grown = false;
+            for (var vid : affectedSpans(aPrevious, begin, end)) {
+                for (var range : aPrevious.getSpan(vid).getRanges()) {
+                    var newBegin = min(begin, max(0, range.getOriginalBegin()));
+                    var newEnd = max(end, min(length, range.getOriginalEnd()));
+                    grown |= newBegin != begin || newEnd != end;
+                    begin = newBegin;
+                    end = newEnd;
+                }
+            }
+        }
+
+        if (begin > end || (begin <= 0 && end >= length)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new OffsetSpan(begin + aViewportBegin, end + aViewportBegin));
+    }
+
+    /**
+     * Replaces the part of the previous rendering covered by the partial rendering.
+     * 
+     * @param aPrevious
+     *            the previous rendering of the viewport.
+     * @param aViewportBegin
+     *            the begin of the viewport.
+     * @param aViewportEnd
+     *            the end of the viewport.
+     * @param aPartial
+     *            the rendering of the range obtained from
+     *            {@link #renderRange(VDocument, int, int, int, int)}.
+     * @param aPartialBegin
+     *            the begin of the partial rendering.
+     * @param aPartialEnd
+     *            the end of the partial rendering.
+     * @return the updated rendering of the viewport or nothing if the entire viewport needs to be
+     *         rendered.
+     */
+    static Optional<VDocument> splice(VDocument aPrevious, int aViewportBegin, int aViewportEnd,
+            VDocument aPartial, int aPartialBegin, int aPartialEnd)
+    {
+        if (!isSpliceable(aPartial, aPartialBegin > aViewportBegin,
+                aPartialEnd < aViewportEnd)) {
+            return Optional.empty();
+        }
+
+        var removed = affectedSpans(aPrevious, aPartialBegin - aViewportBegin,
+                aPartialEnd - aViewportBegin);
+        aPartial.getSpans().values().stream() //
+                .filter(span -> !span.isPlaceholder()) //
+                .forEach(span -> removed.add(span.getVid()));
+        removed.addAll(aPartial.getArcs().keySet());
+        for (var arc : aPrevious.getArcs().values()) {
+            if (removed.contains(arc.getSource()) || removed.contains(arc.getTarget())) {
+                removed.add(arc.getVid());
+            }
+        }
+
+        // Chain colors are assigned across the entire viewport, so removing a chain element may
+        // affect objects outside the partial rendering
+        if (removed.stream().map(aPrevious::get).anyMatch(ViewportSplice::isChain)) {
+            return Optional.empty();
+        }
+
+        var result = new VDocument();
+        result.setText(aPrevious.getText());
+        result.setWindow(aPrevious.getWindowBegin(), aPrevious.getWindowEnd());
+
+        var offset = aPartialBegin - aViewportBegin;
+
+        aPrevious.getSpans().values().stream() //
+                .filter(span -> !removed.contains(span.getVid())) //
+                .forEach(result::add);
+        for (var span : aPartial.getSpans().values()) {
+            if (!span.isPlaceholder() || result.getSpan(span.getVid()) == null) {
+                result.add(shift(span, offset));
+            }
+        }
+
+        aPrevious.getArcs().values().stream() //
+                .filter(arc -> !removed.contains(arc.getVid())) //
+                .forEach(result::add);
+        aPartial.getArcs().values().forEach(result::add);
+
+        for (var arc : result.getArcs().values()) {
+            if (result.get(arc.getSource()) == null || result.get(arc.getTarget()) == null) {
+                return Optional.empty();
+            }
+        }
+
+        aPrevious.comments().stream() //
+                .filter(comment -> !removed.contains(comment.getVid())) //
+                .forEach(result::add);
+        aPartial.comments().forEach(result::add);
+
+        aPrevious.getMarkers().stream() //
+                .filter(marker -> !(marker instanceof VAnnotationMarker annotationMarker
+                        && removed.contains(annotationMarker.getVid()))) //
+                .forEach(result::add);
+        aPartial.getMarkers().forEach(result::add);
+
+        return Optional.of(result);
+    }
+
+    private static boolean isSpliceable(VDocument aPartial, boolean aBeginInsideViewport,
+            boolean aEndInsideViewport)
+    {
+        // Text and sentence markers are relative to the rendered window and would need to be
+        // moved as well
+        if (aPartial.getMarkers().stream().anyMatch(m -> !(m instanceof VAnnotationMarker))) {
+            return false;
+        }
+
+        if (aPartial.getArcs().values().stream().anyMatch(ViewportSplice::isChain)) {
+            return false;
+        }
+
+        for (var span : aPartial.getSpans().values()) {
+            // Arcs leaving the partial rendering are attached to anchors at its boundaries
+            if (VID_BEFORE.equals(span.getVid()) || VID_AFTER.equals(span.getVid())
+                    || isChain(span)) {
+                return false;
+            }
+
+            // A clipped annotation extends beyond the partial rendering - unless the partial
+            // rendering ends where the viewport ends, it would be clipped differently in the
+            // rendering of the entire viewport
+            for (var range : span.getRanges()) {
+                if ((range.isClippedAtBegin() && aBeginInsideViewport)
+                        || (range.isClippedAtEnd() && aEndInsideViewport)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static Set<VID> affectedSpans(VDocument aDocument, int aBegin, int aEnd)
+    {
+        var affected = new HashSet<VID>();
+        for (var span : aDocument.getSpans().values()) {
+            if (span.isPlaceholder() || VID_BEFORE.equals(span.getVid())
+                    || VID_AFTER.equals(span.getVid())) {
+                continue;
+            }
+
+            for (var range : span.getRanges()) {
+                if (AnnotationPredicates.overlapping(range.getOriginalBegin(),
+                        range.getOriginalEnd(), aBegin, aEnd)) {
+                    affected.add(span.getVid());
+                }
+            }
+        }
+
+        // Annotations connected to an affected annotation need to be rendered as well, otherwise
+        // the arc would end at an anchor or placeholder in the partial rendering
+        for (var arc : aDocument.getArcs().values()) {
+            if (affected.contains(arc.getSource()) || affected.contains(arc.getTarget())) {
+                addIfRealSpan(aDocument, affected, arc.getSource());
+                addIfRealSpan(aDocument, affected, arc.getTarget());
+            }
+        }
+
+        return affected;
+    }
+
+    private static void addIfRealSpan(VDocument aDocument, Set<VID> aSpans, VID aVid)
+    {
+        var span = aDocument.getSpan(aVid);
+        if (span != null && !span.isPlaceholder() && !VID_BEFORE.equals(aVid)
+                && !VID_AFTER.equals(aVid)) {
+            aSpans.add(aVid);
+        }
+    }
+
+    private static boolean isChain(VObject aObject)
+    {
+        return aObject != null && ChainLayerSupport.TYPE.equals(aObject.getLayer().getType());
+    }
+
+    private static VSpan shift(VSpan aSpan, int aOffset)
+    {
+        if (aOffset == 0) {
+            return aSpan;
+        }
+
+        var ranges = aSpan.getRanges().stream() //
+                .map(range -> range.shift(aOffset)) //
+                .toList();
+
+        var span = new VSpan(aSpan.getLayer(), aSpan.getVid(), ranges, aSpan.getFeatures(),
+                aSpan.getColorHint());
+        span.setLabelHint(aSpan.getLabelHint());
+        span.setScore(aSpan.getScore());
+        span.setHideScore(aSpan.isHideScore());
+        span.setActionButtons(aSpan.isActionButtons());
+        span.setPlaceholder(aSpan.isPlaceholder());
+        return span;
+    }
+}
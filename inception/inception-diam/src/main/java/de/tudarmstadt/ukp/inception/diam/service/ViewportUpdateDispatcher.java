@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.diam.service;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.lang.invoke.MethodHandles;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import de.tudarmstadt.ukp.inception.diam.model.websocket.ViewportDefinition;
+
+/**
+ * Renders viewport updates on a dedicated thread pool instead of on the thread which triggered the
+ * update. Updates to the same viewport which arrive while an update is still pending are merged
+ * into the pending update, so bursts of changes only cause a single render.
+ */
+class ViewportUpdateDispatcher
+    implements AutoCloseable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    @FunctionalInterface
+    interface UpdateHandler
+    {
+        void update(ViewportDefinition aVpd, int aUpdateBegin, int aUpdateEnd);
+    }
+
+    private final ScheduledExecutorService executor;
+    private final long delay;
+    private final UpdateHandler handler;
+    private final Map<ViewportDefinition, PendingUpdate> pendingUpdates = new ConcurrentHashMap<>();
+
+    /**
+     * @param aThreads
+     *            number of threads used to render updates.
+     * @param aDelay
+     *            time to wait for further updates to the same viewport before rendering.
+     * @param aHandler
+     *            renders and sends the update.
+     */
+    ViewportUpdateDispatcher(int aThreads, Duration aDelay, UpdateHandler aHandler)
+    {
+        executor = Executors.newScheduledThreadPool(max(1, aThreads),
+                new BasicThreadFactory.Builder() //
+                        .namingPattern("diam-update-%d") //
+                        .daemon(true) //
+                        .build());
+        delay = aDelay.toMillis();
+        handler = aHandler;
+    }
+
+    /**
+     * Schedules an update of the given viewport. If an update of the viewport is already pending,
+     * the update ranges are merged. The security context of the calling thread is used while
+     * rendering the update.
+     * 
+     * @param aVpd
+     *            the viewport to update.
+     * @param aUpdateBegin
+     *            begin of the changed range.
+     * @param aUpdateEnd
+     *            end of the changed range.
+     */
+    void dispatch(ViewportDefinition aVpd, int aUpdateBegin, int aUpdateEnd)
+    {
+        // Copy the security context - the context of the calling thread may be cleared once the
+        // request is complete
+        var securityContext = SecurityContextHolder.createEmptyContext();
+        securityContext.setAuthentication(SecurityContextHolder.getContext().getAuthentication());
+
+        var update = new PendingUpdate(aUpdateBegin, aUpdateEnd, securityContext);
+
+        var schedule = new AtomicBoolean();
+        pendingUpdates.compute(aVpd, (vpd, pending) -> {
+            if (pending == null) {
+                schedule.set(true);
+                return update;
+            }
+
+            LOG.trace("Coalescing update {}-{} into pending update of {}", aUpdateBegin,
+                    aUpdateEnd, vpd);
+            return update.mergeWith(pending);
+        });
+
+        if (schedule.get()) {
+            executor.schedule(() -> run(aVpd), delay, MILLISECONDS);
+        }
+    }
+
+    private void run(ViewportDefinition aVpd)
+    {
+        var update = pendingUpdates.remove(aVpd);
+        if (update == null) {
+            return;
+        }
+
+        try {
+            SecurityContextHolder.setContext(update.securityContext());
+            handler.update(aVpd, update.begin(), update.end());
+        }
+        catch (Exception e) {
+            LOG.error("Unable to update viewport {}", aVpd, e);
+        }
+        finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        executor.shutdownNow();
+    }
+
+    private static record PendingUpdate(int begin, int end, SecurityContext securityContext)
+    {
+        PendingUpdate mergeWith(PendingUpdate aPending)
+        {
+            return new PendingUpdate(min(begin, aPending.begin), max(end, aPending.end),
+                    securityContext);
+        }
+    }
+}
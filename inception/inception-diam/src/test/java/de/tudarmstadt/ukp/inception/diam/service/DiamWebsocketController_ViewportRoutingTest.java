@@ -277,6 +277,46 @@ public class DiamWebsocketController_ViewportRoutingTest
         }
     }
 
+    @WithMockUser(username = "user", roles = { "USER" })
+    @SuppressFBWarnings("RV_RETURN_VALUE_IGNORED")
+    @Test
+    public void thatUnchangedViewportIsNotUpdated() throws Exception
+    {
+        var subscriptionDone = new CountDownLatch(1);
+        var initDone = new CountDownLatch(1);
+
+        var vpd = new ViewportDefinition(testAnnotationDocument, 50, 60, FORMAT_LEGACY);
+
+        var sessionHandler = new SessionHandler(subscriptionDone, initDone, vpd);
+
+        var session = stompClient.connect(websocketUrl, sessionHandler).get(1000, SECONDS);
+
+        try {
+            subscriptionDone.await(5, TimeUnit.SECONDS);
+            assertThat(subscriptionDone.getCount()).isEqualTo(0);
+
+            initDone.await(5, TimeUnit.SECONDS);
+            assertThat(initDone.getCount()).isEqualTo(0);
+
+            // Covers the entire viewport which is rendered exactly as before
+            sut.sendUpdate(testAnnotationDocument, 40, 70);
+            // Only the range is rendered and the test pre-renderer moves the span into it
+            sut.sendUpdate(testAnnotationDocument, 52, 55);
+
+            Thread.sleep(Duration.of(3, ChronoUnit.SECONDS).toMillis());
+
+            assertThat(sessionHandler.getRecieved()).containsExactly("52-55");
+        }
+        finally {
+            try {
+                session.disconnect();
+            }
+            catch (Exception e) {
+                // Ignore exceptions during disconnect
+            }
+        }
+    }
+
     private static class SessionHandler
         extends LoggingStompSessionHandlerAdapter
     {
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.diam.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VArc;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VDocument;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VID;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VRange;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VSpan;
+
+class ViewportSpliceTest
+{
+    private static final int VP_BEGIN = 100;
+    private static final int VP_END = 200;
+
+    private AnnotationLayer layer;
+    private VDocument previous;
+
+    @BeforeEach
+    void setup()
+    {
+        layer = new AnnotationLayer();
+        layer.setId(1l);
+
+        previous = new VDocument();
+        previous.setWindow(VP_BEGIN, VP_END);
+        previous.add(span(1, 5, 10, "a"));
+        previous.add(span(2, 20, 30, "b"));
+        previous.add(span(3, 50, 60, "c"));
+        previous.add(new VArc(layer, new VID(10), new VID(2), new VID(3), "rel", null));
+    }
+
+    @Test
+    void thatRenderRangeCoversAffectedAnnotations()
+    {
+        assertThat(ViewportSplice.renderRange(previous, VP_BEGIN, VP_END, 106, 108))
+                .hasValueSatisfying(range -> {
+                    assertThat(range.getBegin()).isEqualTo(105);
+                    assertThat(range.getEnd()).isEqualTo(110);
+                });
+    }
+
+    @Test
+    void thatRenderRangeCoversAnnotationsConnectedByArcs()
+    {
+        assertThat(ViewportSplice.renderRange(previous, VP_BEGIN, VP_END, 122, 125))
+                .hasValueSatisfying(range -> {
+                    assertThat(range.getBegin()).isEqualTo(120);
+                    assertThat(range.getEnd()).isEqualTo(160);
+                });
+    }
+
+    @Test
+    void thatEntireViewportIsRenderedIfRangeCoversIt()
+    {
+        assertThat(ViewportSplice.renderRange(previous, VP_BEGIN, VP_END, 90, 210)).isEmpty();
+        assertThat(ViewportSplice.renderRange(null, VP_BEGIN, VP_END, 106, 108)).isEmpty();
+    }
+
+    @Test
+    void thatChangedSpanIsReplaced()
+    {
+        var partial = new VDocument();
+        partial.add(span(1, 0, 5, "changed"));
+
+        var result = ViewportSplice.splice(previous, VP_BEGIN, VP_END, partial, 105, 110);
+
+        assertThat(result).hasValueSatisfying(vdoc -> {
+            assertThat(vdoc.getSpans()).containsOnlyKeys(new VID(1), new VID(2), new VID(3));
+            assertThat(vdoc.getArcs()).containsOnlyKeys(new VID(10));
+            var span = vdoc.getSpan(new VID(1));
+            assertThat(span.getFeatures()).containsEntry("value", "changed");
+            assertThat(span.getRanges()) //
+                    .extracting(VRange::getBegin, VRange::getEnd) //
+                    .containsExactly(tuple(5, 10));
+            assertThat(vdoc.getWindowBegin()).isEqualTo(VP_BEGIN);
+            assertThat(vdoc.getWindowEnd()).isEqualTo(VP_END);
+        });
+    }
+
+    @Test
+    void thatDeletedSpanIsRemovedWithItsArcs()
+    {
+        var partial = new VDocument();
+        partial.add(span(3, 30, 40, "c"));
+
+        var result = ViewportSplice.splice(previous, VP_BEGIN, VP_END, partial, 120, 160);
+
+        assertThat(result).hasValueSatisfying(vdoc -> {
+            assertThat(vdoc.getSpans()).containsOnlyKeys(new VID(1), new VID(3));
+            assertThat(vdoc.getArcs()).isEmpty();
+            assertThat(vdoc.getSpan(new VID(3)).getRanges()) //
+                    .extracting(VRange::getBegin, VRange::getEnd) //
+                    .containsExactly(tuple(50, 60));
+        });
+    }
+
+    @Test
+    void thatClippedSpanIsNotSpliced()
+    {
+        var partial = new VDocument();
+        partial.add(new VSpan(layer, new VID(1), VRange.clippedRange(105, 110, 105, 115).get(),
+                Map.of("value", "grown")));
+
+        assertThat(ViewportSplice.splice(previous, VP_BEGIN, VP_END, partial, 105, 110))
+                .isEmpty();
+    }
+
+    @Test
+    void thatArcToUnknownSpanIsNotSpliced()
+    {
+        var partial = new VDocument();
+        partial.add(span(1, 0, 5, "a"));
+        partial.add(new VArc(layer, new VID(11), new VID(1), new VID(99), "rel", null));
+
+        assertThat(ViewportSplice.splice(previous, VP_BEGIN, VP_END, partial, 105, 110))
+                .isEmpty();
+    }
+
+    private VSpan span(int aId, int aBegin, int aEnd, String aValue)
+    {
+        return new VSpan(layer, new VID(aId), new VRange(aBegin, aEnd), Map.of("value", aValue));
+    }
+}
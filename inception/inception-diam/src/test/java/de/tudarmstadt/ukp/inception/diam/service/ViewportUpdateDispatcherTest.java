@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.diam.service;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.inception.diam.model.websocket.ViewportDefinition;
+
+class ViewportUpdateDispatcherTest
+{
+    private static final Duration DELAY = Duration.ofMillis(500);
+
+    private final ViewportDefinition vpd1 = new ViewportDefinition(1l, 1l, "user", 0, 100,
+            "format");
+    private final ViewportDefinition vpd2 = new ViewportDefinition(1l, 1l, "user", 100, 200,
+            "format");
+
+    private final List<Update> updates = new CopyOnWriteArrayList<>();
+
+    private ViewportUpdateDispatcher sut;
+
+    @AfterEach
+    void tearDown()
+    {
+        if (sut != null) {
+            sut.close();
+        }
+    }
+
+    @Test
+    void thatUpdatesToSameViewportAreCoalesced() throws Exception
+    {
+        var done = new CountDownLatch(1);
+        sut = new ViewportUpdateDispatcher(2, DELAY, (vpd, begin, end) -> {
+            updates.add(new Update(vpd, begin, end));
+            done.countDown();
+        });
+
+        sut.dispatch(vpd1, 10, 20);
+        sut.dispatch(vpd1, 5, 15);
+        sut.dispatch(vpd1, 30, 40);
+
+        assertThat(done.await(5, SECONDS)).isTrue();
+
+        // Give a wrongly scheduled second update the chance to arrive
+        Thread.sleep(DELAY.toMillis() * 2);
+
+        assertThat(updates).containsExactly(new Update(vpd1, 5, 40));
+    }
+
+    @Test
+    void thatUpdatesToDifferentViewportsAreNotCoalesced() throws Exception
+    {
+        var done = new CountDownLatch(2);
+        sut = new ViewportUpdateDispatcher(2, DELAY, (vpd, begin, end) -> {
+            updates.add(new Update(vpd, begin, end));
+            done.countDown();
+        });
+
+        sut.dispatch(vpd1, 10, 20);
+        sut.dispatch(vpd2, 110, 120);
+
+        assertThat(done.await(5, SECONDS)).isTrue();
+
+        assertThat(updates).containsExactlyInAnyOrder( //
+                new Update(vpd1, 10, 20), //
+                new Update(vpd2, 110, 120));
+    }
+
+    @Test
+    void thatUpdateAfterRenderIsScheduledAgain() throws Exception
+    {
+        var first = new CountDownLatch(1);
+        var second = new CountDownLatch(2);
+        sut = new ViewportUpdateDispatcher(2, DELAY, (vpd, begin, end) -> {
+            updates.add(new Update(vpd, begin, end));
+            first.countDown();
+            second.countDown();
+        });
+
+        sut.dispatch(vpd1, 10, 20);
+        assertThat(first.await(5, SECONDS)).isTrue();
+
+        sut.dispatch(vpd1, 30, 40);
+        assertThat(second.await(5, SECONDS)).isTrue();
+
+        assertThat(updates).containsExactly( //
+                new Update(vpd1, 10, 20), //
+                new Update(vpd1, 30, 40));
+    }
+
+    private record Update(ViewportDefinition vpd, int begin, int end) {}
+}
@@ -19,6 +19,7 @@ package de.tudarmstadt.ukp.clarin.webanno.api.export;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -289,6 +290,68 @@ public interface DocumentImportExportService
             Map<Pair<Project, String>, Object> aBulkOperationContext)
         throws UIMAException, IOException;
 
+    /**
+     * Exports the given CAS to the given stream. Unlike
+     * {@link #exportCasToFile(CAS, SourceDocument, String, FormatSupport, boolean, Map)}, this
+     * does not produce a temporary file that needs to be copied and deleted by the caller.
+     * 
+     * @param aCas
+     *            the CAS to export
+     * @param aDocument
+     *            the document to which the CAS belongs
+     * @param aFileName
+     *            the name the exported file should have - only the name, no path!
+     * @param aFormat
+     *            the format in which to export
+     * @param aStripExtension
+     *            whether to strip the original file extension from the file name
+     * @param aBulkOperationContext
+     *            a bulk export context (used to speed up bulk exports). Must be thread-safe if
+     *            it is shared by concurrent exports.
+     * @param aOut
+     *            the stream to write to. The stream is not closed.
+     * @return the name of the exported file
+     * @throws IOException
+     *             if there was an I/O-level problem
+     * @throws UIMAException
+     *             if there was an UIMA-level problem
+     */
+    String exportCasToStream(CAS aCas, SourceDocument aDocument, String aFileName,
+            FormatSupport aFormat, boolean aStripExtension,
+            Map<Pair<Project, String>, Object> aBulkOperationContext, OutputStream aOut)
+        throws IOException, UIMAException;
+
+    /**
+     * Exports the annotations of the given user to the given stream.
+     * 
+     * @param aDocument
+     *            the document
+     * @param aUser
+     *            the user whose annotations to export
+     * @param aFormat
+     *            the format in which to export
+     * @param aFileName
+     *            the name from which to derive the name of the exported file
+     * @param aMode
+     *            the mode
+     * @param aStripExtension
+     *            whether to strip the original file extension from the file name
+     * @param aBulkOperationContext
+     *            a bulk export context (used to speed up bulk exports). Must be thread-safe if
+     *            it is shared by concurrent exports.
+     * @param aOut
+     *            the stream to write to. The stream is not closed.
+     * @return the name of the exported file
+     * @throws UIMAException
+     *             if there was a conversion error.
+     * @throws IOException
+     *             if there was an I/O error.
+     */
+    String exportAnnotationDocumentToStream(SourceDocument aDocument, String aUser,
+            FormatSupport aFormat, String aFileName, Mode aMode, boolean aStripExtension,
+            Map<Pair<Project, String>, Object> aBulkOperationContext, OutputStream aOut)
+        throws UIMAException, IOException;
+
     /**
      * @return a type system with all the types that should be present in an exported CAS. This
      *         means in particular that type internal to the application should <b>not</b> be
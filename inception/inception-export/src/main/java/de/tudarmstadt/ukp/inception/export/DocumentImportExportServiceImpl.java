@@ -38,6 +38,7 @@ import static org.apache.uima.util.CasCreationUtils.mergeTypeSystems;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
 import java.net.MalformedURLException;
 import java.nio.file.Files;
@@ -239,25 +240,13 @@ public class DocumentImportExportServiceImpl
                 bulkOperationContext = new HashMap<>();
             }
 
-            String username;
-            switch (aMode) {
-            case ANNOTATION:
-                username = aUser;
-                break;
-            case CURATION:
-                // The merge result will be exported
-                username = CURATION_USER;
-                break;
-            default:
-                throw new IllegalArgumentException("Unknown mode [" + aMode + "]");
-            }
-
             // Read file
             File exportFile;
             try (CasStorageSession session = CasStorageSession.openNested()) {
                 // We do not want to add the CAS to the exclusive access pool here to avoid
                 // potentially running out of memory when exporting a large project
-                CAS cas = casStorageService.readCas(aDocument, username, UNMANAGED_ACCESS);
+                CAS cas = casStorageService.readCas(aDocument, getExportUsername(aUser, aMode),
+                        UNMANAGED_ACCESS);
                 exportFile = exportCasToFile(cas, aDocument, aFileName, aFormat, aStripExtension,
                         bulkOperationContext);
             }
@@ -269,6 +258,44 @@ public class DocumentImportExportServiceImpl
         }
     }
 
+    @Override
+    @Transactional
+    public String exportAnnotationDocumentToStream(SourceDocument aDocument, String aUser,
+            FormatSupport aFormat, String aFileName, Mode aMode, boolean aStripExtension,
+            Map<Pair<Project, String>, Object> aBulkOperationContext, OutputStream aOut)
+        throws IOException, UIMAException
+    {
+        try (var logCtx = withProjectLogger(aDocument.getProject())) {
+            String fileName;
+            try (var session = CasStorageSession.openNested()) {
+                // We do not want to add the CAS to the exclusive access pool here to avoid
+                // potentially running out of memory when exporting a large project
+                var cas = casStorageService.readCas(aDocument, getExportUsername(aUser, aMode),
+                        UNMANAGED_ACCESS);
+                fileName = exportCasToStream(cas, aDocument, aFileName, aFormat, aStripExtension,
+                        aBulkOperationContext, aOut);
+            }
+
+            LOG.info("Exported annotations for [{}]@{} in {} using format [{}]", aUser, aDocument,
+                    aDocument.getProject(), aFormat.getId());
+
+            return fileName;
+        }
+    }
+
+    private String getExportUsername(String aUser, Mode aMode)
+    {
+        switch (aMode) {
+        case ANNOTATION:
+            return aUser;
+        case CURATION:
+            // The merge result will be exported
+            return CURATION_USER;
+        default:
+            throw new IllegalArgumentException("Unknown mode [" + aMode + "]");
+        }
+    }
+
     @Override
     public CAS importCasFromFile(File aFile, SourceDocument aDocument)
         throws UIMAException, IOException
@@ -438,6 +465,26 @@ public class DocumentImportExportServiceImpl
             FormatSupport aFormat, boolean aStripExtension,
             Map<Pair<Project, String>, Object> aBulkOperationContext)
         throws IOException, UIMAException
+    {
+        return exportCas(aCas, aDocument, aFileName, aBulkOperationContext,
+                (exportCas, exportTempDir) -> aFormat.write(aDocument, exportCas, exportTempDir,
+                        aStripExtension));
+    }
+
+    @Override
+    public String exportCasToStream(CAS aCas, SourceDocument aDocument, String aFileName,
+            FormatSupport aFormat, boolean aStripExtension,
+            Map<Pair<Project, String>, Object> aBulkOperationContext, OutputStream aOut)
+        throws IOException, UIMAException
+    {
+        return exportCas(aCas, aDocument, aFileName, aBulkOperationContext,
+                (exportCas, exportTempDir) -> aFormat.write(aDocument, exportCas, aFileName,
+                        exportTempDir, aStripExtension, aOut));
+    }
+
+    private <T> T exportCas(CAS aCas, SourceDocument aDocument, String aFileName,
+            Map<Pair<Project, String>, Object> aBulkOperationContext, CasWriter<T> aWriter)
+        throws IOException, UIMAException
     {
         var project = aDocument.getProject();
         try (var logCtx = withProjectLogger(project)) {
@@ -474,8 +521,7 @@ public class DocumentImportExportServiceImpl
 
                 var exportTempDir = Files.createTempDirectory("inception-export").toFile();
                 try {
-                    return aFormat.write(aDocument, getRealCas(exportCas), exportTempDir,
-                            aStripExtension);
+                    return aWriter.write(getRealCas(exportCas), exportTempDir);
                 }
                 finally {
                     if (exportTempDir != null) {
@@ -637,4 +683,10 @@ public class DocumentImportExportServiceImpl
             }
         }
     }
+
+    @FunctionalInterface
+    private interface CasWriter<T>
+    {
+        T write(CAS aExportCas, File aExportTempDir) throws IOException, UIMAException;
+    }
 }
@@ -125,6 +125,12 @@ public class AzureAiOpenAiRecommenderFactory
         return readTraits(aRecommender).isInteractive();
     }
 
+    @Override
+    public String getRemoteEndpoint(Recommender aRecommender)
+    {
+        return readTraits(aRecommender).getUrl();
+    }
+
     @Override
     public Panel createInteractionPanel(String aId, IModel<Recommender> aModel)
     {
@@ -104,4 +104,10 @@ public class ExternalRecommenderFactory
         var traits = readTraits(aRecommender);
         return traits.isRanker();
     }
+
+    @Override
+    public String getRemoteEndpoint(Recommender aRecommender)
+    {
+        return readTraits(aRecommender).getRemoteUrl();
+    }
 }
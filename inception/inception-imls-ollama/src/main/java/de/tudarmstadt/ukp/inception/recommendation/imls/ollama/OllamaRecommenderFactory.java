@@ -124,6 +124,12 @@ public class OllamaRecommenderFactory
         return readTraits(aRecommender).isInteractive();
     }
 
+    @Override
+    public String getRemoteEndpoint(Recommender aRecommender)
+    {
+        return readTraits(aRecommender).getUrl();
+    }
+
     @Override
     public Panel createInteractionPanel(String aId, IModel<Recommender> aModel)
     {
@@ -20,7 +20,6 @@ package de.tudarmstadt.ukp.inception.recommendation.imls.opennlp.doccat;
 import static org.apache.uima.fit.util.CasUtil.getType;
 
 import java.lang.invoke.MethodHandles;
-import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.uima.cas.CAS;
@@ -59,28 +58,24 @@ public class OpenNlpDoccatMetadataRecommender
     }
 
     @Override
-    protected List<DocumentSample> extractSamples(List<CAS> aCasses)
+    protected List<DocumentSample> extractSamplesFromDocument(CAS aCas)
     {
-        var samples = new ArrayList<DocumentSample>();
+        var tokenTexts = aCas.select(Token.class).map(AnnotationFS::getCoveredText)
+                .toArray(String[]::new);
 
-        for (var cas : aCasses) {
-            var tokenTexts = cas.select(Token.class).map(AnnotationFS::getCoveredText)
-                    .toArray(String[]::new);
-
-            var annotationType = getType(cas, layerName);
-            var annotation = cas.select(annotationType).nullOK().get();
-            if (annotation == null) {
-                continue;
-            }
+        var annotationType = getType(aCas, layerName);
+        var annotation = aCas.select(annotationType).nullOK().get();
+        if (annotation == null) {
+            return List.of();
+        }
 
-            var feature = annotationType.getFeatureByBaseName(featureName);
-            var label = annotation.getFeatureValueAsString(feature);
-            var nameSample = new DocumentSample(label != null ? label : NO_CATEGORY, tokenTexts);
-            if (nameSample.getCategory() != null) {
-                samples.add(nameSample);
-            }
+        var feature = annotationType.getFeatureByBaseName(featureName);
+        var label = annotation.getFeatureValueAsString(feature);
+        var nameSample = new DocumentSample(label != null ? label : NO_CATEGORY, tokenTexts);
+        if (nameSample.getCategory() == null) {
+            return List.of();
         }
 
-        return samples;
+        return List.of(nameSample);
     }
 }
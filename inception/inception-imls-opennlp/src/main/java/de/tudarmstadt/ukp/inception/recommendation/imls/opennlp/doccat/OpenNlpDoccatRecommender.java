@@ -20,6 +20,7 @@ package de.tudarmstadt.ukp.inception.recommendation.imls.opennlp.doccat;
 import static de.tudarmstadt.ukp.inception.recommendation.api.evaluation.EvaluationResult.toEvaluationResult;
 import static de.tudarmstadt.ukp.inception.rendering.model.Range.rangeCoveringAnnotations;
 import static de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil.selectOverlapping;
+import static java.util.Arrays.asList;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.uima.fit.util.CasUtil.getType;
 import static org.apache.uima.fit.util.CasUtil.indexCovered;
@@ -52,6 +53,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.recommender.Recommendatio
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext.Key;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.TrainingCapability;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.TrainingSampleCache;
 import de.tudarmstadt.ukp.inception.rendering.model.Range;
 import de.tudarmstadt.ukp.inception.support.logging.LogMessage;
 import opennlp.tools.doccat.DoccatFactory;
@@ -66,6 +68,8 @@ public class OpenNlpDoccatRecommender
     extends RecommendationEngine
 {
     public static final Key<DoccatModel> KEY_MODEL = new Key<>("model");
+    public static final Key<TrainingSampleCache<DocumentSample>> KEY_SAMPLES = new Key<>(
+            "opennlp_doccat_samples");
 
     private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
@@ -103,7 +107,26 @@ public class OpenNlpDoccatRecommender
     @Override
     public void train(RecommenderContext aContext, List<CAS> aCasses) throws RecommendationException
     {
-        var docSamples = extractSamples(aCasses);
+        trainStreaming(aContext, aCasses);
+    }
+
+    @Override
+    public boolean isStreamingTrainingSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public void trainStreaming(RecommenderContext aContext, Iterable<CAS> aCasses)
+        throws RecommendationException
+    {
+        var cache = TrainingSampleCache.<DocumentSample> get(aContext, KEY_SAMPLES,
+                asList(layerName, featureName, getSampleUnit(), traits.getTrainingSetSizeLimit()));
+        var docSamples = cache.extractSamples(aCasses, this::extractSamplesFromDocument,
+                traits.getTrainingSetSizeLimit());
+
+        LOG.debug("Extracted {} samples - [{}] documents changed, [{}] documents unchanged",
+                docSamples.size(), cache.getMisses(), cache.getHits());
 
         if (docSamples.size() < 2) {
             aContext.log(LogMessage.warn(getRecommender().getName(),
@@ -136,6 +159,14 @@ public class OpenNlpDoccatRecommender
         return TrainingCapability.TRAINING_REQUIRED;
     }
 
+    @Override
+    public RecommenderContext newContext(RecommenderContext aContext)
+    {
+        var context = new RecommenderContext();
+        TrainingSampleCache.carryOver(aContext, context, KEY_SAMPLES);
+        return context;
+    }
+
     @Override
     public Range predict(PredictionContext aContext, CAS aCas, int aBegin, int aEnd)
         throws RecommendationException
@@ -262,38 +293,43 @@ public class OpenNlpDoccatRecommender
         return result;
     }
 
-    protected List<DocumentSample> extractSamples(List<CAS> aCasses)
+    private List<DocumentSample> extractSamples(List<CAS> aCasses)
+    {
+        return TrainingSampleCache.collectSamples(aCasses, this::extractSamplesFromDocument,
+                traits.getTrainingSetSizeLimit());
+    }
+
+    protected List<DocumentSample> extractSamplesFromDocument(CAS aCas)
     {
         var samples = new ArrayList<DocumentSample>();
-        casses: for (CAS cas : aCasses) {
-            var sampleUnitType = getType(cas, getSampleUnit());
-            var tokenType = getType(cas, Token.class);
-
-            var sampleUnits = indexCovered(cas, sampleUnitType, tokenType);
-            for (var e : sampleUnits.entrySet()) {
-                var sampleUnit = e.getKey();
-                var tokens = e.getValue();
-                var tokenTexts = tokens.stream().map(AnnotationFS::getCoveredText)
-                        .toArray(String[]::new);
-
-                var annotationType = getType(cas, layerName);
-                var feature = annotationType.getFeatureByBaseName(featureName);
-
-                for (var annotation : selectCovered(annotationType, sampleUnit)) {
-                    if (samples.size() >= traits.getTrainingSetSizeLimit()) {
-                        break casses;
-                    }
-
-                    if (isBlank(annotation.getCoveredText())) {
-                        continue;
-                    }
-
-                    var label = annotation.getFeatureValueAsString(feature);
-                    var nameSample = new DocumentSample(label != null ? label : NO_CATEGORY,
-                            tokenTexts);
-                    if (nameSample.getCategory() != null) {
-                        samples.add(nameSample);
-                    }
+
+        var sampleUnitType = getType(aCas, getSampleUnit());
+        var tokenType = getType(aCas, Token.class);
+
+        var sampleUnits = indexCovered(aCas, sampleUnitType, tokenType);
+        for (var e : sampleUnits.entrySet()) {
+            var sampleUnit = e.getKey();
+            var tokens = e.getValue();
+            var tokenTexts = tokens.stream().map(AnnotationFS::getCoveredText)
+                    .toArray(String[]::new);
+
+            var annotationType = getType(aCas, layerName);
+            var feature = annotationType.getFeatureByBaseName(featureName);
+
+            for (var annotation : selectCovered(annotationType, sampleUnit)) {
+                if (samples.size() >= traits.getTrainingSetSizeLimit()) {
+                    return samples;
+                }
+
+                if (isBlank(annotation.getCoveredText())) {
+                    continue;
+                }
+
+                var label = annotation.getFeatureValueAsString(feature);
+                var nameSample = new DocumentSample(label != null ? label : NO_CATEGORY,
+                        tokenTexts);
+                if (nameSample.getCategory() != null) {
+                    samples.add(nameSample);
                 }
             }
         }
@@ -18,6 +18,7 @@
 package de.tudarmstadt.ukp.inception.recommendation.imls.opennlp.ner;
 
 import static de.tudarmstadt.ukp.inception.recommendation.api.evaluation.EvaluationResult.toEvaluationResult;
+import static java.util.Arrays.asList;
 import static java.util.Comparator.comparing;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.uima.fit.util.CasUtil.getType;
@@ -52,6 +53,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.recommender.Recommendatio
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext.Key;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.TrainingCapability;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.TrainingSampleCache;
 import de.tudarmstadt.ukp.inception.recommendation.api.util.OverlapIterator;
 import de.tudarmstadt.ukp.inception.rendering.model.Range;
 import de.tudarmstadt.ukp.inception.support.logging.LogMessage;
@@ -69,6 +71,8 @@ public class OpenNlpNerRecommender
     extends RecommendationEngine
 {
     public static final Key<TokenNameFinderModel> KEY_MODEL = new Key<>("opennlp_ner_model");
+    public static final Key<TrainingSampleCache<NameSample>> KEY_SAMPLES = new Key<>(
+            "opennlp_ner_samples");
 
     private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
@@ -99,6 +103,19 @@ public class OpenNlpNerRecommender
 
     @Override
     public void train(RecommenderContext aContext, List<CAS> aCasses) throws RecommendationException
+    {
+        trainStreaming(aContext, aCasses);
+    }
+
+    @Override
+    public boolean isStreamingTrainingSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public void trainStreaming(RecommenderContext aContext, Iterable<CAS> aCasses)
+        throws RecommendationException
     {
         var nameSamples = extractSamples(aContext, aCasses);
 
@@ -127,6 +144,14 @@ public class OpenNlpNerRecommender
         return TrainingCapability.TRAINING_REQUIRED;
     }
 
+    @Override
+    public RecommenderContext newContext(RecommenderContext aContext)
+    {
+        var context = new RecommenderContext();
+        TrainingSampleCache.carryOver(aContext, context, KEY_SAMPLES);
+        return context;
+    }
+
     @Override
     public Range predict(PredictionContext aContext, CAS aCas, int aBegin, int aEnd)
         throws RecommendationException
@@ -393,7 +418,23 @@ public class OpenNlpNerRecommender
             extractor = this::extractSamplesFromSentences;
         }
 
-        return extractSamples(aCasses, extractor);
+        if (aContext == null) {
+            return extractSamples(aCasses, extractor);
+        }
+
+        var cache = TrainingSampleCache.<NameSample> get(aContext, KEY_SAMPLES,
+                asList(layerName, featureName, getRecommender().getLayer().isCrossSentence(),
+                        traits.getWindowSize(), traits.getTrainingSetSizeLimit()));
+        var samples = cache.extractSamples(aCasses, cas -> {
+            var casSamples = new ArrayList<NameSample>();
+            extractor.apply(cas, casSamples);
+            return casSamples;
+        }, traits.getTrainingSetSizeLimit());
+
+        LOG.debug("Extracted samples from [{}] documents, [{}] documents unchanged",
+                cache.getMisses(), cache.getHits());
+
+        return samples;
     }
 
     private List<NameSample> extractSamples(Iterable<CAS> aCasses,
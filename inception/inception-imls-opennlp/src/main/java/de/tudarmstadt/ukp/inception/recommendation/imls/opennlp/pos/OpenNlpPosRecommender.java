@@ -19,6 +19,7 @@ package de.tudarmstadt.ukp.inception.recommendation.imls.opennlp.pos;
 
 import static de.tudarmstadt.ukp.inception.recommendation.api.evaluation.EvaluationResult.toEvaluationResult;
 import static de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil.selectOverlapping;
+import static java.util.Arrays.asList;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNoneBlank;
 import static org.apache.uima.fit.util.CasUtil.getType;
@@ -54,6 +55,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.recommender.Recommendatio
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext.Key;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.TrainingCapability;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.TrainingSampleCache;
 import de.tudarmstadt.ukp.inception.rendering.model.Range;
 import de.tudarmstadt.ukp.inception.support.logging.LogMessage;
 import opennlp.tools.ml.BeamSearch;
@@ -67,6 +69,8 @@ public class OpenNlpPosRecommender
     extends RecommendationEngine
 {
     public static final Key<POSModel> KEY_MODEL = new Key<>("opennlp_pos_model");
+    public static final Key<TrainingSampleCache<POSSample>> KEY_SAMPLES = new Key<>(
+            "opennlp_pos_samples");
 
     private static final Logger LOG = LoggerFactory.getLogger(OpenNlpPosRecommender.class);
     private static final String PAD = "<PAD>";
@@ -95,7 +99,26 @@ public class OpenNlpPosRecommender
     @Override
     public void train(RecommenderContext aContext, List<CAS> aCasses) throws RecommendationException
     {
-        var posSamples = extractPosSamples(aCasses);
+        trainStreaming(aContext, aCasses);
+    }
+
+    @Override
+    public boolean isStreamingTrainingSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public void trainStreaming(RecommenderContext aContext, Iterable<CAS> aCasses)
+        throws RecommendationException
+    {
+        var cache = TrainingSampleCache.<POSSample> get(aContext, KEY_SAMPLES,
+                asList(layerName, featureName, traits.getTaggedTokensThreshold()));
+        var posSamples = cache.extractSamples(aCasses, this::extractPosSamplesFromDocument,
+                traits.getTrainingSetSizeLimit());
+
+        LOG.debug("Extracted {} POS samples - [{}] documents changed, [{}] documents unchanged",
+                posSamples.size(), cache.getMisses(), cache.getHits());
 
         if (posSamples.size() < 2) {
             aContext.log(LogMessage.warn(getRecommender().getName(),
@@ -121,6 +144,14 @@ public class OpenNlpPosRecommender
         return TrainingCapability.TRAINING_REQUIRED;
     }
 
+    @Override
+    public RecommenderContext newContext(RecommenderContext aContext)
+    {
+        var context = new RecommenderContext();
+        TrainingSampleCache.carryOver(aContext, context, KEY_SAMPLES);
+        return context;
+    }
+
     @Override
     public Range predict(PredictionContext aContext, CAS aCas, int aBegin, int aEnd)
         throws RecommendationException
@@ -264,28 +295,34 @@ public class OpenNlpPosRecommender
 
     private List<POSSample> extractPosSamples(List<CAS> aCasses)
     {
-        var posSamples = new ArrayList<POSSample>();
+        var posSamples = TrainingSampleCache.collectSamples(aCasses,
+                this::extractPosSamplesFromDocument, traits.getTrainingSetSizeLimit());
 
-        casses: for (CAS cas : aCasses) {
-            var sampleUnitType = getType(cas, SAMPLE_UNIT);
-            var tokenType = getType(cas, Token.class);
+        LOG.debug("Extracted {} POS samples", posSamples.size());
 
-            for (var sampleUnit : cas.<Annotation> select(sampleUnitType)) {
-                if (posSamples.size() >= traits.getTrainingSetSizeLimit()) {
-                    break casses;
-                }
+        return posSamples;
+    }
 
-                if (isBlank(sampleUnit.getCoveredText())) {
-                    continue;
-                }
+    private List<POSSample> extractPosSamplesFromDocument(CAS aCas)
+    {
+        var posSamples = new ArrayList<POSSample>();
 
-                var tokens = cas.<Annotation> select(tokenType).coveredBy(sampleUnit).asList();
+        var sampleUnitType = getType(aCas, SAMPLE_UNIT);
+        var tokenType = getType(aCas, Token.class);
 
-                createPosSample(cas, sampleUnit, tokens).map(posSamples::add);
+        for (var sampleUnit : aCas.<Annotation> select(sampleUnitType)) {
+            if (posSamples.size() >= traits.getTrainingSetSizeLimit()) {
+                break;
             }
-        }
 
-        LOG.debug("Extracted {} POS samples", posSamples.size());
+            if (isBlank(sampleUnit.getCoveredText())) {
+                continue;
+            }
+
+            var tokens = aCas.<Annotation> select(tokenType).coveredBy(sampleUnit).asList();
+
+            createPosSample(aCas, sampleUnit, tokens).map(posSamples::add);
+        }
 
         return posSamples;
     }
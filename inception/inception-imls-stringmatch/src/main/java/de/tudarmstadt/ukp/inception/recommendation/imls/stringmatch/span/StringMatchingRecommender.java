@@ -32,6 +32,7 @@ import static org.apache.uima.fit.util.CasUtil.select;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -65,6 +66,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderCo
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext.Key;
 import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.gazeteer.GazeteerService;
 import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.gazeteer.model.GazeteerEntry;
+import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie.CompactTrie;
 import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie.Trie;
 import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie.WhitespaceNormalizingSanitizer;
 import de.tudarmstadt.ukp.inception.rendering.model.Range;
@@ -76,7 +78,7 @@ public class StringMatchingRecommender
 {
     private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-    public static final Key<Trie<DictEntry>> KEY_MODEL = new Key<>("model");
+    public static final Key<CompactTrie<DictEntry>> KEY_MODEL = new Key<>("model");
 
     private static final String NO_LABEL = "O";
 
@@ -115,35 +117,59 @@ public class StringMatchingRecommender
                 .orElseThrow(() -> new IOException("No model trained yet."));
 
         var out = new OutputStreamWriter(aOutput);
-        var sortedKeys = dict.keys().stream().sorted().toList();
-        for (var key : sortedKeys) {
-            var value = dict.get(key);
-            for (var i = 0; i < value.labels.length; i++) {
-                out.append(key);
-                out.append("\t");
-                out.append(value.labels[i]);
-                out.append("\t");
-                out.append(Integer.toString(value.counts[i]));
-                out.append("\n");
-            }
+        try {
+            // The compact trie visits the keys in sorted order
+            dict.forEach((key, value) -> {
+                try {
+                    for (var i = 0; i < value.labels.length; i++) {
+                        out.append(key);
+                        out.append("\t");
+                        out.append(value.labels[i]);
+                        out.append("\t");
+                        out.append(Integer.toString(value.counts[i]));
+                        out.append("\n");
+                    }
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
         }
         out.flush();
     }
 
     public void pretrain(List<GazeteerEntry> aData, RecommenderContext aContext)
     {
-        var dict = aContext.get(KEY_MODEL).orElseGet(this::createTrie);
+        var dict = getMutableModel(aContext);
+        pretrain(aData, aContext, dict);
+        aContext.put(KEY_MODEL, dict.compact());
+    }
 
+    private void pretrain(List<GazeteerEntry> aData, RecommenderContext aContext,
+            Trie<DictEntry> aDict)
+    {
         if (aData != null) {
             for (var entry : aData) {
-                learn(dict, entry.text, entry.label);
+                learn(aDict, entry.text, entry.label);
             }
 
             aContext.log(LogMessage.info(getRecommender().getName(),
                     "Loaded [%d] entries from gazeteer", aData.size()));
         }
+    }
 
-        aContext.put(KEY_MODEL, dict);
+    /**
+     * The model is kept in the context as a {@link CompactTrie} which cannot be modified. To add
+     * entries, a mutable copy needs to be created and compacted again when it is complete.
+     */
+    private Trie<DictEntry> getMutableModel(RecommenderContext aContext)
+    {
+        return aContext.get(KEY_MODEL) //
+                .map(CompactTrie::toTrie) //
+                .orElseGet(this::createTrie);
     }
 
     private <T> Trie<T> createTrie()
@@ -154,11 +180,26 @@ public class StringMatchingRecommender
     @Override
     public void train(RecommenderContext aContext, List<CAS> aCasses) throws RecommendationException
     {
+        trainStreaming(aContext, aCasses);
+    }
+
+    @Override
+    public boolean isStreamingTrainingSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public void trainStreaming(RecommenderContext aContext, Iterable<CAS> aCasses)
+        throws RecommendationException
+    {
+        var dict = getMutableModel(aContext);
+
         // Pre-load the gazeteers into the model
         if (gazeteerService != null) {
             for (var gaz : gazeteerService.listGazeteers(recommender)) {
                 try {
-                    pretrain(gazeteerService.readGazeteerFile(gaz), aContext);
+                    pretrain(gazeteerService.readGazeteerFile(gaz), aContext, dict);
                 }
                 catch (IOException e) {
                     aContext.log(LogMessage.error(getRecommender().getName(),
@@ -173,9 +214,9 @@ public class StringMatchingRecommender
             }
         }
 
-        var dict = aContext.get(KEY_MODEL).orElseGet(this::createTrie);
-
+        var documentCount = 0;
         for (var cas : aCasses) {
+            documentCount++;
             var predictedType = getPredictedType(cas);
             var predictedFeature = getPredictedFeature(cas);
             var isMultiValue = TYPE_NAME_STRING_ARRAY.equals(predictedFeature.getRange().getName());
@@ -198,9 +239,9 @@ public class StringMatchingRecommender
 
         aContext.log(LogMessage.info(getRecommender().getName(),
                 "Learned dictionary model with %d entries on %d documents", dict.size(),
-                aCasses.size()));
+                documentCount));
 
-        aContext.put(KEY_MODEL, dict);
+        aContext.put(KEY_MODEL, dict.compact());
     }
 
     @Override
@@ -237,7 +278,8 @@ public class StringMatchingRecommender
         return Range.rangeCoveringAnnotations(units);
     }
 
-    private List<Sample> predict(CAS aCas, List<AnnotationFS> units, Trie<DictEntry> aDict)
+    private List<Sample> predict(CAS aCas, List<AnnotationFS> units,
+            CompactTrie<DictEntry> aDict)
     {
         var requireEndAtTokenBoundary = Set.of(SINGLE_TOKEN, TOKENS, SENTENCES)
                 .contains(getRecommender().getLayer().getAnchoringMode());
@@ -260,7 +302,7 @@ public class StringMatchingRecommender
                 var match = aDict.getNode(text, token.getBegin());
                 if (match != null) {
                     var begin = token.getBegin();
-                    var end = begin + match.matchLength;
+                    var end = begin + match.matchLength();
 
                     // If the end is not in the same sentence as the start, skip
                     if (requireSingleSentence && !(end <= sampleUnit.getEnd())) {
@@ -273,7 +315,7 @@ public class StringMatchingRecommender
                         continue;
                     }
 
-                    for (var lc : match.node.value.getBest(maxRecommendations)) {
+                    for (var lc : match.value().getBest(maxRecommendations)) {
                         spans.add(new Span(begin, end, aCas.getDocumentText().substring(begin, end),
                                 lc.label(), lc.relFreq()));
                     }
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable trie stored in primitive arrays. It is built from a {@link Trie} using
+ * {@link Trie#compact()} and supports the same lookups as the trie it was built from, using the
+ * same {@link KeySanitizer}.
+ * <p>
+ * The nodes are numbered in breadth-first order with the root being node {@code 0}. The edges to
+ * the children of node {@code n} are stored in the range {@code edgeStart[n]} (inclusive) to
+ * {@code edgeStart[n + 1]} (exclusive) of {@code edgeLabels}, sorted by their character. Because
+ * each node except the root has exactly one incoming edge and the edges are stored in the same
+ * breadth-first order as the nodes, edge {@code e} leads to node {@code e + 1}. Only the nodes
+ * which carry a value have a slot in the value array. The slot of a node is the number of nodes
+ * with a value before it, which is looked up using a bit set and a rank directory.
+ *
+ * @param <V>
+ *            the value type.
+ */
+public class CompactTrie<V>
+{
+    private final KeySanitizerFactory sanitizerFactory;
+    private final int[] edgeStart;
+    private final char[] edgeLabels;
+    private final long[] setWords;
+    private final int[] setRank;
+    private final Object[] values;
+
+    CompactTrie(Trie<V> aTrie)
+    {
+        sanitizerFactory = aTrie.getSanitizerFactory();
+
+        var nodes = new ArrayList<Trie<V>.Node>();
+        nodes.add(aTrie.getRoot());
+        for (var i = 0; i < nodes.size(); i++) {
+            nodes.addAll(nodes.get(i).children.values());
+        }
+
+        edgeStart = new int[nodes.size() + 1];
+        edgeLabels = new char[nodes.size() - 1];
+        values = new Object[aTrie.size()];
+
+        var set = new BitSet(nodes.size());
+        var edge = 0;
+        var valueCount = 0;
+        for (var i = 0; i < nodes.size(); i++) {
+            var node = nodes.get(i);
+            edgeStart[i] = edge;
+            if (node.set) {
+                set.set(i);
+                values[valueCount] = node.value;
+                valueCount++;
+            }
+
+            for (var label : node.children.keySet()) {
+                edgeLabels[edge] = label;
+                edge++;
+            }
+        }
+        edgeStart[nodes.size()] = edge;
+
+        setWords = Arrays.copyOf(set.toLongArray(), (nodes.size() + 63) / 64);
+        setRank = new int[setWords.length];
+        for (var w = 1; w < setWords.length; w++) {
+            setRank[w] = setRank[w - 1] + Long.bitCount(setWords[w - 1]);
+        }
+    }
+
+    /**
+     * Finds the longest key in the trie which matches the given character sequence starting at the
+     * given offset.
+     *
+     * @param aText
+     *            the text.
+     * @param aOffset
+     *            the offset.
+     * @return the match or {@code null} if no key matches at the given offset.
+     */
+    public Match<V> getNode(CharSequence aText, int aOffset)
+    {
+        // offset outside range
+        if (aOffset > aText.length() - 1) {
+            return null;
+        }
+
+        var sanitizer = sanitizerFactory != null ? sanitizerFactory.create() : null;
+
+        var node = 0;
+        var match = -1;
+        var matchEnd = -1;
+        for (var i = aOffset; i < aText.length(); i++) {
+            var k = aText.charAt(i);
+
+            if (sanitizer != null) {
+                k = sanitizer.map(k);
+                if (k == KeySanitizer.SKIP_CHAR) {
+                    continue;
+                }
+            }
+
+            node = child(node, k);
+            if (node == -1) {
+                break;
+            }
+
+            if (isSet(node)) {
+                match = node;
+                matchEnd = i + 1;
+            }
+        }
+
+        return match != -1 ? new Match<>(value(match), matchEnd - aOffset) : null;
+    }
+
+    /**
+     * @param aKey
+     *            the key.
+     * @return the value stored for the given key or {@code null} if there is none.
+     */
+    public V get(CharSequence aKey)
+    {
+        var node = 0;
+        var key = sanitizerFactory != null ? sanitizerFactory.create().sanitize(aKey) : aKey;
+        for (var i = 0; i < key.length() && node != -1; i++) {
+            node = child(node, key.charAt(i));
+        }
+
+        return node > 0 && isSet(node) ? value(node) : null;
+    }
+
+    /**
+     * Calls the given consumer for each key and its value. The keys are visited in the order of
+     * {@link String#compareTo}.
+     */
+    public void forEach(BiConsumer<String, V> aConsumer)
+    {
+        forEach(0, new StringBuilder(), aConsumer);
+    }
+
+    private void forEach(int aNode, StringBuilder aKey, BiConsumer<String, V> aConsumer)
+    {
+        if (isSet(aNode)) {
+            aConsumer.accept(aKey.toString(), value(aNode));
+        }
+
+        for (var edge = edgeStart[aNode]; edge < edgeStart[aNode + 1]; edge++) {
+            aKey.append(edgeLabels[edge]);
+            forEach(edge + 1, aKey, aConsumer);
+            aKey.setLength(aKey.length() - 1);
+        }
+    }
+
+    /**
+     * @return a mutable trie containing the same entries. The values are not copied.
+     */
+    public Trie<V> toTrie()
+    {
+        var trie = new Trie<V>(sanitizerFactory);
+        forEach(trie::put);
+        return trie;
+    }
+
+    public boolean isEmpty()
+    {
+        return values.length == 0;
+    }
+
+    public int size()
+    {
+        return values.length;
+    }
+
+    private int child(int aNode, char aChar)
+    {
+        var edge = Arrays.binarySearch(edgeLabels, edgeStart[aNode], edgeStart[aNode + 1], aChar);
+        return edge >= 0 ? edge + 1 : -1;
+    }
+
+    private boolean isSet(int aNode)
+    {
+        return (setWords[aNode >>> 6] & (1L << aNode)) != 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int aNode)
+    {
+        var word = aNode >>> 6;
+        var slot = setRank[word] + Long.bitCount(setWords[word] & ((1L << aNode) - 1));
+        return (V) values[slot];
+    }
+
+    /**
+     * A key found in a text.
+     *
+     * @param value
+     *            the value stored for the key.
+     * @param matchLength
+     *            the number of characters of the text matching the key. This may differ from the
+     *            length of the key if the {@link KeySanitizer} skipped characters.
+     */
+    public static record Match<V>(V value, int matchLength) {}
+}
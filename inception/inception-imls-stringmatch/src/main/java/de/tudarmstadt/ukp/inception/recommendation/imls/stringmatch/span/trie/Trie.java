@@ -88,6 +88,24 @@ public class Trie<V>
         sanitizerFactory = aSanitizer;
     }
 
+    /**
+     * @return an immutable copy of this trie which uses less memory and is faster to query.
+     */
+    public CompactTrie<V> compact()
+    {
+        return new CompactTrie<>(this);
+    }
+
+    Node getRoot()
+    {
+        return root;
+    }
+
+    KeySanitizerFactory getSanitizerFactory()
+    {
+        return sanitizerFactory;
+    }
+
     /**
      * @see Map#clear()
      */
@@ -173,8 +191,8 @@ public class Trie<V>
         }
         Node last = root;
         Node match = null;
-        int i = offset;
-        for (; i < key.length(); i++) {
+        int matchEnd = offset;
+        for (int i = offset; i < key.length(); i++) {
             char k = key.charAt(i);
 
             if (sanitizer != null) {
@@ -191,12 +209,13 @@ public class Trie<V>
             else {
                 if (cur.set) {
                     match = cur;
+                    matchEnd = i + 1;
                 }
             }
             last = cur;
         }
 
-        return match != null ? new MatchedNode(match, i - offset) : null;
+        return match != null ? new MatchedNode(match, matchEnd - offset) : null;
     }
 
     /**
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.StringMatchingRecommender.DictEntry;
+
+public class CompactTrieTest
+{
+    @Test
+    public void thatElementsCanBeRetrieved()
+    {
+        List<String> keys = asList("1", "asf", "asf sadf", "dsjkla sfasd kj92");
+
+        var trie = new Trie<DictEntry>();
+        for (String key : keys) {
+            trie.put(key, new DictEntry(key));
+        }
+
+        var sut = trie.compact();
+
+        assertThat(sut.size()).isEqualTo(keys.size());
+        for (String key : keys) {
+            assertThat(sut.get(key)).isSameAs(trie.get(key));
+        }
+        assertThat(sut.get("as")).isNull();
+        assertThat(sut.get("asf sadfx")).isNull();
+    }
+
+    @Test
+    public void thatLongestMatchIsFound()
+    {
+        var trie = new Trie<DictEntry>();
+        trie.put("new", new DictEntry("new"));
+        trie.put("new york", new DictEntry("new york"));
+        trie.put("new york city hall", new DictEntry("new york city hall"));
+
+        var sut = trie.compact();
+
+        var match = sut.getNode("I love new york city.", 7);
+        assertThat(match.matchLength()).isEqualTo(8);
+        assertThat(match.value()).isSameAs(trie.get("new york"));
+        assertThat(trie.getNode("I love new york city.", 7).matchLength).isEqualTo(8);
+
+        assertThat(sut.getNode("I love new york city.", 0)).isNull();
+    }
+
+    @Test
+    public void thatKeySanitizerIsApplied()
+    {
+        var trie = new Trie<DictEntry>(WhitespaceNormalizingSanitizer.factory());
+        trie.put("  this is\ta test\n  .", new DictEntry("exists"));
+
+        var sut = trie.compact();
+
+        assertThat(sut.get("this is a test .")).isNotNull();
+        assertThat(sut.getNode("this is a test .", 0).matchLength()).isEqualTo(16);
+        assertThat(sut.getNode("  this is\ta test  .", 0).matchLength()).isEqualTo(19);
+    }
+
+    @Test
+    public void thatEntriesAreVisitedInSortedOrder()
+    {
+        List<String> keys = asList("b", "ab", "a", "abc", "ba", "c");
+
+        var trie = new Trie<DictEntry>();
+        for (String key : keys) {
+            trie.put(key, new DictEntry(key));
+        }
+
+        var visited = new ArrayList<String>();
+        trie.compact().forEach((key, value) -> visited.add(key));
+
+        assertThat(visited).containsExactly("a", "ab", "abc", "b", "ba", "c");
+        assertThat(trie.compact().toTrie().keys()).containsExactlyInAnyOrderElementsOf(keys);
+    }
+}
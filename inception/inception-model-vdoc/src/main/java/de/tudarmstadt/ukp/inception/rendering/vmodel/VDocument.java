@@ -257,6 +257,39 @@ public class VDocument
         return Collections.unmodifiableCollection(annotationLayers.values());
     }
 
+    /**
+     * Adds all objects, comments and markers from the given document to this document. This is
+     * used to combine documents which have been rendered independently, e.g. in parallel. The
+     * result is the same as if the objects had been rendered into this document directly. In
+     * particular, placeholders are only added if there is no real object with the same VID and
+     * objects which already exist with the same VID (e.g. the anchors for arcs which are clipped
+     * at the window boundaries) are kept.
+     * 
+     * @param aOther
+     *            the document to merge into this document.
+     */
+    public void merge(VDocument aOther)
+    {
+        for (var span : aOther.spans.values()) {
+            var existing = spans.get(span.getVid());
+            if (existing != null && !existing.isPlaceholder() && !span.isPlaceholder()) {
+                continue;
+            }
+            add(span);
+        }
+
+        for (var arc : aOther.arcs.values()) {
+            var existing = arcs.get(arc.getVid());
+            if (existing != null && !existing.isPlaceholder() && !arc.isPlaceholder()) {
+                continue;
+            }
+            add(arc);
+        }
+
+        aOther.comments.values().forEach(this::add);
+        aOther.markers.forEach(this::add);
+    }
+
     public void add(VObject aVobj)
     {
         if (aVobj instanceof VSpan) {
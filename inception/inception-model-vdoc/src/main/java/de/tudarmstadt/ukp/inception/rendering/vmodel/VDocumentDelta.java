@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.rendering.vmodel;
+
+import static java.util.Collections.unmodifiableSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.commons.collections4.ListValuedMap;
+import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
+
+/**
+ * Structural difference between two renderings of the same viewport. Spans and arcs are matched by
+ * their {@link VID}. Comments are considered part of the object they are attached to.
+ */
+public class VDocumentDelta
+{
+    private final Set<VID> added;
+    private final Set<VID> removed;
+    private final Set<VID> changed;
+    private final boolean documentChanged;
+
+    private VDocumentDelta(Set<VID> aAdded, Set<VID> aRemoved, Set<VID> aChanged,
+            boolean aDocumentChanged)
+    {
+        added = unmodifiableSet(aAdded);
+        removed = unmodifiableSet(aRemoved);
+        changed = unmodifiableSet(aChanged);
+        documentChanged = aDocumentChanged;
+    }
+
+    /**
+     * @return the VIDs of the spans and arcs which are only present in the new document.
+     */
+    public Set<VID> getAdded()
+    {
+        return added;
+    }
+
+    /**
+     * @return the VIDs of the spans and arcs which are only present in the old document.
+     */
+    public Set<VID> getRemoved()
+    {
+        return removed;
+    }
+
+    /**
+     * @return the VIDs of the spans and arcs which are present in both documents but differ in
+     *         their properties or comments.
+     */
+    public Set<VID> getChanged()
+    {
+        return changed;
+    }
+
+    /**
+     * @return whether properties of the document which are not bound to a particular span or arc
+     *         changed, i.e. the text, the window or the markers.
+     */
+    public boolean isDocumentChanged()
+    {
+        return documentChanged;
+    }
+
+    public boolean isEmpty()
+    {
+        return !documentChanged && added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "VDocumentDelta [added=" + added.size() + ", removed=" + removed.size()
+                + ", changed=" + changed.size() + ", documentChanged=" + documentChanged + "]";
+    }
+
+    /**
+     * Calculates the difference between two renderings of the same viewport.
+     * 
+     * @param aOld
+     *            the previous rendering. If this is {@code null}, all objects of the new rendering
+     *            are considered to be added.
+     * @param aNew
+     *            the current rendering.
+     * @return the difference.
+     */
+    public static VDocumentDelta of(VDocument aOld, VDocument aNew)
+    {
+        var added = new LinkedHashSet<VID>();
+        var removed = new LinkedHashSet<VID>();
+        var changed = new LinkedHashSet<VID>();
+
+        if (aOld == null) {
+            added.addAll(aNew.getSpans().keySet());
+            added.addAll(aNew.getArcs().keySet());
+            return new VDocumentDelta(added, removed, changed, true);
+        }
+
+        var oldComments = commentsByVid(aOld);
+        var newComments = commentsByVid(aNew);
+
+        compare(aOld.getSpans(), aNew.getSpans(), oldComments, newComments, added, removed,
+                changed);
+        compare(aOld.getArcs(), aNew.getArcs(), oldComments, newComments, added, removed,
+                changed);
+
+        var documentChanged = aOld.getWindowBegin() != aNew.getWindowBegin()
+                || aOld.getWindowEnd() != aNew.getWindowEnd()
+                || !Objects.equals(aOld.getText(), aNew.getText())
+                || !markerKeys(aOld.getMarkers()).equals(markerKeys(aNew.getMarkers()));
+
+        return new VDocumentDelta(added, removed, changed, documentChanged);
+    }
+
+    private static <T extends VObject> void compare(Map<VID, T> aOld, Map<VID, T> aNew,
+            ListValuedMap<VID, VComment> aOldComments, ListValuedMap<VID, VComment> aNewComments,
+            Set<VID> aAdded, Set<VID> aRemoved, Set<VID> aChanged)
+    {
+        for (var oldObject : aOld.values()) {
+            var vid = oldObject.getVid();
+            var newObject = aNew.get(vid);
+            if (newObject == null) {
+                aRemoved.add(vid);
+            }
+            else if (!sameObject(oldObject, newObject)
+                    || !sameComments(aOldComments.get(vid), aNewComments.get(vid))) {
+                aChanged.add(vid);
+            }
+        }
+
+        for (var vid : aNew.keySet()) {
+            if (!aOld.containsKey(vid)) {
+                aAdded.add(vid);
+            }
+        }
+    }
+
+    private static boolean sameObject(VObject aOld, VObject aNew)
+    {
+        if (aOld.getClass() != aNew.getClass()) {
+            return false;
+        }
+
+        var same = Objects.equals(aOld.getLayer().getId(), aNew.getLayer().getId())
+                && aOld.getEquivalenceSet() == aNew.getEquivalenceSet()
+                && aOld.getScore() == aNew.getScore() //
+                && aOld.isHideScore() == aNew.isHideScore()
+                && aOld.isActionButtons() == aNew.isActionButtons()
+                && aOld.isPlaceholder() == aNew.isPlaceholder()
+                && Objects.equals(aOld.getColorHint(), aNew.getColorHint())
+                && Objects.equals(aOld.getLabelHint(), aNew.getLabelHint())
+                && Objects.equals(aOld.getFeatures(), aNew.getFeatures());
+
+        if (!same) {
+            return false;
+        }
+
+        if (aOld instanceof VSpan oldSpan && aNew instanceof VSpan newSpan) {
+            return sameRanges(oldSpan.getRanges(), newSpan.getRanges());
+        }
+
+        if (aOld instanceof VArc oldArc && aNew instanceof VArc newArc) {
+            return Objects.equals(oldArc.getSource(), newArc.getSource())
+                    && Objects.equals(oldArc.getTarget(), newArc.getTarget());
+        }
+
+        return true;
+    }
+
+    private static boolean sameRanges(List<VRange> aOld, List<VRange> aNew)
+    {
+        if (aOld.size() != aNew.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < aOld.size(); i++) {
+            var oldRange = aOld.get(i);
+            var newRange = aNew.get(i);
+            if (oldRange.getBegin() != newRange.getBegin() //
+                    || oldRange.getEnd() != newRange.getEnd()
+                    || oldRange.getOriginalBegin() != newRange.getOriginalBegin()
+                    || oldRange.getOriginalEnd() != newRange.getOriginalEnd()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean sameComments(List<VComment> aOld, List<VComment> aNew)
+    {
+        if (aOld.size() != aNew.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < aOld.size(); i++) {
+            var oldComment = aOld.get(i);
+            var newComment = aNew.get(i);
+            if (oldComment.getCommentType() != newComment.getCommentType()
+                    || !Objects.equals(oldComment.getComment(), newComment.getComment())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static ListValuedMap<VID, VComment> commentsByVid(VDocument aDocument)
+    {
+        var comments = new ArrayListValuedHashMap<VID, VComment>();
+        for (var comment : aDocument.comments()) {
+            comments.put(comment.getVid(), comment);
+        }
+        return comments;
+    }
+
+    private static List<String> markerKeys(Collection<VMarker> aMarkers)
+    {
+        var keys = new ArrayList<String>(aMarkers.size());
+        for (var marker : aMarkers) {
+            var key = new StringBuilder();
+            key.append(marker.getClass().getSimpleName()).append(':').append(marker.getType());
+            if (marker instanceof VAnnotationMarker annotationMarker) {
+                key.append(':').append(annotationMarker.getVid());
+            }
+            else if (marker instanceof VTextMarker textMarker) {
+                key.append(':').append(textMarker.getRange().getOriginalBegin());
+                key.append('-').append(textMarker.getRange().getOriginalEnd());
+            }
+            else if (marker instanceof VSentenceMarker sentenceMarker) {
+                key.append(':').append(sentenceMarker.getIndex());
+            }
+            else {
+                key.append(':').append(System.identityHashCode(marker));
+            }
+            keys.add(key.toString());
+        }
+        return keys;
+    }
+}
@@ -97,6 +97,18 @@ public class VRange
         return originalEnd != end;
     }
 
+    /**
+     * @param aOffset
+     *            offset to add to the range, e.g. to make it relative to a viewport starting
+     *            before the one the range is currently relative to.
+     * @return the moved range. Whether the range is clipped is retained.
+     */
+    public VRange shift(int aOffset)
+    {
+        return new VRange(originalBegin + aOffset, originalEnd + aOffset, begin + aOffset,
+                end + aOffset);
+    }
+
     public static Optional<VRange> clippedRange(int aViewportBegin, int aViewPortEnd,
             AnnotationFS aAnnotation)
     {
@@ -147,7 +147,7 @@ public class PdfAnnoRendererTest
                         constraintsService)));
         layerRegistry.init();
 
-        preRenderer = new PreRendererImpl(layerRegistry, schemaService);
+        preRenderer = new PreRendererImpl(layerRegistry, featureSupportRegistry, schemaService);
     }
 
     @Test
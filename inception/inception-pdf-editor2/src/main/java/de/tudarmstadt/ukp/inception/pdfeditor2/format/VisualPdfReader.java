@@ -17,6 +17,8 @@
  */
 package de.tudarmstadt.ukp.inception.pdfeditor2.format;
 
+import static de.tudarmstadt.ukp.inception.pdfeditor2.visual.model.VPageColumns.CHUNK_STRIDE;
+
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.ArrayList;
@@ -39,6 +41,7 @@ import de.tudarmstadt.ukp.inception.pdfeditor2.visual.model.VChunk;
 import de.tudarmstadt.ukp.inception.pdfeditor2.visual.model.VGlyph;
 import de.tudarmstadt.ukp.inception.pdfeditor2.visual.model.VModel;
 import de.tudarmstadt.ukp.inception.pdfeditor2.visual.model.VPage;
+import de.tudarmstadt.ukp.inception.pdfeditor2.visual.model.VPageColumns;
 
 public class VisualPdfReader
     extends JCasResourceCollectionReader_ImplBase
@@ -123,51 +126,13 @@ public class VisualPdfReader
                 List<VGlyph> vGlyphs = new ArrayList<>();
                 IntegerArray charWidths = pdfChunk.getC();
                 FloatArray glyphStarts = pdfChunk.getG();
-
-                var rtl = glyphStarts.get(glyphStarts.size() - 1) == pdfChunk.getX();
-
-                float b0, le, ef;
-                switch ((int) d) {
-                case 0:
-                    b0 = pdfChunk.getX();
-                    le = pdfChunk.getW();
-                    ef = 1;
-                    break;
-                case 90:
-                    b0 = pdfChunk.getY();
-                    le = pdfChunk.getH();
-                    ef = 1;
-                    break;
-                case 180:
-                    b0 = pdfChunk.getX() + pdfChunk.getW();
-                    le = pdfChunk.getW();
-                    ef = -1;
-                    break;
-                case 270:
-                    b0 = pdfChunk.getY() + pdfChunk.getH();
-                    le = pdfChunk.getH();
-                    ef = -1;
-                    break;
-                default:
-                    throw new IllegalStateException(
-                            "Only directions 0, 90, 180, 270 supported: " + d);
-                }
+                float[] glyphExtents = glyphExtents(pdfChunk);
 
                 int begin = pdfChunk.getBegin();
                 int glyphCount = glyphStarts.size();
                 for (int i = 0; i < glyphCount; i++) {
-
-                    float b, e;
-                    if (rtl) {
-                        var isFirstGlyphInChunk = i == 0;
-                        b = glyphStarts.get(i);
-                        e = ((isFirstGlyphInChunk ? b0 + le : glyphStarts.get(i - 1)) - b) * ef;
-                    }
-                    else {
-                        var isLastGlyphInChunk = i == glyphCount - 1;
-                        b = glyphStarts.get(i);
-                        e = ((isLastGlyphInChunk ? b0 + le : glyphStarts.get(i + 1)) - b) * ef;
-                    }
+                    float b = glyphStarts.get(i);
+                    float e = glyphExtents[i];
 
                     // assert e >= 0;
                     float x = (d == 0 || d == 180) ? b : pdfChunk.getX();
@@ -196,4 +161,115 @@ public class VisualPdfReader
         return vModel;
     }
 
+    /**
+     * Creates a columnar visual model of the given pages. In contrast to
+     * {@link #visualModelFromCas}, this does not create any per-glyph objects or strings.
+     * 
+     * @param cas
+     *            the CAS containing the {@link PdfPage} and {@link PdfChunk} annotations.
+     * @param pdfPages
+     *            the pages to create the model for.
+     * @return the columnar model of the pages.
+     */
+    public static List<VPageColumns> visualModelColumnsFromCas(CAS cas, List<PdfPage> pdfPages)
+    {
+        var vPages = new ArrayList<VPageColumns>(pdfPages.size());
+        for (var pdfPage : pdfPages) {
+            var pdfChunks = cas.select(PdfChunk.class).coveredBy(pdfPage).asList();
+            int glyphCount = pdfChunks.stream().mapToInt(c -> c.getG().size()).sum();
+
+            var chunkGeometry = new float[pdfChunks.size() * CHUNK_STRIDE];
+            var chunkGlyphs = new int[pdfChunks.size() + 1];
+            var glyphBegins = new int[glyphCount];
+            var glyphEnds = new int[glyphCount];
+            var glyphBases = new float[glyphCount];
+            var glyphExtents = new float[glyphCount];
+
+            int c = 0;
+            int g = 0;
+            for (var pdfChunk : pdfChunks) {
+                chunkGeometry[c * CHUNK_STRIDE] = pdfChunk.getD();
+                chunkGeometry[c * CHUNK_STRIDE + 1] = pdfChunk.getX();
+                chunkGeometry[c * CHUNK_STRIDE + 2] = pdfChunk.getY();
+                chunkGeometry[c * CHUNK_STRIDE + 3] = pdfChunk.getW();
+                chunkGeometry[c * CHUNK_STRIDE + 4] = pdfChunk.getH();
+                chunkGlyphs[c] = g;
+
+                var charWidths = pdfChunk.getC();
+                var glyphStarts = pdfChunk.getG();
+                var chunkGlyphExtents = glyphExtents(pdfChunk);
+                int begin = pdfChunk.getBegin() - pdfPage.getBegin();
+                for (int i = 0; i < glyphStarts.size(); i++) {
+                    glyphBegins[g] = begin;
+                    begin += charWidths.get(i);
+                    glyphEnds[g] = begin;
+                    glyphBases[g] = glyphStarts.get(i);
+                    glyphExtents[g] = chunkGlyphExtents[i];
+                    g++;
+                }
+                c++;
+            }
+            chunkGlyphs[c] = g;
+
+            vPages.add(new VPageColumns(pdfPage.getPageNumber(), pdfPage.getWidth(),
+                    pdfPage.getHeight(), pdfPage.getBegin(), pdfPage.getEnd(),
+                    pdfPage.getCoveredText(), chunkGeometry, chunkGlyphs, glyphBegins, glyphEnds,
+                    glyphBases, glyphExtents));
+        }
+        return vPages;
+    }
+
+    /**
+     * @return the extent of each glyph in the chunk along the writing direction. The extent of a
+     *         glyph is the distance to the start of the next glyph or for the last glyph to the
+     *         end of the chunk.
+     */
+    private static float[] glyphExtents(PdfChunk pdfChunk)
+    {
+        float d = pdfChunk.getD();
+        FloatArray glyphStarts = pdfChunk.getG();
+
+        var rtl = glyphStarts.get(glyphStarts.size() - 1) == pdfChunk.getX();
+
+        float b0, le, ef;
+        switch ((int) d) {
+        case 0:
+            b0 = pdfChunk.getX();
+            le = pdfChunk.getW();
+            ef = 1;
+            break;
+        case 90:
+            b0 = pdfChunk.getY();
+            le = pdfChunk.getH();
+            ef = 1;
+            break;
+        case 180:
+            b0 = pdfChunk.getX() + pdfChunk.getW();
+            le = pdfChunk.getW();
+            ef = -1;
+            break;
+        case 270:
+            b0 = pdfChunk.getY() + pdfChunk.getH();
+            le = pdfChunk.getH();
+            ef = -1;
+            break;
+        default:
+            throw new IllegalStateException("Only directions 0, 90, 180, 270 supported: " + d);
+        }
+
+        int glyphCount = glyphStarts.size();
+        var extents = new float[glyphCount];
+        for (int i = 0; i < glyphCount; i++) {
+            float b = glyphStarts.get(i);
+            if (rtl) {
+                var isFirstGlyphInChunk = i == 0;
+                extents[i] = ((isFirstGlyphInChunk ? b0 + le : glyphStarts.get(i - 1)) - b) * ef;
+            }
+            else {
+                var isLastGlyphInChunk = i == glyphCount - 1;
+                extents[i] = ((isLastGlyphInChunk ? b0 + le : glyphStarts.get(i + 1)) - b) * ef;
+            }
+        }
+        return extents;
+    }
 }
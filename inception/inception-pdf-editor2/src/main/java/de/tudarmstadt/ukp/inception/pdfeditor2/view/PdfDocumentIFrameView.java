@@ -17,13 +17,12 @@
  */
 package de.tudarmstadt.ukp.inception.pdfeditor2.view;
 
+import static java.util.Collections.emptyList;
+
 import java.io.IOException;
-import java.io.StringWriter;
 import java.time.Duration;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.apache.pdfbox.Loader;
-import org.apache.uima.cas.CAS;
 import org.apache.wicket.ajax.AbstractDefaultAjaxBehavior;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.behavior.AbstractAjaxBehavior;
@@ -34,24 +33,21 @@ import org.apache.wicket.model.IModel;
 import org.apache.wicket.request.Url;
 import org.apache.wicket.request.UrlRenderer;
 import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.handler.resource.ResourceRequestHandler;
 import org.apache.wicket.request.handler.resource.ResourceStreamRequestHandler;
+import org.apache.wicket.request.resource.ByteArrayResource;
 import org.apache.wicket.request.resource.ContentDisposition;
 import org.apache.wicket.spring.injection.annot.SpringBean;
-import org.apache.wicket.util.resource.StringResourceStream;
-import org.dkpro.core.api.pdf.type.PdfPage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
-import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
 import de.tudarmstadt.ukp.inception.documents.api.DocumentStorageService;
 import de.tudarmstadt.ukp.inception.pdfeditor2.PdfAnnotationEditor;
-import de.tudarmstadt.ukp.inception.pdfeditor2.format.VisualPdfReader;
 import de.tudarmstadt.ukp.inception.pdfeditor2.view.pdfjs.PdfJsViewerPage;
-import de.tudarmstadt.ukp.inception.pdfeditor2.visual.VisualPDFTextStripper;
-import de.tudarmstadt.ukp.inception.pdfeditor2.visual.model.VModel;
+import de.tudarmstadt.ukp.inception.pdfeditor2.visual.VModelBinarySerializer;
+import de.tudarmstadt.ukp.inception.pdfeditor2.visual.VModelCache;
 import de.tudarmstadt.ukp.inception.schema.api.adapter.AnnotationException;
-import de.tudarmstadt.ukp.inception.support.json.JSONUtil;
 import de.tudarmstadt.ukp.inception.support.wicket.WicketExceptionUtil;
 
 public class PdfDocumentIFrameView
@@ -61,8 +57,12 @@ public class PdfDocumentIFrameView
 
     private static final long serialVersionUID = 4202869513273132875L;
 
-    private @SpringBean DocumentService documentService;
+    private static final String PARAM_PAGE_TABLE = "pageTable";
+    private static final String PARAM_FROM = "from";
+    private static final String PARAM_TO = "to";
+
     private @SpringBean DocumentStorageService documentStorageService;
+    private @SpringBean VModelCache vModelCache;
 
     private AbstractAjaxBehavior pdfProvider;
     private AbstractAjaxBehavior vModelProvider;
@@ -112,25 +112,22 @@ public class PdfDocumentIFrameView
     private void sendVModel(IModel<SourceDocument> aDoc, AjaxRequestTarget aTarget)
     {
         try {
-            CAS cas = documentService.createOrReadInitialCas(aDoc.getObject());
+            var pages = vModelCache.getPages(aDoc.getObject());
 
-            VModel vModel;
-            var pdfPages = cas.select(PdfPage.class).asList();
-            if (!pdfPages.isEmpty()) {
-                vModel = VisualPdfReader.visualModelFromCas(cas, pdfPages);
-            }
-            else {
-                vModel = visualModelFromPdfSource();
-            }
+            var params = getRequest().getRequestParameters();
+            var includePageTable = params.getParameterValue(PARAM_PAGE_TABLE).toBoolean(false);
+            var from = params.getParameterValue(PARAM_FROM).toInt(0);
+            var to = params.getParameterValue(PARAM_TO).toInt(Integer.MAX_VALUE);
 
-            String json = JSONUtil.toJsonString(vModel);
+            var requestedPages = pages.stream() //
+                    .filter(p -> from <= p.getIndex() && p.getIndex() < to) //
+                    .toList();
 
-            StringResourceStream resource = new StringResourceStream(json, "application/json");
+            var data = new VModelBinarySerializer()
+                    .serialize(includePageTable ? pages : emptyList(), requestedPages);
 
-            ResourceStreamRequestHandler handler = new ResourceStreamRequestHandler(resource);
-            handler.setFileName("vmodel.json");
-            handler.setCacheDuration(Duration.ofSeconds(1));
-            handler.setContentDisposition(ContentDisposition.INLINE);
+            var resource = new ByteArrayResource("application/octet-stream", data, "vmodel.bin");
+            var handler = new ResourceRequestHandler(resource, null);
 
             getRequestCycle().scheduleRequestHandlerAfterCurrent(handler);
         }
@@ -140,18 +137,6 @@ public class PdfDocumentIFrameView
         }
     }
 
-    private VModel visualModelFromPdfSource() throws IOException
-    {
-        LOG.trace("Loading visual model from source");
-        var pdfFile = documentStorageService.getSourceDocumentFile(getModel().getObject());
-        try (var doc = Loader.loadPDF(pdfFile)) {
-            var extractor = new VisualPDFTextStripper();
-            extractor.writeText(doc, new StringWriter());
-            return extractor.getVisualModel();
-        }
-
-    }
-
     @Override
     protected void onComponentTag(ComponentTag aTag)
     {
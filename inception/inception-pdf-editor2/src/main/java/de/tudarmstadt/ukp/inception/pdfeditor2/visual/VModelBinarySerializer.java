@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.pdfeditor2.visual;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import de.tudarmstadt.ukp.inception.pdfeditor2.visual.model.VPageColumns;
+
+/**
+ * Serializes {@link VPageColumns} into a compact little-endian binary format. All values are 32
+ * bits wide, so the arrays can be mapped directly to typed arrays on the client side.
+ * 
+ * <pre>
+ * int32   version
+ * int32   page table size N (0 if the page table is not included)
+ * N x     int32 index, int32 begin, int32 end, float32 width, float32 height
+ * int32   number of pages M
+ * M x     int32 index
+ *         int32 begin
+ *         int32 end
+ *         int32 text length T (UTF-16 code units)
+ *         int32 chunk count C
+ *         int32 glyph count G
+ *         T x uint16 text (padded to a multiple of 4 bytes)
+ *         5C x float32 chunk geometry (dir, x, y, w, h)
+ *         C+1 x int32 first glyph of each chunk
+ *         G x int32 glyph begin (relative to the page begin)
+ *         G x int32 glyph end (relative to the page begin)
+ *         G x float32 glyph base
+ *         G x float32 glyph extent
+ * </pre>
+ */
+public class VModelBinarySerializer
+{
+    public static final int VERSION = 1;
+
+    private static final int PAGE_TABLE_ENTRY_SIZE = 5 * Integer.BYTES;
+
+    public byte[] serialize(List<VPageColumns> aPageTable, List<VPageColumns> aPages)
+    {
+        int size = 3 * Integer.BYTES + aPageTable.size() * PAGE_TABLE_ENTRY_SIZE;
+        for (var page : aPages) {
+            size += pageSize(page);
+        }
+
+        var buf = ByteBuffer.allocate(size).order(LITTLE_ENDIAN);
+
+        buf.putInt(VERSION);
+
+        buf.putInt(aPageTable.size());
+        for (var page : aPageTable) {
+            buf.putInt(page.getIndex());
+            buf.putInt(page.getBegin());
+            buf.putInt(page.getEnd());
+            buf.putFloat(page.getWidth());
+            buf.putFloat(page.getHeight());
+        }
+
+        buf.putInt(aPages.size());
+        for (var page : aPages) {
+            writePage(buf, page);
+        }
+
+        return buf.array();
+    }
+
+    private static int pageSize(VPageColumns aPage)
+    {
+        return 6 * Integer.BYTES //
+                + paddedTextSize(aPage.getText()) //
+                + aPage.getChunkGeometry().length * Float.BYTES //
+                + aPage.getChunkGlyphs().length * Integer.BYTES //
+                + aPage.getGlyphCount() * 4 * Integer.BYTES;
+    }
+
+    private static int paddedTextSize(String aText)
+    {
+        int bytes = aText.length() * Character.BYTES;
+        return (bytes + 3) & ~3;
+    }
+
+    private static void writePage(ByteBuffer aBuf, VPageColumns aPage)
+    {
+        var text = aPage.getText();
+
+        aBuf.putInt(aPage.getIndex());
+        aBuf.putInt(aPage.getBegin());
+        aBuf.putInt(aPage.getEnd());
+        aBuf.putInt(text.length());
+        aBuf.putInt(aPage.getChunkCount());
+        aBuf.putInt(aPage.getGlyphCount());
+
+        int textStart = aBuf.position();
+        for (int i = 0; i < text.length(); i++) {
+            aBuf.putChar(text.charAt(i));
+        }
+        aBuf.position(textStart + paddedTextSize(text));
+
+        aBuf.asFloatBuffer().put(aPage.getChunkGeometry());
+        skip(aBuf, aPage.getChunkGeometry().length * Float.BYTES);
+        aBuf.asIntBuffer().put(aPage.getChunkGlyphs());
+        skip(aBuf, aPage.getChunkGlyphs().length * Integer.BYTES);
+        aBuf.asIntBuffer().put(aPage.getGlyphBegins());
+        skip(aBuf, aPage.getGlyphCount() * Integer.BYTES);
+        aBuf.asIntBuffer().put(aPage.getGlyphEnds());
+        skip(aBuf, aPage.getGlyphCount() * Integer.BYTES);
+        aBuf.asFloatBuffer().put(aPage.getGlyphBases());
+        skip(aBuf, aPage.getGlyphCount() * Float.BYTES);
+        aBuf.asFloatBuffer().put(aPage.getGlyphExtents());
+        skip(aBuf, aPage.getGlyphCount() * Float.BYTES);
+    }
+
+    private static void skip(ByteBuffer aBuf, int aBytes)
+    {
+        aBuf.position(aBuf.position() + aBytes);
+    }
+}
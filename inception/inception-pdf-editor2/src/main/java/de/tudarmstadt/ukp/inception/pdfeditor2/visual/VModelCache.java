@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.pdfeditor2.visual;
+
+import static de.tudarmstadt.ukp.inception.support.WebAnnoConst.INITIAL_CAS_PSEUDO_USER;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+
+import org.apache.pdfbox.Loader;
+import org.dkpro.core.api.pdf.type.PdfPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
+import de.tudarmstadt.ukp.inception.documents.api.DocumentStorageService;
+import de.tudarmstadt.ukp.inception.pdfeditor2.config.PdfAnnotationEditor2SupportAutoConfiguration;
+import de.tudarmstadt.ukp.inception.pdfeditor2.format.VisualPdfReader;
+import de.tudarmstadt.ukp.inception.pdfeditor2.visual.model.VPageColumns;
+
+/**
+ * Keeps the visual models of recently viewed documents so that the PDF editor can request them
+ * page by page without the initial CAS having to be read and converted again on every request.
+ * Entries are keyed by the timestamp of the initial CAS, so a changed initial CAS is picked up
+ * automatically. Entries are weighed by the size of their page arrays, so a few very large
+ * documents cannot use up the memory.
+ * <p>
+ * This class is exposed as a Spring Component via
+ * {@link PdfAnnotationEditor2SupportAutoConfiguration#vModelCache}.
+ * </p>
+ */
+public class VModelCache
+{
+    private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private static final long MAX_SIZE_KB = 128 * 1024;
+    private static final int EXPIRE_MINUTES = 10;
+
+    private final DocumentService documentService;
+    private final DocumentStorageService documentStorageService;
+
+    private final Cache<Key, List<VPageColumns>> pagesCache;
+
+    public VModelCache(DocumentService aDocumentService,
+            DocumentStorageService aDocumentStorageService)
+    {
+        documentService = aDocumentService;
+        documentStorageService = aDocumentStorageService;
+        pagesCache = Caffeine.newBuilder() //
+                .maximumWeight(MAX_SIZE_KB) //
+                .weigher(VModelCache::weigh) //
+                .expireAfterAccess(EXPIRE_MINUTES, MINUTES) //
+                .build();
+    }
+
+    /**
+     * @param aDocument
+     *            the document.
+     * @return the visual model of all pages of the given document.
+     * @throws IOException
+     *             if the visual model could not be created.
+     */
+    public List<VPageColumns> getPages(SourceDocument aDocument) throws IOException
+    {
+        var timestamp = documentService.getAnnotationCasTimestamp(aDocument,
+                INITIAL_CAS_PSEUDO_USER);
+        if (timestamp.isPresent()) {
+            var pages = pagesCache.getIfPresent(new Key(aDocument.getId(), timestamp.get()));
+            if (pages != null) {
+                return pages;
+            }
+        }
+
+        var pages = loadPages(aDocument);
+
+        // Reading the initial CAS may just have created it, so we need to obtain the timestamp
+        // again
+        documentService.getAnnotationCasTimestamp(aDocument, INITIAL_CAS_PSEUDO_USER) //
+                .ifPresent(ts -> pagesCache.put(new Key(aDocument.getId(), ts), pages));
+
+        return pages;
+    }
+
+    private List<VPageColumns> loadPages(SourceDocument aDocument) throws IOException
+    {
+        var cas = documentService.createOrReadInitialCas(aDocument);
+
+        var pdfPages = cas.select(PdfPage.class).asList();
+        if (!pdfPages.isEmpty()) {
+            return VisualPdfReader.visualModelColumnsFromCas(cas, pdfPages);
+        }
+
+        LOG.trace("Loading visual model from source");
+        var pdfFile = documentStorageService.getSourceDocumentFile(aDocument);
+        try (var doc = Loader.loadPDF(pdfFile)) {
+            var extractor = new VisualPDFTextStripper();
+            extractor.writeText(doc, new StringWriter());
+            return extractor.getVisualModel().getPages().stream() //
+                    .map(VPageColumns::of) //
+                    .toList();
+        }
+    }
+
+    private static int weigh(Key aKey, List<VPageColumns> aPages)
+    {
+        var bytes = aPages.stream().mapToLong(VPageColumns::getSizeInBytes).sum();
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, bytes / 1024));
+    }
+
+    private static record Key(long documentId, long timestamp) {}
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.pdfeditor2.visual.model;
+
+import java.io.Serializable;
+
+/**
+ * Columnar representation of the visual model of a single page. Instead of one object per glyph,
+ * the glyph geometry is kept in primitive arrays and the glyph text is represented by offsets into
+ * the page text.
+ * <ul>
+ * <li>The geometry of chunk {@code i} is stored in {@link #getChunkGeometry()} at
+ * {@code i * CHUNK_STRIDE} in the order {@code dir, x, y, w, h}.</li>
+ * <li>The glyphs of chunk {@code i} range from {@code getChunkGlyphs()[i]} (inclusive) to
+ * {@code getChunkGlyphs()[i + 1]} (exclusive).</li>
+ * <li>Glyph offsets are relative to the begin of the page.</li>
+ * </ul>
+ */
+public class VPageColumns
+    implements Serializable
+{
+    private static final long serialVersionUID = 2871683462196402286L;
+
+    public static final int CHUNK_STRIDE = 5;
+
+    private final int index;
+    private final float width;
+    private final float height;
+    private final int begin;
+    private final int end;
+    private final String text;
+    private final float[] chunkGeometry;
+    private final int[] chunkGlyphs;
+    private final int[] glyphBegins;
+    private final int[] glyphEnds;
+    private final float[] glyphBases;
+    private final float[] glyphExtents;
+
+    public VPageColumns(int aIndex, float aWidth, float aHeight, int aBegin, int aEnd,
+            String aText, float[] aChunkGeometry, int[] aChunkGlyphs, int[] aGlyphBegins,
+            int[] aGlyphEnds, float[] aGlyphBases, float[] aGlyphExtents)
+    {
+        index = aIndex;
+        width = aWidth;
+        height = aHeight;
+        begin = aBegin;
+        end = aEnd;
+        text = aText;
+        chunkGeometry = aChunkGeometry;
+        chunkGlyphs = aChunkGlyphs;
+        glyphBegins = aGlyphBegins;
+        glyphEnds = aGlyphEnds;
+        glyphBases = aGlyphBases;
+        glyphExtents = aGlyphExtents;
+    }
+
+    public static VPageColumns of(VPage aPage)
+    {
+        var chunks = aPage.getChunks();
+        int glyphCount = chunks.stream().mapToInt(c -> c.getGlyphs().size()).sum();
+
+        var chunkGeometry = new float[chunks.size() * CHUNK_STRIDE];
+        var chunkGlyphs = new int[chunks.size() + 1];
+        var glyphBegins = new int[glyphCount];
+        var glyphEnds = new int[glyphCount];
+        var glyphBases = new float[glyphCount];
+        var glyphExtents = new float[glyphCount];
+
+        int c = 0;
+        int g = 0;
+        for (var chunk : chunks) {
+            chunkGeometry[c * CHUNK_STRIDE] = chunk.getDir();
+            chunkGeometry[c * CHUNK_STRIDE + 1] = chunk.getX();
+            chunkGeometry[c * CHUNK_STRIDE + 2] = chunk.getY();
+            chunkGeometry[c * CHUNK_STRIDE + 3] = chunk.getW();
+            chunkGeometry[c * CHUNK_STRIDE + 4] = chunk.getH();
+            chunkGlyphs[c] = g;
+            for (var glyph : chunk.getGlyphs()) {
+                glyphBegins[g] = glyph.getBegin() - aPage.getBegin();
+                glyphEnds[g] = glyph.getEnd() - aPage.getBegin();
+                glyphBases[g] = glyph.getBase();
+                glyphExtents[g] = glyph.getExtent();
+                g++;
+            }
+            c++;
+        }
+        chunkGlyphs[c] = g;
+
+        return new VPageColumns(aPage.getIndex(), aPage.getWidth(), aPage.getHeight(),
+                aPage.getBegin(), aPage.getEnd(), aPage.getText(), chunkGeometry, chunkGlyphs,
+                glyphBegins, glyphEnds, glyphBases, glyphExtents);
+    }
+
+    public int getIndex()
+    {
+        return index;
+    }
+
+    public float getWidth()
+    {
+        return width;
+    }
+
+    public float getHeight()
+    {
+        return height;
+    }
+
+    public int getBegin()
+    {
+        return begin;
+    }
+
+    public int getEnd()
+    {
+        return end;
+    }
+
+    public String getText()
+    {
+        return text;
+    }
+
+    public int getChunkCount()
+    {
+        return chunkGlyphs.length - 1;
+    }
+
+    public int getGlyphCount()
+    {
+        return glyphBegins.length;
+    }
+
+    public float[] getChunkGeometry()
+    {
+        return chunkGeometry;
+    }
+
+    public int[] getChunkGlyphs()
+    {
+        return chunkGlyphs;
+    }
+
+    public int[] getGlyphBegins()
+    {
+        return glyphBegins;
+    }
+
+    public int[] getGlyphEnds()
+    {
+        return glyphEnds;
+    }
+
+    public float[] getGlyphBases()
+    {
+        return glyphBases;
+    }
+
+    public float[] getGlyphExtents()
+    {
+        return glyphExtents;
+    }
+
+    /**
+     * @return the approximate memory used by the text and the arrays of the page in bytes.
+     */
+    public long getSizeInBytes()
+    {
+        return (long) text.length() * Character.BYTES //
+                + (long) chunkGeometry.length * Float.BYTES //
+                + (long) chunkGlyphs.length * Integer.BYTES //
+                + (long) glyphBegins.length * Integer.BYTES //
+                + (long) glyphEnds.length * Integer.BYTES //
+                + (long) glyphBases.length * Float.BYTES //
+                + (long) glyphExtents.length * Float.BYTES;
+    }
+}
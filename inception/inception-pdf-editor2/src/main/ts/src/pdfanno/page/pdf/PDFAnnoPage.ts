@@ -148,15 +148,20 @@ export default class PDFAnnoPage {
     })
   }
 
-  loadVisualModel (url: string): Promise<string> {
+  /**
+   * Load the visual model of the pages in the given range (0-based, begin inclusive, end
+   * exclusive) and optionally the page table of the whole document.
+   */
+  loadVisualModel (url: string, from: number, to: number, pageTable: boolean): Promise<ArrayBuffer> {
     // add noise to the query parameters so caching is prevented
-    const antiCacheUrl = url + '&time=' + new Date().getTime()
+    const antiCacheUrl = url + `&from=${from}&to=${to}&pageTable=${pageTable}` +
+      '&time=' + new Date().getTime()
     return fetch(antiCacheUrl, {
       method: 'GET',
       mode: 'cors'
     }).then(response => {
       if (response.ok) {
-        return response.text()
+        return response.arrayBuffer()
       } else {
         throw new Error(`HTTP ${response.status} - visual model`)
       }
@@ -3,19 +3,76 @@
  */
 import { Offsets } from '@inception-project/inception-js-api'
 import { VGlyph } from '../../vmodel/VGlyph'
-import { deserializeVModelFromJson } from '../../vmodel/VModelJsonDeserializer'
+import { VModel } from '../../vmodel/VModelBinaryDeserializer'
 import { VPage } from '../../vmodel/VPage'
 
+/**
+ * Loads the glyphs of the pages in the given range (1-based, inclusive).
+ */
+export type PageLoader = (first: number, last: number) => Promise<VPage[]>
+
 /**
  * Text layer data.
  */
 let pages: VPage[] = []
 
+let pageLoader: PageLoader | undefined
+
+/**
+ * Pages which are currently being loaded.
+ */
+const pendingLoads = new Map<number, Promise<void>>()
+
 /**
  * Setup text layers.
  */
-export function setup (analyzeData: string) {
-  pages = deserializeVModelFromJson(analyzeData)
+export function setup (vModel: VModel, aPageLoader?: PageLoader) {
+  pages = vModel.pageTable
+  pageLoader = aPageLoader
+  pendingLoads.clear()
+  addPages(vModel.pages)
+}
+
+function addPages (loadedPages: VPage[]) {
+  for (const page of loadedPages) {
+    const i = pages.findIndex(p => p.index === page.index)
+    if (i >= 0) {
+      pages[i] = page
+    } else {
+      pages.push(page)
+    }
+  }
+  pages.sort((a, b) => a.index - b.index)
+}
+
+/**
+ * Make sure that the glyphs of the pages in the given range (1-based, inclusive) are available.
+ */
+export async function ensurePagesLoaded (first: number, last: number): Promise<void> {
+  const waiting: Promise<void>[] = []
+  const missing: number[] = []
+  for (const page of pages) {
+    if (page.index < first || page.index > last || page.loaded) {
+      continue
+    }
+
+    const pending = pendingLoads.get(page.index)
+    if (pending) {
+      waiting.push(pending)
+    } else {
+      missing.push(page.index)
+    }
+  }
+
+  if (missing.length && pageLoader) {
+    const load = pageLoader(Math.min(...missing), Math.max(...missing))
+      .then(loadedPages => addPages(loadedPages))
+      .finally(() => missing.forEach(i => pendingLoads.delete(i)))
+    missing.forEach(i => pendingLoads.set(i, load))
+    waiting.push(load)
+  }
+
+  await Promise.all(waiting)
 }
 
 export function getPage (num: number): VPage | undefined {
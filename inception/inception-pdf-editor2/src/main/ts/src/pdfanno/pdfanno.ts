@@ -18,11 +18,15 @@ import { createRect, mapToDocumentCoordinates, mergeRects } from './core/src/ren
 import { transform } from './core/src/render/appendChild'
 import { Rectangle } from '../vmodel/Rectangle'
 import AnnotationDetailPopOver from '@inception-project/inception-js-api/src/widget/AnnotationDetailPopOver.svelte'
+import { deserializeVModelFromBinary } from '../vmodel/VModelBinaryDeserializer'
 
 // TODO make it a global const.
 // const svgLayerId = 'annoLayer'
 export const annoLayer2Id = 'annoLayer2'
 
+// Number of pages for which the visual model is loaded together with the page table
+const INITIAL_PAGES = 3
+
 let annoPage: PDFAnnoPage
 let annotationContainer: AnnotationContainer
 let diamAjax: DiamAjax
@@ -240,6 +244,10 @@ export function scrollTo (args: { offset: number, position?: string, pingRanges?
     return
   }
 
+  textLayer.ensurePagesLoaded(page, page).then(() => scrollToPage(page, args))
+}
+
+function scrollToPage (page: number, args: { offset: number, position?: string, pingRanges?: Offsets[] }): void {
   const pingRange: Offsets = args.pingRanges && args.pingRanges.length > 0 ? args.pingRanges[0] : [args.offset, args.offset + 1]
 
   const rectangles = mapToDocumentCoordinates(getGlyphsInRange(pingRange).map(g => g.bbox))
@@ -275,6 +283,11 @@ export function scrollTo (args: { offset: number, position?: string, pingRanges?
 }
 
 export function getAnnotations () {
+  textLayer.ensurePagesLoaded(currentFocusPage - 1, currentFocusPage + 1)
+    .then(() => loadAnnotations())
+}
+
+function loadAnnotations () {
   const focusPage = textLayer.getPage(currentFocusPage)
 
   if (!focusPage) {
@@ -438,17 +451,24 @@ async function displayViewer (): Promise<void> {
   const pdfUrl = q.pdf
   const vModelUrl = q.vmodel
 
+  const loadPages = (first: number, last: number, pageTable: boolean) =>
+    annoPage.loadVisualModel(vModelUrl, first - 1, last, pageTable)
+      .then(data => deserializeVModelFromBinary(data))
+
   // Load a PDF file.
   return Promise.all([
-    annoPage.loadVisualModel(vModelUrl),
+    loadPages(1, INITIAL_PAGES, true),
     annoPage.displayViewer(getPDFName(pdfUrl), pdfUrl)
   ])
     .then(([vModel]) => {
       console.log('Loaded visual model and viewer')
 
       try {
-        // Init textLayers.
-        textLayer.setup(vModel)
+        // Init textLayers. The visual model of further pages is loaded on demand.
+        textLayer.setup(vModel, (first, last) => loadPages(first, last, false).then(m => m.pages))
+        globalThis.PDFViewerApplication.eventBus.on('pagerendered', function (e) {
+          textLayer.ensurePagesLoaded(e.pageNumber, e.pageNumber)
+        })
 
         pagechangeEventCounter = 0
         currentFocusPage = 1
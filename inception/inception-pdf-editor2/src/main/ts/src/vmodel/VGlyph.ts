@@ -17,8 +17,6 @@
  */
 
 import { Rectangle } from './Rectangle'
-import { JsonVGlyph, JsonVChunk } from './VModelJsonDeserializer'
-import { VPage } from './VPage'
 
 export class VGlyph {
   page: number
@@ -27,15 +25,11 @@ export class VGlyph {
   unicode: string
   bbox: Rectangle
 
-  constructor (aPage: VPage, aLine: JsonVChunk, aGlyph: JsonVGlyph) {
-    this.page = aPage.index
-    this.begin = aGlyph[0]
-    this.end = aGlyph[1]
-    this.unicode = aGlyph[2]
-    if (aLine[0] === 0 || aLine[0] === 180) {
-      this.bbox = new Rectangle({ p: aPage.index, x: aGlyph[3], y: aLine[2], w: aGlyph[4], h: aLine[4] })
-    } else {
-      this.bbox = new Rectangle({ p: aPage.index, x: aLine[1], y: aGlyph[3], w: aLine[3], h: aGlyph[4] })
-    }
+  constructor (aPage: number, aBegin: number, aEnd: number, aUnicode: string, aBbox: Rectangle) {
+    this.page = aPage
+    this.begin = aBegin
+    this.end = aEnd
+    this.unicode = aUnicode
+    this.bbox = aBbox
   }
 }
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import { Rectangle } from './Rectangle'
+import { VGlyph } from './VGlyph'
+import { VPage } from './VPage'
+
+const SUPPORTED_VERSION = 1
+const CHUNK_STRIDE = 5
+
+export interface VModel {
+  /**
+   * All pages of the document. The pages in the table only carry their range, not their glyphs.
+   * Empty if the page table was not requested.
+   */
+  pageTable: VPage[]
+
+  /**
+   * The pages for which the glyphs were requested.
+   */
+  pages: VPage[]
+}
+
+/**
+ * Deserializes the binary visual model produced by the server-side VModelBinarySerializer. The
+ * numeric columns are mapped as typed arrays directly onto the received buffer. Like the server,
+ * these assume a little-endian platform.
+ */
+export function deserializeVModelFromBinary (buffer: ArrayBuffer): VModel {
+  const view = new DataView(buffer)
+  let pos = 0
+
+  const readInt = () => {
+    const value = view.getInt32(pos, true)
+    pos += 4
+    return value
+  }
+
+  const version = readInt()
+  if (version !== SUPPORTED_VERSION) {
+    throw new Error(`Unsupported visual model version: ${version}`)
+  }
+
+  const pageTableSize = readInt()
+  const pageTable: VPage[] = []
+  for (let i = 0; i < pageTableSize; i++) {
+    const index = readInt()
+    const begin = readInt()
+    const end = readInt()
+    pos += 8 // Skip width and height
+    pageTable.push(new VPage(index + 1, [begin, end]))
+  }
+
+  const decoder = new TextDecoder('utf-16le')
+  const pageCount = readInt()
+  const pages: VPage[] = []
+  for (let i = 0; i < pageCount; i++) {
+    const index = readInt()
+    const begin = readInt()
+    const end = readInt()
+    const textLength = readInt()
+    const chunkCount = readInt()
+    const glyphCount = readInt()
+
+    const text = decoder.decode(new Uint8Array(buffer, pos, textLength * 2))
+    pos += (textLength * 2 + 3) & ~3
+    const chunkGeometry = new Float32Array(buffer, pos, chunkCount * CHUNK_STRIDE)
+    pos += chunkGeometry.byteLength
+    const chunkGlyphs = new Int32Array(buffer, pos, chunkCount + 1)
+    pos += chunkGlyphs.byteLength
+    const glyphBegins = new Int32Array(buffer, pos, glyphCount)
+    pos += glyphBegins.byteLength
+    const glyphEnds = new Int32Array(buffer, pos, glyphCount)
+    pos += glyphEnds.byteLength
+    const glyphBases = new Float32Array(buffer, pos, glyphCount)
+    pos += glyphBases.byteLength
+    const glyphExtents = new Float32Array(buffer, pos, glyphCount)
+    pos += glyphExtents.byteLength
+
+    const page = new VPage(index + 1, [begin, end])
+    for (let c = 0; c < chunkCount; c++) {
+      const g0 = c * CHUNK_STRIDE
+      const dir = chunkGeometry[g0]
+      const x = chunkGeometry[g0 + 1]
+      const y = chunkGeometry[g0 + 2]
+      const w = chunkGeometry[g0 + 3]
+      const h = chunkGeometry[g0 + 4]
+      const horizontal = dir === 0 || dir === 180
+      for (let g = chunkGlyphs[c]; g < chunkGlyphs[c + 1]; g++) {
+        const bbox = horizontal
+          ? new Rectangle({ p: page.index, x: glyphBases[g], y, w: glyphExtents[g], h })
+          : new Rectangle({ p: page.index, x, y: glyphBases[g], w, h: glyphExtents[g] })
+        page.glyphs.push(new VGlyph(page.index, begin + glyphBegins[g], begin + glyphEnds[g],
+          text.substring(glyphBegins[g], glyphEnds[g]), bbox))
+      }
+    }
+    page.loaded = true
+    pages.push(page)
+  }
+
+  return { pageTable, pages }
+}
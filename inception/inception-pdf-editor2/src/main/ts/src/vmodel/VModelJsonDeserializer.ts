@@ -15,6 +15,8 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+import { Rectangle } from './Rectangle'
+import { VGlyph } from './VGlyph'
 import { VPage } from './VPage'
 
 export type JsonVGlyph = [
@@ -47,5 +49,20 @@ interface JsonVModel {
 
 export function deserializeVModelFromJson (vModel: string) : VPage[] {
   const jsonVModel = JSON.parse(vModel) as JsonVModel
-  return jsonVModel.pages.map(p => new VPage(p))
+  return jsonVModel.pages.map(p => {
+    const page = new VPage(p[0] + 1, [p[1], p[2]])
+    page.glyphs = p[3].flatMap(l => l[5].map(g => glyphFromJson(page, l, g)))
+    page.loaded = true
+    return page
+  })
+}
+
+function glyphFromJson (aPage: VPage, aLine: JsonVChunk, aGlyph: JsonVGlyph): VGlyph {
+  let bbox: Rectangle
+  if (aLine[0] === 0 || aLine[0] === 180) {
+    bbox = new Rectangle({ p: aPage.index, x: aGlyph[3], y: aLine[2], w: aGlyph[4], h: aLine[4] })
+  } else {
+    bbox = new Rectangle({ p: aPage.index, x: aLine[1], y: aGlyph[3], w: aLine[3], h: aGlyph[4] })
+  }
+  return new VGlyph(aPage.index, aGlyph[0], aGlyph[1], aGlyph[2], bbox)
 }
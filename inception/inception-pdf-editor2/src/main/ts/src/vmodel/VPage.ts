@@ -18,16 +18,20 @@
 
 import { Offsets } from '@inception-project/inception-js-api'
 import { VGlyph } from './VGlyph'
-import { JsonVPage } from './VModelJsonDeserializer'
 
 export class VPage {
   index: number
-  glyphs: VGlyph[]
+  glyphs: VGlyph[] = []
   range: Offsets
 
-  constructor (aPage : JsonVPage) {
-    this.index = aPage[0] + 1
-    this.range = [aPage[1], aPage[2]]
-    this.glyphs = aPage[3].flatMap(l => l[5].map(g => new VGlyph(this, l, g)))
+  /**
+   * Whether the glyphs of the page have been loaded. Pages that are only known from the page table
+   * have a range but no glyphs.
+   */
+  loaded = false
+
+  constructor (aIndex: number, aRange: Offsets) {
+    this.index = aIndex
+    this.range = aRange
   }
 }
@@ -74,6 +74,43 @@ class VisualPdfReaderTest
         }
     }
 
+    @Test
+    void thatColumnarModelMatchesObjectModel() throws Exception
+    {
+        var reader = createReader( //
+                VisualPdfReader.class, //
+                VisualPdfReader.PARAM_SORT_BY_POSITION, true, //
+                VisualPdfReader.PARAM_SOURCE_LOCATION, testFilesBase + "eu-001.pdf");
+        reader.getNext(cas);
+
+        var pdfPages = cas.select(PdfPage.class).asList();
+        var expected = VisualPdfReader.visualModelFromCas(cas, pdfPages);
+        var actual = VisualPdfReader.visualModelColumnsFromCas(cas, pdfPages);
+
+        assertThat(actual).hasSameSizeAs(expected.getPages());
+        for (int p = 0; p < actual.size(); p++) {
+            var vPage = expected.getPages().get(p);
+            var columns = actual.get(p);
+
+            assertThat(columns.getIndex()).isEqualTo(vPage.getIndex());
+            assertThat(columns.getChunkCount()).isEqualTo(vPage.getChunks().size());
+
+            var glyphs = vPage.getChunks().stream() //
+                    .flatMap(c -> c.getGlyphs().stream()) //
+                    .toList();
+            assertThat(columns.getGlyphCount()).isEqualTo(glyphs.size());
+            for (int g = 0; g < glyphs.size(); g++) {
+                var glyph = glyphs.get(g);
+                assertThat(columns.getText().substring(columns.getGlyphBegins()[g],
+                        columns.getGlyphEnds()[g])).isEqualTo(glyph.getUnicode());
+                assertThat(columns.getGlyphBegins()[g] + columns.getBegin())
+                        .isEqualTo(glyph.getBegin());
+                assertThat(columns.getGlyphBases()[g]).isEqualTo(glyph.getBase());
+                assertThat(columns.getGlyphExtents()[g]).isEqualTo(glyph.getExtent());
+            }
+        }
+    }
+
     @Test
     void thatRtlCoordinatesMakeSenseSorting1() throws Exception
     {
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.pdfeditor2.visual;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.inception.pdfeditor2.visual.model.VPageColumns;
+
+class VModelBinarySerializerTest
+{
+    private final VModelBinarySerializer sut = new VModelBinarySerializer();
+
+    @Test
+    void thatPageWithOddTextLengthIsSerialized()
+    {
+        var page = new VPageColumns(2, 600f, 800f, 10, 13, "abc", //
+                new float[] { 0f, 1f, 2f, 3f, 4f }, //
+                new int[] { 0, 3 }, //
+                new int[] { 0, 1, 2 }, //
+                new int[] { 1, 2, 3 }, //
+                new float[] { 1.5f, 2.5f, 3.5f }, //
+                new float[] { 0.5f, 0.25f, 0.125f });
+
+        var bytes = sut.serialize(List.of(page), List.of(page));
+
+        // Header (12) + page table (20) + page header (24) + text padded from 6 to 8 bytes (8)
+        // + chunk geometry (20) + chunk glyphs (8) + 4 glyph arrays (48)
+        assertThat(bytes).hasSize(140);
+
+        var buf = ByteBuffer.wrap(bytes).order(LITTLE_ENDIAN);
+
+        assertThat(buf.getInt()).as("version").isEqualTo(VModelBinarySerializer.VERSION);
+
+        assertThat(buf.getInt()).as("page table size").isEqualTo(1);
+        assertThat(buf.getInt()).as("page table index").isEqualTo(2);
+        assertThat(buf.getInt()).as("page table begin").isEqualTo(10);
+        assertThat(buf.getInt()).as("page table end").isEqualTo(13);
+        assertThat(buf.getFloat()).as("page table width").isEqualTo(600f);
+        assertThat(buf.getFloat()).as("page table height").isEqualTo(800f);
+
+        assertThat(buf.getInt()).as("page count").isEqualTo(1);
+        assertThat(buf.getInt()).as("index").isEqualTo(2);
+        assertThat(buf.getInt()).as("begin").isEqualTo(10);
+        assertThat(buf.getInt()).as("end").isEqualTo(13);
+        assertThat(buf.getInt()).as("text length").isEqualTo(3);
+        assertThat(buf.getInt()).as("chunk count").isEqualTo(1);
+        assertThat(buf.getInt()).as("glyph count").isEqualTo(3);
+
+        assertThat(buf.position()).isEqualTo(56);
+        assertThat(buf.getChar()).isEqualTo('a');
+        assertThat(buf.getChar()).isEqualTo('b');
+        assertThat(buf.getChar()).isEqualTo('c');
+        assertThat(buf.getChar()).as("padding").isEqualTo('\0');
+
+        assertThat(buf.position()).as("chunk geometry is 4-byte aligned").isEqualTo(64);
+        assertThat(floats(buf, 5)).containsExactly(0f, 1f, 2f, 3f, 4f);
+        assertThat(ints(buf, 2)).as("chunk glyphs").containsExactly(0, 3);
+        assertThat(ints(buf, 3)).as("glyph begins").containsExactly(0, 1, 2);
+        assertThat(ints(buf, 3)).as("glyph ends").containsExactly(1, 2, 3);
+        assertThat(floats(buf, 3)).as("glyph bases").containsExactly(1.5f, 2.5f, 3.5f);
+        assertThat(floats(buf, 3)).as("glyph extents").containsExactly(0.5f, 0.25f, 0.125f);
+
+        assertThat(buf.hasRemaining()).isFalse();
+    }
+
+    @Test
+    void thatPageTableCanBeOmitted()
+    {
+        var page = new VPageColumns(0, 600f, 800f, 0, 2, "ab", //
+                new float[0], new int[] { 0 }, new int[0], new int[0], new float[0],
+                new float[0]);
+
+        var bytes = sut.serialize(emptyList(), List.of(page));
+
+        var buf = ByteBuffer.wrap(bytes).order(LITTLE_ENDIAN);
+        assertThat(buf.getInt()).as("version").isEqualTo(VModelBinarySerializer.VERSION);
+        assertThat(buf.getInt()).as("page table size").isEqualTo(0);
+        assertThat(buf.getInt()).as("page count").isEqualTo(1);
+        assertThat(ints(buf, 6)).as("page header").containsExactly(0, 0, 2, 2, 0, 0);
+        assertThat(buf.getChar()).isEqualTo('a');
+        assertThat(buf.getChar()).isEqualTo('b');
+        assertThat(ints(buf, 1)).as("chunk glyphs").containsExactly(0);
+        assertThat(buf.hasRemaining()).isFalse();
+    }
+
+    private static int[] ints(ByteBuffer aBuf, int aCount)
+    {
+        var result = new int[aCount];
+        for (int i = 0; i < aCount; i++) {
+            result[i] = aBuf.getInt();
+        }
+        return result;
+    }
+
+    private static float[] floats(ByteBuffer aBuf, int aCount)
+    {
+        var result = new float[aCount];
+        for (int i = 0; i < aCount; i++) {
+            result[i] = aBuf.getFloat();
+        }
+        return result;
+    }
+}
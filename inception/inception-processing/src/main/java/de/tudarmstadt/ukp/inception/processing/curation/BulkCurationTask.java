@@ -26,6 +26,7 @@ import static de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentState.IN
 import static de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentStateChangeFlag.EXPLICIT_ANNOTATOR_USER_ACTION;
 import static de.tudarmstadt.ukp.clarin.webanno.model.SourceDocumentState.CURATION_FINISHED;
 import static de.tudarmstadt.ukp.clarin.webanno.model.SourceDocumentState.CURATION_IN_PROGRESS;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.BULK;
 import static de.tudarmstadt.ukp.inception.scheduling.TaskScope.PROJECT;
 import static java.util.Objects.requireNonNull;
 
@@ -76,7 +77,8 @@ public class BulkCurationTask
 
     public BulkCurationTask(Builder<? extends Builder<?>> aBuilder)
     {
-        super(aBuilder.withType(TYPE).withCancellable(true).withScope(PROJECT));
+        super(aBuilder.withType(TYPE).withCancellable(true).withScope(PROJECT)
+                .withPriority(BULK));
 
         targetUser = aBuilder.targetUser;
         annotationLayers = aBuilder.annotationLayers;
@@ -24,6 +24,7 @@ import static de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentState.IN
 import static de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentStateChangeFlag.EXPLICIT_ANNOTATOR_USER_ACTION;
 import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordChangeLocation.AUTO_ACCEPT;
 import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordUserAction.ACCEPTED;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.BULK;
 import static de.tudarmstadt.ukp.inception.scheduling.TaskScope.PROJECT;
 import static de.tudarmstadt.ukp.inception.scheduling.TaskState.CANCELLED;
 
@@ -90,7 +91,8 @@ public class BulkPredictionTask
 
     public BulkPredictionTask(Builder<? extends Builder<?>> aBuilder)
     {
-        super(aBuilder.withType(TYPE).withCancellable(true).withScope(PROJECT));
+        super(aBuilder.withType(TYPE).withCancellable(true).withScope(PROJECT)
+                .withPriority(BULK));
 
         recommender = aBuilder.recommender;
         dataOwner = aBuilder.dataOwner;
@@ -131,6 +133,7 @@ public class BulkPredictionTask
 
             maxProgress = annotatableDocuments.size();
             var progress = maxProgress - documentsToProcess.size();
+            monitor.yieldIfRequested();
             if (documentsToProcess.isEmpty() || monitor.isCancelled()) {
                 monitor.setProgressWithMessage(progress, maxProgress,
                         LogMessage.info(this,
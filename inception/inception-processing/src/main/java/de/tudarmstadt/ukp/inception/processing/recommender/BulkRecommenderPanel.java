@@ -130,6 +130,9 @@ public class BulkRecommenderPanel
         schedulingService.enqueue(BulkPredictionTask.builder() //
                 .withSessionOwner(userService.getCurrentUser()) //
                 .withRecommender(formData.recommender) //
+                .withEndpoint(recommendationService.getRecommenderFactory(formData.recommender)
+                        .map(factory -> factory.getRemoteEndpoint(formData.recommender))
+                        .orElse(null)) //
                 .withTrigger("User request") //
                 .withDataOwner(formData.user.getUsername()) //
                 .withProcessingMetadata(metadata) //
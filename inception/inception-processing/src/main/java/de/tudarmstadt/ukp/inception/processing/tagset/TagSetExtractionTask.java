@@ -19,6 +19,7 @@ package de.tudarmstadt.ukp.inception.processing.tagset;
 
 import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.SHARED_READ_ONLY_ACCESS;
 import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasUpgradeMode.AUTO_CAS_UPGRADE;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.BULK;
 import static de.tudarmstadt.ukp.inception.scheduling.TaskScope.PROJECT;
 import static de.tudarmstadt.ukp.inception.scheduling.TaskState.RUNNING;
 import static java.util.Arrays.asList;
@@ -71,7 +72,8 @@ public class TagSetExtractionTask
 
     public TagSetExtractionTask(Builder<? extends Builder<?>> aBuilder)
     {
-        super(aBuilder.withType(TYPE).withCancellable(true).withScope(PROJECT));
+        super(aBuilder.withType(TYPE).withCancellable(true).withScope(PROJECT)
+                .withPriority(BULK));
 
         feature = aBuilder.feature;
         tagSet = aBuilder.tagSet;
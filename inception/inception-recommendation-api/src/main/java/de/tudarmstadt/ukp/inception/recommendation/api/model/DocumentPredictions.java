@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.model;
+
+import static java.util.Collections.emptyList;
+import static java.util.Comparator.comparingInt;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import org.apache.uima.cas.text.AnnotationPredicates;
+
+/**
+ * The suggestions of a single document in {@link Predictions}. Next to the suggestions themselves,
+ * the class maintains secondary indexes so that the lookups performed while rendering and while
+ * accepting suggestions do not need to look at every suggestion of the document:
+ * <ul>
+ * <li>by recommender and suggestion ID (i.e. by VID);</li>
+ * <li>per layer by span offsets;</li>
+ * <li>per layer by the begin of the suggestion window, for window queries.</li>
+ * </ul>
+ * <p>
+ * This class is not thread-safe. It is guarded by the lock of the {@link Predictions}.
+ */
+class DocumentPredictions
+    implements Serializable
+{
+    private static final long serialVersionUID = -3270455853064934364L;
+
+    private final Map<ExtendedId, AnnotationSuggestion> suggestions = new HashMap<>();
+    private final Map<Long, Map<Integer, ExtendedId>> byRecommender = new HashMap<>();
+    private final Map<Long, LayerPredictions> byLayer = new HashMap<>();
+
+    void put(ExtendedId aId, AnnotationSuggestion aSuggestion)
+    {
+        var previous = suggestions.put(aId, aSuggestion);
+        if (previous != null) {
+            unindex(aId, previous);
+        }
+
+        byRecommender.computeIfAbsent(aId.getRecommenderId(), $ -> new HashMap<>())
+                .put(aId.getSuggestionId(), aId);
+        byLayer.computeIfAbsent(aId.getLayerId(), $ -> new LayerPredictions()).add(aId,
+                aSuggestion);
+    }
+
+    void removeByRecommender(long aRecommenderId)
+    {
+        var ids = byRecommender.remove(aRecommenderId);
+        if (ids == null) {
+            return;
+        }
+
+        for (var id : ids.values()) {
+            var suggestion = suggestions.remove(id);
+            if (suggestion != null) {
+                unindexLayer(id, suggestion);
+            }
+        }
+    }
+
+    private void unindex(ExtendedId aId, AnnotationSuggestion aSuggestion)
+    {
+        var ids = byRecommender.get(aId.getRecommenderId());
+        if (ids != null) {
+            ids.remove(aId.getSuggestionId(), aId);
+            if (ids.isEmpty()) {
+                byRecommender.remove(aId.getRecommenderId());
+            }
+        }
+
+        unindexLayer(aId, aSuggestion);
+    }
+
+    private void unindexLayer(ExtendedId aId, AnnotationSuggestion aSuggestion)
+    {
+        var layer = byLayer.get(aId.getLayerId());
+        if (layer != null) {
+            layer.remove(aId, aSuggestion);
+            if (layer.isEmpty()) {
+                byLayer.remove(aId.getLayerId());
+            }
+        }
+    }
+
+    Collection<AnnotationSuggestion> getSuggestions()
+    {
+        return suggestions.values();
+    }
+
+    boolean isEmpty()
+    {
+        return suggestions.isEmpty();
+    }
+
+    int size()
+    {
+        return suggestions.size();
+    }
+
+    Optional<AnnotationSuggestion> getByVid(long aRecommenderId, int aSuggestionId)
+    {
+        var ids = byRecommender.get(aRecommenderId);
+        if (ids == null) {
+            return Optional.empty();
+        }
+
+        var id = ids.get(aSuggestionId);
+        return id != null ? Optional.ofNullable(suggestions.get(id)) : Optional.empty();
+    }
+
+    List<AnnotationSuggestion> getByRecommender(long aRecommenderId)
+    {
+        var ids = byRecommender.get(aRecommenderId);
+        if (ids == null) {
+            return emptyList();
+        }
+
+        return ids.values().stream().map(suggestions::get).toList();
+    }
+
+    List<SpanSuggestion> getSpans(long aLayerId, int aBegin, int aEnd, String aFeature)
+    {
+        var layer = byLayer.get(aLayerId);
+        if (layer == null) {
+            return emptyList();
+        }
+
+        var spans = layer.spansByOffset.get(new Offset(aBegin, aEnd));
+        if (spans == null) {
+            return emptyList();
+        }
+
+        return spans.values().stream() //
+                .filter(s -> Objects.equals(s.getFeature(), aFeature)) //
+                .toList();
+    }
+
+    /**
+     * @param aLayerId
+     *            the layer or {@code null} for all layers.
+     * @return the suggestions of the given type whose window overlaps with the given window,
+     *         ordered by the begin of their window.
+     */
+    <T extends AnnotationSuggestion> List<T> getInWindow(Class<T> aType, Long aLayerId,
+            int aWindowBegin, int aWindowEnd)
+    {
+        var layers = aLayerId != null
+                ? List.of(byLayer.getOrDefault(aLayerId, LayerPredictions.EMPTY))
+                : byLayer.values();
+
+        var result = new ArrayList<T>();
+        for (var layer : layers) {
+            layer.collectInWindow(aType, aWindowBegin, aWindowEnd, result);
+        }
+
+        if (layers.size() > 1) {
+            result.sort(comparingInt(AnnotationSuggestion::getWindowBegin));
+        }
+
+        return result;
+    }
+
+    private static class LayerPredictions
+        implements Serializable
+    {
+        private static final long serialVersionUID = 5185424735562911046L;
+
+        private static final LayerPredictions EMPTY = new LayerPredictions();
+
+        private final Map<Offset, Map<ExtendedId, SpanSuggestion>> spansByOffset = new HashMap<>();
+        private final TreeMap<Integer, Map<ExtendedId, AnnotationSuggestion>> byWindowBegin = //
+                new TreeMap<>();
+        private final Map<ExtendedId, AnnotationSuggestion> withoutPosition = new HashMap<>();
+
+        /**
+         * Longest window seen so far. Suggestions starting more than this before a query window
+         * cannot overlap with it. This is not reduced when suggestions are removed, which is safe
+         * since it only widens the range that is checked.
+         */
+        private int maxWindowLength;
+        private int size;
+
+        void add(ExtendedId aId, AnnotationSuggestion aSuggestion)
+        {
+            size++;
+
+            if (aSuggestion.getPosition() == null) {
+                withoutPosition.put(aId, aSuggestion);
+                return;
+            }
+
+            if (aSuggestion instanceof SpanSuggestion span) {
+                spansByOffset.computeIfAbsent(new Offset(span.getBegin(), span.getEnd()),
+                        $ -> new LinkedHashMap<>()).put(aId, span);
+            }
+
+            byWindowBegin.computeIfAbsent(aSuggestion.getWindowBegin(), $ -> new LinkedHashMap<>())
+                    .put(aId, aSuggestion);
+            maxWindowLength = Math.max(maxWindowLength,
+                    aSuggestion.getWindowEnd() - aSuggestion.getWindowBegin());
+        }
+
+        void remove(ExtendedId aId, AnnotationSuggestion aSuggestion)
+        {
+            if (aSuggestion.getPosition() == null) {
+                if (withoutPosition.remove(aId) != null) {
+                    size--;
+                }
+                return;
+            }
+
+            if (aSuggestion instanceof SpanSuggestion span) {
+                removeFrom(spansByOffset, new Offset(span.getBegin(), span.getEnd()), aId);
+            }
+
+            if (removeFrom(byWindowBegin, aSuggestion.getWindowBegin(), aId)) {
+                size--;
+            }
+        }
+
+        private static <K> boolean removeFrom(Map<K, ? extends Map<ExtendedId, ?>> aIndex, K aKey,
+                ExtendedId aId)
+        {
+            var bucket = aIndex.get(aKey);
+            if (bucket == null || bucket.remove(aId) == null) {
+                return false;
+            }
+
+            if (bucket.isEmpty()) {
+                aIndex.remove(aKey);
+            }
+
+            return true;
+        }
+
+        boolean isEmpty()
+        {
+            return size == 0;
+        }
+
+        <T extends AnnotationSuggestion> void collectInWindow(Class<T> aType, int aWindowBegin,
+                int aWindowEnd, List<T> aResult)
+        {
+            if (byWindowBegin.isEmpty()) {
+                return;
+            }
+
+            var from = (int) Math.max(Integer.MIN_VALUE, (long) aWindowBegin - maxWindowLength);
+            if (from > aWindowEnd) {
+                return;
+            }
+
+            for (var bucket : byWindowBegin.subMap(from, true, aWindowEnd, true).values()) {
+                for (var suggestion : bucket.values()) {
+                    if (aType.isInstance(suggestion) && AnnotationPredicates.overlapping(
+                            suggestion.getWindowBegin(), suggestion.getWindowEnd(), aWindowBegin,
+                            aWindowEnd)) {
+                        aResult.add(aType.cast(suggestion));
+                    }
+                }
+            }
+        }
+    }
+}
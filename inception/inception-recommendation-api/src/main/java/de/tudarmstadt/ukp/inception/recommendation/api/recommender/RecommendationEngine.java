@@ -74,6 +74,29 @@ public abstract class RecommendationEngine
     public abstract void train(RecommenderContext aContext, List<CAS> aCasses)
         throws RecommendationException;
 
+    /**
+     * Given training data in {@code aCasses}, train a model. Unlike
+     * {@link #train(RecommenderContext, List)}, the CASes are loaded one at a time while iterating
+     * over them. A CAS is only valid until the iteration moves on to the next CAS, so the engine
+     * must not keep references to the CASes. The training data may be iterated over multiple
+     * times, but each iteration loads the CASes again.
+     * <p>
+     * This method is only called if {@link #isStreamingTrainingSupported()} returns {@code true}.
+     *
+     * @param aContext
+     *            The context of the recommender
+     * @param aCasses
+     *            The training data
+     * @throws RecommendationException
+     *             if there was a problem during training
+     */
+    public void trainStreaming(RecommenderContext aContext, Iterable<CAS> aCasses)
+        throws RecommendationException
+    {
+        throw new RecommendationException(
+                "Engine [" + getClass().getSimpleName() + "] does not support streaming training");
+    }
+
     /**
      * Given text in a {@link CAS}, predict target annotations. These should be written into
      * {@link CAS}. In order to restore data from e.g. previous training, the
@@ -165,6 +188,27 @@ public abstract class RecommendationEngine
         return TrainingCapability.TRAINING_SUPPORTED;
     }
 
+    /**
+     * @return whether the engine can update the model from the previous context in place instead
+     *         of training a new model from scratch. Such engines must carry the model over to the
+     *         new context in {@link #newContext}. Engines which merely cache extracted training
+     *         samples using a {@link TrainingSampleCache} do not train incrementally.
+     */
+    public boolean isIncrementalTrainingSupported()
+    {
+        return false;
+    }
+
+    /**
+     * @return whether the engine can be trained using {@link #trainStreaming}. Engines which look
+     *         at one training document at a time should support this, so that the training data
+     *         does not have to be held in memory all at once.
+     */
+    public boolean isStreamingTrainingSupported()
+    {
+        return false;
+    }
+
     /**
      * @return which prediction capabilities this engine has. If a recommender uses annotations and
      *         not only the text, then this method should be overwritten to return
@@ -97,6 +97,18 @@ public interface RecommendationEngineFactory<T>
         return false;
     }
 
+    /**
+     * @param aRecommender
+     *            the recommender.
+     * @return the remote service the recommender talks to or {@code null} if the recommender runs
+     *         locally. Tasks which only run this recommender are scheduled as I/O-bound and the
+     *         number of such tasks talking to the same service at the same time is limited.
+     */
+    default String getRemoteEndpoint(Recommender aRecommender)
+    {
+        return null;
+    }
+
     default Panel createInteractionPanel(String aId, IModel<Recommender> aModel)
     {
         return new EmptyPanel(aId);
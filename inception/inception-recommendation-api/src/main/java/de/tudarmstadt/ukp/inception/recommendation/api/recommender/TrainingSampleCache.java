@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.recommender;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.apache.uima.cas.CAS;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.type.CASMetadata;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext.Key;
+
+/**
+ * Caches the training samples a recommender extracted from its training documents. The samples of
+ * a document are keyed by the document, the annotator and the time the CAS was last written to
+ * disk, so they are only extracted again if the annotations have changed since the last training
+ * run. CASes which do not carry {@link CASMetadata} are never cached.
+ * <p>
+ * The cache is meant to be stored in the {@link RecommenderContext} and be carried over to the
+ * next context using {@link #carryOver}. It is bound to the settings used for extracting the
+ * samples. If these settings change, the cache is discarded.
+ *
+ * @param <S>
+ *            the sample type.
+ */
+public class TrainingSampleCache<S>
+{
+    private final Object extractionSettings;
+    private final Map<DocumentKey, Entry<S>> entries = new HashMap<>();
+
+    private Set<DocumentKey> seen = new HashSet<>();
+    private int hits;
+    private int misses;
+
+    /**
+     * @param aExtractionSettings
+     *            the settings which affect the extracted samples, e.g. the layer, feature and
+     *            window size. Must implement {@link Object#equals}.
+     */
+    public TrainingSampleCache(Object aExtractionSettings)
+    {
+        extractionSettings = aExtractionSettings;
+    }
+
+    /**
+     * Gets the cache from the given context or creates a new one if there is none or if the
+     * cache in the context was built using different extraction settings.
+     */
+    public static <S> TrainingSampleCache<S> get(RecommenderContext aContext,
+            Key<TrainingSampleCache<S>> aKey, Object aExtractionSettings)
+    {
+        var cache = aContext.get(aKey) //
+                .filter(c -> Objects.equals(c.extractionSettings, aExtractionSettings)) //
+                .orElse(null);
+
+        if (cache == null) {
+            cache = new TrainingSampleCache<>(aExtractionSettings);
+            aContext.put(aKey, cache);
+        }
+
+        return cache;
+    }
+
+    /**
+     * Copies the cache stored under the given key from the previous context to the next context.
+     * The model itself is not copied. Does nothing if the previous context does not contain a
+     * cache.
+     */
+    public static <S> void carryOver(RecommenderContext aPrevious, RecommenderContext aNext,
+            Key<TrainingSampleCache<S>> aKey)
+    {
+        if (aPrevious == null) {
+            return;
+        }
+
+        aPrevious.get(aKey).ifPresent(cache -> aNext.put(aKey, cache));
+    }
+
+    /**
+     * Collects the samples from the given documents, using cached samples for all documents which
+     * did not change since they were last extracted. Documents which are not part of the given
+     * documents are removed from the cache.
+     *
+     * @param aCasses
+     *            the training documents.
+     * @param aExtractor
+     *            extracts the samples from a single document.
+     * @param aLimit
+     *            the maximum number of samples to collect. If the limit is zero or negative, all
+     *            samples are collected.
+     * @return the samples.
+     */
+    public List<S> extractSamples(Iterable<CAS> aCasses, Function<CAS, List<S>> aExtractor,
+            int aLimit)
+    {
+        beginExtraction();
+        try {
+            return collectSamples(aCasses, cas -> getSamples(cas, aExtractor), aLimit);
+        }
+        finally {
+            endExtraction();
+        }
+    }
+
+    /**
+     * Collects the samples from the given documents without using a cache.
+     *
+     * @see #extractSamples(Iterable, Function, int)
+     */
+    public static <S> List<S> collectSamples(Iterable<CAS> aCasses,
+            Function<CAS, List<S>> aExtractor, int aLimit)
+    {
+        var samples = new ArrayList<S>();
+
+        for (var cas : aCasses) {
+            var casSamples = aExtractor.apply(cas);
+            if (aLimit > 0 && samples.size() + casSamples.size() >= aLimit) {
+                samples.addAll(casSamples.subList(0, aLimit - samples.size()));
+                break;
+            }
+
+            samples.addAll(casSamples);
+        }
+
+        return samples;
+    }
+
+    /**
+     * Marks the start of a training run. Documents which are not requested until
+     * {@link #endExtraction()} is called are removed from the cache.
+     */
+    public synchronized void beginExtraction()
+    {
+        seen = new HashSet<>();
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * Marks the end of a training run and removes the samples of all documents which were not
+     * part of the run, e.g. because they have been deleted or lost all their annotations.
+     */
+    public synchronized void endExtraction()
+    {
+        entries.keySet().retainAll(seen);
+    }
+
+    /**
+     * @param aCas
+     *            a training document.
+     * @param aExtractor
+     *            extracts the samples from the document if they are not cached or out of date.
+     * @return the samples of the given document.
+     */
+    public List<S> getSamples(CAS aCas, Function<CAS, List<S>> aExtractor)
+    {
+        var metadata = getMetadata(aCas);
+        if (metadata.isEmpty()) {
+            synchronized (this) {
+                misses++;
+            }
+            return aExtractor.apply(aCas);
+        }
+
+        var key = metadata.get().key();
+        var timestamp = metadata.get().timestamp();
+
+        synchronized (this) {
+            seen.add(key);
+            var entry = entries.get(key);
+            if (entry != null && entry.timestamp() == timestamp) {
+                hits++;
+                return entry.samples();
+            }
+            misses++;
+        }
+
+        var samples = List.copyOf(aExtractor.apply(aCas));
+
+        synchronized (this) {
+            entries.put(key, new Entry<>(timestamp, samples));
+        }
+
+        return samples;
+    }
+
+    /**
+     * @return the number of documents whose samples were taken from the cache in the current
+     *         training run.
+     */
+    public synchronized int getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * @return the number of documents whose samples had to be extracted in the current training
+     *         run.
+     */
+    public synchronized int getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * @return the number of documents in the cache.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    private static Optional<Metadata> getMetadata(CAS aCas)
+    {
+        var type = aCas.getTypeSystem().getType(CASMetadata._TypeName);
+        if (type == null) {
+            return Optional.empty();
+        }
+
+        var documentIdFeature = type.getFeatureByBaseName(CASMetadata._FeatName_sourceDocumentId);
+        var usernameFeature = type.getFeatureByBaseName(CASMetadata._FeatName_username);
+        var timestampFeature = type.getFeatureByBaseName(CASMetadata._FeatName_lastChangedOnDisk);
+        if (documentIdFeature == null || usernameFeature == null || timestampFeature == null) {
+            return Optional.empty();
+        }
+
+        var cmd = aCas.select(type).singleOrNull();
+        if (cmd == null) {
+            return Optional.empty();
+        }
+
+        var timestamp = cmd.getLongValue(timestampFeature);
+        if (timestamp <= 0) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new Metadata(new DocumentKey(cmd.getLongValue(documentIdFeature),
+                cmd.getStringValue(usernameFeature)), timestamp));
+    }
+
+    private static record DocumentKey(long documentId, String username) {}
+
+    private static record Metadata(DocumentKey key, long timestamp) {}
+
+    private static record Entry<S>(long timestamp, List<S> samples) {}
+}
@@ -19,6 +19,7 @@ package de.tudarmstadt.ukp.inception.recommendation.api.model;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
+import static java.util.Comparator.comparingInt;
 import static java.util.stream.Collectors.toList;
 import static org.apache.uima.fit.factory.CasFactory.createText;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -140,6 +141,40 @@ class PredictionsTest
                 .containsExactlyInAnyOrder(0, 1);
     }
 
+    @Test
+    void thatIndexedLookupsMatchFullScan() throws Exception
+    {
+        var generatedPredictions = generatePredictions(2, 2, 500);
+        sut.inheritSuggestions(generatedPredictions);
+
+        var spans = generatedPredictions.stream() //
+                .map(SpanSuggestion.class::cast) //
+                .filter(s -> s.getDocumentName().equals("doc1")) //
+                .toList();
+
+        for (var suggestion : spans.subList(0, 50)) {
+            assertThat(sut.getAlternativeSuggestions(suggestion)) //
+                    .containsExactlyInAnyOrderElementsOf(spans.stream() //
+                            .filter(s -> s.getBegin() == suggestion.getBegin()) //
+                            .filter(s -> s.getEnd() == suggestion.getEnd()) //
+                            .filter(s -> s.getFeature().equals(suggestion.getFeature())) //
+                            .toList());
+        }
+
+        assertThat(sut.getPredictionsByDocument("doc1", 100, 200)) //
+                .containsExactlyInAnyOrderElementsOf(spans.stream() //
+                        .filter(s -> s.getBegin() < 200 && s.getEnd() > 100) //
+                        .toList()) //
+                .isSortedAccordingTo(comparingInt(AnnotationSuggestion::getWindowBegin));
+
+        sut.removePredictions(0l);
+
+        assertThat(sut.getPredictionsByDocument("doc1")) //
+                .containsExactlyInAnyOrderElementsOf(spans.stream() //
+                        .filter(s -> s.getRecommenderId() == 1l) //
+                        .toList());
+    }
+
     private List<AnnotationSuggestion> generatePredictions(int aDocs, int aRecommenders,
             int aSuggestions)
         throws Exception
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.recommender;
+
+import static org.apache.uima.fit.factory.TypeSystemDescriptionFactory.createTypeSystemDescription;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.fit.factory.CasFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.type.CASMetadata;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext.Key;
+
+public class TrainingSampleCacheTest
+{
+    private static final Key<TrainingSampleCache<String>> KEY = new Key<>("samples");
+    private static final String INTERNAL_TYPE_SYSTEM = //
+            "de/tudarmstadt/ukp/clarin/webanno/api/type/webanno-internal";
+
+    private List<CAS> extracted;
+    private Function<CAS, List<String>> extractor;
+
+    @BeforeEach
+    public void setup()
+    {
+        extracted = new ArrayList<>();
+        extractor = cas -> {
+            extracted.add(cas);
+            return List.of(cas.getDocumentText().split(" "));
+        };
+    }
+
+    @Test
+    public void thatOnlyChangedDocumentsAreExtracted() throws Exception
+    {
+        var doc1 = buildCas(1l, "a b", 1000l);
+        var doc2 = buildCas(2l, "c d", 1000l);
+
+        var sut = new TrainingSampleCache<String>("settings");
+
+        assertThat(sut.extractSamples(List.of(doc1, doc2), extractor, 0)) //
+                .containsExactly("a", "b", "c", "d");
+        assertThat(extracted).containsExactly(doc1, doc2);
+
+        extracted.clear();
+        var doc2Changed = buildCas(2l, "c d e", 2000l);
+
+        assertThat(sut.extractSamples(List.of(doc1, doc2Changed), extractor, 0)) //
+                .containsExactly("a", "b", "c", "d", "e");
+        assertThat(extracted).containsExactly(doc2Changed);
+        assertThat(sut.getHits()).isEqualTo(1);
+        assertThat(sut.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    public void thatRemovedDocumentsAreEvicted() throws Exception
+    {
+        var doc1 = buildCas(1l, "a b", 1000l);
+        var doc2 = buildCas(2l, "c d", 1000l);
+
+        var sut = new TrainingSampleCache<String>("settings");
+        sut.extractSamples(List.of(doc1, doc2), extractor, 0);
+        sut.extractSamples(List.of(doc1), extractor, 0);
+
+        assertThat(sut.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void thatLimitIsRespected() throws Exception
+    {
+        var doc1 = buildCas(1l, "a b", 1000l);
+        var doc2 = buildCas(2l, "c d", 1000l);
+
+        var sut = new TrainingSampleCache<String>("settings");
+
+        assertThat(sut.extractSamples(List.of(doc1, doc2), extractor, 3)) //
+                .containsExactly("a", "b", "c");
+    }
+
+    @Test
+    public void thatCacheIsDiscardedWhenSettingsChange() throws Exception
+    {
+        var previous = new RecommenderContext();
+        var cache = TrainingSampleCache.<String> get(previous, KEY, "settings");
+        cache.extractSamples(List.of(buildCas(1l, "a b", 1000l)), extractor, 0);
+
+        var next = new RecommenderContext();
+        TrainingSampleCache.carryOver(previous, next, KEY);
+
+        assertThat(TrainingSampleCache.get(next, KEY, "settings")).isSameAs(cache);
+        assertThat(TrainingSampleCache.get(next, KEY, "other settings")).isNotSameAs(cache);
+    }
+
+    private CAS buildCas(long aDocumentId, String aText, long aTimestamp) throws Exception
+    {
+        var cas = CasFactory.createCas(createTypeSystemDescription(INTERNAL_TYPE_SYSTEM));
+        cas.setDocumentText(aText);
+
+        var cmd = new CASMetadata(cas.getJCas());
+        cmd.setSourceDocumentId(aDocumentId);
+        cmd.setUsername("user");
+        cmd.setLastChangedOnDisk(aTimestamp);
+        cmd.addToIndexes();
+
+        return cas;
+    }
+}
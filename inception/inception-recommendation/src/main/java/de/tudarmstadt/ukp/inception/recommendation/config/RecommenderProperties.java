@@ -22,4 +22,11 @@ public interface RecommenderProperties
     boolean isActionButtonsEnabled();
 
     boolean isEnabled();
+
+    /**
+     * @return number of threads used to generate predictions when predictions are needed for all
+     *         documents of a project (e.g. in active learning mode). The threads are shared by all
+     *         prediction tasks.
+     */
+    int getPredictionThreads();
 }
@@ -60,6 +60,7 @@ import de.tudarmstadt.ukp.inception.recommendation.service.SuggestionSupportRegi
 import de.tudarmstadt.ukp.inception.recommendation.sidebar.RecommendationSidebarFactory;
 import de.tudarmstadt.ukp.inception.recommendation.sidebar.llm.InteractiveRecommenderSidebarFactory;
 import de.tudarmstadt.ukp.inception.recommendation.span.SpanSuggestionSupport;
+import de.tudarmstadt.ukp.inception.recommendation.tasks.PredictionWorkerPool;
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.schema.api.feature.FeatureSupportRegistry;
@@ -90,6 +91,12 @@ public class RecommenderServiceAutoConfiguration
                 entityManager, aApplicationEventPublisher, aLayerRecommendtionSupportRegistry);
     }
 
+    @Bean
+    public PredictionWorkerPool predictionWorkerPool(RecommenderProperties aRecommenderProperties)
+    {
+        return new PredictionWorkerPool(aRecommenderProperties);
+    }
+
     @Bean
     public RecommenderExporter recommenderExporter(AnnotationSchemaService aAnnotationService,
             RecommendationService aRecommendationService)
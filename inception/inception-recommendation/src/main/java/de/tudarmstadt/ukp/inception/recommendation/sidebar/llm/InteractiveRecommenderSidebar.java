@@ -141,6 +141,9 @@ public class InteractiveRecommenderSidebar
                 .withCurrentDocument(document) //
                 .withDataOwner(dataOwner) //
                 .withRecommender(recommender.getObject()) //
+                .withEndpoint(recommendationService.getRecommenderFactory(recommender.getObject())
+                        .map(factory -> factory.getRemoteEndpoint(recommender.getObject()))
+                        .orElse(null)) //
                 .build();
 
         schedulingService.enqueue(predictionTask);
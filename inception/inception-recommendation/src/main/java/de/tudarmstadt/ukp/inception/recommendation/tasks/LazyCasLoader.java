@@ -25,7 +25,9 @@ import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -40,6 +42,7 @@ import org.slf4j.LoggerFactory;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentState;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageSession;
 import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
 
@@ -70,6 +73,24 @@ public class LazyCasLoader
                 .toList();
     }
 
+    /**
+     * Unlike {@link #getRelevantCasses}, the CASes are loaded one at a time while iterating over
+     * the returned stream and they are not retained by the loader. Each CAS is loaded in its own
+     * nested {@link CasStorageSession} which is closed when the iteration moves on to the next
+     * CAS. The stream must be closed after use.
+     * 
+     * @param aRecommender
+     *            the recommender to train.
+     * @return the CASes relevant for training the given recommender.
+     */
+    public CasStream streamRelevantCasses(Recommender aRecommender)
+    {
+        var documents = get().stream() //
+                .filter(e -> isStateAllowingForTraining(aRecommender, e)) //
+                .toList();
+        return new CasStream(aRecommender, documents);
+    }
+
     private boolean isStateAllowingForTraining(Recommender aRecommender, TrainingDocument e)
     {
         var result = !aRecommender.getStatesIgnoredForTraining().contains(e.state);
@@ -157,17 +178,35 @@ public class LazyCasLoader
             }
 
             attemptedLoading = true;
+            _cas = loadCas();
+            return _cas;
+        }
+
+        /**
+         * @return the CAS without retaining it. If the CAS has already been loaded using
+         *         {@link #getCas()}, that CAS is returned.
+         */
+        private CAS loadCasTransiently()
+        {
+            if (attemptedLoading) {
+                return _cas;
+            }
+
+            return loadCas();
+        }
+
+        private CAS loadCas()
+        {
             try {
                 // During training, we should not have to modify the CASes... right? Fingers
                 // crossed.
-                _cas = documentService.readAnnotationCas(document, user, AUTO_CAS_UPGRADE,
+                return documentService.readAnnotationCas(document, user, AUTO_CAS_UPGRADE,
                         SHARED_READ_ONLY_ACCESS);
             }
             catch (IOException e) {
                 LOG.error("Unable to load CAS to train recommender", e);
+                return null;
             }
-
-            return _cas;
         }
 
         @Override
@@ -178,4 +217,119 @@ public class LazyCasLoader
                     .toString();
         }
     }
+
+    /**
+     * The CASes relevant for training a recommender, loaded one at a time while iterating.
+     */
+    public class CasStream
+        implements Iterable<CAS>, AutoCloseable
+    {
+        private final Recommender recommender;
+        private final List<TrainingDocument> documents;
+
+        private CasStorageSession session;
+        private int count;
+
+        private CasStream(Recommender aRecommender, List<TrainingDocument> aDocuments)
+        {
+            recommender = aRecommender;
+            documents = aDocuments;
+        }
+
+        /**
+         * @return whether there is no CAS to train on. This needs to load the CASes until the
+         *         first relevant one has been found.
+         */
+        public boolean isEmpty()
+        {
+            var empty = !iterator().hasNext();
+            closeSession();
+            return empty;
+        }
+
+        /**
+         * @return the number of documents which may be relevant for training, i.e. the number of
+         *         documents in a suitable state.
+         */
+        public int getCandidateCount()
+        {
+            return documents.size();
+        }
+
+        /**
+         * @return the number of CASes returned by the last iteration.
+         */
+        public int getCount()
+        {
+            return count;
+        }
+
+        /**
+         * Returns an iterator over the relevant CASes. A CAS returned by the iterator is only
+         * valid until {@link Iterator#hasNext()} or {@link Iterator#next()} is called again.
+         * Obtaining a new iterator invalidates the previous one.
+         */
+        @Override
+        public Iterator<CAS> iterator()
+        {
+            closeSession();
+            count = 0;
+
+            return new Iterator<>()
+            {
+                private int index = 0;
+                private CAS next;
+
+                @Override
+                public boolean hasNext()
+                {
+                    while (next == null && index < documents.size()) {
+                        var document = documents.get(index);
+                        index++;
+
+                        closeSession();
+                        session = CasStorageSession.openNested();
+
+                        var cas = document.loadCasTransiently();
+                        if (cas != null && containsTargetTypeAndFeature(recommender, cas)) {
+                            next = cas;
+                        }
+                    }
+
+                    if (next == null) {
+                        closeSession();
+                    }
+
+                    return next != null;
+                }
+
+                @Override
+                public CAS next()
+                {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    var cas = next;
+                    next = null;
+                    count++;
+                    return cas;
+                }
+            };
+        }
+
+        private void closeSession()
+        {
+            if (session != null) {
+                session.close();
+                session = null;
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            closeSession();
+        }
+    }
 }
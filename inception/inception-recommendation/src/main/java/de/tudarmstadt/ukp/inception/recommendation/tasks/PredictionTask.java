@@ -23,6 +23,7 @@ import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasUpgradeMode.AU
 import static de.tudarmstadt.ukp.inception.recommendation.api.recommender.PredictionCapability.PREDICTION_USES_TEXT_ONLY;
 import static de.tudarmstadt.ukp.inception.recommendation.api.recommender.TrainingCapability.TRAINING_NOT_SUPPORTED;
 import static de.tudarmstadt.ukp.inception.rendering.model.Range.rangeCoveringDocument;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.INTERACTIVE;
 import static java.lang.System.currentTimeMillis;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
@@ -36,6 +37,10 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.Validate;
 import org.apache.uima.UIMAException;
@@ -87,6 +92,7 @@ public class PredictionTask
     private @Autowired DocumentService documentService;
     private @Autowired ApplicationEventPublisher appEventPublisher;
     private @Autowired SuggestionSupportRegistry suggestionSupportRegistry;
+    private @Autowired(required = false) PredictionWorkerPool predictionWorkerPool;
 
     private final SourceDocument currentDocument;
     private final int predictionBegin;
@@ -101,7 +107,7 @@ public class PredictionTask
 
     public PredictionTask(Builder<? extends Builder<?>> aBuilder)
     {
-        super(aBuilder.withType(TYPE).withCancellable(true));
+        super(aBuilder.withType(TYPE).withCancellable(true).withPriority(INTERACTIVE));
 
         currentDocument = aBuilder.currentDocument;
         dataOwner = aBuilder.dataOwner;
@@ -216,6 +222,13 @@ public class PredictionTask
         var incomingPredictions = activePredictions != null ? new Predictions(activePredictions)
                 : new Predictions(sessionOwner, dataOwner, project);
 
+        var threads = predictionWorkerPool != null ? predictionWorkerPool.getThreads() : 1;
+        if (threads > 1 && aDocuments.size() > 1) {
+            generatePredictionsOnDocumentsInParallel(aDocuments, activePredictions,
+                    incomingPredictions, Math.min(threads, aDocuments.size()));
+            return incomingPredictions;
+        }
+
         var maxProgress = aDocuments.size();
         var progress = 0;
 
@@ -243,6 +256,71 @@ public class PredictionTask
         }
     }
 
+    /**
+     * Generate predictions for the given documents using several workers from the shared
+     * {@link PredictionWorkerPool}. Each worker uses its own CAS storage session and prediction
+     * CAS. Recommender engines are built for every document anyway, so workers never share an
+     * engine instance. The workers write directly into the incoming predictions, which are
+     * thread-safe.
+     */
+    private void generatePredictionsOnDocumentsInParallel(List<SourceDocument> aDocuments,
+            Predictions aActivePredictions, Predictions aIncomingPredictions, int aThreads)
+    {
+        var monitor = getMonitor();
+        var pendingDocuments = new ConcurrentLinkedQueue<>(aDocuments);
+        var processedDocuments = new AtomicInteger();
+
+        try {
+            predictionWorkerPool.runWorkers(aThreads,
+                    () -> generatePredictionsOnPendingDocuments(pendingDocuments,
+                            processedDocuments, aDocuments.size(), aActivePredictions,
+                            aIncomingPredictions));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            LOG.error("Error generating predictions", e.getCause());
+            aIncomingPredictions.log(LogMessage.error(this, "Error generating predictions: %s",
+                    e.getCause().getMessage()));
+        }
+        finally {
+            // After an error or interrupt, the remaining workers must not pick up any more
+            // documents. If all went well, the queue is empty anyway.
+            pendingDocuments.clear();
+        }
+
+        monitor.setProgressWithMessage(processedDocuments.get(), aDocuments.size(),
+                LogMessage.info(this, "%d documents processed", processedDocuments.get()));
+    }
+
+    private void generatePredictionsOnPendingDocuments(Queue<SourceDocument> aPendingDocuments,
+            AtomicInteger aProcessedDocuments, int aMaxProgress, Predictions aActivePredictions,
+            Predictions aIncomingPredictions)
+    {
+        var monitor = getMonitor();
+
+        try (var session = CasStorageSession.openNested();
+                var casHolder = new PredictionCasHolder()) {
+            SourceDocument document;
+            while (!monitor.isCancelled() && !Thread.currentThread().isInterrupted()
+                    && (document = aPendingDocuments.poll()) != null) {
+                applyActiveRecommendersToDocument(aActivePredictions, aIncomingPredictions,
+                        casHolder.cas, document, -1, -1);
+                monitor.setProgressWithMessage(aProcessedDocuments.incrementAndGet(),
+                        aMaxProgress, LogMessage.info(this, "%s", document.getName()));
+            }
+        }
+        catch (ResourceInitializationException e) {
+            logErrorCreationPredictionCas(aIncomingPredictions);
+        }
+        catch (RuntimeException e) {
+            // Do not let the other workers continue with the remaining documents
+            aPendingDocuments.clear();
+            throw e;
+        }
+    }
+
     /**
      * Generate predictions for a single document. Any predictions available for other documents are
      * inherited.
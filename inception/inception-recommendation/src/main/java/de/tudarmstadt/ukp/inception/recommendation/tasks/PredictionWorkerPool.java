@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.tasks;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommenderProperties;
+
+/**
+ * Worker threads used by {@link PredictionTask} to generate predictions for several documents in
+ * parallel. The pool is shared by all prediction tasks, so the number of threads configured via
+ * {@link RecommenderProperties#getPredictionThreads()} is an upper bound for the whole
+ * application and not for every task.
+ * <p>
+ * This class is exposed as a Spring Component via
+ * {@link de.tudarmstadt.ukp.inception.recommendation.config.RecommenderServiceAutoConfiguration}.
+ * </p>
+ */
+public class PredictionWorkerPool
+    implements DisposableBean
+{
+    private final int threads;
+    private final ExecutorService executor;
+
+    public PredictionWorkerPool(RecommenderProperties aProperties)
+    {
+        threads = Math.max(1, aProperties.getPredictionThreads());
+        executor = Executors.newFixedThreadPool(threads, new BasicThreadFactory.Builder() //
+                .daemon(true) //
+                .namingPattern("prediction-worker-%d") //
+                .build());
+    }
+
+    @Override
+    public void destroy()
+    {
+        executor.shutdownNow();
+    }
+
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * Runs the given worker the given number of times on the pool and waits until all runs have
+     * ended. If the pool is busy with the workers of other tasks, the runs wait for a free thread.
+     * If a run fails or the calling thread is interrupted, the remaining runs are cancelled
+     * (running ones are interrupted) before the exception is passed on.
+     *
+     * @param aWorkers
+     *            number of times the worker is run.
+     * @param aWorker
+     *            the worker. Runs of the worker usually take their work from a shared queue.
+     * @throws InterruptedException
+     *             if the calling thread was interrupted while waiting for the workers.
+     * @throws ExecutionException
+     *             if a run of the worker failed.
+     */
+    public void runWorkers(int aWorkers, Runnable aWorker)
+        throws InterruptedException, ExecutionException
+    {
+        var completion = new ExecutorCompletionService<Void>(executor);
+        var runs = new ArrayList<Future<Void>>();
+        try {
+            for (var i = 0; i < aWorkers; i++) {
+                runs.add(completion.submit(aWorker, null));
+            }
+
+            // Wait in the order in which the runs end, so a failure is noticed right away
+            for (var i = 0; i < aWorkers; i++) {
+                completion.take().get();
+            }
+        }
+        finally {
+            // No-op for runs which have already completed
+            for (var run : runs) {
+                run.cancel(true);
+            }
+        }
+    }
+}
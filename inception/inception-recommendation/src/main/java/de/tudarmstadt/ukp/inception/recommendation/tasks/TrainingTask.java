@@ -23,11 +23,9 @@ import static java.lang.System.currentTimeMillis;
 import static org.apache.commons.lang3.exception.ExceptionUtils.getRootCauseMessage;
 
 import java.lang.invoke.MethodHandles;
-import java.util.List;
 
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.concurrent.ConcurrentException;
-import org.apache.uima.cas.CAS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,6 +38,7 @@ import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
 import de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.EvaluatedRecommender;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngine;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationException;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
 import de.tudarmstadt.ukp.inception.recommendation.event.RecommenderTaskNotificationEvent;
@@ -198,38 +197,66 @@ public class TrainingTask
             return;
         }
 
-        var trainingCasses = casLoader.getRelevantCasses(aRecommender);
+        int trainingDocumentCount;
+        if (engine.isStreamingTrainingSupported()) {
+            try (var trainingCasses = casLoader.streamRelevantCasses(aRecommender)) {
+                if (isTrainingDataMissing(engine, aRecommender, trainingCasses.isEmpty())) {
+                    return;
+                }
 
-        // If no data for training is available, but the engine requires training,
-        // do not mark as ready
-        if (trainingCasses.isEmpty() && engine.getTrainingCapability() == TRAINING_REQUIRED) {
-            logNoDataAvailableForTraining(aRecommender);
-            // This can happen if there were already predictions based on existing
-            // annotations, but all annotations have been removed/deleted. To ensure
-            // that the prediction run removes the stale predictions, we need to
-            // call it a success here.
-            seenSuccessfulTraining = true;
-            return;
+                logTrainingRecommenderStart(casLoader, aRecommender,
+                        trainingCasses.getCandidateCount());
+
+                engine.trainStreaming(ctx, trainingCasses);
+                trainingDocumentCount = trainingCasses.getCount();
+            }
         }
+        else {
+            var trainingCasses = casLoader.getRelevantCasses(aRecommender);
+
+            if (isTrainingDataMissing(engine, aRecommender, trainingCasses.isEmpty())) {
+                return;
+            }
+
+            logTrainingRecommenderStart(casLoader, aRecommender, trainingCasses.size());
 
-        logTrainingRecommenderStart(casLoader, aRecommender, trainingCasses);
+            engine.train(ctx, trainingCasses);
+            trainingDocumentCount = trainingCasses.size();
+        }
 
-        engine.train(ctx, trainingCasses);
         inheritLog(ctx.getMessages());
 
         var duration = currentTimeMillis() - startTime;
 
         if (!engine.isReadyForPrediction(ctx)) {
-            logTrainingFailure(aRecommender, duration, casLoader, trainingCasses);
+            logTrainingFailure(aRecommender, duration, casLoader, trainingDocumentCount);
             return;
         }
 
-        logTrainingSuccessful(casLoader, aRecommender, trainingCasses, duration);
+        logTrainingSuccessful(casLoader, aRecommender, trainingDocumentCount, duration);
         seenSuccessfulTraining = true;
 
         commitContext(sessionOwner, aRecommender, ctx);
     }
 
+    private boolean isTrainingDataMissing(RecommendationEngine aEngine, Recommender aRecommender,
+            boolean aNoTrainingData)
+    {
+        // If no data for training is available, but the engine requires training,
+        // do not mark as ready
+        if (aNoTrainingData && aEngine.getTrainingCapability() == TRAINING_REQUIRED) {
+            logNoDataAvailableForTraining(aRecommender);
+            // This can happen if there were already predictions based on existing
+            // annotations, but all annotations have been removed/deleted. To ensure
+            // that the prediction run removes the stale predictions, we need to
+            // call it a success here.
+            seenSuccessfulTraining = true;
+            return true;
+        }
+
+        return false;
+    }
+
     private void schedulePredictionTask()
     {
         var predictionTask = PredictionTask.builder() //
@@ -343,10 +370,9 @@ public class TrainingTask
     }
 
     private void logTrainingFailure(Recommender recommender, long duration, LazyCasLoader aLoader,
-            List<CAS> aTrainCasses)
+            int trainDocNum)
     {
         int docNum = aLoader.size();
-        int trainDocNum = aTrainCasses.size();
 
         LOG.debug("[{}][{}][{}]: Training on [{}] out of [{}] documents not successful ({} ms)",
                 getId(), getSessionOwner().getUsername(), recommender.getName(), trainDocNum,
@@ -364,16 +390,16 @@ public class TrainingTask
     }
 
     private void logTrainingSuccessful(LazyCasLoader casses, Recommender recommender,
-            List<CAS> cassesForTraining, long duration)
+            int aTrainDocNum, long duration)
         throws ConcurrentException
     {
         LOG.debug("[{}][{}][{}]: Training successful on [{}] out of [{}] documents ({} ms)",
-                getId(), getSessionOwner().getUsername(), recommender.getName(),
-                cassesForTraining.size(), casses.size(), duration);
+                getId(), getSessionOwner().getUsername(), recommender.getName(), aTrainDocNum,
+                casses.size(), duration);
 
         log(LogMessage.info(recommender.getName(),
-                "Training successful on [%d] out of [%d] documents (%d ms)",
-                cassesForTraining.size(), casses.size(), duration));
+                "Training successful on [%d] out of [%d] documents (%d ms)", aTrainDocNum,
+                casses.size(), duration));
     }
 
     private void logTrainingOverallStart()
@@ -385,18 +411,18 @@ public class TrainingTask
     }
 
     private void logTrainingRecommenderStart(LazyCasLoader aLoader, Recommender recommender,
-            List<CAS> cassesForTraining)
+            int aTrainDocNum)
         throws ConcurrentException
     {
         getMonitor().addMessage(LogMessage.info(this, "%s", recommender.getName()));
 
         LOG.debug("[{}][{}][{}]: Training model on [{}] out of [{}] documents ...", getId(),
-                getSessionOwner().getUsername(), recommender.getName(), cassesForTraining.size(),
+                getSessionOwner().getUsername(), recommender.getName(), aTrainDocNum,
                 aLoader.size());
 
         log(LogMessage.info(recommender.getName(),
                 "Training model for [%s] on [%d] out of [%d] documents ...",
-                recommender.getLayer().getUiName(), cassesForTraining.size(), aLoader.size()));
+                recommender.getLayer().getUiName(), aTrainDocNum, aLoader.size()));
     }
 
     private void handleError(Recommender recommender, Throwable e)
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.tasks;
+
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.SHARED_READ_ONLY_ACCESS;
+import static de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentState.FINISHED;
+import static de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentState.IN_PROGRESS;
+import static org.apache.uima.fit.factory.JCasFactory.createText;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.uima.cas.CAS;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode;
+import de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasUpgradeMode;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentState;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
+import de.tudarmstadt.ukp.inception.annotation.layer.span.SpanLayerSupport;
+import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageSession;
+import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
+
+@ExtendWith(MockitoExtension.class)
+class LazyCasLoaderTest
+{
+    private static final String DATA_OWNER = "user";
+
+    private @Mock DocumentService documentService;
+
+    private Project project;
+    private Recommender recommender;
+    private Map<SourceDocument, AnnotationDocument> documents;
+    private Map<SourceDocument, CAS> casses;
+    private List<CasStorageSession> loadingSessions;
+
+    @BeforeEach
+    void setup() throws Exception
+    {
+        project = Project.builder().withId(1l).build();
+        var layer = AnnotationLayer.builder().withId(1l).forJCasClass(NamedEntity.class)
+                .withType(SpanLayerSupport.TYPE).build();
+        var feature = AnnotationFeature.builder().withId(1l).withName(NamedEntity._FeatName_value)
+                .withType(CAS.TYPE_NAME_STRING).withLayer(layer).build();
+        recommender = Recommender.builder().withId(1l).withName("rec").withLayer(layer)
+                .withFeature(feature).withStatesIgnoredForTraining(Set.of(IN_PROGRESS)).build();
+
+        documents = new LinkedHashMap<>();
+        casses = new HashMap<>();
+        loadingSessions = new ArrayList<>();
+
+        addDocument(1, FINISHED, true);
+        addDocument(2, FINISHED, false);
+        addDocument(3, IN_PROGRESS, true);
+        addDocument(4, FINISHED, true);
+        addDocument(5, null, true);
+
+        when(documentService.listAllDocuments(project, DATA_OWNER)).thenReturn(documents);
+        when(documentService.readAnnotationCas(any(SourceDocument.class), eq(DATA_OWNER),
+                any(CasUpgradeMode.class), any(CasAccessMode.class))).thenAnswer(call -> {
+                    SourceDocument doc = call.getArgument(0);
+                    var cas = casses.get(doc);
+                    var session = CasStorageSession.get();
+                    session.add(doc.getId(), DATA_OWNER, SHARED_READ_ONLY_ACCESS, cas);
+                    loadingSessions.add(session);
+                    return cas;
+                });
+    }
+
+    @Test
+    void thatStreamingSeesSameCassesAsBatch() throws Exception
+    {
+        List<CAS> batchCasses;
+        try (var session = CasStorageSession.open()) {
+            batchCasses = new LazyCasLoader(documentService, project, DATA_OWNER)
+                    .getRelevantCasses(recommender);
+        }
+
+        var streamedCasses = new ArrayList<CAS>();
+        try (var session = CasStorageSession.open()) {
+            try (var stream = new LazyCasLoader(documentService, project, DATA_OWNER)
+                    .streamRelevantCasses(recommender)) {
+                for (var cas : stream) {
+                    streamedCasses.add(cas);
+                }
+
+                assertThat(stream.getCount()).isEqualTo(batchCasses.size());
+                assertThat(stream.getCandidateCount()).isEqualTo(4);
+            }
+        }
+
+        assertThat(batchCasses) //
+                .extracting(CAS::getDocumentText) //
+                .containsExactly("Document 1", "Document 4", "Document 5");
+        assertThat(streamedCasses).containsExactlyElementsOf(batchCasses);
+    }
+
+    @Test
+    void thatStreamingReleasesEachCasBeforeLoadingTheNext() throws Exception
+    {
+        try (var session = CasStorageSession.open()) {
+            try (var stream = new LazyCasLoader(documentService, project, DATA_OWNER)
+                    .streamRelevantCasses(recommender)) {
+                for (var cas : stream) {
+                    var current = loadingSessions.get(loadingSessions.size() - 1);
+                    assertThat(current.isClosed()).isFalse();
+                    assertThat(current.contains(cas)).isTrue();
+                    assertThat(session.contains(cas)).isFalse();
+                    assertThat(loadingSessions.subList(0, loadingSessions.size() - 1)) //
+                            .allMatch(CasStorageSession::isClosed);
+                }
+            }
+
+            assertThat(loadingSessions) //
+                    .hasSize(4) //
+                    .allMatch(CasStorageSession::isClosed);
+            assertThat(CasStorageSession.get()).isSameAs(session);
+        }
+    }
+
+    private void addDocument(long aId, AnnotationDocumentState aState, boolean aAnnotated)
+        throws Exception
+    {
+        var doc = SourceDocument.builder().withId(aId).withName("doc" + aId).withProject(project)
+                .build();
+        var annDoc = aState != null ? AnnotationDocument.builder().withDocument(doc)
+                .withProject(project).withUser(DATA_OWNER).withState(aState).build() : null;
+        documents.put(doc, annDoc);
+
+        var jCas = createText("Document " + aId, "en");
+        if (aAnnotated) {
+            var ne = new NamedEntity(jCas, 0, 8);
+            ne.setValue("PER");
+            ne.addToIndexes();
+        }
+        casses.put(doc, jCas.getCas());
+    }
+}
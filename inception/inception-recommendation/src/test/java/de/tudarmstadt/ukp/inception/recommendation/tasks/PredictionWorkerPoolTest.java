@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.tasks;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommenderPropertiesImpl;
+
+class PredictionWorkerPoolTest
+{
+    private PredictionWorkerPool sut;
+
+    @BeforeEach
+    void setup()
+    {
+        var properties = new RecommenderPropertiesImpl();
+        properties.setPredictionThreads(2);
+        sut = new PredictionWorkerPool(properties);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        sut.destroy();
+    }
+
+    @Test
+    void thatAllRunsCompleteWithinThreadLimit() throws Exception
+    {
+        var active = new AtomicInteger();
+        var maxActive = new AtomicInteger();
+        var runs = new AtomicInteger();
+
+        sut.runWorkers(4, () -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(100);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            active.decrementAndGet();
+            runs.incrementAndGet();
+        });
+
+        assertThat(runs).hasValue(4);
+        assertThat(maxActive.get()).isLessThanOrEqualTo(sut.getThreads());
+    }
+
+    @Test
+    void thatFailedRunCancelsOtherRuns()
+    {
+        var started = new AtomicInteger();
+        var interrupted = new CountDownLatch(1);
+
+        assertThatThrownBy(() -> sut.runWorkers(2, () -> {
+            if (started.incrementAndGet() == 1) {
+                awaitInterrupt(interrupted);
+            }
+            else {
+                throw new IllegalStateException("boom");
+            }
+        })) //
+                .isInstanceOf(ExecutionException.class) //
+                .hasRootCauseInstanceOf(IllegalStateException.class);
+
+        await().atMost(5, SECONDS).until(() -> interrupted.getCount() == 0);
+    }
+
+    @Test
+    void thatInterruptCancelsRuns() throws Exception
+    {
+        var started = new AtomicInteger();
+        var interrupted = new CountDownLatch(2);
+        var failure = new AtomicReference<Throwable>();
+
+        var caller = new Thread(() -> {
+            try {
+                sut.runWorkers(2, () -> {
+                    started.incrementAndGet();
+                    awaitInterrupt(interrupted);
+                });
+            }
+            catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        caller.start();
+
+        // Wait until both runs are blocked before interrupting the caller
+        await().atMost(5, SECONDS).until(
+                () -> started.get() == 2 && caller.getState() == Thread.State.WAITING);
+        caller.interrupt();
+        caller.join(SECONDS.toMillis(5));
+
+        assertThat(failure.get()).isInstanceOf(InterruptedException.class);
+        await().atMost(5, SECONDS).until(() -> interrupted.getCount() == 0);
+    }
+
+    private static void awaitInterrupt(CountDownLatch aInterrupted)
+    {
+        try {
+            Thread.sleep(SECONDS.toMillis(30));
+        }
+        catch (InterruptedException e) {
+            aInterrupted.countDown();
+        }
+    }
+}
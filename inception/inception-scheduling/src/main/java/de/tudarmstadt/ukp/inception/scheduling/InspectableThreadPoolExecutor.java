@@ -37,8 +37,26 @@ public class InspectableThreadPoolExecutor
             BiConsumer<Thread, Runnable> aBeforeExecuteCallback,
             BiConsumer<Runnable, Throwable> aAfterExecuteCallback)
     {
-        super(aNumberOfThreads, aNumberOfThreads, 0L, MILLISECONDS,
-                new ArrayBlockingQueue<>(queueSize, true), buildThreadFactory());
+        this(aNumberOfThreads, queueSize, "inception-worker-%d", 0L, aBeforeExecuteCallback,
+                aAfterExecuteCallback);
+    }
+
+    /**
+     * @param aKeepAliveMillis
+     *            time after which idle threads are terminated. If this is {@code 0}, threads are
+     *            kept until the executor is shut down.
+     */
+    public InspectableThreadPoolExecutor(int aNumberOfThreads, int queueSize,
+            String aNamingPattern, long aKeepAliveMillis,
+            BiConsumer<Thread, Runnable> aBeforeExecuteCallback,
+            BiConsumer<Runnable, Throwable> aAfterExecuteCallback)
+    {
+        super(aNumberOfThreads, aNumberOfThreads, aKeepAliveMillis, MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize, true), buildThreadFactory(aNamingPattern));
+
+        if (aKeepAliveMillis > 0) {
+            allowCoreThreadTimeOut(true);
+        }
 
         beforeExecuteCallback = aBeforeExecuteCallback;
         afterExecuteCallback = aAfterExecuteCallback;
@@ -60,11 +78,11 @@ public class InspectableThreadPoolExecutor
         afterExecuteCallback.accept(aRunnable, aThrowable);
     }
 
-    private static ThreadFactory buildThreadFactory()
+    private static ThreadFactory buildThreadFactory(String aNamingPattern)
     {
         return new BasicThreadFactory.Builder() //
                 .daemon(true) //
-                .namingPattern("inception-worker-%d") //
+                .namingPattern(aNamingPattern) //
                 .priority(MIN_PRIORITY) //
                 .build();
     }
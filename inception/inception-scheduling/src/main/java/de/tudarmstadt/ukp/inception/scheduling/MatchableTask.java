@@ -28,4 +28,17 @@ public interface MatchableTask
      * @return whether the given task matches this one
      */
     MatchResult matches(Task aTask);
+
+    /**
+     * Allows the scheduler to find matching tasks without calling {@link #matches} on every task
+     * of the project. Tasks only match tasks of the same project. If a task has a match key, it
+     * must only match tasks with the same key and matchable tasks without a key.
+     * 
+     * @return the match key (e.g. the type of the task and the document it operates on) or
+     *         {@code null} if the task may match any task of the project.
+     */
+    default Object getMatchKey()
+    {
+        return null;
+    }
 }
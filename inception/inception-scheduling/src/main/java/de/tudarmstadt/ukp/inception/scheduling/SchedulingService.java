@@ -18,6 +18,7 @@
 package de.tudarmstadt.ukp.inception.scheduling;
 
 import java.util.List;
+import java.util.LongSummaryStatistics;
 import java.util.Optional;
 import java.util.function.Predicate;
 
@@ -67,6 +68,21 @@ public interface SchedulingService
 
     Optional<Task> findTask(Predicate<Task> aPredicate);
 
+    /**
+     * @param aPriority
+     *            a priority class.
+     * @return statistics on how long the tasks of the given priority class waited until they were
+     *         started (in milliseconds).
+     */
+    LongSummaryStatistics getQueueWaitTimes(TaskPriority aPriority);
+
+    /**
+     * @return the number of threads which tasks of priority {@link TaskPriority#BULK} may occupy
+     *         at the same time. Tasks which process their work using additional threads should
+     *         not use more threads than this.
+     */
+    int getNumberOfBulkThreads();
+
     /**
      * Removes all task for the user with name {@code aUsername} from the scheduler's queue.
      * 
@@ -19,6 +19,8 @@ package de.tudarmstadt.ukp.inception.scheduling;
 
 import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.NO_MATCH;
 import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.UNQUEUE_EXISTING_AND_QUEUE_THIS;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.BULK;
+import static java.lang.System.currentTimeMillis;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import java.io.IOException;
@@ -26,10 +28,13 @@ import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Executors;
@@ -67,26 +72,82 @@ public class SchedulingServiceImpl
 {
     private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+    private static final long IO_THREAD_KEEP_ALIVE = 60_000;
+
     private final ApplicationContext applicationContext;
     private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor ioExecutor;
     private final ScheduledExecutorService watchdog;
     private final SessionRegistry sessionRegistry;
 
     private final List<Task> runningTasks;
-    private final List<Task> enqueuedTasks;
+    private final TaskQueue queue;
     private final List<Task> pendingAcknowledgement;
     private final Set<Project> deletionPending;
 
+    private final int numberOfThreads;
+    private final int numberOfBulkThreads;
+    private final int numberOfIoThreads;
+    private final int endpointConcurrency;
+
+    /**
+     * Number of tasks which have been handed to the executor and have not ended yet. Tasks are
+     * only handed to the executor if a thread is available for them, so that the executor does
+     * not decide on the order in which the tasks of different projects are run. Tasks which
+     * {@link TaskMonitor#yieldIfRequested() yield} are not counted while they wait.
+     */
+    private int dispatchedCount;
+    private final int[] dispatchedCountByPriority = new int[TaskPriority.values().length];
+
+    /**
+     * Number of tasks per priority which currently {@link TaskMonitor#yieldIfRequested() yield}.
+     * The thread released by a yielding task may only be taken by a task of a strictly higher
+     * priority, otherwise a bulk task could yield its thread to another bulk task.
+     */
+    private final int[] yieldingCountByPriority = new int[TaskPriority.values().length];
+
+    /**
+     * Number of {@link Task#isIoBound() I/O-bound} tasks which have been handed to the I/O
+     * executor and have not ended yet. These do not occupy one of the regular threads.
+     */
+    private int ioDispatchedCount;
+
+    /**
+     * Number of dispatched tasks per {@link Task#getEndpoint() remote endpoint}. Acts as a
+     * semaphore per endpoint that is only ever touched while holding the lock on this service.
+     */
+    private final Map<String, Integer> dispatchedCountByEndpoint = new HashMap<>();
+
+    private final Map<TaskPriority, LongSummaryStatistics> queueWaitTimes;
+
     @Autowired
     public SchedulingServiceImpl(ApplicationContext aApplicationContext,
             SchedulingProperties aConfig, SessionRegistry aSessionRegistry)
     {
         sessionRegistry = aSessionRegistry;
         applicationContext = aApplicationContext;
-        executor = new InspectableThreadPoolExecutor(aConfig.getNumberOfThreads(),
+        numberOfThreads = Math.max(1, aConfig.getNumberOfThreads());
+        // Bulk tasks must leave at least one thread for other tasks unless there is only one
+        numberOfBulkThreads = aConfig.getNumberOfBulkThreads() > 0
+                ? Math.min(aConfig.getNumberOfBulkThreads(), numberOfThreads)
+                : Math.max(1, numberOfThreads - 1);
+        // Bulk tasks which yield keep their thread while they wait, so the executor needs
+        // additional threads to start the tasks they yield to
+        executor = new InspectableThreadPoolExecutor(numberOfThreads + numberOfBulkThreads,
                 aConfig.getQueueSize(), this::beforeExecute, this::afterExecute);
+        // I/O-bound tasks mostly wait for remote services, so they get their own threads which
+        // are only kept around while there is work for them
+        numberOfIoThreads = Math.max(1, aConfig.getNumberOfIoThreads());
+        endpointConcurrency = Math.max(1, aConfig.getEndpointConcurrency());
+        ioExecutor = new InspectableThreadPoolExecutor(numberOfIoThreads, aConfig.getQueueSize(),
+                "inception-io-worker-%d", IO_THREAD_KEEP_ALIVE, this::beforeExecute,
+                this::afterExecute);
+        queueWaitTimes = new EnumMap<>(TaskPriority.class);
+        for (var priority : TaskPriority.values()) {
+            queueWaitTimes.put(priority, new LongSummaryStatistics());
+        }
         runningTasks = Collections.synchronizedList(new ArrayList<>());
-        enqueuedTasks = Collections.synchronizedList(new ArrayList<>());
+        queue = new TaskQueue();
         pendingAcknowledgement = Collections.synchronizedList(new ArrayList<>());
         deletionPending = Collections.synchronizedSet(new LinkedHashSet<>());
         watchdog = Executors.newScheduledThreadPool(1);
@@ -97,7 +158,9 @@ public class SchedulingServiceImpl
     private void beforeExecute(Thread aThread, Runnable aRunnable)
     {
         Validate.notNull(aRunnable, "Task cannot be null");
-        runningTasks.add((Task) aRunnable);
+        var task = (Task) aRunnable;
+        runningTasks.add(task);
+        recordQueueWaitTime(task);
         LOG.debug("Starting task: {} ", aRunnable);
     }
 
@@ -108,6 +171,10 @@ public class SchedulingServiceImpl
         var task = (Task) aRunnable;
 
         LOG.debug("Ended task [{}]: {}", task, task.getMonitor().getState());
+        synchronized (this) {
+            releaseThread(task);
+            releaseEndpoint(task);
+        }
         handleTaskEnded(task);
 
         scheduleEligibleTasks();
@@ -115,6 +182,9 @@ public class SchedulingServiceImpl
 
     private void handleTaskEnded(Task aTask)
     {
+        synchronized (this) {
+            queue.removeActive(aTask);
+        }
         runningTasks.remove(aTask);
         if (aTask.getMonitor().isCancelled() || !aTask.getScope().isDestroyOnEnd()) {
             pendingAcknowledgement.add(aTask);
@@ -128,11 +198,9 @@ public class SchedulingServiceImpl
      * @return tasks which have not been handed to the executor yet.
      */
     @Override
-    public List<Task> getEnqueuedTasks()
+    public synchronized List<Task> getEnqueuedTasks()
     {
-        // We return copy here, as else the list the receiver sees might be updated
-        // when new tasks are running or existing ones stopped.
-        return new ArrayList<>(enqueuedTasks);
+        return queue.getQueuedTasks();
     }
 
     /**
@@ -143,6 +211,7 @@ public class SchedulingServiceImpl
     {
         List<Task> result = new ArrayList<>();
         executor.getQueue().forEach(r -> result.add((Task) r));
+        ioExecutor.getQueue().forEach(r -> result.add((Task) r));
         return result;
     }
 
@@ -199,7 +268,10 @@ public class SchedulingServiceImpl
      * The separation between enqueued and scheduled tasks is necessary to allow the ability to run
      * multiple tasks in parallel while at the same time avoiding running equivalent tasks in
      * parallel.
-     * 
+     * <p>
+     * Tasks are only handed to the executor when a thread is free for them. If tasks of several
+     * projects are waiting, the projects take turns.
+     *
      * @param aTask
      *            the task to be enqueued.
      */
@@ -214,8 +286,10 @@ public class SchedulingServiceImpl
             return;
         }
 
+        aTask.setEnqueueTime(currentTimeMillis());
+
         var tasksToUnqueue = new ArrayList<Task>();
-        for (var enqueuedTask : enqueuedTasks) {
+        for (var enqueuedTask : List.copyOf(queue.getQueuedMatchCandidates(aTask))) {
             switch (matchTask(aTask, enqueuedTask)) {
             case DISCARD_OR_QUEUE_THIS:
                 // Check if the incoming task should be discarded
@@ -236,30 +310,25 @@ public class SchedulingServiceImpl
         for (Task taskToUnqueue : tasksToUnqueue) {
             LOG.debug("Matching task already queued - unqueuing exsting: [{}] in favor of "
                     + "incoming [{}]", taskToUnqueue, aTask);
-            enqueuedTasks.remove(taskToUnqueue);
+            queue.removeQueued(taskToUnqueue);
         }
 
-        if (containsMatchingTask(getScheduledTasks(), aTask)) {
-            LOG.debug("Matching task already scheduled - adding to queue: [{}]", aTask);
-            enqueuedTasks.add(aTask);
-            return;
-        }
-
-        if (containsMatchingTask(getRunningTasks(), aTask)) {
-            LOG.debug("Matching task already running - adding to queue: [{}]", aTask);
-            enqueuedTasks.add(aTask);
+        if (containsMatchingTask(queue.getActiveMatchCandidates(aTask), aTask)) {
+            LOG.debug("Matching task already scheduled or running - adding to queue: [{}]",
+                    aTask);
+            queue.addQueued(aTask);
             return;
         }
 
         if (!aTask.isReadyToStart()) {
             LOG.debug("Task not yet ready to start - adding to queue: [{}]", aTask);
-            enqueuedTasks.add(aTask);
+            queue.addQueued(aTask);
             return;
         }
 
-        schedule(aTask);
-
-        logState();
+        // If all threads are busy, the task has to wait for its turn
+        queue.addQueued(aTask);
+        scheduleEligibleTasks();
     }
 
     private MatchResult matchTask(Task aTask, Task aEnqueueTask)
@@ -290,6 +359,10 @@ public class SchedulingServiceImpl
     {
         LOG.debug("Scheduling task [{}]", aTask);
 
+        queue.addActive(aTask);
+        acquireThread(aTask);
+        acquireEndpoint(aTask);
+
         try {
             // This auto-wires the task fields manually
             var factory = applicationContext.getAutowireCapableBeanFactory();
@@ -300,7 +373,16 @@ public class SchedulingServiceImpl
             LOG.error("Error initializing task [{}]", aTask, e);
         }
 
-        executor.execute(aTask);
+        if (aTask.getPriority() == BULK && aTask.getMonitor() != null) {
+            aTask.getMonitor().setYieldHandler(() -> yieldToHigherPriorityTasks(aTask));
+        }
+
+        if (aTask.isIoBound()) {
+            ioExecutor.execute(aTask);
+        }
+        else {
+            executor.execute(aTask);
+        }
     }
 
     private synchronized void cleanUpTasks()
@@ -337,21 +419,199 @@ public class SchedulingServiceImpl
         logState();
     }
 
+    /**
+     * Hands queued tasks to the executor as long as there are threads available for them. The
+     * projects take turns, so that a project with many tasks cannot block the others.
+     */
     private synchronized void scheduleEligibleTasks()
     {
-        Iterator<Task> i = enqueuedTasks.iterator();
-
-        while (i.hasNext()) {
-            Task t = i.next();
-            if (!getScheduledAndRunningTasks().contains(t) && t.isReadyToStart()) {
-                i.remove();
-                schedule(t);
+        while (dispatchedCount < numberOfThreads || ioDispatchedCount < numberOfIoThreads) {
+            var task = queue.pollEligible(this::canStart);
+            if (task.isEmpty()) {
+                break;
             }
+
+            schedule(task.get());
         }
 
+        // Wake up tasks which have yielded so they can check if they may continue
+        notifyAll();
+
         logState();
     }
 
+    private boolean canStart(Task aTask)
+    {
+        return isEligible(aTask) && hasCapacity(aTask);
+    }
+
+    private boolean isEligible(Task aTask)
+    {
+        return !queue.isEqualTaskActive(aTask) && aTask.isReadyToStart();
+    }
+
+    private boolean hasCapacity(Task aTask)
+    {
+        if (aTask.getEndpoint() != null && dispatchedCountByEndpoint
+                .getOrDefault(aTask.getEndpoint(), 0) >= endpointConcurrency) {
+            return false;
+        }
+
+        if (aTask.isIoBound()) {
+            return ioDispatchedCount < numberOfIoThreads;
+        }
+
+        return dispatchedCount + getReservedCount(aTask) < numberOfThreads
+                && (aTask.getPriority() != BULK
+                        || dispatchedCountByPriority[BULK.ordinal()] < numberOfBulkThreads);
+    }
+
+    /**
+     * @return number of threads released by yielding tasks which the given task may not take
+     *         because it does not have a higher priority than the yielding tasks.
+     */
+    private int getReservedCount(Task aTask)
+    {
+        var reserved = 0;
+        for (var i = 0; i <= aTask.getPriority().ordinal(); i++) {
+            reserved += yieldingCountByPriority[i];
+        }
+        return reserved;
+    }
+
+    private void acquireThread(Task aTask)
+    {
+        if (aTask.isIoBound()) {
+            ioDispatchedCount++;
+        }
+        else {
+            dispatchedCount++;
+            dispatchedCountByPriority[aTask.getPriority().ordinal()]++;
+        }
+    }
+
+    private void releaseThread(Task aTask)
+    {
+        if (aTask.isIoBound()) {
+            ioDispatchedCount--;
+        }
+        else {
+            dispatchedCount--;
+            dispatchedCountByPriority[aTask.getPriority().ordinal()]--;
+        }
+    }
+
+    private void acquireEndpoint(Task aTask)
+    {
+        if (aTask.getEndpoint() != null) {
+            dispatchedCountByEndpoint.merge(aTask.getEndpoint(), 1, Integer::sum);
+        }
+    }
+
+    private void releaseEndpoint(Task aTask)
+    {
+        if (aTask.getEndpoint() != null) {
+            dispatchedCountByEndpoint.computeIfPresent(aTask.getEndpoint(),
+                    (k, v) -> v > 1 ? v - 1 : null);
+        }
+    }
+
+    /**
+     * Checks if a task of a higher priority than the given one is waiting which
+     * {@link #scheduleEligibleTasks()} would start right now. I/O-bound tasks do not run on the
+     * thread of the given task, so they are not considered. Must be called while the thread of the
+     * given task is released, otherwise there would be no capacity.
+     */
+    private boolean isHigherPriorityTaskWaiting(Task aTask)
+    {
+        for (var priority : TaskPriority.values()) {
+            if (priority.compareTo(aTask.getPriority()) >= 0) {
+                break;
+            }
+
+            if (queue.hasEligible(priority, t -> !t.isIoBound() && canStart(t))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Called by a running task via {@link TaskMonitor#yieldIfRequested()}. If all threads are
+     * busy and tasks of a higher priority are waiting, the thread of the calling task is released
+     * to them and the task waits until they have been started. While the task waits, its thread
+     * is reserved for tasks of a higher priority.
+     */
+    private void yieldToHigherPriorityTasks(Task aTask)
+    {
+        synchronized (this) {
+            if (aTask.isIoBound()) {
+                return;
+            }
+
+            // If there is a free thread for the waiting tasks, there is no need to yield
+            if (isHigherPriorityTaskWaiting(aTask)) {
+                scheduleEligibleTasks();
+                return;
+            }
+
+            releaseThread(aTask);
+            yieldingCountByPriority[aTask.getPriority().ordinal()]++;
+            try {
+                if (!isHigherPriorityTaskWaiting(aTask)) {
+                    return;
+                }
+
+                LOG.debug("Task [{}] yielding to tasks of higher priority", aTask);
+
+                scheduleEligibleTasks();
+
+                while (isHigherPriorityTaskWaiting(aTask) && !aTask.getMonitor().isCancelled()
+                        && !executor.isShutdown()) {
+                    wait(1000);
+                }
+
+                LOG.debug("Task [{}] resuming", aTask);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finally {
+                yieldingCountByPriority[aTask.getPriority().ordinal()]--;
+                acquireThread(aTask);
+            }
+        }
+    }
+
+    private void recordQueueWaitTime(Task aTask)
+    {
+        if (aTask.getEnqueueTime() < 0) {
+            return;
+        }
+
+        var waitTime = currentTimeMillis() - aTask.getEnqueueTime();
+        synchronized (queueWaitTimes) {
+            queueWaitTimes.get(aTask.getPriority()).accept(waitTime);
+        }
+    }
+
+    @Override
+    public LongSummaryStatistics getQueueWaitTimes(TaskPriority aPriority)
+    {
+        var copy = new LongSummaryStatistics();
+        synchronized (queueWaitTimes) {
+            copy.combine(queueWaitTimes.get(aPriority));
+        }
+        return copy;
+    }
+
+    @Override
+    public int getNumberOfBulkThreads()
+    {
+        return numberOfBulkThreads;
+    }
+
     /**
      * Removes all task for the user with name {@code aUsername} from the scheduler's queue.
      * 
@@ -384,9 +644,8 @@ public class SchedulingServiceImpl
     @Override
     public synchronized Optional<Task> findTask(Predicate<Task> aPredicate)
     {
-        return enqueuedTasks.stream().filter(aPredicate).findFirst() //
-                .or(() -> executor.getQueue().stream().map(Task.class::cast).filter(aPredicate)
-                        .findFirst())
+        return queue.getQueuedTasks().stream().filter(aPredicate).findFirst() //
+                .or(() -> getScheduledTasks().stream().filter(aPredicate).findFirst())
                 .or(() -> runningTasks.stream().filter(aPredicate).findFirst())
                 .or(() -> pendingAcknowledgement.stream().filter(aPredicate).findFirst());
     }
@@ -394,22 +653,21 @@ public class SchedulingServiceImpl
     @Override
     public synchronized void stopAllTasksMatching(Predicate<Task> aPredicate)
     {
-        enqueuedTasks.removeIf(task -> {
-            if (aPredicate.test(task)) {
-                task.destroy();
-                return true;
-            }
-            return false;
-        });
-
-        executor.getQueue().removeIf(runnable -> {
-            var task = (Task) runnable;
-            if (aPredicate.test(task)) {
-                task.destroy();
-                return true;
-            }
-            return false;
-        });
+        queue.removeQueuedIf(aPredicate).forEach(Task::destroy);
+
+        for (var exec : List.of(executor, ioExecutor)) {
+            exec.getQueue().removeIf(runnable -> {
+                var task = (Task) runnable;
+                if (aPredicate.test(task)) {
+                    queue.removeActive(task);
+                    releaseThread(task);
+                    releaseEndpoint(task);
+                    task.destroy();
+                    return true;
+                }
+                return false;
+            });
+        }
 
         runningTasks.forEach(task -> {
             if (aPredicate.test(task)) {
@@ -508,9 +766,13 @@ public class SchedulingServiceImpl
         LOG.info("Shutting down scheduling service!");
         watchdog.shutdownNow();
         executor.shutdownNow();
+        ioExecutor.shutdownNow();
 
-        enqueuedTasks.clear();
+        synchronized (this) {
+            queue.clear();
+        }
         executor.getQueue().clear();
+        ioExecutor.getQueue().clear();
         pendingAcknowledgement.clear();
 
         try {
@@ -522,6 +784,7 @@ public class SchedulingServiceImpl
 
         try {
             executor.awaitTermination(30, SECONDS);
+            ioExecutor.awaitTermination(30, SECONDS);
         }
         catch (InterruptedException e) {
             // Ignore
@@ -545,6 +808,9 @@ public class SchedulingServiceImpl
             factory.initializeBean(aTask, "transientTask");
 
             LOG.debug("Starting task (sync): {} ", aTask);
+            synchronized (this) {
+                queue.addActive(aTask);
+            }
             runningTasks.add(aTask);
             aTask.runSync();
         }
@@ -57,18 +57,28 @@ public abstract class Task
     private final int id;
     private final String type;
     private final boolean cancellable;
+    private final TaskPriority priority;
+    private final boolean ioBound;
+    private final String endpoint;
 
     private TaskMonitor monitor;
     private Task parentTask;
 
     private TaskScope scope;
 
+    /**
+     * Time at which the task was last handed to the scheduler. Used to measure how long the task
+     * waited before it was started.
+     */
+    private long enqueueTime = -1;
+
     protected Task(Builder<? extends Builder<?>> builder)
     {
         notNull(builder.project, "Project must be specified");
         notNull(builder.trigger, "Trigger must be specified");
         notNull(builder.scope, "Scope must be specified");
         notNull(builder.type, "Type must be specified");
+        notNull(builder.priority, "Priority must be specified");
 
         id = nextId.getAndIncrement();
         handle = new TaskHandle(id);
@@ -78,6 +88,9 @@ public abstract class Task
         type = builder.type;
 
         cancellable = builder.cancellable;
+        priority = builder.priority;
+        ioBound = builder.ioBound;
+        endpoint = builder.endpoint;
         parentTask = builder.parentTask;
         scope = builder.scope;
         if (builder.monitor != null) {
@@ -165,6 +178,41 @@ public abstract class Task
         return scope;
     }
 
+    public TaskPriority getPriority()
+    {
+        return priority;
+    }
+
+    /**
+     * @return whether the task spends most of its time waiting for I/O, e.g. for a remote service.
+     *         Such tasks are run on separate threads so they do not keep CPU-bound tasks from
+     *         running.
+     */
+    public boolean isIoBound()
+    {
+        return ioBound;
+    }
+
+    /**
+     * @return the remote endpoint the task talks to or {@code null} if there is none. The
+     *         scheduler limits the number of tasks running against the same endpoint at the same
+     *         time.
+     */
+    public String getEndpoint()
+    {
+        return endpoint;
+    }
+
+    long getEnqueueTime()
+    {
+        return enqueueTime;
+    }
+
+    void setEnqueueTime(long aEnqueueTime)
+    {
+        enqueueTime = aEnqueueTime;
+    }
+
     void destroy()
     {
         if (monitor != null) {
@@ -261,6 +309,9 @@ public abstract class Task
         protected boolean cancellable;
         protected Task parentTask;
         protected TaskScope scope = TaskScope.EPHEMERAL;
+        protected TaskPriority priority = TaskPriority.BACKGROUND;
+        protected boolean ioBound;
+        protected String endpoint;
 
         protected Builder()
         {
@@ -341,5 +392,42 @@ public abstract class Task
             this.scope = aScope;
             return (T) this;
         }
+
+        /**
+         * @param aPriority
+         *            the priority class of the task.
+         */
+        @SuppressWarnings("unchecked")
+        public T withPriority(TaskPriority aPriority)
+        {
+            this.priority = aPriority;
+            return (T) this;
+        }
+
+        /**
+         * @param aIoBound
+         *            whether the task spends most of its time waiting for I/O.
+         */
+        @SuppressWarnings("unchecked")
+        public T withIoBound(boolean aIoBound)
+        {
+            this.ioBound = aIoBound;
+            return (T) this;
+        }
+
+        /**
+         * @param aEndpoint
+         *            the remote endpoint the task talks to. Setting an endpoint also marks the task
+         *            as {@link #withIoBound I/O-bound}.
+         */
+        @SuppressWarnings("unchecked")
+        public T withEndpoint(String aEndpoint)
+        {
+            this.endpoint = aEndpoint;
+            if (aEndpoint != null) {
+                this.ioBound = true;
+            }
+            return (T) this;
+        }
     }
 }
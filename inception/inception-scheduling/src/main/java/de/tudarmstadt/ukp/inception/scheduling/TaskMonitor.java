@@ -53,6 +53,8 @@ public class TaskMonitor
     private boolean cancelled = false;
     private boolean destroyed = false;
 
+    private volatile Runnable yieldHandler;
+
     public TaskMonitor(Task aTask)
     {
         handle = aTask.getHandle();
@@ -214,6 +216,24 @@ public class TaskMonitor
         return cancelled;
     }
 
+    /**
+     * Long-running tasks should call this method regularly at points where they can pause, e.g.
+     * between two documents. If tasks of a higher priority are waiting for a thread, the call
+     * blocks until they have been started. Otherwise, it returns immediately.
+     */
+    public void yieldIfRequested()
+    {
+        var handler = yieldHandler;
+        if (handler != null && !cancelled) {
+            handler.run();
+        }
+    }
+
+    void setYieldHandler(Runnable aYieldHandler)
+    {
+        yieldHandler = aYieldHandler;
+    }
+
     @Deprecated
     public synchronized Progress toProgress()
     {
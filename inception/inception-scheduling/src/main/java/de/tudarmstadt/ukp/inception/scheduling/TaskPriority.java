@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.scheduling;
+
+/**
+ * Priority class of a task. When a thread becomes available, waiting tasks of a higher priority
+ * class are started before tasks of a lower priority class. The constants are ordered from the
+ * highest to the lowest priority.
+ */
+public enum TaskPriority
+{
+    /**
+     * Task a user is actively waiting for, e.g. generating predictions for the document that is
+     * currently open.
+     */
+    INTERACTIVE,
+
+    /**
+     * Task that runs in the background but whose results users expect to see soon, e.g. training
+     * a recommender or indexing a single document.
+     */
+    BACKGROUND,
+
+    /**
+     * Long-running task operating on a whole project, e.g. re-indexing a project or calculating
+     * agreement. Bulk tasks never occupy all threads and should
+     * {@link TaskMonitor#yieldIfRequested() yield} regularly.
+     */
+    BULK;
+}
@@ -0,0 +1,350 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.scheduling;
+
+import static java.util.Collections.emptyMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * The tasks known to the {@link SchedulingServiceImpl}, organized in one lane per project. Each
+ * lane contains the tasks which are waiting to be scheduled (queued) and the tasks which have been
+ * handed to the executor or are running (active).
+ * <p>
+ * Tasks only match tasks of the same project, so finding matching tasks only needs to look at the
+ * lane of the project. Within a lane, tasks are additionally indexed by equality and by their
+ * {@link MatchableTask#getMatchKey() match key}, so for most tasks, finding matching tasks does
+ * not depend on the number of tasks in the lane.
+ * <p>
+ * When choosing the next task to schedule, tasks of a higher {@link TaskPriority priority} are
+ * preferred. Within each priority, the lanes are served round-robin, so that a project with many
+ * tasks cannot starve the others.
+ * <p>
+ * This class is not thread-safe. It is guarded by the {@link SchedulingServiceImpl}.
+ */
+class TaskQueue
+{
+    private final Map<Long, Lane> lanes = new LinkedHashMap<>();
+    private final List<Long> laneOrder = new ArrayList<>();
+    private final int[] nextLane = new int[TaskPriority.values().length];
+
+    private Lane lane(Task aTask)
+    {
+        var projectId = projectId(aTask);
+        var lane = lanes.get(projectId);
+        if (lane == null) {
+            lane = new Lane();
+            lanes.put(projectId, lane);
+            laneOrder.add(projectId);
+        }
+        return lane;
+    }
+
+    private void removeLaneIfEmpty(Task aTask)
+    {
+        var projectId = projectId(aTask);
+        var lane = lanes.get(projectId);
+        if (lane == null || !lane.queued.isEmpty() || !lane.active.isEmpty()) {
+            return;
+        }
+
+        lanes.remove(projectId);
+        var index = laneOrder.indexOf(projectId);
+        laneOrder.remove(index);
+        for (var i = 0; i < nextLane.length; i++) {
+            if (index < nextLane[i]) {
+                nextLane[i]--;
+            }
+        }
+    }
+
+    /**
+     * @return the queued tasks which might match the given task.
+     */
+    Collection<Task> getQueuedMatchCandidates(Task aTask)
+    {
+        var lane = lanes.get(projectId(aTask));
+        return lane != null ? lane.queued.getMatchCandidates(aTask) : List.of();
+    }
+
+    /**
+     * @return the active tasks which might match the given task.
+     */
+    Collection<Task> getActiveMatchCandidates(Task aTask)
+    {
+        var lane = lanes.get(projectId(aTask));
+        return lane != null ? lane.active.getMatchCandidates(aTask) : List.of();
+    }
+
+    /**
+     * @return whether an active task is equal to the given task.
+     */
+    boolean isEqualTaskActive(Task aTask)
+    {
+        var lane = lanes.get(projectId(aTask));
+        return lane != null && lane.active.containsEqual(aTask);
+    }
+
+    void addQueued(Task aTask)
+    {
+        lane(aTask).queued.add(aTask);
+    }
+
+    void removeQueued(Task aTask)
+    {
+        var lane = lanes.get(projectId(aTask));
+        if (lane != null) {
+            lane.queued.remove(aTask);
+            removeLaneIfEmpty(aTask);
+        }
+    }
+
+    void addActive(Task aTask)
+    {
+        lane(aTask).active.add(aTask);
+    }
+
+    void removeActive(Task aTask)
+    {
+        var lane = lanes.get(projectId(aTask));
+        if (lane != null) {
+            lane.active.remove(aTask);
+            removeLaneIfEmpty(aTask);
+        }
+    }
+
+    /**
+     * Removes the next task which may be scheduled from the queue. Tasks with a higher priority
+     * are preferred. For each priority, the lanes are served round-robin, starting with the lane
+     * after the one that was served last.
+     *
+     * @param aEligible
+     *            whether a queued task may be scheduled now.
+     * @return the task to schedule.
+     */
+    Optional<Task> pollEligible(Predicate<Task> aEligible)
+    {
+        for (var priority : TaskPriority.values()) {
+            var task = findEligible(priority, aEligible, true);
+            if (task.isPresent()) {
+                removeQueued(task.get());
+                return task;
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * @return whether there is a queued task of the given priority which may be scheduled now.
+     */
+    boolean hasEligible(TaskPriority aPriority, Predicate<Task> aEligible)
+    {
+        return findEligible(aPriority, aEligible, false).isPresent();
+    }
+
+    private Optional<Task> findEligible(TaskPriority aPriority, Predicate<Task> aEligible,
+            boolean aAdvance)
+    {
+        var start = nextLane[aPriority.ordinal()];
+        for (var n = 0; n < laneOrder.size(); n++) {
+            var laneIndex = (start + n) % laneOrder.size();
+            var lane = lanes.get(laneOrder.get(laneIndex));
+            var task = lane.queued.find(t -> t.getPriority() == aPriority && aEligible.test(t));
+            if (task.isPresent()) {
+                if (aAdvance) {
+                    nextLane[aPriority.ordinal()] = laneIndex + 1;
+                }
+                return task;
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    List<Task> getQueuedTasks()
+    {
+        var result = new ArrayList<Task>();
+        lanes.values().forEach(lane -> result.addAll(lane.queued.getTasks()));
+        return result;
+    }
+
+    /**
+     * Removes all queued tasks matching the given predicate.
+     *
+     * @return the removed tasks.
+     */
+    List<Task> removeQueuedIf(Predicate<Task> aPredicate)
+    {
+        var removed = new ArrayList<Task>();
+        for (var lane : lanes.values()) {
+            for (var task : lane.queued.getTasks()) {
+                if (aPredicate.test(task)) {
+                    removed.add(task);
+                }
+            }
+        }
+
+        removed.forEach(this::removeQueued);
+        return removed;
+    }
+
+    /**
+     * @return the number of active tasks in all lanes.
+     */
+    int getActiveCount()
+    {
+        return lanes.values().stream().mapToInt(lane -> lane.active.size()).sum();
+    }
+
+    void clear()
+    {
+        lanes.clear();
+        laneOrder.clear();
+        Arrays.fill(nextLane, 0);
+    }
+
+    private static Long projectId(Task aTask)
+    {
+        return aTask.getProject() != null ? aTask.getProject().getId() : null;
+    }
+
+    private static class Lane
+    {
+        private final TaskIndex queued = new TaskIndex();
+        private final TaskIndex active = new TaskIndex();
+    }
+
+    /**
+     * A set of tasks indexed for finding matching tasks. Tasks are identified by their ID since
+     * different tasks may be equal.
+     */
+    private static class TaskIndex
+    {
+        private final Map<Integer, Task> tasks = new LinkedHashMap<>();
+        private final Map<Task, Map<Integer, Task>> byEquality = new HashMap<>();
+        private final Map<Object, Map<Integer, Task>> byMatchKey = new HashMap<>();
+        private final Map<Integer, Task> withoutMatchKey = new LinkedHashMap<>();
+
+        void add(Task aTask)
+        {
+            if (tasks.putIfAbsent(aTask.getId(), aTask) != null) {
+                return;
+            }
+
+            byEquality.computeIfAbsent(aTask, t -> new LinkedHashMap<>()).put(aTask.getId(),
+                    aTask);
+
+            if (aTask instanceof MatchableTask matchableTask) {
+                var key = matchableTask.getMatchKey();
+                if (key != null) {
+                    byMatchKey.computeIfAbsent(key, k -> new LinkedHashMap<>())
+                            .put(aTask.getId(), aTask);
+                }
+                else {
+                    withoutMatchKey.put(aTask.getId(), aTask);
+                }
+            }
+        }
+
+        void remove(Task aTask)
+        {
+            if (tasks.remove(aTask.getId()) == null) {
+                return;
+            }
+
+            removeFrom(byEquality, aTask, aTask);
+
+            if (aTask instanceof MatchableTask matchableTask) {
+                var key = matchableTask.getMatchKey();
+                if (key != null) {
+                    removeFrom(byMatchKey, key, aTask);
+                }
+                else {
+                    withoutMatchKey.remove(aTask.getId());
+                }
+            }
+        }
+
+        private static <K> void removeFrom(Map<K, Map<Integer, Task>> aIndex, K aKey, Task aTask)
+        {
+            var bucket = aIndex.get(aKey);
+            if (bucket != null) {
+                bucket.remove(aTask.getId());
+                if (bucket.isEmpty()) {
+                    aIndex.remove(aKey);
+                }
+            }
+        }
+
+        boolean containsEqual(Task aTask)
+        {
+            return byEquality.containsKey(aTask);
+        }
+
+        /**
+         * Tasks which are not {@link MatchableTask matchable} only match equal tasks. A matchable
+         * task with a match key can only match tasks with the same key and matchable tasks without
+         * a key. A matchable task without a match key may match any task.
+         */
+        Collection<Task> getMatchCandidates(Task aTask)
+        {
+            if (!(aTask instanceof MatchableTask matchableTask)) {
+                return byEquality.getOrDefault(aTask, emptyMap()).values();
+            }
+
+            var key = matchableTask.getMatchKey();
+            if (key == null) {
+                return tasks.values();
+            }
+
+            var candidates = new ArrayList<Task>();
+            candidates.addAll(byMatchKey.getOrDefault(key, emptyMap()).values());
+            candidates.addAll(withoutMatchKey.values());
+            return candidates;
+        }
+
+        Optional<Task> find(Predicate<Task> aPredicate)
+        {
+            return tasks.values().stream().filter(aPredicate).findFirst();
+        }
+
+        Collection<Task> getTasks()
+        {
+            return List.copyOf(tasks.values());
+        }
+
+        boolean isEmpty()
+        {
+            return tasks.isEmpty();
+        }
+
+        int size()
+        {
+            return tasks.size();
+        }
+    }
+}
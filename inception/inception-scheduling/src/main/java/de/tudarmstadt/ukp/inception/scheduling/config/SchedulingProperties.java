@@ -24,6 +24,9 @@ public class SchedulingProperties
 {
     private int numberOfThreads = 4;
     private int queueSize = 100;
+    private int numberOfBulkThreads = 0;
+    private int numberOfIoThreads = 16;
+    private int endpointConcurrency = 2;
 
     public int getNumberOfThreads()
     {
@@ -44,4 +47,45 @@ public class SchedulingProperties
     {
         queueSize = aQueueSize;
     }
+
+    /**
+     * @return maximum number of threads used by bulk tasks. If this is not set, bulk tasks may use
+     *         all but one thread.
+     */
+    public int getNumberOfBulkThreads()
+    {
+        return numberOfBulkThreads;
+    }
+
+    public void setNumberOfBulkThreads(int aNumberOfBulkThreads)
+    {
+        numberOfBulkThreads = aNumberOfBulkThreads;
+    }
+
+    /**
+     * @return maximum number of threads running I/O-bound tasks, e.g. tasks talking to remote
+     *         recommenders. These threads are not counted against {@link #getNumberOfThreads()}.
+     */
+    public int getNumberOfIoThreads()
+    {
+        return numberOfIoThreads;
+    }
+
+    public void setNumberOfIoThreads(int aNumberOfIoThreads)
+    {
+        numberOfIoThreads = aNumberOfIoThreads;
+    }
+
+    /**
+     * @return maximum number of tasks talking to the same remote endpoint at the same time.
+     */
+    public int getEndpointConcurrency()
+    {
+        return endpointConcurrency;
+    }
+
+    public void setEndpointConcurrency(int aEndpointConcurrency)
+    {
+        endpointConcurrency = aEndpointConcurrency;
+    }
 }
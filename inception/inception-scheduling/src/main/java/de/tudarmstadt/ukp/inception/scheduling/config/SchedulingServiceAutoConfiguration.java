@@ -17,6 +17,9 @@
  */
 package de.tudarmstadt.ukp.inception.scheduling.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -25,6 +28,7 @@ import org.springframework.security.core.session.SessionRegistry;
 
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingServiceImpl;
+import de.tudarmstadt.ukp.inception.scheduling.metrics.SchedulingMetricsImpl;
 
 @Configuration
 @EnableConfigurationProperties({ SchedulingProperties.class })
@@ -36,4 +40,13 @@ public class SchedulingServiceAutoConfiguration
     {
         return new SchedulingServiceImpl(aApplicationContext, aConfig, aSessionRegistry);
     }
+
+    @ConditionalOnWebApplication
+    @Bean
+    @Autowired
+    @ConditionalOnProperty(prefix = "monitoring.metrics", name = "enabled", havingValue = "true")
+    public SchedulingMetricsImpl schedulingMetricsImpl(SchedulingService aSchedulingService)
+    {
+        return new SchedulingMetricsImpl(aSchedulingService);
+    }
 }
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.scheduling.metrics;
+
+public interface SchedulingMetrics
+{
+    /**
+     * @return the average time interactive tasks waited until they were started (in milliseconds)
+     */
+    public double getInteractiveQueueWaitTimeAverage();
+
+    /**
+     * @return the longest time an interactive task waited until it was started (in milliseconds)
+     */
+    public long getInteractiveQueueWaitTimeMax();
+
+    /**
+     * @return the average time background tasks waited until they were started (in milliseconds)
+     */
+    public double getBackgroundQueueWaitTimeAverage();
+
+    /**
+     * @return the longest time a background task waited until it was started (in milliseconds)
+     */
+    public long getBackgroundQueueWaitTimeMax();
+
+    /**
+     * @return the average time bulk tasks waited until they were started (in milliseconds)
+     */
+    public double getBulkQueueWaitTimeAverage();
+
+    /**
+     * @return the longest time a bulk task waited until it was started (in milliseconds)
+     */
+    public long getBulkQueueWaitTimeMax();
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.scheduling.metrics;
+
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.BACKGROUND;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.BULK;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.INTERACTIVE;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
+import de.tudarmstadt.ukp.inception.scheduling.TaskPriority;
+import de.tudarmstadt.ukp.inception.scheduling.config.SchedulingServiceAutoConfiguration;
+
+/**
+ * <p>
+ * This class is exposed as a Spring Component via
+ * {@link SchedulingServiceAutoConfiguration#schedulingMetricsImpl}.
+ * </p>
+ */
+@ManagedResource
+public class SchedulingMetricsImpl
+    implements SchedulingMetrics
+{
+    private final SchedulingService schedulingService;
+
+    @Autowired
+    public SchedulingMetricsImpl(SchedulingService aSchedulingService)
+    {
+        schedulingService = aSchedulingService;
+    }
+
+    @Override
+    @ManagedAttribute
+    public double getInteractiveQueueWaitTimeAverage()
+    {
+        return getAverage(INTERACTIVE);
+    }
+
+    @Override
+    @ManagedAttribute
+    public long getInteractiveQueueWaitTimeMax()
+    {
+        return getMax(INTERACTIVE);
+    }
+
+    @Override
+    @ManagedAttribute
+    public double getBackgroundQueueWaitTimeAverage()
+    {
+        return getAverage(BACKGROUND);
+    }
+
+    @Override
+    @ManagedAttribute
+    public long getBackgroundQueueWaitTimeMax()
+    {
+        return getMax(BACKGROUND);
+    }
+
+    @Override
+    @ManagedAttribute
+    public double getBulkQueueWaitTimeAverage()
+    {
+        return getAverage(BULK);
+    }
+
+    @Override
+    @ManagedAttribute
+    public long getBulkQueueWaitTimeMax()
+    {
+        return getMax(BULK);
+    }
+
+    private double getAverage(TaskPriority aPriority)
+    {
+        return schedulingService.getQueueWaitTimes(aPriority).getAverage();
+    }
+
+    private long getMax(TaskPriority aPriority)
+    {
+        var stats = schedulingService.getQueueWaitTimes(aPriority);
+        return stats.getCount() > 0 ? stats.getMax() : 0;
+    }
+}
@@ -17,6 +17,8 @@
  */
 package de.tudarmstadt.ukp.inception.scheduling;
 
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.BULK;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.INTERACTIVE;
 import static java.time.Duration.ofSeconds;
 import static java.util.Arrays.asList;
 import static java.util.concurrent.TimeUnit.SECONDS;
@@ -26,6 +28,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -113,6 +116,106 @@ public class SchedulingServiceTest
                 .doesNotContain(tasksToRemove);
     }
 
+    @Test
+    public void thatInteractiveTaskOvertakesRunningBulkTasks()
+    {
+        var properties = new SchedulingProperties();
+        properties.setNumberOfThreads(2);
+        properties.setNumberOfBulkThreads(2);
+        sut.destroy();
+        sut = new SchedulingServiceImpl(mockContext, properties, null);
+
+        var bulk1 = buildYieldingTask("user1", "project1", BULK);
+        var bulk2 = buildYieldingTask("user2", "project2", BULK);
+        sut.enqueue(bulk1);
+        sut.enqueue(bulk2);
+
+        await().atMost(15, SECONDS).until(() -> bulk1.started && bulk2.started);
+
+        var bulk3 = buildYieldingTask("user3", "project3", BULK);
+        var interactive = buildYieldingTask("user4", "project4", INTERACTIVE);
+        sut.enqueue(bulk3);
+        sut.enqueue(interactive);
+
+        await().atMost(15, SECONDS).until(() -> interactive.started);
+
+        assertThat(bulk3.started) //
+                .as("Thread released by a bulk task must not be taken by another bulk task")
+                .isFalse();
+        assertThat(sut.getScheduledTasks()).contains(bulk3);
+
+        interactive.finished = true;
+        bulk1.finished = true;
+
+        await().atMost(15, SECONDS).until(() -> bulk3.started);
+
+        bulk2.finished = true;
+        bulk3.finished = true;
+    }
+
+    @Test
+    public void thatEndpointConcurrencyIsLimited()
+    {
+        var properties = new SchedulingProperties();
+        properties.setNumberOfIoThreads(3);
+        properties.setEndpointConcurrency(1);
+        sut.destroy();
+        sut = new SchedulingServiceImpl(mockContext, properties, null);
+
+        var endpoint1Task1 = buildEndpointTask("user1", "project1", "http://endpoint1");
+        var endpoint1Task2 = buildEndpointTask("user2", "project2", "http://endpoint1");
+        var endpoint2Task = buildEndpointTask("user3", "project3", "http://endpoint2");
+        sut.enqueue(endpoint1Task1);
+        sut.enqueue(endpoint1Task2);
+        sut.enqueue(endpoint2Task);
+
+        await().atMost(15, SECONDS).until(() -> endpoint1Task1.started && endpoint2Task.started);
+
+        assertThat(endpoint1Task2.started) //
+                .as("Only one task may talk to the same endpoint at a time") //
+                .isFalse();
+
+        endpoint1Task1.finished = true;
+
+        await().atMost(15, SECONDS).until(() -> endpoint1Task2.started);
+
+        endpoint1Task2.finished = true;
+        endpoint2Task.finished = true;
+    }
+
+    @Test
+    public void thatBulkTasksOnlyYieldToTasksWhichCanStart()
+    {
+        var properties = new SchedulingProperties();
+        properties.setNumberOfThreads(2);
+        properties.setNumberOfBulkThreads(2);
+        sut.destroy();
+        sut = new SchedulingServiceImpl(mockContext, properties, null);
+
+        var bulk1 = buildYieldingTask("user1", "project1", BULK);
+        var bulk2 = buildYieldingTask("user2", "project2", BULK);
+        sut.enqueue(bulk1);
+        sut.enqueue(bulk2);
+
+        await().atMost(15, SECONDS).until(() -> bulk1.started && bulk2.started);
+
+        // Equal to the running bulk task, so it cannot start before that one has ended
+        var interactive = buildYieldingTask("user1", "project1", INTERACTIVE);
+        sut.enqueue(interactive);
+
+        var iterations = bulk2.iterations.get();
+        await().atMost(15, SECONDS).until(() -> bulk2.iterations.get() > iterations + 5);
+
+        assertThat(interactive.started).isFalse();
+
+        bulk1.finished = true;
+
+        await().atMost(15, SECONDS).until(() -> interactive.started);
+
+        interactive.finished = true;
+        bulk2.finished = true;
+    }
+
     private User buildUser(String aUsername)
     {
         return new User(aUsername);
@@ -134,6 +237,82 @@ public class SchedulingServiceTest
         return task;
     }
 
+    private YieldingTask buildYieldingTask(String aUsername, String aProjectName,
+            TaskPriority aPriority)
+    {
+        var task = YieldingTask.builder() //
+                .withSessionOwner(buildUser(aUsername)) //
+                .withProject(buildProject(aProjectName)) //
+                .withPriority(aPriority) //
+                .build();
+        task.afterPropertiesSet();
+        return task;
+    }
+
+    private YieldingTask buildEndpointTask(String aUsername, String aProjectName,
+            String aEndpoint)
+    {
+        var task = YieldingTask.builder() //
+                .withSessionOwner(buildUser(aUsername)) //
+                .withProject(buildProject(aProjectName)) //
+                .withEndpoint(aEndpoint) //
+                .build();
+        task.afterPropertiesSet();
+        return task;
+    }
+
+    /**
+     * YieldingTask is a task that yields regularly until it is told to finish.
+     */
+    private static class YieldingTask
+        extends Task
+    {
+        private static final String TYPE = "YieldingTask";
+
+        private volatile boolean started;
+        private volatile boolean finished;
+        private final AtomicInteger iterations = new AtomicInteger();
+
+        YieldingTask(Builder<? extends Builder<?>> aBuilder)
+        {
+            super(aBuilder.withType(TYPE).withTrigger("test"));
+        }
+
+        @Override
+        public void execute()
+        {
+            started = true;
+            while (!finished && !Thread.currentThread().isInterrupted()) {
+                getMonitor().yieldIfRequested();
+                iterations.incrementAndGet();
+                try {
+                    Thread.sleep(50);
+                }
+                catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+
+        public static Builder<Builder<?>> builder()
+        {
+            return new Builder<>();
+        }
+
+        public static class Builder<T extends Builder<?>>
+            extends Task.Builder<T>
+        {
+            protected Builder()
+            {
+            }
+
+            public YieldingTask build()
+            {
+                return new YieldingTask(this);
+            }
+        }
+    }
+
     /**
      * DummyTask is a task that does nothing and just sleeps until interrupted. if interrupted, it
      * just finishes running and returns.
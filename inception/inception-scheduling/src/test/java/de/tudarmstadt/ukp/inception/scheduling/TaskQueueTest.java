@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.scheduling;
+
+import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.NO_MATCH;
+import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.UNQUEUE_EXISTING_AND_QUEUE_THIS;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.BACKGROUND;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.BULK;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.INTERACTIVE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Objects;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+
+public class TaskQueueTest
+{
+    private TaskQueue sut;
+    private Project project1;
+    private Project project2;
+
+    @BeforeEach
+    public void setup()
+    {
+        sut = new TaskQueue();
+        project1 = buildProject(1l, "project1");
+        project2 = buildProject(2l, "project2");
+    }
+
+    @Test
+    public void thatProjectsTakeTurns()
+    {
+        var p1t1 = buildTask("user1", project1, "doc1");
+        var p1t2 = buildTask("user2", project1, "doc2");
+        var p1t3 = buildTask("user3", project1, "doc3");
+        var p2t1 = buildTask("user1", project2, "doc1");
+
+        sut.addQueued(p1t1);
+        sut.addQueued(p1t2);
+        sut.addQueued(p1t3);
+        sut.addQueued(p2t1);
+
+        assertThat(sut.pollEligible(t -> true)).containsSame(p1t1);
+        assertThat(sut.pollEligible(t -> true)).containsSame(p2t1);
+        assertThat(sut.pollEligible(t -> true)).containsSame(p1t2);
+        assertThat(sut.pollEligible(t -> true)).containsSame(p1t3);
+        assertThat(sut.pollEligible(t -> true)).isEmpty();
+    }
+
+    @Test
+    public void thatTasksWithHigherPriorityAreScheduledFirst()
+    {
+        var bulk = buildTask("user1", project1, "doc1", BULK);
+        var background = buildTask("user1", project1, "doc2", BACKGROUND);
+        var interactive = buildTask("user1", project2, "doc1", INTERACTIVE);
+
+        sut.addQueued(bulk);
+        sut.addQueued(background);
+        sut.addQueued(interactive);
+
+        assertThat(sut.hasEligible(INTERACTIVE, t -> true)).isTrue();
+        assertThat(sut.pollEligible(t -> true)).containsSame(interactive);
+        assertThat(sut.hasEligible(INTERACTIVE, t -> true)).isFalse();
+        assertThat(sut.pollEligible(t -> true)).containsSame(background);
+        assertThat(sut.pollEligible(t -> true)).containsSame(bulk);
+    }
+
+    @Test
+    public void thatOnlyTasksWithSameProjectAndKeyAreMatchCandidates()
+    {
+        var task = buildTask("user1", project1, "doc1");
+        var sameDocument = buildTask("user2", project1, "doc1");
+        var otherDocument = buildTask("user1", project1, "doc2");
+        var otherProject = buildTask("user1", project2, "doc1");
+
+        sut.addQueued(sameDocument);
+        sut.addQueued(otherDocument);
+        sut.addQueued(otherProject);
+
+        assertThat(sut.getQueuedMatchCandidates(task)).containsExactly(sameDocument);
+        assertThat(sut.getActiveMatchCandidates(task)).isEmpty();
+
+        sut.removeQueued(sameDocument);
+
+        assertThat(sut.getQueuedMatchCandidates(task)).isEmpty();
+    }
+
+    @Test
+    public void thatActiveTasksAreTracked()
+    {
+        var task = buildTask("user1", project1, "doc1");
+
+        sut.addActive(task);
+
+        assertThat(sut.isEqualTaskActive(buildTask("user1", project1, "doc2"))).isTrue();
+        assertThat(sut.getActiveCount()).isEqualTo(1);
+
+        sut.removeActive(task);
+
+        assertThat(sut.getActiveCount()).isZero();
+    }
+
+    private Project buildProject(long aId, String aName)
+    {
+        var project = new Project();
+        project.setId(aId);
+        project.setSlug(aName);
+        project.setName(aName);
+        return project;
+    }
+
+    private Task buildTask(String aUsername, Project aProject, String aDocument)
+    {
+        return buildTask(aUsername, aProject, aDocument, BACKGROUND);
+    }
+
+    private Task buildTask(String aUsername, Project aProject, String aDocument,
+            TaskPriority aPriority)
+    {
+        return new DocumentTask(DocumentTask.builder() //
+                .withSessionOwner(new User(aUsername)) //
+                .withProject(aProject) //
+                .withPriority(aPriority), aDocument);
+    }
+
+    private static class DocumentTask
+        extends Task
+        implements MatchableTask
+    {
+        private static final String TYPE = "DocumentTask";
+
+        private final String document;
+
+        DocumentTask(Builder<? extends Builder<?>> aBuilder, String aDocument)
+        {
+            super(aBuilder.withType(TYPE).withTrigger("test"));
+            document = aDocument;
+        }
+
+        @Override
+        public void execute()
+        {
+            // Nothing to do
+        }
+
+        @Override
+        public MatchResult matches(Task aTask)
+        {
+            if (aTask instanceof DocumentTask task && Objects.equals(document, task.document)) {
+                return UNQUEUE_EXISTING_AND_QUEUE_THIS;
+            }
+
+            return NO_MATCH;
+        }
+
+        @Override
+        public Object getMatchKey()
+        {
+            return document;
+        }
+
+        public static Builder<Builder<?>> builder()
+        {
+            return new Builder<>();
+        }
+
+        public static class Builder<T extends Builder<?>>
+            extends Task.Builder<T>
+        {
+        }
+    }
+}
@@ -496,4 +496,16 @@ public interface FeatureSupport<T>
     {
         return true;
     }
+
+    /**
+     * @return whether values of the feature can be rendered on a worker thread. This is only the
+     *         case if rendering a value does not need the CAS storage, the database or any other
+     *         state bound to the request thread, e.g. to look up a concept in a knowledge base.
+     * @param aFeature
+     *            the feature
+     */
+    default boolean isRenderableConcurrently(AnnotationFeature aFeature)
+    {
+        return false;
+    }
 }
@@ -33,23 +33,30 @@ import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
-import static org.apache.commons.io.FileUtils.forceDelete;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
 import static org.apache.commons.io.FilenameUtils.getExtension;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.lang.invoke.MethodHandles;
 import java.nio.file.Files;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -98,6 +105,12 @@ public class AnnotationDocumentExporter
 
     private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+    private static final int EXPORT_THREADS = Math.max(1,
+            Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int MAX_PENDING_DOCUMENTS = EXPORT_THREADS * 2;
+    // Entries larger than this are buffered in temporary files instead of in memory
+    private static final int MAX_IN_MEMORY_ENTRY_SIZE = 1024 * 1024;
+
     private final DocumentService documentService;
     private final UserDao userRepository;
     private final DocumentImportExportService importExportService;
@@ -164,8 +177,9 @@ public class AnnotationDocumentExporter
         var project = aRequest.getProject();
 
         // The export process may store project-related information in this context to ensure it
-        // is looked up only once during the bulk operation and the DB is not hit too often.
-        var bulkOperationContext = new HashMap<Pair<Project, String>, Object>();
+        // is looked up only once during the bulk operation and the DB is not hit too often. It is
+        // shared by the export workers, so it needs to be thread-safe.
+        var bulkOperationContext = new ConcurrentHashMap<Pair<Project, String>, Object>();
 
         var documents = documentService.listSourceDocuments(project);
         var i = 1;
@@ -181,124 +195,202 @@ public class AnnotationDocumentExporter
         LoadingCache<String, User> usersCache = Caffeine.newBuilder()
                 .build(key -> userRepository.get(key));
 
-        for (var srcDoc : documents) {
-            // check if the export has been cancelled
-            if (Thread.interrupted()) {
-                throw new InterruptedException();
-            }
+        // The CASes are loaded and converted by the workers while this thread is the only one
+        // writing to the ZIP file. Small results are buffered in memory, large ones in temporary
+        // files. The number of documents in flight is limited to bound the memory consumption.
+        // The results are written in document order to keep the export deterministic.
+        var bufferFolder = Files.createTempDirectory("inception-annotation-export").toFile();
+        var executor = Executors.newFixedThreadPool(EXPORT_THREADS,
+                new BasicThreadFactory.Builder() //
+                        .namingPattern("annotation-export-%d") //
+                        .daemon(true) //
+                        .build());
+        try {
+            var pending = new ArrayDeque<Future<DocumentExport>>();
+            var documentIterator = documents.iterator();
+            while (documentIterator.hasNext() || !pending.isEmpty()) {
+                while (documentIterator.hasNext() && pending.size() < MAX_PENDING_DOCUMENTS) {
+                    var srcDoc = documentIterator.next();
+                    var annDocs = srcToAnnIdx.getOrDefault(srcDoc, emptyList());
+                    pending.add(executor.submit(() -> exportDocument(aRequest, srcDoc, annDocs,
+                            usersCache, bulkOperationContext, bufferFolder)));
+                }
 
-            try (var session = CasStorageSession.openNested()) {
-                FormatSupport format = null;
-                if (aRequest.getFormat() != null) {
-                    // Determine which format to use for export
-                    var formatId = FORMAT_AUTO.equals(aRequest.getFormat()) ? srcDoc.getFormat()
-                            : aRequest.getFormat();
-
-                    format = importExportService.getWritableFormatById(formatId).orElseGet(() -> {
-                        var fallbackFormat = importExportService.getFallbackFormat();
-                        aMonitor.addMessage(LogMessage.warn(this, "Annotation: [%s] No writer "
-                                + "found for format [%s] - falling back to exporting as [%s] "
-                                + "instead.", srcDoc.getName(), formatId,
-                                fallbackFormat.getName()));
-                        return fallbackFormat;
-                    });
+                // check if the export has been cancelled
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
                 }
 
-                //
-                // Export initial CASes
-                //
+                var export = awaitDocumentExport(pending.poll());
+                try {
+                    export.messages().forEach(aMonitor::addMessage);
+                    for (var entry : export.entries()) {
+                        ProjectExporter.writeEntry(aStage, entry.name(), entry.data()::writeTo);
+                    }
+                }
+                finally {
+                    export.discard();
+                }
 
-                // The initial CAS must always be exported to ensure that the converted source
-                // document will *always* have the state it had at the time of the initial import.
-                // We we do have a reliably initial CAS and instead lazily convert whenever an
-                // annotator starts annotating, then we could end up with two annotators having two
-                // different versions of their CAS e.g. if there was a code change in the reader
-                // component that affects its output.
+                aMonitor.setProgress(
+                        initProgress + (int) ceil(((double) i) / documents.size() * 80.0));
+                i++;
+            }
+        }
+        finally {
+            executor.shutdownNow();
+            // Also drops the buffers of documents which have not been written because the export
+            // failed or was cancelled
+            deleteQuietly(bufferFolder);
+        }
+    }
 
-                // If the initial CAS does not exist yet, it must be created before export.
-                if (!documentService.existsInitialCas(srcDoc)) {
-                    documentService.createOrReadInitialCas(srcDoc);
-                }
+    private DocumentExport awaitDocumentExport(Future<DocumentExport> aFuture)
+        throws IOException, InterruptedException, ProjectExportException
+    {
+        try {
+            return aFuture.get();
+        }
+        catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof ProjectExportException projectExportException) {
+                throw projectExportException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new ProjectExportException(
+                    "Error exporting annotations: " + ExceptionUtils.getRootCauseMessage(cause),
+                    cause);
+        }
+    }
 
-                ProjectExporter.writeEntry(aStage,
-                        ANNOTATION_CAS_FOLDER + srcDoc.getName() + "/" + INITIAL_CAS_PSEUDO_USER
-                                + ".ser",
-                        os -> documentService.exportCas(srcDoc, INITIAL_CAS_PSEUDO_USER, os));
+    private DocumentExport exportDocument(FullProjectExportRequest aRequest, SourceDocument srcDoc,
+            List<AnnotationDocument> aAnnotationDocuments, LoadingCache<String, User> usersCache,
+            Map<Pair<Project, String>, Object> bulkOperationContext, File aBufferFolder)
+        throws IOException, ProjectExportException
+    {
+        var entries = new ArrayList<ExportEntry>();
+        var messages = new ArrayList<LogMessage>();
+
+        try (var session = CasStorageSession.openNested()) {
+            FormatSupport format = null;
+            if (aRequest.getFormat() != null) {
+                // Determine which format to use for export
+                var formatId = FORMAT_AUTO.equals(aRequest.getFormat()) ? srcDoc.getFormat()
+                        : aRequest.getFormat();
+
+                format = importExportService.getWritableFormatById(formatId).orElseGet(() -> {
+                    var fallbackFormat = importExportService.getFallbackFormat();
+                    messages.add(LogMessage.warn(this, "Annotation: [%s] No writer "
+                            + "found for format [%s] - falling back to exporting as [%s] "
+                            + "instead.", srcDoc.getName(), formatId, fallbackFormat.getName()));
+                    return fallbackFormat;
+                });
+            }
 
-                if (format != null) {
-                    exportAdditionalFormat(aStage, bulkOperationContext, srcDoc, format,
-                            INITIAL_CAS_PSEUDO_USER);
-                }
+            //
+            // Export initial CASes
+            //
 
-                LOG.info("Exported annotation document content for user [{}] for source document "
-                        + "{} in project {}", INITIAL_CAS_PSEUDO_USER, srcDoc, project);
+            // The initial CAS must always be exported to ensure that the converted source
+            // document will *always* have the state it had at the time of the initial import.
+            // We we do have a reliably initial CAS and instead lazily convert whenever an
+            // annotator starts annotating, then we could end up with two annotators having two
+            // different versions of their CAS e.g. if there was a code change in the reader
+            // component that affects its output.
 
-                //
-                // Export per-user annotation document
-                //
+            // If the initial CAS does not exist yet, it must be created before export.
+            if (!documentService.existsInitialCas(srcDoc)) {
+                documentService.createOrReadInitialCas(srcDoc);
+            }
+
+            try (var initialCas = newBuffer(aBufferFolder)) {
+                entries.add(new ExportEntry(ANNOTATION_CAS_FOLDER + srcDoc.getName() + "/"
+                        + INITIAL_CAS_PSEUDO_USER + ".ser", initialCas));
+                documentService.exportCas(srcDoc, INITIAL_CAS_PSEUDO_USER, initialCas);
+            }
 
-                // Export annotations from regular users
-                for (var annDoc : srcToAnnIdx.computeIfAbsent(srcDoc, key -> emptyList())) {
+            if (format != null) {
+                entries.add(exportAdditionalFormat(bulkOperationContext, srcDoc, format,
+                        INITIAL_CAS_PSEUDO_USER, aBufferFolder));
+            }
 
-                    // copy annotation document only for existing users and the state of the
-                    // annotation document is not NEW/IGNORE
-                    if (usersCache.get(annDoc.getUser()) != null
-                            && documentService.existsCas(annDoc)
-                            && !annDoc.getState().equals(AnnotationDocumentState.NEW)
-                            && !annDoc.getState().equals(AnnotationDocumentState.IGNORE)) {
+            LOG.info("Exported annotation document content for user [{}] for source document "
+                    + "{} in project {}", INITIAL_CAS_PSEUDO_USER, srcDoc, srcDoc.getProject());
 
-                        ProjectExporter.writeEntry(aStage, ANNOTATION_CAS_FOLDER + srcDoc.getName()
-                                + "/" + annDoc.getUser() + ".ser", os -> {
-                                    documentService.exportCas(srcDoc, annDoc.getUser(), os);
-                                });
+            //
+            // Export per-user annotation document
+            //
 
-                        if (format != null) {
-                            exportAdditionalFormat(aStage, bulkOperationContext, srcDoc, format,
-                                    annDoc.getUser());
-                        }
+            // Export annotations from regular users
+            for (var annDoc : aAnnotationDocuments) {
+
+                // copy annotation document only for existing users and the state of the
+                // annotation document is not NEW/IGNORE
+                if (usersCache.get(annDoc.getUser()) != null && documentService.existsCas(annDoc)
+                        && !annDoc.getState().equals(AnnotationDocumentState.NEW)
+                        && !annDoc.getState().equals(AnnotationDocumentState.IGNORE)) {
+
+                    try (var userCas = newBuffer(aBufferFolder)) {
+                        entries.add(new ExportEntry(ANNOTATION_CAS_FOLDER + srcDoc.getName()
+                                + "/" + annDoc.getUser() + ".ser", userCas));
+                        documentService.exportCas(srcDoc, annDoc.getUser(), userCas);
+                    }
 
-                        LOG.info("Exported annotation document content for user [{}] for " //
-                                + "source document {} in project {}", annDoc.getUser(), srcDoc,
-                                project);
+                    if (format != null) {
+                        entries.add(exportAdditionalFormat(bulkOperationContext, srcDoc, format,
+                                annDoc.getUser(), aBufferFolder));
                     }
+
+                    LOG.info("Exported annotation document content for user [{}] for " //
+                            + "source document {} in project {}", annDoc.getUser(), srcDoc,
+                            srcDoc.getProject());
                 }
             }
+        }
+
+        return new DocumentExport(entries, messages);
+    }
 
-            aMonitor.setProgress(initProgress + (int) ceil(((double) i) / documents.size() * 80.0));
-            i++;
+    private static DeferredFileOutputStream newBuffer(File aBufferFolder) throws IOException
+    {
+        // Do not start work on a document after the export has been cancelled
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Annotation export has been cancelled");
         }
+
+        return DeferredFileOutputStream.builder() //
+                .setThreshold(MAX_IN_MEMORY_ENTRY_SIZE) //
+                .setDirectory(aBufferFolder) //
+                .setPrefix("entry") //
+                .setSuffix(".tmp") //
+                .get();
     }
 
-    private void exportAdditionalFormat(ZipOutputStream aStage,
+    private ExportEntry exportAdditionalFormat(
             Map<Pair<Project, String>, Object> bulkOperationContext, SourceDocument srcDoc,
-            FormatSupport format, String aUsername)
+            FormatSupport format, String aUsername, File aBufferFolder)
         throws IOException, ProjectExportException
     {
-        File annFile = null;
-        try {
-            annFile = importExportService.exportAnnotationDocument(srcDoc, aUsername, format,
-                    aUsername, ANNOTATION, false, bulkOperationContext);
+        var data = newBuffer(aBufferFolder);
+        try (data) {
+            var fileName = importExportService.exportAnnotationDocumentToStream(srcDoc,
+                    aUsername, format, aUsername, ANNOTATION, false, bulkOperationContext, data);
 
-            var finalAnnFile = annFile;
             if (userRepository.isValidUsername(aUsername)
                     || RESERVED_USERNAMES.contains(aUsername)) {
                 // Safe-guard for legacy instances where user name validity has not been checked.
-                var filename = aUsername + "." + getExtension(annFile.getName());
-                ProjectExporter.writeEntry(aStage,
-                        ANNOTATION_ORIGINAL_FOLDER + srcDoc.getName() + "/" + filename, os -> {
-                            try (var is = Files.newInputStream(finalAnnFile.toPath())) {
-                                is.transferTo(os);
-                            }
-                        });
+                var filename = aUsername + "." + getExtension(fileName);
+                return new ExportEntry(
+                        ANNOTATION_ORIGINAL_FOLDER + srcDoc.getName() + "/" + filename, data);
             }
             else {
-                ProjectExporter.writeEntry(aStage,
-                        ANNOTATION_ORIGINAL_FOLDER + srcDoc.getName() + "/" + annFile.getName(),
-                        os -> {
-                            try (var is = Files.newInputStream(finalAnnFile.toPath())) {
-                                is.transferTo(os);
-                            }
-                        });
+                return new ExportEntry(
+                        ANNOTATION_ORIGINAL_FOLDER + srcDoc.getName() + "/" + fileName, data);
             }
         }
         catch (UIMAException e) {
@@ -306,11 +398,6 @@ public class AnnotationDocumentExporter
                     + " for user [" + aUsername + "] as [" + format.getName() + "]: "
                     + ExceptionUtils.getRootCauseMessage(e), e);
         }
-        finally {
-            if (annFile != null) {
-                forceDelete(annFile);
-            }
-        }
     }
 
     @Override
@@ -431,4 +518,22 @@ public class AnnotationDocumentExporter
                     aProject.getName(), aProject.getId());
         }
     }
+
+    private static record ExportEntry(String name, DeferredFileOutputStream data)
+    {
+        void discard()
+        {
+            if (!data.isInMemory()) {
+                deleteQuietly(data.getFile());
+            }
+        }
+    }
+
+    private static record DocumentExport(List<ExportEntry> entries, List<LogMessage> messages)
+    {
+        void discard()
+        {
+            entries.forEach(ExportEntry::discard);
+        }
+    }
 }
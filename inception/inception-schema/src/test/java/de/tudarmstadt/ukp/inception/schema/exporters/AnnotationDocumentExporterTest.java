@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.schema.exporters;
+
+import static de.tudarmstadt.ukp.inception.support.WebAnnoConst.INITIAL_CAS_PSEUDO_USER;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.export.DocumentImportExportService;
+import de.tudarmstadt.ukp.clarin.webanno.api.export.FullProjectExportRequest;
+import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectExportTaskMonitor;
+import de.tudarmstadt.ukp.clarin.webanno.export.model.ExportedProject;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
+import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
+import de.tudarmstadt.ukp.inception.documents.api.RepositoryProperties;
+
+@ExtendWith(MockitoExtension.class)
+class AnnotationDocumentExporterTest
+{
+    private @Mock DocumentService documentService;
+    private @Mock UserDao userRepository;
+    private @Mock DocumentImportExportService importExportService;
+    private @Mock RepositoryProperties repositoryProperties;
+
+    private @TempDir File tempDir;
+
+    private AnnotationDocumentExporter sut;
+
+    private Project project;
+    private List<SourceDocument> documents;
+
+    @BeforeEach
+    void setup() throws Exception
+    {
+        project = Project.builder() //
+                .withId(1l) //
+                .withName("Test Project") //
+                .build();
+
+        documents = new ArrayList<SourceDocument>();
+        for (var i = 0; i < 10; i++) {
+            documents.add(SourceDocument.builder() //
+                    .withId((long) i) //
+                    .withName("doc" + i + ".txt") //
+                    .withProject(project) //
+                    .build());
+        }
+
+        when(documentService.listSourceDocuments(project)).thenReturn(documents);
+        when(documentService.listAnnotationDocuments(project)).thenReturn(List.of());
+        when(documentService.existsInitialCas(any())).thenReturn(true);
+
+        sut = new AnnotationDocumentExporter(documentService, userRepository,
+                importExportService, repositoryProperties);
+    }
+
+    @Test
+    void thatDocumentsAreWrittenInDocumentOrder() throws Exception
+    {
+        // Let the first documents take longest so that the workers finish them last
+        doAnswer(call -> {
+            SourceDocument doc = call.getArgument(0);
+            Thread.sleep((documents.size() - documents.indexOf(doc)) * 10);
+            call.getArgument(2, OutputStream.class).write(doc.getName().getBytes(UTF_8));
+            return null;
+        }).when(documentService).exportCas(any(), eq(INITIAL_CAS_PSEUDO_USER), any());
+
+        var exportFile = exportProject();
+
+        try (var zipFile = new ZipFile(exportFile)) {
+            var entries = Collections.list(zipFile.entries());
+            assertThat(entries) //
+                    .extracting(entry -> entry.getName()) //
+                    .containsExactlyElementsOf(documents.stream() //
+                            .map(doc -> "annotation_ser/" + doc.getName() + "/"
+                                    + INITIAL_CAS_PSEUDO_USER + ".ser") //
+                            .toList());
+            for (var i = 0; i < entries.size(); i++) {
+                try (var is = zipFile.getInputStream(entries.get(i))) {
+                    assertThat(new String(is.readAllBytes(), UTF_8)) //
+                            .isEqualTo(documents.get(i).getName());
+                }
+            }
+        }
+    }
+
+    @Test
+    void thatWorkerErrorsArePropagated() throws Exception
+    {
+        doAnswer(call -> {
+            SourceDocument doc = call.getArgument(0);
+            if (doc.equals(documents.get(3))) {
+                throw new IOException("Unable to read CAS of " + doc.getName());
+            }
+            return null;
+        }).when(documentService).exportCas(any(), eq(INITIAL_CAS_PSEUDO_USER), any());
+
+        assertThatExceptionOfType(IOException.class) //
+                .isThrownBy(() -> exportProject()) //
+                .withMessage("Unable to read CAS of doc3.txt");
+    }
+
+    @Test
+    void thatCancellingTheExportInterruptsTheWorkers() throws Exception
+    {
+        var workerStarted = new CountDownLatch(1);
+        var workerInterrupted = new CountDownLatch(1);
+        doAnswer(call -> {
+            workerStarted.countDown();
+            try {
+                new CountDownLatch(1).await();
+            }
+            catch (InterruptedException e) {
+                workerInterrupted.countDown();
+                throw new InterruptedIOException();
+            }
+            return null;
+        }).when(documentService).exportCas(any(), eq(INITIAL_CAS_PSEUDO_USER), any());
+
+        var exportError = new AtomicReference<Exception>();
+        var exportThread = new Thread(() -> {
+            try {
+                exportProject();
+            }
+            catch (Exception e) {
+                exportError.set(e);
+            }
+        });
+        exportThread.start();
+
+        assertThat(workerStarted.await(10, SECONDS)).isTrue();
+        exportThread.interrupt();
+        exportThread.join(SECONDS.toMillis(10));
+
+        assertThat(exportThread.isAlive()).isFalse();
+        assertThat(exportError.get()).isInstanceOf(InterruptedException.class);
+        assertThat(workerInterrupted.await(10, SECONDS)).isTrue();
+    }
+
+    private File exportProject() throws Exception
+    {
+        var exportFile = new File(tempDir, "export.zip");
+        var exportRequest = new FullProjectExportRequest(project, null, false);
+        var monitor = new ProjectExportTaskMonitor(project, null, "test");
+
+        try (var zos = new ZipOutputStream(new FileOutputStream(exportFile))) {
+            sut.exportData(exportRequest, monitor, new ExportedProject(), zos);
+        }
+
+        return exportFile;
+    }
+}
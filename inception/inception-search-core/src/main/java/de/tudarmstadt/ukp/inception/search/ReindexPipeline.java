@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.FileNotFoundException;
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageSession;
+import de.tudarmstadt.ukp.inception.search.index.IndexRebuildRequiredException;
+import de.tudarmstadt.ukp.inception.search.model.BulkIndexingContext;
+
+/**
+ * Runs a full re-indexing in two stages. The first stage loads the CASes and serializes them. The
+ * second stage adds them to the index. The MTAS parsing happens as part of the analysis chain of
+ * the index writer, so it is part of the second stage. Each stage has its own thread pool. The
+ * number of documents in flight is limited so that not too many serialized CASes are held in
+ * memory at the same time.
+ */
+class ReindexPipeline
+    implements AutoCloseable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final ExecutorService loaders;
+    private final ExecutorService indexers;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final BulkIndexingContext indexingContext;
+    private final BooleanSupplier stopCondition;
+
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final AtomicBoolean rebuildRequired = new AtomicBoolean();
+
+    /**
+     * @param aLoaderThreads
+     *            number of threads loading CASes.
+     * @param aIndexerThreads
+     *            number of threads adding CASes to the index.
+     * @param aIndexingContext
+     *            the indexing context to make available to the worker threads.
+     * @param aStopCondition
+     *            if this condition is met, no more work is performed, e.g. because the index has
+     *            been closed.
+     */
+    ReindexPipeline(int aLoaderThreads, int aIndexerThreads, BulkIndexingContext aIndexingContext,
+            BooleanSupplier aStopCondition)
+    {
+        loaders = Executors.newFixedThreadPool(Math.max(1, aLoaderThreads),
+                new BasicThreadFactory.Builder() //
+                        .namingPattern("reindex-loader-%d") //
+                        .daemon(true) //
+                        .build());
+        indexers = Executors.newFixedThreadPool(Math.max(1, aIndexerThreads),
+                new BasicThreadFactory.Builder() //
+                        .namingPattern("reindex-indexer-%d") //
+                        .daemon(true) //
+                        .build());
+        maxInFlight = 2 * (Math.max(1, aLoaderThreads) + Math.max(1, aIndexerThreads));
+        inFlight = new Semaphore(maxInFlight);
+        indexingContext = aIndexingContext;
+        stopCondition = aStopCondition;
+    }
+
+    /**
+     * Schedules a document for indexing. Blocks if too many documents are already in flight.
+     *
+     * @param aDescription
+     *            description of the document used for logging.
+     * @param aLoader
+     *            loads the document and returns the steps necessary to index it.
+     */
+    void submit(String aDescription, Loader aLoader) throws InterruptedException
+    {
+        inFlight.acquire();
+
+        loaders.execute(() -> {
+            if (isStopped()) {
+                done();
+                return;
+            }
+
+            List<Indexer> steps;
+            BulkIndexingContext.set(indexingContext);
+            try (var session = CasStorageSession.openNested()) {
+                steps = aLoader.load();
+            }
+            catch (FileNotFoundException e) {
+                // Ignore it if a annotation CAS does not exist yet
+                done();
+                return;
+            }
+            catch (Exception e) {
+                LOG.error("Error indexing {}", aDescription, e);
+                done();
+                return;
+            }
+            finally {
+                BulkIndexingContext.clear();
+            }
+
+            indexers.execute(() -> {
+                BulkIndexingContext.set(indexingContext);
+                try {
+                    for (var step : steps) {
+                        if (isStopped()) {
+                            return;
+                        }
+
+                        step.index();
+                    }
+                }
+                catch (IndexRebuildRequiredException e) {
+                    rebuildRequired.set(true);
+                }
+                catch (Exception e) {
+                    LOG.error("Error indexing {}", aDescription, e);
+                }
+                finally {
+                    BulkIndexingContext.clear();
+                    done();
+                }
+            });
+        });
+    }
+
+    /**
+     * Waits until all submitted documents have been processed.
+     *
+     * @param aWhileWaiting
+     *            called regularly while waiting, e.g. to report progress or to cancel the pipeline.
+     */
+    void awaitCompletion(Runnable aWhileWaiting) throws InterruptedException
+    {
+        while (!inFlight.tryAcquire(maxInFlight, 250, MILLISECONDS)) {
+            aWhileWaiting.run();
+        }
+        inFlight.release(maxInFlight);
+    }
+
+    /**
+     * Any documents that have not been processed yet are skipped.
+     */
+    void cancel()
+    {
+        cancelled.set(true);
+    }
+
+    /**
+     * @return number of documents which have been processed (successfully or not).
+     */
+    int getCompleted()
+    {
+        return completed.get();
+    }
+
+    /**
+     * @return whether the index signalled that it needs to be rebuilt.
+     */
+    boolean isRebuildRequired()
+    {
+        return rebuildRequired.get();
+    }
+
+    private boolean isStopped()
+    {
+        return cancelled.get() || rebuildRequired.get() || stopCondition.getAsBoolean();
+    }
+
+    private void done()
+    {
+        completed.incrementAndGet();
+        inFlight.release();
+    }
+
+    @Override
+    public void close()
+    {
+        cancel();
+        loaders.shutdown();
+        try {
+            loaders.awaitTermination(30, SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        indexers.shutdown();
+        try {
+            indexers.awaitTermination(30, SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    interface Loader
+    {
+        List<Indexer> load() throws Exception;
+    }
+
+    @FunctionalInterface
+    interface Indexer
+    {
+        void index() throws Exception;
+    }
+}
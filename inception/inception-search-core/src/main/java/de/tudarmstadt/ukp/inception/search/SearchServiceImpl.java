@@ -33,11 +33,11 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toUnmodifiableSet;
 import static org.springframework.transaction.annotation.Propagation.REQUIRES_NEW;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -81,6 +81,7 @@ import de.tudarmstadt.ukp.inception.schema.api.event.LayerConfigurationChangedEv
 import de.tudarmstadt.ukp.inception.search.config.SearchServiceAutoConfiguration;
 import de.tudarmstadt.ukp.inception.search.config.SearchServiceProperties;
 import de.tudarmstadt.ukp.inception.search.index.IndexRebuildRequiredException;
+import de.tudarmstadt.ukp.inception.search.index.PhysicalIndex;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndexFactory;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndexRegistry;
 import de.tudarmstadt.ukp.inception.search.model.BulkIndexingContext;
@@ -404,12 +405,20 @@ public class SearchServiceImpl
                 return;
             }
 
-            // Remove source document from the index
-            index.getPhysicalIndex().deindexDocument(document);
+            var annotationDocuments = documentService.listAnnotationDocuments(document);
 
-            // Remove related annotation documents from the index
-            for (var annotationDocument : documentService.listAnnotationDocuments(document)) {
-                index.getPhysicalIndex().deindexDocument(annotationDocument);
+            // If a shadow index is being built, it is not replaced while we remove the document
+            synchronized (pooledIndex) {
+                // Remove source document from the index
+                index.getPhysicalIndex().deindexDocument(document);
+                pooledIndex.recordOperation(document, i -> i.deindexDocument(document));
+
+                // Remove related annotation documents from the index
+                for (var annotationDocument : annotationDocuments) {
+                    index.getPhysicalIndex().deindexDocument(annotationDocument);
+                    pooledIndex.recordOperation(annotationDocument,
+                            i -> i.deindexDocument(annotationDocument));
+                }
             }
         }
     }
@@ -443,8 +452,12 @@ public class SearchServiceImpl
         try (var pooledIndex = acquireIndex(project.getId())) {
             pooledIndex.forceRecycle();
             Index index = pooledIndex.get();
-            index.setInvalid(true);
-            entityManager.merge(index);
+            // If the index can be rebuilt in the background, the current index remains usable
+            // until the new one is ready
+            if (!isShadowRebuildPossible(index)) {
+                index.setInvalid(true);
+                entityManager.merge(index);
+            }
         }
 
         // Schedule re-indexing of the physical index
@@ -482,6 +495,9 @@ public class SearchServiceImpl
         // threads to update the index concurrently. The underlying index code should hopefully
         // be thread-safe...
         try {
+            // If a shadow index is being built, it may already contain an older version
+            aPooledIndex.recordOperation(aSourceDocument,
+                    i -> i.indexDocument(aSourceDocument, aBinaryCas));
             index.getPhysicalIndex().indexDocument(aSourceDocument, aBinaryCas);
         }
         catch (IndexRebuildRequiredException e) {
@@ -551,6 +567,9 @@ public class SearchServiceImpl
             // Add annotation document to the index again
             LOG.trace("Indexing new version of annotation document {} in project {}",
                     aAnnotationDocument, project);
+            // If a shadow index is being built, it may already contain an older version
+            aPooledIndex.recordOperation(aAnnotationDocument,
+                    i -> i.indexDocument(aAnnotationDocument, aBinaryCas));
             index.getPhysicalIndex().indexDocument(aAnnotationDocument, aBinaryCas);
         }
         catch (IndexRebuildRequiredException e) {
@@ -652,22 +671,72 @@ public class SearchServiceImpl
     {
         LOG.info("Re-indexing project {}. This may take a while...", aProject);
 
+        var shadowRebuild = false;
         try (var pooledIndex = acquireIndex(aProject.getId())) {
             if (isPerformNoMoreActions(pooledIndex)) {
                 return;
             }
 
             var index = pooledIndex.get();
-            index.setInvalid(true);
 
-            // Clear the index
+            // If possible, we build the new index next to the current one which remains available
+            // for queries in the meantime. Otherwise, we need to clear the current index.
+            PhysicalIndex shadowIndex = null;
+            if (isShadowRebuildPossible(index)) {
+                shadowIndex = index.getPhysicalIndex().createShadowIndex();
+                pooledIndex.beginShadowRebuild(shadowIndex);
+                shadowRebuild = true;
+                LOG.info("Building new index for project {} in the background", aProject);
+            }
+            else {
+                index.setInvalid(true);
+
+                // Clear the index
+                try {
+                    index.getPhysicalIndex().clear();
+                }
+                catch (IndexRebuildRequiredException e) {
+                    // We can ignore this since we are rebuilding the index already anyway
+                }
+            }
+
             try {
-                index.getPhysicalIndex().clear();
+                reindex(aProject, aMonitor, pooledIndex, shadowIndex);
             }
-            catch (IndexRebuildRequiredException e) {
-                // We can ignore this since we are rebuilding the index already anyway
+            finally {
+                if (shadowIndex != null) {
+                    pooledIndex.endShadowRebuild();
+                }
             }
+        }
+
+        if (aMonitor == null || !aMonitor.isCancelled()) {
+            LOG.info("Re-indexing project {} complete!", aProject);
+        }
+        else if (shadowRebuild) {
+            LOG.info("Re-indexing project {} aborted - the previous index remains in use",
+                    aProject);
+        }
+        else {
+            LOG.info("Re-indexing project {} aborted!", aProject);
+        }
+    }
 
+    private boolean isShadowRebuildPossible(Index aIndex)
+    {
+        var physicalIndex = aIndex.getPhysicalIndex();
+        return physicalIndex != null && physicalIndex.isShadowRebuildSupported()
+                && physicalIndex.isCreated();
+    }
+
+    private void reindex(Project aProject, TaskMonitor aMonitor, PooledIndex aPooledIndex,
+            PhysicalIndex aShadowIndex)
+        throws IOException
+    {
+        var index = aPooledIndex.get();
+        var shadowRebuild = aShadowIndex != null;
+        var promoted = false;
+        try {
             var usersWithPermissions = projectService.listProjectUsersWithPermissions(aProject)
                     .stream() //
                     .map(User::getUsername) //
@@ -677,7 +746,6 @@ public class SearchServiceImpl
                     .toList();
             var sourceDocuments = documentService.listSourceDocuments(aProject);
 
-            var progress = 0;
             int maxProgress = annotationDocuments.size() + sourceDocuments.size();
 
             // We do not need write access and do not want to add to the exclusive access CAS cache,
@@ -692,36 +760,40 @@ public class SearchServiceImpl
             final var accessModeInitialCas = UNMANAGED_ACCESS;
             final var casUpgradeMode = NO_CAS_UPGRADE;
 
+            // Documents go into the shadow index if there is one
+            var physicalIndex = aShadowIndex != null ? aShadowIndex : index.getPhysicalIndex();
             var prefs = preferencesService.loadDefaultTraitsForProject(KEY_SEARCH_STATE, aProject);
-            try (var indexContext = BulkIndexingContext.init(aProject, schemaService, true,
-                    prefs)) {
+            try (var indexContext = BulkIndexingContext.init(aProject, schemaService, true, prefs);
+                    var pipeline = new ReindexPipeline(properties.getReindexLoaderThreads(),
+                            properties.getReindexIndexerThreads(), indexContext,
+                            () -> isPerformNoMoreActions(aPooledIndex))) {
+                var cancelled = false;
+
                 // Index all the source documents
                 for (var doc : sourceDocuments) {
-                    progress++;
-
-                    if (isPerformNoMoreActions(pooledIndex)) {
+                    if (isPerformNoMoreActions(aPooledIndex)) {
                         return;
                     }
 
-                    if (aMonitor != null) {
-                        if (aMonitor.isCancelled()) {
-                            aMonitor.setProgressWithMessage(progress, maxProgress, LogMessage
-                                    .info(this, "Indexing aborted. Search cannot be used."));
-                            if (aMonitor.isCancelled()) {
-                                aMonitor.setState(TaskState.CANCELLED);
-                            }
-                            break;
-                        }
+                    if (isReindexCancelled(aMonitor, pipeline, maxProgress, shadowRebuild)) {
+                        cancelled = true;
+                        break;
+                    }
 
-                        aMonitor.setProgressWithMessage(progress, maxProgress,
+                    if (aMonitor != null) {
+                        // Let waiting tasks of a higher priority run between two documents
+                        aMonitor.yieldIfRequested();
+                        aMonitor.setProgressWithMessage(pipeline.getCompleted(), maxProgress,
                                 LogMessage.info(this, "Source document: %s", doc.getName()));
                     }
 
-                    try (var session = CasStorageSession.openNested()) {
+                    pipeline.submit("document " + doc, () -> {
+                        var steps = new ArrayList<ReindexPipeline.Indexer>();
+
                         // Index source document
                         var casAsByteArray = casToByteArray(documentService
                                 .createOrReadInitialCas(doc, casUpgradeMode, accessModeInitialCas));
-                        indexDocument(pooledIndex, doc, casAsByteArray);
+                        steps.add(() -> physicalIndex.indexDocument(doc, casAsByteArray));
 
                         // Index curation document (if available)
                         if (documentService.existsCas(doc, CURATION_USER)
@@ -731,65 +803,109 @@ public class SearchServiceImpl
                             var curationCasAsByteArray = casToByteArray(
                                     documentService.readAnnotationCas(doc, CURATION_USER,
                                             casUpgradeMode, accessModeInitialCas));
-                            indexDocument(pooledIndex, aDoc, "reindex", curationCasAsByteArray);
+                            steps.add(() -> physicalIndex.indexDocument(aDoc,
+                                    curationCasAsByteArray));
                         }
-                    }
-                    catch (Exception e) {
-                        LOG.error("Error indexing document {}", doc, e);
-                    }
+
+                        return steps;
+                    });
                 }
 
                 // Index all the annotation documents (from annotators)
                 for (var doc : annotationDocuments) {
-                    progress++;
+                    if (cancelled) {
+                        break;
+                    }
 
-                    if (isPerformNoMoreActions(pooledIndex)) {
+                    if (isPerformNoMoreActions(aPooledIndex)) {
                         return;
                     }
 
-                    if (aMonitor != null) {
-                        if (aMonitor.isCancelled()) {
-                            aMonitor.setProgressWithMessage(progress, maxProgress, LogMessage
-                                    .info(this, "Indexing aborted. Search cannot be used."));
-                            if (aMonitor.isCancelled()) {
-                                aMonitor.setState(TaskState.CANCELLED);
-                            }
-                            break;
-                        }
+                    if (isReindexCancelled(aMonitor, pipeline, maxProgress, shadowRebuild)) {
+                        break;
+                    }
 
-                        aMonitor.setProgressWithMessage(progress, maxProgress, LogMessage.info(this,
-                                "Annotation document: %s @ %s", doc.getUser(), doc.getName()));
+                    if (aMonitor != null) {
+                        aMonitor.yieldIfRequested();
+                        aMonitor.setProgressWithMessage(pipeline.getCompleted(), maxProgress,
+                                LogMessage.info(this, "Annotation document: %s @ %s",
+                                        doc.getUser(), doc.getName()));
                     }
 
-                    try (var session = CasStorageSession.openNested()) {
+                    pipeline.submit("document " + doc, () -> {
                         var casAsByteArray = casToByteArray(
                                 documentService.readAnnotationCas(doc.getDocument(), doc.getUser(),
                                         casUpgradeMode, accessModeAnnotationCas));
-                        indexDocument(pooledIndex, doc, "reindex", casAsByteArray);
-                    }
-                    catch (FileNotFoundException e) {
-                        // Ignore it if a annotation CAS does not exist yet
-                    }
-                    catch (Exception e) {
-                        LOG.error("Error indexing document {}", doc, e);
+                        return List.<ReindexPipeline.Indexer> of(
+                                () -> physicalIndex.indexDocument(doc, casAsByteArray));
+                    });
+                }
+
+                // Wait for the documents still in the pipeline
+                pipeline.awaitCompletion(() -> {
+                    if (!isReindexCancelled(aMonitor, pipeline, maxProgress, shadowRebuild)
+                            && aMonitor != null) {
+                        aMonitor.setProgressWithMessage(pipeline.getCompleted(), maxProgress,
+                                LogMessage.info(this, "Finishing indexing..."));
                     }
+                });
+
+                if (pipeline.isRebuildRequired()) {
+                    invalidateIndexAndForceIndexRebuild(aProject, index, "reindex[error]");
+                    return;
                 }
             }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOG.info("Re-indexing project {} interrupted", aProject);
+                return;
+            }
 
             // After re-indexing, reset the invalid flag
             if (aMonitor == null || !aMonitor.isCancelled()) {
+                if (aShadowIndex != null) {
+                    // Holding the lock ensures that no documents are removed while we switch
+                    synchronized (aPooledIndex) {
+                        aPooledIndex.replayOperations();
+                        index.getPhysicalIndex().promoteShadowIndex(aShadowIndex);
+                        promoted = true;
+                    }
+                }
+
                 index.setInvalid(false);
             }
 
             entityManager.merge(index);
         }
+        finally {
+            if (aShadowIndex != null && !promoted) {
+                try {
+                    aShadowIndex.delete();
+                }
+                catch (IOException e) {
+                    LOG.error("Unable to remove unused shadow index of project {}", aProject, e);
+                }
+            }
+        }
+    }
 
+    private boolean isReindexCancelled(TaskMonitor aMonitor, ReindexPipeline aPipeline,
+            int aMaxProgress, boolean aShadowRebuild)
+    {
         if (aMonitor == null || !aMonitor.isCancelled()) {
-            LOG.info("Re-indexing project {} complete!", aProject);
+            return false;
         }
-        else {
-            LOG.info("Re-indexing project {} aborted!", aProject);
+
+        aPipeline.cancel();
+        // When building a shadow index, the previous index remains in place and can still be used
+        var message = aShadowRebuild ? "Indexing aborted. The previous index remains in use."
+                : "Indexing aborted. Search cannot be used.";
+        aMonitor.setProgressWithMessage(aPipeline.getCompleted(), aMaxProgress,
+                LogMessage.info(this, message));
+        if (aMonitor.isCancelled()) {
+            aMonitor.setState(TaskState.CANCELLED);
         }
+        return true;
     }
 
     /**
@@ -977,6 +1093,9 @@ public class SearchServiceImpl
         private AtomicBoolean dead;
         private AtomicBoolean tombstone;
 
+        private PhysicalIndex shadowIndex;
+        private final Map<Object, IndexOperation> shadowOperations = new LinkedHashMap<>();
+
         public PooledIndex(Index aDelegate)
         {
             delegate = aDelegate;
@@ -1043,5 +1162,45 @@ public class SearchServiceImpl
         {
             return tombstone.get();
         }
+
+        public synchronized void beginShadowRebuild(PhysicalIndex aShadowIndex)
+        {
+            shadowIndex = aShadowIndex;
+            shadowOperations.clear();
+        }
+
+        public synchronized void endShadowRebuild()
+        {
+            shadowIndex = null;
+            shadowOperations.clear();
+        }
+
+        /**
+         * Documents indexed or removed while a shadow index is being built may already have been
+         * added to the shadow index in an older version. We remember the operations to apply them
+         * to the shadow index before it replaces the current index. Only the last operation per
+         * document needs to be kept.
+         */
+        public synchronized void recordOperation(Object aDocument, IndexOperation aOperation)
+        {
+            if (shadowIndex != null) {
+                shadowOperations.remove(aDocument);
+                shadowOperations.put(aDocument, aOperation);
+            }
+        }
+
+        public synchronized void replayOperations() throws IOException
+        {
+            for (var operation : shadowOperations.values()) {
+                operation.apply(shadowIndex);
+            }
+            shadowOperations.clear();
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexOperation
+    {
+        void apply(PhysicalIndex aIndex) throws IOException;
     }
 }
@@ -27,4 +27,26 @@ public interface SearchServiceProperties
      * @return time to keep an index open after it has last been used.
      */
     Duration getIndexKeepOpenTime();
+
+    /**
+     * @return number of threads loading CASes during a full re-indexing.
+     */
+    int getReindexLoaderThreads();
+
+    /**
+     * @return number of threads adding documents to the index during a full re-indexing.
+     */
+    int getReindexIndexerThreads();
+
+    /**
+     * @return whether documents are indexed sentence by sentence such that only the sentences
+     *         which have changed need to be re-indexed when a document is updated.
+     */
+    boolean isIncrementalIndexing();
+
+    /**
+     * @return number of threads evaluating queries and statistics on the segments of an index in
+     *         parallel. If this is {@code 1}, queries are evaluated on the requesting thread.
+     */
+    int getQueryThreads();
 }
@@ -29,6 +29,14 @@ public class SearchServicePropertiesImpl
 
     private Duration indexKeepOpenTime = Duration.ofMinutes(10);
 
+    private int reindexLoaderThreads = 2;
+
+    private int reindexIndexerThreads = 2;
+
+    private boolean incrementalIndexing = false;
+
+    private int queryThreads = 1;
+
     @Override
     public boolean isEnabled()
     {
@@ -50,4 +58,48 @@ public class SearchServicePropertiesImpl
     {
         indexKeepOpenTime = aIndexKeepOpenTime;
     }
+
+    @Override
+    public int getReindexLoaderThreads()
+    {
+        return reindexLoaderThreads;
+    }
+
+    public void setReindexLoaderThreads(int aReindexLoaderThreads)
+    {
+        reindexLoaderThreads = aReindexLoaderThreads;
+    }
+
+    @Override
+    public int getReindexIndexerThreads()
+    {
+        return reindexIndexerThreads;
+    }
+
+    public void setReindexIndexerThreads(int aReindexIndexerThreads)
+    {
+        reindexIndexerThreads = aReindexIndexerThreads;
+    }
+
+    @Override
+    public boolean isIncrementalIndexing()
+    {
+        return incrementalIndexing;
+    }
+
+    public void setIncrementalIndexing(boolean aIncrementalIndexing)
+    {
+        incrementalIndexing = aIncrementalIndexing;
+    }
+
+    @Override
+    public int getQueryThreads()
+    {
+        return queryThreads;
+    }
+
+    public void setQueryThreads(int aQueryThreads)
+    {
+        queryThreads = aQueryThreads;
+    }
 }
@@ -94,4 +94,43 @@ public interface PhysicalIndex
     public Optional<String> getTimestamp(long aSrcDocId, long aAnnoDocId) throws IOException;
 
     void indexDocument(SourceDocument aSourceDocument, byte[] aBinaryCas) throws IOException;
+
+    /**
+     * @return whether a new version of the index can be built in the background while the current
+     *         version remains available for queries.
+     * @see #createShadowIndex()
+     */
+    default boolean isShadowRebuildSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Creates a new, empty version of the index next to the current one. Documents can be added
+     * to the shadow index while the current version remains available for queries. Once the shadow
+     * index is complete, it replaces the current version via {@link #promoteShadowIndex}. If the
+     * shadow index is not needed anymore, it should be removed using {@link #delete()}.
+     * 
+     * @return the shadow index.
+     * @throws IOException
+     *             if there was an I/O-level problem
+     */
+    default PhysicalIndex createShadowIndex() throws IOException
+    {
+        throw new UnsupportedOperationException("Shadow rebuild not supported by " + this);
+    }
+
+    /**
+     * Replaces the current version of the index with the given shadow index. The data of the
+     * current version is removed.
+     * 
+     * @param aShadowIndex
+     *            a shadow index obtained from {@link #createShadowIndex()}.
+     * @throws IOException
+     *             if there was an I/O-level problem
+     */
+    default void promoteShadowIndex(PhysicalIndex aShadowIndex) throws IOException
+    {
+        throw new UnsupportedOperationException("Shadow rebuild not supported by " + this);
+    }
 }
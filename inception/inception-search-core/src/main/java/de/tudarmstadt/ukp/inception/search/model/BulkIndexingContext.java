@@ -99,6 +99,15 @@ public class BulkIndexingContext
         return Optional.ofNullable(INSTANCE.get());
     }
 
+    /**
+     * Makes the given context available to the current thread, e.g. to a worker thread
+     * participating in a re-indexing.
+     */
+    public static void set(BulkIndexingContext aContext)
+    {
+        INSTANCE.set(aContext);
+    }
+
     public static void clear()
     {
         INSTANCE.set(null);
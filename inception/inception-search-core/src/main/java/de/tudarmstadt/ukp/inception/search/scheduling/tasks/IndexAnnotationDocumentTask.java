@@ -29,6 +29,7 @@ import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.UNQUEUE_EXISTI
 
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.List;
 import java.util.Objects;
 
 import org.apache.commons.lang3.Validate;
@@ -117,6 +118,12 @@ public class IndexAnnotationDocumentTask
         return NO_MATCH;
     }
 
+    @Override
+    public Object getMatchKey()
+    {
+        return List.of(TYPE, getAnnotationDocument().getId());
+    }
+
     public static Builder<Builder<?>> builder()
     {
         return new Builder<>();
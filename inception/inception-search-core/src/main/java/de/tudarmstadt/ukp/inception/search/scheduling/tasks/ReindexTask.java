@@ -23,6 +23,7 @@ package de.tudarmstadt.ukp.inception.search.scheduling.tasks;
 
 import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.NO_MATCH;
 import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.UNQUEUE_EXISTING_AND_QUEUE_THIS;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.BULK;
 import static de.tudarmstadt.ukp.inception.scheduling.TaskScope.PROJECT;
 
 import java.io.IOException;
@@ -56,7 +57,8 @@ public class ReindexTask
     {
         super(aBuilder.withType(TYPE) //
                 .withCancellable(false) //
-                .withScope(PROJECT));
+                .withScope(PROJECT) //
+                .withPriority(BULK));
     }
 
     @Override
@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.uima.fit.util.CasUtil.getType;
+import static org.apache.uima.fit.util.CasUtil.select;
+import static org.apache.uima.fit.util.CasUtil.selectAll;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.uima.cas.ArrayFS;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.CommonArrayFS;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+
+/**
+ * Part of a document which is indexed as a separate Lucene document when incremental indexing is
+ * enabled. Each sentence forms a unit. An annotation belongs to the unit in which it begins. Token
+ * positions are counted across the whole document, so positions and offsets of matches do not
+ * depend on the unit they are found in.
+ * <p>
+ * The {@link MtasUimaParser} is invoked from within the analysis chain of the index writer and
+ * only receives the field content. To avoid decoding the CAS once per unit, the unit being
+ * indexed is made available to the parser via a thread-local variable.
+ */
+class IndexingUnit
+{
+    private static final ThreadLocal<IndexingUnit> CURRENT = new ThreadLocal<>();
+
+    private final int index;
+    private final int begin;
+    private final int end;
+    private final int firstToken;
+    private final Predicate<Type> indexedTypes;
+    private final List<AnnotationFS> annotations;
+    private final NavigableMap<Integer, Pair<AnnotationFS, Integer>> tokenBeginIndex;
+    private final NavigableMap<Integer, Pair<AnnotationFS, Integer>> tokenEndIndex;
+    private boolean selfContained = true;
+    private String hash;
+
+    private IndexingUnit(int aIndex, int aBegin, int aEnd, Predicate<Type> aIndexedTypes,
+            NavigableMap<Integer, Pair<AnnotationFS, Integer>> aBegins,
+            NavigableMap<Integer, Pair<AnnotationFS, Integer>> aEnds)
+    {
+        index = aIndex;
+        begin = aBegin;
+        end = aEnd;
+        indexedTypes = aIndexedTypes;
+        annotations = new ArrayList<>();
+        tokenBeginIndex = aBegins;
+        tokenEndIndex = aEnds;
+
+        var first = aBegins.ceilingEntry(aBegin);
+        firstToken = first != null ? first.getValue().getValue() : -1;
+    }
+
+    public int getIndex()
+    {
+        return index;
+    }
+
+    public List<AnnotationFS> getAnnotations()
+    {
+        return annotations;
+    }
+
+    public NavigableMap<Integer, Pair<AnnotationFS, Integer>> getTokenBeginIndex()
+    {
+        return tokenBeginIndex;
+    }
+
+    public NavigableMap<Integer, Pair<AnnotationFS, Integer>> getTokenEndIndex()
+    {
+        return tokenEndIndex;
+    }
+
+    /**
+     * @return a hash over everything in this unit that can affect the index, i.e. the annotations
+     *         in the unit, their covered text, their feature values and their offsets relative to
+     *         the unit. If the hash of a unit did not change, the unit does not need to be
+     *         re-indexed.
+     */
+    public String getHash()
+    {
+        return hash;
+    }
+
+    /**
+     * @return whether the indexed annotations in this unit neither extend beyond the unit nor
+     *         refer to annotations outside the unit, e.g. via a relation. If this is not the case
+     *         for any unit, changes to one unit may affect what needs to be indexed for another and
+     *         the document cannot be indexed incrementally.
+     */
+    public boolean isSelfContained()
+    {
+        return selfContained;
+    }
+
+    /**
+     * Splits the given CAS into units.
+     *
+     * @param aCas
+     *            the CAS.
+     * @param aIndexedTypes
+     *            the types of the annotations which are indexed. Only these are considered when
+     *            checking if a unit is self-contained.
+     * @return the units. There is always at least one unit, even if the CAS contains no
+     *         sentences.
+     */
+    static List<IndexingUnit> split(CAS aCas, Predicate<Type> aIndexedTypes)
+    {
+        var tokenBeginIndex = new TreeMap<Integer, Pair<AnnotationFS, Integer>>();
+        var tokenEndIndex = new TreeMap<Integer, Pair<AnnotationFS, Integer>>();
+        var tokenNum = 0;
+        for (var token : select(aCas, getType(aCas, Token.class))) {
+            tokenBeginIndex.put(token.getBegin(), Pair.of(token, tokenNum));
+            tokenEndIndex.put(token.getEnd(), Pair.of(token, tokenNum));
+            tokenNum++;
+        }
+
+        var unitBegins = new TreeSet<Integer>();
+        for (var sentence : select(aCas, getType(aCas, Sentence.class))) {
+            unitBegins.add(sentence.getBegin());
+        }
+
+        // Annotations before the first sentence belong to the first unit
+        unitBegins.remove(unitBegins.isEmpty() ? 0 : unitBegins.first());
+        unitBegins.add(0);
+
+        var units = new TreeMap<Integer, IndexingUnit>();
+        for (var unitBegin : unitBegins) {
+            var next = unitBegins.higher(unitBegin);
+            units.put(unitBegin, new IndexingUnit(units.size(), unitBegin,
+                    next != null ? next : Integer.MAX_VALUE, aIndexedTypes, tokenBeginIndex,
+                    tokenEndIndex));
+        }
+
+        for (var annotation : selectAll(aCas)) {
+            // MTAS cannot index zero-width annotations, so they are not part of any unit
+            if (annotation.getBegin() == annotation.getEnd()) {
+                continue;
+            }
+
+            var unit = units.floorEntry(Math.max(annotation.getBegin(), 0)).getValue();
+            unit.annotations.add(annotation);
+        }
+
+        var result = new ArrayList<>(units.values());
+        for (var unit : result) {
+            unit.hash = unit.calculateHash();
+        }
+
+        return result;
+    }
+
+    private String calculateHash()
+    {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        // The index contains absolute offsets and token positions, so if the unit moves, it
+        // needs to be re-indexed even if its content did not change
+        update(digest, begin + "/" + firstToken);
+
+        for (var annotation : annotations) {
+            update(digest, annotation, 0, indexedTypes.test(annotation.getType()));
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void update(MessageDigest aDigest, FeatureStructure aFS, int aDepth, boolean aIndexed)
+    {
+        update(aDigest, aFS.getType().getName());
+
+        if (aFS instanceof AnnotationFS annotation) {
+            updatePosition(aDigest, annotation, aIndexed);
+        }
+
+        for (var feature : aFS.getType().getFeatures()) {
+            if (CAS.FEATURE_FULL_NAME_SOFA.equals(feature.getName())) {
+                continue;
+            }
+
+            if (feature.getRange().isPrimitive()) {
+                update(aDigest, aFS.getFeatureValueAsString(feature));
+                continue;
+            }
+
+            var value = aFS.getFeatureValue(feature);
+            if (value == null) {
+                update(aDigest, "");
+            }
+            else if (value instanceof ArrayFS<?> array) {
+                for (var element : array.toArray()) {
+                    updateReference(aDigest, element, aDepth, aIndexed);
+                }
+            }
+            else if (value instanceof CommonArrayFS array) {
+                for (var element : array.toStringArray()) {
+                    update(aDigest, element);
+                }
+            }
+            else {
+                updateReference(aDigest, value, aDepth, aIndexed);
+            }
+        }
+    }
+
+    private void updateReference(MessageDigest aDigest, FeatureStructure aFS, int aDepth,
+            boolean aIndexed)
+    {
+        if (aFS == null) {
+            update(aDigest, "");
+        }
+        // Relations are indexed along with the features of their endpoints and links are
+        // indexed along with their role, so we need to look one level deep
+        else if (aDepth < 1) {
+            update(aDigest, aFS, aDepth + 1, aIndexed);
+        }
+        else {
+            update(aDigest, aFS.getType().getName());
+            if (aFS instanceof AnnotationFS annotation) {
+                updatePosition(aDigest, annotation, aIndexed);
+            }
+        }
+    }
+
+    private void updatePosition(MessageDigest aDigest, AnnotationFS aAnnotation, boolean aIndexed)
+    {
+        if (aIndexed && (aAnnotation.getBegin() < begin || aAnnotation.getEnd() > end)) {
+            selfContained = false;
+        }
+
+        update(aDigest, aAnnotation.getCoveredText());
+        update(aDigest, (aAnnotation.getBegin() - begin) + "-" + (aAnnotation.getEnd() - begin));
+
+        var first = tokenBeginIndex.floorEntry(aAnnotation.getBegin());
+        var last = tokenEndIndex.ceilingEntry(aAnnotation.getEnd());
+        update(aDigest, (first != null ? first.getValue().getValue() - firstToken : -1) + "-"
+                + (last != null ? last.getValue().getValue() - firstToken : -1));
+    }
+
+    private static void update(MessageDigest aDigest, String aValue)
+    {
+        if (aValue != null) {
+            aDigest.update(aValue.getBytes(UTF_8));
+        }
+        aDigest.update((byte) 0);
+    }
+
+    static Optional<IndexingUnit> get()
+    {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    static void set(IndexingUnit aUnit)
+    {
+        CURRENT.set(aUnit);
+    }
+
+    static void clear()
+    {
+        CURRENT.remove();
+    }
+}
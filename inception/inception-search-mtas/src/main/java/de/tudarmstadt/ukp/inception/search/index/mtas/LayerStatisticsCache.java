@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the number of matches of the layer statistics queries per index document (i.e. per source
+ * document or annotation document). Entries are kept per user, layer and query. Each entry only
+ * contains the documents visible to the user at the time the entry was filled.
+ * <p>
+ * When a document is (re-)indexed or removed from the index, only its counts are marked as stale.
+ * They are counted again the next time the statistics are requested. If the documents visible to
+ * the user change, e.g. because the state of an annotation document changed, the entries of the
+ * user no longer match and must not be used. The cache belongs to a particular generation of the
+ * index and is reset when the index is switched to a different generation or cleared.
+ */
+class LayerStatisticsCache
+{
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private volatile long generation;
+
+    LayerStatisticsCache(long aGeneration)
+    {
+        generation = aGeneration;
+    }
+
+    long getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * Drops all cached counts.
+     *
+     * @param aGeneration
+     *            the generation of the index the cache belongs to from now on.
+     */
+    void reset(long aGeneration)
+    {
+        generation = aGeneration;
+        entries.clear();
+    }
+
+    /**
+     * Drops all cached counts of the given user.
+     *
+     * @param aUser
+     *            the user.
+     */
+    void reset(String aUser)
+    {
+        entries.keySet().removeIf(key -> key.user().equals(aUser));
+    }
+
+    /**
+     * Marks the counts of the given index document as stale in all entries.
+     *
+     * @param aDocumentId
+     *            the ID of the index document, i.e.
+     *            {@code <sourceDocumentId>/<annotationDocumentId>}.
+     */
+    void invalidate(String aDocumentId)
+    {
+        for (var entry : entries.values()) {
+            entry.stale.add(aDocumentId);
+        }
+    }
+
+    /**
+     * @param aUser
+     *            the user requesting the statistics.
+     * @param aLayer
+     *            the layer and feature the statistics are about.
+     * @param aQuery
+     *            the preprocessed statistics query.
+     * @return the cache entry for the given user, layer and query. The entry must be locked while
+     *         it is being updated.
+     */
+    Entry get(String aUser, String aLayer, String aQuery)
+    {
+        return entries.computeIfAbsent(new Key(aUser, aLayer, aQuery), key -> new Entry());
+    }
+
+    private record Key(String user, String layer, String query) {}
+
+    static class Entry
+    {
+        private final Map<String, Long> counts = new ConcurrentHashMap<>();
+        private final Set<String> stale = ConcurrentHashMap.newKeySet();
+        private Set<String> documentIds;
+
+        /**
+         * @return whether all documents visible to the user have been counted at some point. If
+         *         not, the entry needs to be filled using {@link #fill}.
+         */
+        boolean isComplete()
+        {
+            return documentIds != null;
+        }
+
+        /**
+         * @return whether the entry has been filled for exactly the given documents.
+         */
+        boolean matches(Set<String> aDocumentIds)
+        {
+            return aDocumentIds.equals(documentIds);
+        }
+
+        /**
+         * Replaces all counts.
+         *
+         * @param aDocumentIds
+         *            the documents which have been counted.
+         * @param aCounts
+         *            the counts of the documents which have at least one match.
+         */
+        void fill(Set<String> aDocumentIds, Map<String, Long> aCounts)
+        {
+            counts.clear();
+            counts.putAll(aCounts);
+            stale.clear();
+            documentIds = Set.copyOf(aDocumentIds);
+        }
+
+        /**
+         * Removes the stale documents from the entry. Documents which are invalidated while they
+         * are being counted again are marked as stale again, so they are never lost.
+         *
+         * @return the IDs of the documents which need to be counted again. Only documents which
+         *         are part of the entry are returned.
+         */
+        Set<String> takeStale()
+        {
+            var ids = Set.copyOf(stale);
+            stale.removeAll(ids);
+            counts.keySet().removeAll(ids);
+            var result = new HashSet<>(ids);
+            result.retainAll(documentIds);
+            return result;
+        }
+
+        /**
+         * Adds the counts of documents returned by {@link #takeStale()}.
+         */
+        void update(Map<String, Long> aCounts)
+        {
+            counts.putAll(aCounts);
+        }
+
+        /**
+         * @return the count for the given document. Documents without matches may not be part of
+         *         the entry at all.
+         */
+        long getCount(String aDocumentId)
+        {
+            return counts.getOrDefault(aDocumentId, 0l);
+        }
+
+        /**
+         * Drops all counts, e.g. because updating the entry failed. The entry needs to be filled
+         * again then.
+         */
+        void reset()
+        {
+            documentIds = null;
+            counts.clear();
+            stale.clear();
+        }
+    }
+}
@@ -30,6 +30,11 @@ import static de.tudarmstadt.ukp.inception.search.Metrics.VIRTUAL_LAYER_SEGMENTA
 import static de.tudarmstadt.ukp.inception.search.index.mtas.MtasUimaParser.PARAM_PROJECT_ID;
 import static de.tudarmstadt.ukp.inception.search.index.mtas.MtasUimaParser.getIndexedName;
 import static de.tudarmstadt.ukp.inception.search.index.mtas.MtasUtils.decodeFSAddress;
+import static de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil.getRealCas;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Collections.emptyList;
 import static java.util.Comparator.comparingLong;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static mtas.analysis.util.MtasTokenizerFactory.ARGUMENT_PARSER;
@@ -42,27 +47,40 @@ import static org.apache.lucene.search.ScoreMode.COMPLETE_NO_SCORES;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
 import java.text.BreakIterator;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.builder.ToStringBuilder;
-import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.mutable.MutableLong;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.custom.CustomAnalyzer;
 import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
@@ -71,23 +89,35 @@ import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queries.spans.SpanWeight;
 import org.apache.lucene.queries.spans.Spans;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermInSetQuery;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.uima.cas.Type;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -99,7 +129,10 @@ import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
+import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.schema.api.feature.FeatureSupportRegistry;
 import de.tudarmstadt.ukp.inception.search.ExecutionException;
 import de.tudarmstadt.ukp.inception.search.FeatureIndexingSupport;
@@ -114,9 +147,9 @@ import de.tudarmstadt.ukp.inception.search.index.IndexRebuildRequiredException;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndex;
 import de.tudarmstadt.ukp.inception.search.model.AnnotationSearchState;
 import de.tudarmstadt.ukp.inception.search.model.BulkIndexingContext;
+import de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
-import it.unimi.dsi.fastutil.longs.LongArrayList;
-import it.unimi.dsi.fastutil.longs.LongComparators;
 import mtas.analysis.token.MtasTokenString;
 import mtas.analysis.util.MtasTokenizerFactory;
 import mtas.codec.util.CodecComponent;
@@ -136,6 +169,13 @@ public class MtasDocumentIndex
 {
     private static final String INDEX = "indexMtas";
 
+    /**
+     * File pointing to the generation of the index which is currently in use. If it does not
+     * exist, the index is in the {@link #INDEX} folder (generation 0). Otherwise it is in the
+     * {@code indexMtas-<generation>} folder.
+     */
+    private static final String GENERATION_FILE = INDEX + ".generation";
+
     /**
      * Constant for the field which carries the unique identifier for the index document consisting:
      * {@code [sourceDocumentId]/[annotationDocumentId]}
@@ -166,6 +206,43 @@ public class MtasDocumentIndex
     /** The Constant FIELD_TIMESTAMP. */
     private static final String FIELD_TIMESTAMP = "timestamp";
 
+    /**
+     * Constant for the field which carries the number of the unit (sentence) of a document which
+     * has been indexed incrementally. Documents which have not been indexed incrementally do not
+     * have this field.
+     */
+    private static final String FIELD_UNIT = "unit";
+
+    /**
+     * Constant for the field which carries the unique identifier for a unit of a document which
+     * has been indexed incrementally: {@code [sourceDocumentId]/[annotationDocumentId]/[unit]}
+     */
+    private static final String FIELD_UNIT_ID = "unitId";
+
+    /**
+     * Constant for the stored field which carries the hash of a unit of a document which has been
+     * indexed incrementally. When the document is indexed again, only the units whose hash has
+     * changed are replaced.
+     */
+    private static final String FIELD_UNIT_HASH = "unitHash";
+
+    /**
+     * When indexing incrementally, the {@link MtasUimaParser} obtains the content to be indexed
+     * from the {@link IndexingUnit}. The content field only carries this placeholder.
+     */
+    private static final String UNIT_CONTENT_PLACEHOLDER = "unit";
+
+    /**
+     * DocValues carrying the source document ID, annotation document ID, user, timestamp and unit.
+     * These need separate names because Lucene does not permit adding DocValues to fields which
+     * already exist in an index without them.
+     */
+    private static final String DV_SOURCE_DOCUMENT_ID = "dvSourceDocumentId";
+    private static final String DV_ANNOTATION_DOCUMENT_ID = "dvAnnotationDocumentId";
+    private static final String DV_USER = "dvUser";
+    private static final String DV_TIMESTAMP = "dvTimestamp";
+    private static final String DV_UNIT = "dvUnit";
+
     // Default prefix for CQL queries
     private static final String DEFAULT_PREFIX = "Token";
 
@@ -177,11 +254,17 @@ public class MtasDocumentIndex
 
     private final FeatureIndexingSupportRegistry featureIndexingSupportRegistry;
     private final FeatureSupportRegistry featureSupportRegistry;
+    private final AnnotationSchemaService annotationSchemaService;
     private final DocumentService documentService;
     private final Project project;
     private final File repositoryDir;
     private final ScheduledExecutorService schedulerService;
+    private final boolean incrementalIndexing;
+    private final ExecutorService queryExecutor;
 
+    private final LayerStatisticsCache statisticsCache;
+
+    private long generation;
     private IndexWriter _indexWriter;
     private ReferenceManager<IndexSearcher> _searcherManager;
     private ScheduledFuture<?> _commitFuture;
@@ -189,12 +272,53 @@ public class MtasDocumentIndex
     public MtasDocumentIndex(Project aProject, DocumentService aDocumentService, String aDir,
             FeatureIndexingSupportRegistry aFeatureIndexingSupportRegistry,
             FeatureSupportRegistry aFeatureSupportRegistry)
+    {
+        this(aProject, aDocumentService, aDir, aFeatureIndexingSupportRegistry,
+                aFeatureSupportRegistry, null, false, null);
+    }
+
+    /**
+     * @param aAnnotationSchemaService
+     *            used to determine which layers are indexed when indexing incrementally. If this
+     *            is {@code null}, all annotations are considered to be indexed.
+     * @param aIncrementalIndexing
+     *            whether to index documents sentence by sentence.
+     * @param aQueryExecutor
+     *            executor used to evaluate queries on multiple segments of the index in parallel.
+     *            If this is {@code null}, queries are evaluated on the calling thread.
+     */
+    public MtasDocumentIndex(Project aProject, DocumentService aDocumentService, String aDir,
+            FeatureIndexingSupportRegistry aFeatureIndexingSupportRegistry,
+            FeatureSupportRegistry aFeatureSupportRegistry,
+            AnnotationSchemaService aAnnotationSchemaService, boolean aIncrementalIndexing,
+            ExecutorService aQueryExecutor)
     {
         documentService = aDocumentService;
         project = aProject;
         featureIndexingSupportRegistry = aFeatureIndexingSupportRegistry;
         featureSupportRegistry = aFeatureSupportRegistry;
+        annotationSchemaService = aAnnotationSchemaService;
         repositoryDir = new File(aDir);
+        incrementalIndexing = aIncrementalIndexing;
+        queryExecutor = aQueryExecutor;
+        generation = readGeneration();
+        statisticsCache = new LayerStatisticsCache(generation);
+
+        schedulerService = new ScheduledThreadPoolExecutor(0);
+    }
+
+    private MtasDocumentIndex(MtasDocumentIndex aTemplate, long aGeneration)
+    {
+        documentService = aTemplate.documentService;
+        project = aTemplate.project;
+        featureIndexingSupportRegistry = aTemplate.featureIndexingSupportRegistry;
+        featureSupportRegistry = aTemplate.featureSupportRegistry;
+        annotationSchemaService = aTemplate.annotationSchemaService;
+        repositoryDir = aTemplate.repositoryDir;
+        incrementalIndexing = aTemplate.incrementalIndexing;
+        queryExecutor = aTemplate.queryExecutor;
+        generation = aGeneration;
+        statisticsCache = new LayerStatisticsCache(generation);
 
         schedulerService = new ScheduledThreadPoolExecutor(0);
     }
@@ -419,21 +543,66 @@ public class MtasDocumentIndex
         return _executeQuery(this::doCountResults, aRequest);
     }
 
+    /**
+     * The statistics are aggregated from the number of matches per index document which are kept
+     * in the {@link LayerStatisticsCache}. Only documents which have been re-indexed since the last
+     * request are counted again. If the documents visible to the user have changed since the
+     * entries of the user were filled, the cached counts are not used and the statistics are
+     * calculated by the MTAS statistics component instead.
+     */
     @Override
     public StatisticsResult getAnnotationStatistics(StatisticRequest aStatisticRequest)
         throws IOException, ExecutionException
     {
-        var fullDocSet = getUniqueDocuments(aStatisticRequest);
+        var settings = aStatisticRequest.getSearchSettings();
+        var user = aStatisticRequest.getUser().getUsername();
+        var documentIds = getVisibleDocumentIds(aStatisticRequest);
+
+        if (statisticsCache.getGeneration() != generation) {
+            statisticsCache.reset(generation);
+        }
+
+        var queries = new LinkedHashMap<String, String>();
+        queries.put(VIRTUAL_LAYER_SEGMENTATION + "." + VIRTUAL_FEATURE_SENTENCE, "<s=\"\"/>");
+        queries.put(VIRTUAL_LAYER_SEGMENTATION + "." + VIRTUAL_FEATURE_TOKEN, "<Token=\"\"/>");
+        for (var feature : aStatisticRequest.getFeatures()) {
+            queries.put(feature.getLayer().getName() + "." + feature.getName(),
+                    getFeatureQuery(feature));
+        }
+
+        var entries = new HashMap<String, LayerStatisticsCache.Entry>();
+        queries.forEach((layer, query) -> entries.put(layer,
+                statisticsCache.get(user, layer, preprocessQuery(query, settings))));
+
+        if (entries.values().stream().anyMatch(e -> e.isComplete() && !e.matches(documentIds))) {
+            LOG.trace("Documents visible to user [{}] have changed - not using cached statistics",
+                    user);
+            statisticsCache.reset(user);
+            return getAnnotationStatisticsFromIndex(aStatisticRequest);
+        }
+
+        for (var query : queries.entrySet()) {
+            updateCachedCounts(entries.get(query.getKey()), query.getValue(), settings,
+                    documentIds);
+        }
+
+        var sentences = entries
+                .get(VIRTUAL_LAYER_SEGMENTATION + "." + VIRTUAL_FEATURE_SENTENCE);
+        var tokens = entries.get(VIRTUAL_LAYER_SEGMENTATION + "." + VIRTUAL_FEATURE_TOKEN);
+
+        // Only documents which contain at least one token are considered
+        var countedIds = documentIds.stream() //
+                .filter(id -> tokens.getCount(id) > 0) //
+                .toList();
+
         var allStats = new HashMap<String, LayerStatistics>();
         var nonNullStats = new HashMap<String, LayerStatistics>();
-        var features = aStatisticRequest.getFeatures();
 
-        for (var feature : features) {
+        for (var feature : aStatisticRequest.getFeatures()) {
             var layer = feature.getLayer();
-            var searchString = "<" + MtasUimaParser.getIndexedName(layer.getUiName()) + "."
-                    + MtasUimaParser.getIndexedName(feature.getUiName()) + "=\"\"/>";
-
-            var results = getLayerStatistics(aStatisticRequest, searchString, fullDocSet);
+            var matches = entries.get(layer.getName() + "." + feature.getName());
+            var results = summarizeByDocument(aStatisticRequest,
+                    countsByDocument(countedIds, matches, sentences, tokens));
             results.setFeature(feature);
             if (results.getMaximum() > 0) {
                 nonNullStats.put(layer.getUiName() + "." + feature.getUiName(), results);
@@ -441,25 +610,51 @@ public class MtasDocumentIndex
             allStats.put(layer.getUiName() + "." + feature.getUiName(), results);
         }
 
-        var rawText = new AnnotationLayer();
-        rawText.setUiName(VIRTUAL_LAYER_SEGMENTATION);
+        var results = summarizeByDocument(aStatisticRequest,
+                countsByDocument(countedIds, tokens, sentences, tokens));
+        results.setFeature(createVirtualFeature(VIRTUAL_FEATURE_TOKEN));
+        allStats.put(VIRTUAL_LAYER_SEGMENTATION + "." + VIRTUAL_FEATURE_TOKEN, results);
+        nonNullStats.put(VIRTUAL_LAYER_SEGMENTATION + "." + VIRTUAL_FEATURE_TOKEN, results);
 
-        var token = new AnnotationFeature();
-        token.setUiName(VIRTUAL_FEATURE_TOKEN);
-        token.setLayer(rawText);
+        results = summarizeByDocument(aStatisticRequest,
+                countsByDocument(countedIds, sentences, sentences, tokens));
+        results.setFeature(createVirtualFeature(VIRTUAL_FEATURE_SENTENCE));
+        allStats.put(VIRTUAL_LAYER_SEGMENTATION + "." + VIRTUAL_FEATURE_SENTENCE, results);
+        nonNullStats.put(VIRTUAL_LAYER_SEGMENTATION + "." + VIRTUAL_FEATURE_SENTENCE, results);
 
-        var sentence = new AnnotationFeature();
-        sentence.setUiName(VIRTUAL_FEATURE_SENTENCE);
-        sentence.setLayer(rawText);
+        return new StatisticsResult(aStatisticRequest, allStats, nonNullStats,
+                aStatisticRequest.getFeatures());
+    }
 
-        var results = getLayerStatistics(aStatisticRequest, "<Token=\"\"/>", fullDocSet);
+    /**
+     * Calculates the statistics using the MTAS statistics component without using the
+     * {@link LayerStatisticsCache}.
+     */
+    private StatisticsResult getAnnotationStatisticsFromIndex(StatisticRequest aStatisticRequest)
+        throws IOException, ExecutionException
+    {
+        var fullDocSet = getUniqueDocuments(aStatisticRequest);
+        var allStats = new HashMap<String, LayerStatistics>();
+        var nonNullStats = new HashMap<String, LayerStatistics>();
 
-        results.setFeature(token);
+        for (var feature : aStatisticRequest.getFeatures()) {
+            var layer = feature.getLayer();
+            var results = getLayerStatistics(aStatisticRequest, getFeatureQuery(feature),
+                    fullDocSet);
+            results.setFeature(feature);
+            if (results.getMaximum() > 0) {
+                nonNullStats.put(layer.getUiName() + "." + feature.getUiName(), results);
+            }
+            allStats.put(layer.getUiName() + "." + feature.getUiName(), results);
+        }
+
+        var results = getLayerStatistics(aStatisticRequest, "<Token=\"\"/>", fullDocSet);
+        results.setFeature(createVirtualFeature(VIRTUAL_FEATURE_TOKEN));
         allStats.put(VIRTUAL_LAYER_SEGMENTATION + "." + VIRTUAL_FEATURE_TOKEN, results);
         nonNullStats.put(VIRTUAL_LAYER_SEGMENTATION + "." + VIRTUAL_FEATURE_TOKEN, results);
 
         results = getLayerStatistics(aStatisticRequest, "<s=\"\"/>", fullDocSet);
-        results.setFeature(sentence);
+        results.setFeature(createVirtualFeature(VIRTUAL_FEATURE_SENTENCE));
         allStats.put(VIRTUAL_LAYER_SEGMENTATION + "." + VIRTUAL_FEATURE_SENTENCE, results);
         nonNullStats.put(VIRTUAL_LAYER_SEGMENTATION + "." + VIRTUAL_FEATURE_SENTENCE, results);
 
@@ -467,6 +662,148 @@ public class MtasDocumentIndex
                 aStatisticRequest.getFeatures());
     }
 
+    private static String getFeatureQuery(AnnotationFeature aFeature)
+    {
+        return "<" + MtasUimaParser.getIndexedName(aFeature.getLayer().getUiName()) + "."
+                + MtasUimaParser.getIndexedName(aFeature.getUiName()) + "=\"\"/>";
+    }
+
+    private static AnnotationFeature createVirtualFeature(String aUiName)
+    {
+        var rawText = new AnnotationLayer();
+        rawText.setUiName(VIRTUAL_LAYER_SEGMENTATION);
+
+        var feature = new AnnotationFeature();
+        feature.setUiName(aUiName);
+        feature.setLayer(rawText);
+        return feature;
+    }
+
+    /**
+     * @return the IDs of the index documents the user may see - see
+     *         {@link #getUniqueDocuments(StatisticRequest)}.
+     */
+    private Set<String> getVisibleDocumentIds(StatisticRequest aRequest)
+    {
+        var documentIds = new LinkedHashSet<String>();
+        var annotatableDocuments = documentService.listAnnotatableDocuments(aRequest.getProject(),
+                aRequest.getUser());
+        for (var entry : annotatableDocuments.entrySet()) {
+            var sourceDocument = entry.getKey();
+            var annotationDocument = entry.getValue();
+
+            // If there is no annotation document or the annotation document is NEW, we use the
+            // source document
+            if (!isAnnotationDocumentIndexed(annotationDocument)) {
+                documentIds.add(sourceDocument.getId() + "/-1");
+            }
+
+            if (annotationDocument != null) {
+                documentIds.add(sourceDocument.getId() + "/" + annotationDocument.getId());
+            }
+        }
+
+        return documentIds;
+    }
+
+    /**
+     * @return the number of matches, sentences and tokens for each of the given documents.
+     */
+    private List<long[]> countsByDocument(List<String> aDocumentIds,
+            LayerStatisticsCache.Entry aMatches, LayerStatisticsCache.Entry aSentences,
+            LayerStatisticsCache.Entry aTokens)
+    {
+        return aDocumentIds.stream() //
+                .map(id -> new long[] { aMatches.getCount(id), aSentences.getCount(id),
+                        aTokens.getCount(id) }) //
+                .toList();
+    }
+
+    /**
+     * Brings the given cache entry up to date for the given documents. If the entry has not been
+     * filled yet or was filled for different documents, all the documents are counted. Otherwise,
+     * only the documents which have changed since the last call are counted again.
+     */
+    private void updateCachedCounts(LayerStatisticsCache.Entry aEntry, String aQuery,
+            AnnotationSearchState aPrefs, Set<String> aDocumentIds)
+        throws IOException, ExecutionException
+    {
+        var query = parseQuery(aQuery, aPrefs);
+
+        synchronized (aEntry) {
+            var fill = !aEntry.isComplete() || !aEntry.matches(aDocumentIds);
+            var ids = fill ? aDocumentIds : aEntry.takeStale();
+            if (!fill && ids.isEmpty()) {
+                return;
+            }
+
+            IndexSearcher searcher = null;
+            try {
+                // Make sure that we see the changes that caused the documents to become stale
+                getSearcherManager().maybeRefreshBlocking();
+                searcher = getSearcherManager().acquire();
+
+                var counts = countNewestVersions(searcher, query, ids);
+
+                if (fill) {
+                    aEntry.fill(aDocumentIds, counts);
+                }
+                else {
+                    aEntry.update(counts);
+                }
+
+                LOG.trace("Counted [{}] in {} documents of project {}", aQuery, ids.size(),
+                        project);
+            }
+            catch (IOException | RuntimeException e) {
+                // The stale documents have already been removed from the entry
+                aEntry.reset();
+                throw e;
+            }
+            finally {
+                if (searcher != null) {
+                    getSearcherManager().release(searcher);
+                    searcher = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the matches of the given query in the given index documents. While a document is
+     * being re-indexed, the index may briefly contain its previous version as well. Only the
+     * newest version of each document is counted.
+     *
+     * @return the number of matches per index document. Documents without matches are omitted.
+     */
+    private Map<String, Long> countNewestVersions(IndexSearcher aSearcher, MtasSpanQuery aQuery,
+            Set<String> aDocumentIds)
+        throws IOException
+    {
+        var counts = new HashMap<String, Long>();
+        if (aDocumentIds.isEmpty()) {
+            return counts;
+        }
+
+        var weight = aQuery.rewrite(aSearcher.getIndexReader()).createWeight(aSearcher,
+                COMPLETE_NO_SCORES, 0);
+        var ids = aDocumentIds.stream().map(BytesRef::new).toList();
+        var filter = aSearcher.createWeight(aSearcher.rewrite(new TermInSetQuery(FIELD_ID, ids)),
+                COMPLETE_NO_SCORES, 1.0f);
+
+        var leaves = aSearcher.getIndexReader().leaves();
+        var versions = new DocumentVersions();
+        mapLeaves(leaves, leaf -> collectVersions(leaf, filter)).forEach(versions::addAll);
+
+        var countsPerLeaf = mapLeaves(leaves,
+                leaf -> countMatchesByDocument(leaf, weight, filter, versions));
+        for (var leafCounts : countsPerLeaf) {
+            leafCounts.forEach((id, count) -> counts.merge(id, count, Long::sum));
+        }
+
+        return counts;
+    }
+
     @Override
     public List<Integer> getUniqueDocuments(StatisticRequest aRequest) throws IOException
     {
@@ -550,6 +887,13 @@ public class MtasDocumentIndex
             String aFeatureQuery, List<Integer> aFullDocSet)
         throws IOException, ExecutionException
     {
+        // The MTAS statistics component aggregates the values per document into summary
+        // statistics. Statistics like the median cannot be merged across segments, so to process
+        // the segments in parallel, we need to collect the values per document ourselves.
+        if (incrementalIndexing || queryExecutor != null) {
+            return getLayerStatisticsByDocument(aStatisticRequest, aFeatureQuery, aFullDocSet);
+        }
+
         IndexSearcher searcher = null;
         Map<String, Object> resultsMap = null;
         Map<String, Object> resultsMapSentence = null;
@@ -683,6 +1027,215 @@ public class MtasDocumentIndex
         }
     }
 
+    /**
+     * When documents are indexed incrementally, a document consists of multiple Lucene documents.
+     * The MTAS statistics component would calculate the statistics per sentence then. So instead,
+     * we count the matches per Lucene document and sum them up per document ourselves. The
+     * segments of the index are processed in parallel if possible.
+     */
+    private LayerStatistics getLayerStatisticsByDocument(StatisticRequest aStatisticRequest,
+            String aFeatureQuery, List<Integer> aFullDocSet)
+        throws IOException, ExecutionException
+    {
+        var settings = aStatisticRequest.getSearchSettings();
+        var queries = new MtasSpanQuery[] { parseQuery(aFeatureQuery, settings),
+                parseQuery("<s=\"\"/>", settings), parseQuery("<Token=\"\"/>", settings) };
+        var docSet = new IntOpenHashSet(aFullDocSet);
+
+        // Matches, sentences and tokens per document
+        var counts = new LinkedHashMap<String, long[]>();
+
+        IndexSearcher searcher = null;
+        try {
+            searcher = getSearcherManager().acquire();
+
+            var weights = new SpanWeight[queries.length];
+            for (var i = 0; i < queries.length; i++) {
+                weights[i] = queries[i].rewrite(searcher.getIndexReader()).createWeight(searcher,
+                        COMPLETE_NO_SCORES, 0);
+            }
+
+            var countsPerLeaf = mapLeaves(searcher.getIndexReader().leaves(),
+                    leaf -> countMatchesByDocument(leaf, weights, docSet));
+
+            for (var leafCounts : countsPerLeaf) {
+                leafCounts.forEach((id, leafCount) -> {
+                    var count = counts.computeIfAbsent(id, k -> new long[weights.length]);
+                    for (var i = 0; i < count.length; i++) {
+                        count[i] += leafCount[i];
+                    }
+                });
+            }
+        }
+        finally {
+            if (searcher != null) {
+                getSearcherManager().release(searcher);
+                searcher = null;
+            }
+        }
+
+        return summarizeByDocument(aStatisticRequest, counts.values());
+    }
+
+    /**
+     * Calculates the statistics from the number of matches, sentences and tokens per document.
+     * Documents with fewer or more tokens than requested are skipped.
+     */
+    private LayerStatistics summarizeByDocument(StatisticRequest aStatisticRequest,
+            Collection<long[]> aCounts)
+    {
+        var perDocument = new DoubleArrayList();
+        var perSentence = new DoubleArrayList();
+        for (var count : aCounts) {
+            if (count[2] < aStatisticRequest.getMinTokenPerDoc()
+                    || count[2] > aStatisticRequest.getMaxTokenPerDoc()) {
+                continue;
+            }
+
+            perDocument.add(count[0]);
+            if (count[1] > 0) {
+                perSentence.add((double) count[0] / count[1]);
+            }
+        }
+
+        var docStats = summarize(perDocument);
+        var sentStats = summarize(perSentence);
+        return new LayerStatistics(docStats[0], docStats[1], docStats[2], docStats[3],
+                docStats[4], docStats[5], sentStats[0], sentStats[1], sentStats[2], sentStats[3],
+                sentStats[4], sentStats[5], perSentence.size());
+    }
+
+    private Map<String, long[]> countMatchesByDocument(LeafReaderContext aLeafReaderContext,
+            SpanWeight[] aWeights, IntOpenHashSet aDocSet)
+        throws IOException
+    {
+        var counts = new LinkedHashMap<String, long[]>();
+        var reader = aLeafReaderContext.reader();
+        var liveDocs = reader.getLiveDocs();
+
+        for (var slot = 0; slot < aWeights.length; slot++) {
+            var spans = aWeights[slot].getSpans(aLeafReaderContext, SpanWeight.Postings.POSITIONS);
+            if (spans == null) {
+                continue;
+            }
+
+            while (spans.nextDoc() != Spans.NO_MORE_DOCS) {
+                if ((liveDocs != null && !liveDocs.get(spans.docID()))
+                        || !aDocSet.contains(aLeafReaderContext.docBase + spans.docID())) {
+                    continue;
+                }
+
+                var id = reader.document(spans.docID()).get(FIELD_ID);
+                var count = counts.computeIfAbsent(id, k -> new long[aWeights.length]);
+                while (spans.nextStartPosition() != Spans.NO_MORE_POSITIONS) {
+                    count[slot]++;
+                }
+            }
+        }
+
+        return counts;
+    }
+
+    /**
+     * Collects the versions of the index documents matching the given filter in the given segment.
+     */
+    private DocumentVersions collectVersions(LeafReaderContext aLeafReaderContext, Weight aFilter)
+        throws IOException
+    {
+        var versions = new DocumentVersions();
+
+        var filter = getAccessFilter(aFilter, aLeafReaderContext);
+        if (filter == null) {
+            return versions;
+        }
+
+        var liveDocs = aLeafReaderContext.reader().getLiveDocs();
+        var identifiers = new IdentifierReader(aLeafReaderContext.reader());
+        var doc = filter.nextDoc();
+        while (doc != DocIdSetIterator.NO_MORE_DOCS) {
+            var ids = liveDocs == null || liveDocs.get(doc) ? identifiers.read(doc) : null;
+            if (ids != null) {
+                versions.add(ids);
+            }
+            doc = filter.nextDoc();
+        }
+
+        return versions;
+    }
+
+    /**
+     * Counts the matches per index document in the given segment.
+     *
+     * @param aFilter
+     *            only documents matching this filter are counted.
+     * @param aVersions
+     *            only the newest versions of the documents are counted.
+     */
+    private Map<String, Long> countMatchesByDocument(LeafReaderContext aLeafReaderContext,
+            SpanWeight aWeight, Weight aFilter, DocumentVersions aVersions)
+        throws IOException
+    {
+        var counts = new HashMap<String, Long>();
+
+        var spans = aWeight.getSpans(aLeafReaderContext, SpanWeight.Postings.POSITIONS);
+        if (spans == null) {
+            return counts;
+        }
+
+        var filter = getAccessFilter(aFilter, aLeafReaderContext);
+        if (filter == null) {
+            return counts;
+        }
+
+        var liveDocs = aLeafReaderContext.reader().getLiveDocs();
+        var identifiers = new IdentifierReader(aLeafReaderContext.reader());
+        var doc = nextAccessibleDoc(spans, filter);
+        while (doc != Spans.NO_MORE_DOCS) {
+            var ids = liveDocs == null || liveDocs.get(doc) ? identifiers.read(doc) : null;
+            if (ids != null && aVersions.isNewest(ids)) {
+                var count = 0l;
+                while (spans.nextStartPosition() != Spans.NO_MORE_POSITIONS) {
+                    count++;
+                }
+                counts.merge(ids.getDocumentId(), count, Long::sum);
+            }
+
+            doc = nextAccessibleDoc(spans, filter);
+        }
+
+        return counts;
+    }
+
+    /**
+     * @return sum, maximum, minimum, mean, median and standard deviation of the given values.
+     */
+    private static double[] summarize(DoubleArrayList aValues)
+    {
+        var n = aValues.size();
+        if (n == 0) {
+            return new double[6];
+        }
+
+        var sorted = aValues.toDoubleArray();
+        Arrays.sort(sorted);
+
+        var sum = 0.0;
+        for (var v : sorted) {
+            sum += v;
+        }
+        var mean = sum / n;
+
+        var squares = 0.0;
+        for (var v : sorted) {
+            squares += (v - mean) * (v - mean);
+        }
+        var standardDeviation = n > 1 ? Math.sqrt(squares / (n - 1)) : 0.0;
+
+        var median = n % 2 == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2;
+
+        return new double[] { sum, sorted[n - 1], sorted[0], mean, median, standardDeviation };
+    }
+
     private <T> T _executeQuery(QueryRunner<T> aRunner, SearchQueryRequest aRequest)
         throws IOException, ExecutionException
     {
@@ -772,100 +1325,184 @@ public class MtasDocumentIndex
             MtasSpanQuery q)
         throws IOException
     {
-        var leafReaderContextIterator = searcher.getIndexReader().leaves().listIterator();
+        var context = new QueryContext(searcher, aRequest, q);
 
-        var annotatableDocuments = documentService.listAnnotatableDocuments(aRequest.getProject(),
-                aRequest.getUser());
-        var sourceDocumentIndex = new HashMap<Long, SourceDocument>();
-        annotatableDocuments.entrySet().stream()
-                .forEach(e -> sourceDocumentIndex.put(e.getKey().getId(), e.getKey()));
+        var counts = mapLeaves(searcher.getIndexReader().leaves(), leafReaderContext -> {
+            var numResults = new long[1];
+            try {
+                forEachAcceptedDocument(context, leafReaderContext, (src, anno, spans) -> {
+                    while (spans.nextStartPosition() != Spans.NO_MORE_POSITIONS) {
+                        numResults[0]++;
+                    }
+                });
+            }
+            catch (Exception e) {
+                LOG.error("Unable to process query results", e);
+                numResults[0] = -1;
+            }
+            return numResults[0];
+        });
 
-        final var boost = 0;
-        var spanweight = q.rewrite(searcher.getIndexReader()).createWeight(searcher,
-                COMPLETE_NO_SCORES, boost);
+        if (counts.contains(-1L)) {
+            return -1;
+        }
 
-        var numResults = 0;
-        var limitedToDocument = aRequest.getLimitedToDocument();
+        return counts.stream().mapToLong(Long::longValue).sum();
+    }
 
-        while (leafReaderContextIterator.hasNext()) {
-            var leafReaderContext = leafReaderContextIterator.next();
-            try {
-                var spans = spanweight.getSpans(leafReaderContext, SpanWeight.Postings.POSITIONS);
-                var segmentReader = (SegmentReader) leafReaderContext.reader();
-                if (spans == null) {
-                    continue;
-                }
+    /**
+     * Calls the consumer for every document in the given segment which matches the query and which
+     * the user may see. The consumer can then iterate over the matches in the document.
+     */
+    private void forEachAcceptedDocument(QueryContext aContext,
+            LeafReaderContext aLeafReaderContext, DocumentConsumer aConsumer)
+        throws IOException
+    {
+        var spans = aContext.spanWeight.getSpans(aLeafReaderContext,
+                SpanWeight.Postings.POSITIONS);
+        if (spans == null) {
+            return;
+        }
 
-                while (spans.nextDoc() != Spans.NO_MORE_DOCS) {
-                    if (segmentReader.numDocs() == segmentReader.maxDoc()
-                            || segmentReader.getLiveDocs().get(spans.docID())) {
-                        var document = segmentReader.document(spans.docID());
+        var access = getAccessFilter(aContext.accessWeight, aLeafReaderContext);
+        if (access == null) {
+            return;
+        }
 
-                        // Retrieve user
-                        var user = document.get(FIELD_USER);
+        var segmentReader = (SegmentReader) aLeafReaderContext.reader();
+        var identifierReader = new IdentifierReader(segmentReader);
+        var limitedToDocument = aContext.request.getLimitedToDocument();
+        var username = aContext.request.getUser().getUsername();
+        while (nextAccessibleDoc(spans, access) != Spans.NO_MORE_DOCS) {
+            if (segmentReader.numDocs() != segmentReader.maxDoc()
+                    && !segmentReader.getLiveDocs().get(spans.docID())) {
+                continue;
+            }
 
-                        // Retrieve source and annotation document ids
-                        var rawSourceDocumentId = document.get(FIELD_SOURCE_DOCUMENT_ID);
-                        var rawAnnotationDocumentId = document.get(FIELD_ANNOTATION_DOCUMENT_ID);
-                        if (!validSourceAndDocumentIds(rawSourceDocumentId,
-                                rawAnnotationDocumentId)) {
-                            continue;
-                        }
+            var identifiers = identifierReader.read(spans.docID());
+            if (identifiers == null) {
+                continue;
+            }
 
-                        var sourceDocumentId = Long.valueOf(rawSourceDocumentId);
-                        var annotationDocumentId = Long.valueOf(rawAnnotationDocumentId);
-                        var sourceDocument = sourceDocumentIndex.get(sourceDocumentId);
-                        var annotationDocument = annotatableDocuments.get(sourceDocument);
+            var user = identifiers.user();
+            var sourceDocument = aContext.sourceDocumentIndex
+                    .get(identifiers.sourceDocumentId());
+            if (sourceDocument == null) {
+                // Document is not annotatable by this user, so we skip this result
+                continue;
+            }
 
-                        if (sourceDocument == null) {
-                            // Document is not annotatable by this user, so we skip this result
-                            continue;
-                        }
+            var annotationDocument = aContext.annotatableDocuments.get(sourceDocument);
 
-                        if (annotationDocument != null && IGNORE == annotationDocument.getState()) {
-                            LOG.trace("Skipping results from ignored document {}", sourceDocument);
-                        }
+            if (annotationDocument != null && IGNORE == annotationDocument.getState()) {
+                LOG.trace("Skipping results from ignored document {}", sourceDocument);
+            }
 
-                        if (!isWithinDocumentScope(limitedToDocument, sourceDocument)) {
-                            continue;
-                        }
+            if (!isWithinDocumentScope(limitedToDocument, sourceDocument)) {
+                continue;
+            }
 
-                        var matchInSourceDocument = annotationDocumentId == -1L;
-                        if (matchInSourceDocument
-                                && isAnnotationDocumentIndexed(annotationDocument)) {
-                            // Exclude result if the retrieved document is a sourcedocument
-                            // (that is, has annotationDocument = -1) AND it has a
-                            // corresponding annotation document for this user
-                            LOG.trace("Skipping results from indexed source document {} in"
-                                    + "favor of results from the corresponding annotation "
-                                    + "document", sourceDocument);
-                            continue;
-                        }
+            var matchInSourceDocument = identifiers.annotationDocumentId() == -1L;
+            if (matchInSourceDocument && isAnnotationDocumentIndexed(annotationDocument)) {
+                // Exclude result if the retrieved document is a sourcedocument
+                // (that is, has annotationDocument = -1) AND it has a
+                // corresponding annotation document for this user
+                LOG.trace("Skipping results from indexed source document {} in"
+                        + "favor of results from the corresponding annotation document",
+                        sourceDocument);
+                continue;
+            }
 
-                        if (!matchInSourceDocument
-                                && !aRequest.getUser().getUsername().equals(user)) {
-                            // Exclude result if the retrieved document is an annotation
-                            // document (that is, annotationDocument != -1 and its username
-                            // is different from the querying user
-                            LOG.trace(
-                                    "Skipping results from annotation document for user [{}] "
-                                            + "which does not match the requested user [{}]",
-                                    user, aRequest.getUser().getUsername());
-                            continue;
-                        }
+            if (!matchInSourceDocument && !username.equals(user)) {
+                // Exclude result if the retrieved document is an annotation
+                // document (that is, annotationDocument != -1 and its username
+                // is different from the querying user
+                LOG.trace(
+                        "Skipping results from annotation document for user [{}] "
+                                + "which does not match the requested user [{}]",
+                        user, username);
+                continue;
+            }
 
-                        while (spans.nextStartPosition() != Spans.NO_MORE_POSITIONS) {
-                            numResults++;
-                        }
-                    }
+            aConsumer.accept(sourceDocument, annotationDocument, spans);
+        }
+    }
+
+    /**
+     * Collects up to the given number of matches in the given segment. The remaining documents are
+     * still visited to determine the smallest source document ID in the segment which defines the
+     * order in which the segments are processed.
+     */
+    private LeafMatches collectMatches(QueryContext aContext,
+            LeafReaderContext aLeafReaderContext, long aLimit)
+    {
+        var matches = new ArrayList<Match>();
+        var minSourceDocumentId = new MutableLong(Long.MAX_VALUE);
+        try {
+            forEachAcceptedDocument(aContext, aLeafReaderContext, (src, anno, spans) -> {
+                if (src.getId() < minSourceDocumentId.longValue()) {
+                    minSourceDocumentId.setValue(src.getId());
                 }
+
+                while (matches.size() < aLimit
+                        && spans.nextStartPosition() != Spans.NO_MORE_POSITIONS) {
+                    matches.add(new Match(spans.docID(), src, anno, spans.startPosition(),
+                            spans.endPosition()));
+                }
+            });
+        }
+        catch (Exception e) {
+            LOG.error("Unable to process query results", e);
+        }
+        return new LeafMatches(minSourceDocumentId.longValue(), matches);
+    }
+
+    /**
+     * Applies the given function to all segments of the index. If a query executor is available,
+     * the segments are processed in parallel. The results are returned in the order of the
+     * segments.
+     */
+    private <T> List<T> mapLeaves(List<LeafReaderContext> aLeaves, LeafFunction<T> aFunction)
+        throws IOException
+    {
+        var results = new ArrayList<T>(aLeaves.size());
+
+        if (queryExecutor == null || aLeaves.size() < 2) {
+            for (var leafReaderContext : aLeaves) {
+                results.add(aFunction.apply(leafReaderContext));
             }
-            catch (Exception e) {
-                LOG.error("Unable to process query results", e);
-                numResults = -1;
+            return results;
+        }
+
+        var futures = new ArrayList<CompletableFuture<T>>(aLeaves.size());
+        for (var leafReaderContext : aLeaves) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return aFunction.apply(leafReaderContext);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, queryExecutor));
+        }
+
+        try {
+            for (var future : futures) {
+                results.add(future.join());
+            }
+        }
+        catch (CompletionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof UncheckedIOException ioException) {
+                throw ioException.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
             }
+            throw new IOException(e.getCause());
         }
-        return numResults;
+
+        return results;
     }
 
     private boolean validSourceAndDocumentIds(String aRawSourceDocumentId,
@@ -898,56 +1535,70 @@ public class MtasDocumentIndex
         return true;
     }
 
-    private List<LeafReaderContext> sortLeaves(List<LeafReaderContext> aLeaves,
-            IndexSearcher aSearcher, MtasSpanQuery aQuery)
+    /**
+     * Creates a filter which matches only index documents that the user may see at all: documents
+     * which are annotatable by the user and which are either source documents or the annotation
+     * documents of the user. This allows skipping the results of other annotators without loading
+     * any information about them.
+     */
+    private Weight createAccessFilterWeight(IndexSearcher aSearcher, SearchQueryRequest aRequest,
+            Collection<Long> aAnnotatableSourceDocumentIds)
         throws IOException
-    { // This method sorts the LeafReaderContexts according to the document ids
-      // they contain. If one does not contain a document for this search, then
-      // it is discarded. If one contains multiple document ids the smallest
-      // is used for comparison.
-
-        List<Pair<LeafReaderContext, List<Long>>> mapToDocIds = new ArrayList<>();
+    {
+        var limitedToDocument = aRequest.getLimitedToDocument();
+        var sourceDocumentIds = aAnnotatableSourceDocumentIds.stream() //
+                .filter(id -> limitedToDocument.isEmpty()
+                        || Objects.equals(limitedToDocument.get().getId(), id)) //
+                .map(id -> new BytesRef(String.valueOf(id))) //
+                .toList();
+
+        var ownerQuery = new BooleanQuery.Builder() //
+                .add(new TermQuery(new Term(FIELD_USER, aRequest.getUser().getUsername())),
+                        BooleanClause.Occur.SHOULD) //
+                .add(new TermQuery(new Term(FIELD_ANNOTATION_DOCUMENT_ID, "-1")),
+                        BooleanClause.Occur.SHOULD) //
+                .build();
+
+        var query = new BooleanQuery.Builder() //
+                .add(new TermInSetQuery(FIELD_SOURCE_DOCUMENT_ID, sourceDocumentIds),
+                        BooleanClause.Occur.FILTER) //
+                .add(ownerQuery, BooleanClause.Occur.FILTER) //
+                .build();
+
+        return aSearcher.createWeight(aSearcher.rewrite(query), COMPLETE_NO_SCORES, 1.0f);
+    }
 
-        // Here, the query comes into play
-        var spanweight = aQuery.rewrite(aSearcher.getIndexReader()).createWeight(aSearcher,
-                COMPLETE_NO_SCORES, 0);
+    /**
+     * @return the documents in the given segment matching the access filter or {@code null} if
+     *         there are none.
+     */
+    private DocIdSetIterator getAccessFilter(Weight aAccessWeight,
+            LeafReaderContext aLeafReaderContext)
+        throws IOException
+    {
+        var scorer = aAccessWeight.scorer(aLeafReaderContext);
+        return scorer != null ? scorer.iterator() : null;
+    }
 
-        // cycle through all the leaves
-        for (var leafReaderContext : aLeaves) {
-            var spans = spanweight.getSpans(leafReaderContext, SpanWeight.Postings.POSITIONS);
-            var segmentReader = (SegmentReader) leafReaderContext.reader();
-            var idList = new LongArrayList();
-            // no spans -> no docs
-            if (spans != null) {
-                // go through the docs in iterator span
-                while (spans.nextDoc() != Spans.NO_MORE_DOCS) {
-                    // don't know why this if is needed, just copy/pasted it from method doQuery
-                    // below
-                    if (segmentReader.numDocs() == segmentReader.maxDoc()
-                            || segmentReader.getLiveDocs().get(spans.docID())) {
-                        // get a document
-                        var document = segmentReader.document(spans.docID());
-
-                        var rawSourceDocumentId = document.get(FIELD_SOURCE_DOCUMENT_ID);
-                        // go to the next document if the docId is not set
-                        if (rawSourceDocumentId == null) {
-                            continue;
-                        }
-                        // add id to the list of ids for this leafReaderContext
-                        idList.add(Long.parseLong(rawSourceDocumentId));
-                    }
-                }
+    /**
+     * Advances the spans to the next document which is also matched by the access filter.
+     */
+    private int nextAccessibleDoc(Spans aSpans, DocIdSetIterator aAccess) throws IOException
+    {
+        var doc = aSpans.nextDoc();
+        while (doc != Spans.NO_MORE_DOCS) {
+            var accessDoc = aAccess.docID() < doc ? aAccess.advance(doc) : aAccess.docID();
+            if (accessDoc == doc) {
+                return doc;
             }
-            idList.sort(LongComparators.NATURAL_COMPARATOR);
-            if (!idList.isEmpty()) {
-                mapToDocIds.add(Pair.of(leafReaderContext, idList));
+
+            if (accessDoc == DocIdSetIterator.NO_MORE_DOCS) {
+                return Spans.NO_MORE_DOCS;
             }
-        }
-        // Sort according to docId; take the smallest value in the list
-        mapToDocIds.sort(comparingLong(s -> s.getValue().get(0)));
 
-        // Only return the leaves
-        return mapToDocIds.stream().map(Pair::getKey).collect(Collectors.toList());
+            doc = aSpans.advance(accessDoc);
+        }
+        return doc;
     }
 
     private Map<String, List<SearchResult>> doQuery(IndexSearcher searcher,
@@ -956,198 +1607,169 @@ public class MtasDocumentIndex
     {
         var results = new LinkedHashMap<String, List<SearchResult>>();
 
-        var leafReaderContextIterator = sortLeaves(searcher.getIndexReader().leaves(), searcher, q)
-                .listIterator();
-
-        var sourceAnnotationDocPairs = documentService
-                .listAnnotatableDocuments(aRequest.getProject(), aRequest.getUser());
-        var sourceDocumentIndex = new HashMap<Long, SourceDocument>();
-        sourceAnnotationDocPairs.entrySet().stream()
-                .forEach(e -> sourceDocumentIndex.put(e.getKey().getId(), e.getKey()));
-
-        final var boost = 0;
-        var spanweight = q.rewrite(searcher.getIndexReader()).createWeight(searcher,
-                COMPLETE_NO_SCORES, boost);
+        var context = new QueryContext(searcher, aRequest, q);
+        var leaves = searcher.getIndexReader().leaves();
 
         var offset = aRequest.getOffset();
         var count = aRequest.getCount();
         var current = 0;
-        var limitedToDocument = aRequest.getLimitedToDocument();
 
-        resultIteration: while (leafReaderContextIterator.hasNext()) {
-            LeafReaderContext leafReaderContext = leafReaderContextIterator.next();
+        // No segment can contribute more than offset + count matches to the requested page
+        var limit = count > Long.MAX_VALUE - offset ? Long.MAX_VALUE : offset + count;
+
+        // In parallel mode, the matches of all segments are collected up front. Otherwise, we
+        // only determine the order of the segments here and collect the matches of each segment
+        // when we get to it, so we can stop as soon as the page is full.
+        var parallel = queryExecutor != null;
+        var matchesPerLeaf = mapLeaves(leaves,
+                leaf -> collectMatches(context, leaf, parallel ? limit : 0));
+
+        // Process the segments in the order of the smallest source document ID in them. Thus, the
+        // order of the results and the paging do not depend on which segment finished first.
+        var leafOrder = IntStream.range(0, leaves.size()) //
+                .filter(i -> matchesPerLeaf.get(i).minSourceDocumentId() != Long.MAX_VALUE) //
+                .boxed() //
+                .sorted(comparingLong(i -> matchesPerLeaf.get(i).minSourceDocumentId())) //
+                .toList();
+
+        resultIteration: for (var leafIndex : leafOrder) {
+            var leafReaderContext = leaves.get(leafIndex);
+            var matches = parallel ? matchesPerLeaf.get(leafIndex).matches()
+                    : collectMatches(context, leafReaderContext, limit - current).matches();
+
+            // Skip segments which are entirely before the requested page
+            if (current + matches.size() <= offset) {
+                current += matches.size();
+                continue;
+            }
 
             try {
-                var spans = spanweight.getSpans(leafReaderContext, SpanWeight.Postings.POSITIONS);
-                if (spans == null) {
-                    continue;
-                }
-
                 var segmentReader = (SegmentReader) leafReaderContext.reader();
                 var terms = segmentReader.terms(FIELD_CONTENT);
                 var mtasCodecInfo = CodecInfo.getCodecInfoFromTerms(terms);
-                while (spans.nextDoc() != Spans.NO_MORE_DOCS) {
-                    if (segmentReader.numDocs() == segmentReader.maxDoc()
-                            || segmentReader.getLiveDocs().get(spans.docID())) {
-                        var document = segmentReader.document(spans.docID());
-
-                        // Retrieve user
-                        var user = document.get(FIELD_USER);
-
-                        // Retrieve source and annotation document ids
-                        var rawSourceDocumentId = document.get(FIELD_SOURCE_DOCUMENT_ID);
-                        var rawAnnotationDocumentId = document.get(FIELD_ANNOTATION_DOCUMENT_ID);
-                        if (!validSourceAndDocumentIds(rawSourceDocumentId,
-                                rawAnnotationDocumentId)) {
-                            continue;
-                        }
-
-                        var sourceDocumentId = Long.valueOf(rawSourceDocumentId);
-                        var annotationDocumentId = Long.valueOf(rawAnnotationDocumentId);
-                        var matchInSourceDocument = annotationDocumentId == -1;
-
-                        var sourceDocument = sourceDocumentIndex.get(sourceDocumentId);
-                        if (sourceDocument == null) {
-                            // Document is not annotatable by this user, so we skip this result
-                            continue;
-                        }
-
-                        var annotationDocument = sourceAnnotationDocPairs.get(sourceDocument);
+                Document document = null;
+                var documentId = -1;
+                for (var match : matches) {
+                    if (current < offset) {
+                        current++;
+                        continue;
+                    }
+                    if (current - offset + 1 > count) {
+                        break resultIteration;
+                    }
+                    current++;
 
-                        if (annotationDocument != null && IGNORE == annotationDocument.getState()) {
-                            LOG.trace("Skipping results from ignored document {}", sourceDocument);
-                        }
+                    // Only now that we know that we need the document, we load its stored
+                    // fields
+                    if (documentId != match.docId()) {
+                        document = segmentReader.document(match.docId());
+                        documentId = match.docId();
+                    }
 
-                        if (!isWithinDocumentScope(limitedToDocument, sourceDocument)) {
-                            continue;
-                        }
+                    var sourceDocumentId = match.sourceDocument().getId();
+                    var annotationDocument = match.annotationDocument();
 
-                        if (matchInSourceDocument
-                                && isAnnotationDocumentIndexed(annotationDocument)) {
-                            LOG.trace("Skipping results from indexed source document {} in"
-                                    + "favor of results from the corresponding annotation "
-                                    + "document", sourceDocument);
-                            continue;
-                        }
+                    // Retrieve document title
+                    String documentTitle = document.get(FIELD_TITLE);
 
-                        if (!matchInSourceDocument
-                                && !aRequest.getUser().getUsername().equals(user)) {
-                            LOG.trace(
-                                    "Skipping results from annotation document for user {} "
-                                            + "which does not match the requested user {}",
-                                    user, aRequest.getUser().getUsername());
-                            continue;
-                        }
+                    var matchStart = match.start();
+                    var matchEnd = match.end();
 
-                        // Retrieve document title
-                        String documentTitle = document.get(FIELD_TITLE);
+                    var windowStart = Math.max(matchStart - RESULT_WINDOW_SIZE, 0);
+                    var windowEnd = matchEnd + RESULT_WINDOW_SIZE - 1;
 
-                        // String idValue = segmentReader.document(spans.docID())
-                        // .getField(FIELD_ID).stringValue();
-                        // log.debug("******** New doc {}-{}", + spans.docID(), idValue);
+                    // Retrieve all indexed objects within the matching range
+                    var tokens = mtasCodecInfo.getObjectsByPositions(FIELD_CONTENT,
+                            match.docId(), windowStart, windowEnd);
 
-                        while (spans.nextStartPosition() != Spans.NO_MORE_POSITIONS) {
-                            if (current < offset) {
-                                current++;
-                                continue;
-                            }
-                            if (current - offset + 1 > count) {
-                                break resultIteration;
-                            }
-                            current++;
-                            var matchStart = spans.startPosition();
-                            var matchEnd = spans.endPosition();
+                    // If the document has been indexed incrementally, the context may
+                    // extend into the neighbouring sentences
+                    if (document.get(FIELD_UNIT) != null) {
+                        tokens.addAll(getTokensFromNeighbourUnits(searcher, document,
+                                tokens, windowStart, windowEnd));
+                    }
 
-                            var windowStart = Math.max(matchStart - RESULT_WINDOW_SIZE, 0);
-                            var windowEnd = matchEnd + RESULT_WINDOW_SIZE - 1;
+                    tokens.sort(Comparator.comparing(MtasTokenString::getOffsetStart));
 
-                            // Retrieve all indexed objects within the matching range
-                            var tokens = mtasCodecInfo.getObjectsByPositions(FIELD_CONTENT,
-                                    spans.docID(), windowStart, windowEnd);
+                    if (tokens.isEmpty()) {
+                        continue;
+                    }
 
-                            tokens.sort(Comparator.comparing(MtasTokenString::getOffsetStart));
+                    var result = new SearchResult();
+                    var resultText = new StringBuilder();
+                    var leftContext = new StringBuilder();
+                    var rightContext = new StringBuilder();
+                    result.setDocumentId(sourceDocumentId);
+                    result.setDocumentTitle(documentTitle);
+                    result.setOffsetStart(tokens.stream()
+                            .filter(t -> t.getPositionStart() >= matchStart
+                                    && t.getPositionEnd() < matchEnd)
+                            .mapToInt(MtasTokenString::getOffsetStart).min()
+                            .orElse(matchStart));
+                    result.setOffsetEnd(tokens.stream()
+                            .filter(t -> t.getPositionStart() >= matchStart
+                                    && t.getPositionEnd() < matchEnd)
+                            .mapToInt(MtasTokenString::getOffsetEnd).max()
+                            .orElse(matchEnd));
+                    result.setTokenStart(matchStart);
+                    result.setTokenLength(matchEnd - matchStart);
+                    result.setReadOnly(annotationDocument != null
+                            && FINISHED.equals(annotationDocument.getState()));
+                    result.setSelectedForAnnotation(!result.isReadOnly());
+
+                    MtasTokenString prevToken = null;
+                    for (MtasTokenString token : tokens) {
+                        if (!token.getPrefix().equals(DEFAULT_PREFIX)) {
+                            continue;
+                        }
 
-                            if (tokens.isEmpty()) {
-                                continue;
-                            }
+                        // When searching for an annotation, we don't get the matching
+                        // text back... not sure why...
+                        String tokenText = CodecUtil.termValue(token.getValue());
+                        if (tokenText == null) {
+                            continue;
+                        }
 
-                            var result = new SearchResult();
-                            var resultText = new StringBuilder();
-                            var leftContext = new StringBuilder();
-                            var rightContext = new StringBuilder();
-                            result.setDocumentId(sourceDocumentId);
-                            result.setDocumentTitle(documentTitle);
-                            result.setOffsetStart(tokens.stream()
-                                    .filter(t -> t.getPositionStart() >= matchStart
-                                            && t.getPositionEnd() < matchEnd)
-                                    .mapToInt(MtasTokenString::getOffsetStart).min()
-                                    .orElse(matchStart));
-                            result.setOffsetEnd(tokens.stream()
-                                    .filter(t -> t.getPositionStart() >= matchStart
-                                            && t.getPositionEnd() < matchEnd)
-                                    .mapToInt(MtasTokenString::getOffsetEnd).max()
-                                    .orElse(matchEnd));
-                            result.setTokenStart(matchStart);
-                            result.setTokenLength(matchEnd - matchStart);
-                            result.setReadOnly(annotationDocument != null
-                                    && FINISHED.equals(annotationDocument.getState()));
-                            result.setSelectedForAnnotation(!result.isReadOnly());
-
-                            MtasTokenString prevToken = null;
-                            for (MtasTokenString token : tokens) {
-                                if (!token.getPrefix().equals(DEFAULT_PREFIX)) {
-                                    continue;
-                                }
-
-                                // When searching for an annotation, we don't get the matching
-                                // text back... not sure why...
-                                String tokenText = CodecUtil.termValue(token.getValue());
-                                if (tokenText == null) {
-                                    continue;
-                                }
-
-                                if (token.getPositionStart() < matchStart) {
-                                    fill(leftContext, prevToken, token);
-                                    leftContext.append(tokenText);
-                                }
-                                else if (token.getPositionStart() >= matchEnd) {
-                                    fill(rightContext, prevToken, token);
-                                    rightContext.append(tokenText);
-                                }
-                                else {
-                                    // Only add the whitespace to the match if we already have
-                                    // added any text to the match - otherwise consider the
-                                    // whitespace to be part of the left context
-                                    if (resultText.length() > 0) {
-                                        fill(resultText, prevToken, token);
-                                    }
-                                    else {
-                                        fill(leftContext, prevToken, token);
-                                    }
-                                    resultText.append(tokenText);
-                                }
-                                prevToken = token;
-                            }
-                            result.setText(resultText.toString());
-                            result.setLeftContext(leftContext.toString());
-                            result.setRightContext(rightContext.toString());
-
-                            var groupingLayer = aRequest.getAnnoationLayer();
-                            var groupingFeature = aRequest.getAnnotationFeature();
-
-                            if (groupingLayer != null && groupingFeature != null) {
-                                var featureValues = featureValuesAtMatch(tokens, matchStart,
-                                        matchEnd, groupingLayer, groupingFeature);
-                                for (String featureValue : featureValues) {
-                                    addToResults(results, featureValue, result);
-                                }
+                        if (token.getPositionStart() < matchStart) {
+                            fill(leftContext, prevToken, token);
+                            leftContext.append(tokenText);
+                        }
+                        else if (token.getPositionStart() >= matchEnd) {
+                            fill(rightContext, prevToken, token);
+                            rightContext.append(tokenText);
+                        }
+                        else {
+                            // Only add the whitespace to the match if we already have
+                            // added any text to the match - otherwise consider the
+                            // whitespace to be part of the left context
+                            if (resultText.length() > 0) {
+                                fill(resultText, prevToken, token);
                             }
                             else {
-                                // if no annotation feature is specified group by document title
-                                addToResults(results, result.getDocumentTitle(), result);
+                                fill(leftContext, prevToken, token);
                             }
+                            resultText.append(tokenText);
+                        }
+                        prevToken = token;
+                    }
+                    result.setText(resultText.toString());
+                    result.setLeftContext(leftContext.toString());
+                    result.setRightContext(rightContext.toString());
+
+                    var groupingLayer = aRequest.getAnnoationLayer();
+                    var groupingFeature = aRequest.getAnnotationFeature();
+
+                    if (groupingLayer != null && groupingFeature != null) {
+                        var featureValues = featureValuesAtMatch(tokens, matchStart,
+                                matchEnd, groupingLayer, groupingFeature);
+                        for (String featureValue : featureValues) {
+                            addToResults(results, featureValue, result);
                         }
                     }
+                    else {
+                        // if no annotation feature is specified group by document title
+                        addToResults(results, result.getDocumentTitle(), result);
+                    }
                 }
             }
             catch (Exception e) {
@@ -1164,6 +1786,49 @@ public class MtasDocumentIndex
         return sortedResults;
     }
 
+    private List<MtasTokenString> getTokensFromNeighbourUnits(IndexSearcher aSearcher,
+            Document aDocument, List<MtasTokenString> aTokens, int aWindowStart, int aWindowEnd)
+        throws IOException
+    {
+        var id = aDocument.get(FIELD_ID);
+        var unit = Integer.parseInt(aDocument.get(FIELD_UNIT));
+        var positions = aTokens.stream() //
+                .filter(t -> DEFAULT_PREFIX.equals(t.getPrefix())) //
+                .mapToInt(MtasTokenString::getPositionStart) //
+                .summaryStatistics();
+
+        var tokens = new ArrayList<MtasTokenString>();
+
+        if (unit > 0 && (positions.getCount() == 0 || positions.getMin() > aWindowStart)) {
+            tokens.addAll(getTokensFromUnit(aSearcher, id + "/" + (unit - 1), aWindowStart,
+                    aWindowEnd));
+        }
+
+        if (positions.getCount() == 0 || positions.getMax() < aWindowEnd) {
+            tokens.addAll(getTokensFromUnit(aSearcher, id + "/" + (unit + 1), aWindowStart,
+                    aWindowEnd));
+        }
+
+        return tokens;
+    }
+
+    private List<MtasTokenString> getTokensFromUnit(IndexSearcher aSearcher, String aUnitId,
+            int aWindowStart, int aWindowEnd)
+        throws IOException
+    {
+        var hits = aSearcher.search(new TermQuery(new Term(FIELD_UNIT_ID, aUnitId)), 1);
+        if (hits.scoreDocs.length == 0) {
+            return emptyList();
+        }
+
+        var docId = hits.scoreDocs[0].doc;
+        var leaves = aSearcher.getIndexReader().leaves();
+        var leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+        var codecInfo = CodecInfo.getCodecInfoFromTerms(leaf.reader().terms(FIELD_CONTENT));
+        return codecInfo.getObjectsByPositions(FIELD_CONTENT, docId - leaf.docBase, aWindowStart,
+                aWindowEnd);
+    }
+
     private void addToResults(Map<String, List<SearchResult>> aResultsMap, String aKey,
             SearchResult aSearchResult)
     {
@@ -1251,6 +1916,175 @@ public class MtasDocumentIndex
         var encodedCAS = new String(MtasUtils.bytesToChars(aBinaryCas));
 
         // Create new Lucene document
+        var doc = createDocument(aDocumentTitle, aSourceDocumentId, aAnnotationDocumentId, aUser,
+                timestamp);
+        doc.add(new TextField(FIELD_CONTENT, encodedCAS, Field.Store.NO));
+
+        // Add document to the Lucene index
+        var indexWriter = getIndexWriter();
+        indexWriter.addDocument(doc);
+        statisticsCache.invalidate(doc.get(FIELD_ID));
+
+        return timestamp;
+    };
+
+    /**
+     * Index a document sentence by sentence. Each sentence is indexed as a separate Lucene
+     * document. If the units of the previous version of the document are in the index, only the
+     * sentences which have changed since then are replaced. If annotations extend across sentences
+     * or relations connect annotations in different sentences, the document is indexed as a whole
+     * instead.
+     * 
+     * @param aDocumentTitle
+     *            The title of the document to be indexed
+     * @param aSourceDocumentId
+     *            The source document ID of the document to be indexed
+     * @param aAnnotationDocumentId
+     *            The annotation document ID of the document to be indexed
+     * @param aUser
+     *            The owner of the document to be indexed
+     * @param aBinaryCas
+     *            The CAS of the document to be indexed
+     */
+    private void indexDocumentIncrementally(String aDocumentTitle, long aSourceDocumentId,
+            long aAnnotationDocumentId, String aUser, byte[] aBinaryCas)
+        throws IOException
+    {
+        var id = String.format("%d/%d", aSourceDocumentId, aAnnotationDocumentId);
+        var timestamp = DateTools.dateToString(new Date(), DateTools.Resolution.MILLISECOND);
+
+        var cas = getRealCas(WebAnnoCasUtil.byteArrayToCas(aBinaryCas));
+        var units = IndexingUnit.split(cas, getIndexedTypes());
+
+        if (units.stream().anyMatch(unit -> !unit.isSelfContained())) {
+            LOG.debug("Document {} has annotations across units - indexing it as a whole", id);
+            var currentTimestamp = indexDocument(aDocumentTitle, aSourceDocumentId,
+                    aAnnotationDocumentId, aUser, aBinaryCas);
+            deindexOldVersionsOfDocument(aSourceDocumentId, aAnnotationDocumentId, aUser,
+                    currentTimestamp);
+            return;
+        }
+
+        var indexWriter = getIndexWriter();
+
+        // If we do not know which units are in the index, we need to replace all of them
+        var previousHashes = readUnitHashes(id);
+        if (previousHashes == null) {
+            indexWriter.deleteDocuments(new Term(FIELD_ID, id));
+        }
+
+        var changed = 0;
+        for (var unit : units) {
+            if (previousHashes != null && unit.getIndex() < previousHashes.size()
+                    && unit.getHash().equals(previousHashes.get(unit.getIndex()))) {
+                continue;
+            }
+
+            var unitId = id + "/" + unit.getIndex();
+            var doc = createDocument(aDocumentTitle, aSourceDocumentId, aAnnotationDocumentId,
+                    aUser, timestamp);
+            doc.add(new StringField(FIELD_UNIT_ID, unitId, Field.Store.YES));
+            doc.add(new StringField(FIELD_UNIT, String.valueOf(unit.getIndex()), Field.Store.YES));
+            doc.add(new StoredField(FIELD_UNIT_HASH, unit.getHash()));
+            doc.add(new NumericDocValuesField(DV_UNIT, unit.getIndex()));
+            doc.add(new TextField(FIELD_CONTENT, UNIT_CONTENT_PLACEHOLDER, Field.Store.NO));
+
+            IndexingUnit.set(unit);
+            try {
+                if (previousHashes != null) {
+                    indexWriter.updateDocument(new Term(FIELD_UNIT_ID, unitId), doc);
+                }
+                else {
+                    indexWriter.addDocument(doc);
+                }
+            }
+            finally {
+                IndexingUnit.clear();
+            }
+            changed++;
+        }
+
+        // Remove units which no longer exist because the document now has fewer sentences
+        if (previousHashes != null) {
+            for (var i = units.size(); i < previousHashes.size(); i++) {
+                indexWriter.deleteDocuments(new Term(FIELD_UNIT_ID, id + "/" + i));
+            }
+        }
+
+        statisticsCache.invalidate(id);
+
+        LOG.debug(
+                "Indexed {} of {} units of document in project [{}]({}). sourceId: {}, "
+                        + "annotationId: {}, user: {}",
+                changed, units.size(), project.getName(), project.getId(), aSourceDocumentId,
+                aAnnotationDocumentId, aUser);
+    }
+
+    /**
+     * @return the types of the annotations which the {@link MtasUimaParser} indexes.
+     */
+    private Predicate<Type> getIndexedTypes()
+    {
+        if (annotationSchemaService == null) {
+            return type -> true;
+        }
+
+        var typeNames = new HashSet<String>();
+        typeNames.add(Token.class.getName());
+        typeNames.add(Sentence.class.getName());
+        annotationSchemaService.listAnnotationLayer(project).stream() //
+                .filter(AnnotationLayer::isEnabled) //
+                .forEach(layer -> typeNames.add(layer.getName()));
+
+        return type -> typeNames.contains(type.getName());
+    }
+
+    /**
+     * Reads the hashes of the units of the given document from the index.
+     * 
+     * @param aId
+     *            the value of {@link #FIELD_ID} of the document.
+     * @return the hashes by unit number or {@code null} if the index does not contain the units
+     *         of the document, e.g. because it has been indexed as a whole.
+     */
+    private List<String> readUnitHashes(String aId) throws IOException
+    {
+        var searcherManager = getSearcherManager();
+        searcherManager.maybeRefreshBlocking();
+        var searcher = searcherManager.acquire();
+        try {
+            var docs = searcher.search(new TermQuery(new Term(FIELD_ID, aId)),
+                    Math.max(1, searcher.getIndexReader().maxDoc()));
+            if (docs.scoreDocs.length == 0) {
+                return null;
+            }
+
+            var hashes = new TreeMap<Integer, String>();
+            for (var scoreDoc : docs.scoreDocs) {
+                var doc = searcher.doc(scoreDoc.doc, Set.of(FIELD_UNIT, FIELD_UNIT_HASH));
+                var unit = doc.get(FIELD_UNIT);
+                var hash = doc.get(FIELD_UNIT_HASH);
+                if (unit == null || hash == null
+                        || hashes.put(Integer.valueOf(unit), hash) != null) {
+                    return null;
+                }
+            }
+
+            // Every unit up to the last one must be there
+            if (hashes.lastKey() != hashes.size() - 1) {
+                return null;
+            }
+
+            return new ArrayList<>(hashes.values());
+        }
+        finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private Document createDocument(String aDocumentTitle, long aSourceDocumentId,
+            long aAnnotationDocumentId, String aUser, String aTimestamp)
+    {
         var doc = new Document();
 
         // Add indexed fields
@@ -1263,15 +2097,16 @@ public class MtasDocumentIndex
                 Field.Store.YES));
         doc.add(new StringField(FIELD_TITLE, aDocumentTitle, Field.Store.YES));
         doc.add(new StringField(FIELD_USER, aUser, Field.Store.YES));
-        doc.add(new StringField(FIELD_TIMESTAMP, timestamp, Field.Store.YES));
-        doc.add(new TextField(FIELD_CONTENT, encodedCAS, Field.Store.NO));
+        doc.add(new StringField(FIELD_TIMESTAMP, aTimestamp, Field.Store.YES));
 
-        // Add document to the Lucene index
-        var indexWriter = getIndexWriter();
-        indexWriter.addDocument(doc);
+        // Add DocValues for resolving query results without loading the stored fields
+        doc.add(new NumericDocValuesField(DV_SOURCE_DOCUMENT_ID, aSourceDocumentId));
+        doc.add(new NumericDocValuesField(DV_ANNOTATION_DOCUMENT_ID, aAnnotationDocumentId));
+        doc.add(new SortedDocValuesField(DV_USER, new BytesRef(aUser)));
+        doc.add(new SortedDocValuesField(DV_TIMESTAMP, new BytesRef(aTimestamp)));
 
-        return timestamp;
-    };
+        return doc;
+    }
 
     /**
      * Remove document from the index
@@ -1295,9 +2130,11 @@ public class MtasDocumentIndex
                 project.getName(), project.getId(), aSourceDocumentId, aAnnotationDocumentId,
                 aUser);
 
+        var id = String.format("%d/%d", aSourceDocumentId, aAnnotationDocumentId);
+
         var indexWriter = getIndexWriter();
-        indexWriter.deleteDocuments(new Term(FIELD_ID,
-                String.format("%d/%d", aSourceDocumentId, aAnnotationDocumentId)));
+        indexWriter.deleteDocuments(new Term(FIELD_ID, id));
+        statisticsCache.invalidate(id);
     }
 
     /**
@@ -1334,6 +2171,8 @@ public class MtasDocumentIndex
 
         // Delete document based on the previous query
         indexWriter.deleteDocuments(booleanQuery.build());
+        statisticsCache.invalidate(
+                String.format("%d/%d", aSourceDocumentId, aAnnotationDocumentId));
     }
 
     /**
@@ -1370,6 +2209,8 @@ public class MtasDocumentIndex
 
         // Delete document based on the previous query
         indexWriter.deleteDocuments(booleanQuery.build());
+        statisticsCache.invalidate(
+                String.format("%d/%d", aSourceDocumentId, aAnnotationDocumentId));
     }
 
     /**
@@ -1391,6 +2232,7 @@ public class MtasDocumentIndex
         // Remove all data from the index
         var indexWriter = getIndexWriter();
         indexWriter.deleteAll();
+        statisticsCache.reset(generation);
         ensureAllIsCommitted();
     }
 
@@ -1429,7 +2271,126 @@ public class MtasDocumentIndex
      */
     private File getIndexDir()
     {
-        return new File(repositoryDir, "/" + PROJECT_FOLDER + "/" + project.getId() + "/" + INDEX);
+        return getIndexDir(generation);
+    }
+
+    private File getIndexDir(long aGeneration)
+    {
+        return new File(getProjectDir(), aGeneration == 0 ? INDEX : INDEX + "-" + aGeneration);
+    }
+
+    private File getProjectDir()
+    {
+        return new File(repositoryDir, "/" + PROJECT_FOLDER + "/" + project.getId());
+    }
+
+    private long readGeneration()
+    {
+        var generationFile = new File(getProjectDir(), GENERATION_FILE);
+        if (!generationFile.exists()) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(Files.readString(generationFile.toPath(), UTF_8).trim());
+        }
+        catch (IOException | NumberFormatException e) {
+            LOG.warn("Unable to read index generation for project {} - using default index",
+                    project, e);
+            return 0;
+        }
+    }
+
+    private void writeGeneration(long aGeneration) throws IOException
+    {
+        var generationFile = new File(getProjectDir(), GENERATION_FILE).toPath();
+        var tempFile = new File(getProjectDir(), GENERATION_FILE + ".tmp").toPath();
+        Files.writeString(tempFile, String.valueOf(aGeneration), UTF_8);
+        Files.move(tempFile, generationFile, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    @Override
+    public boolean isShadowRebuildSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public synchronized PhysicalIndex createShadowIndex() throws IOException
+    {
+        // Remove any leftovers from previous shadow indexes that were never promoted, e.g.
+        // because the application was stopped during a rebuild
+        var currentIndexDir = getIndexDir();
+        var leftovers = getProjectDir().listFiles(f -> f.isDirectory()
+                && f.getName().startsWith(INDEX + "-") && !f.equals(currentIndexDir));
+        long maxGeneration = generation;
+        if (leftovers != null) {
+            for (var leftover : leftovers) {
+                try {
+                    maxGeneration = Math.max(maxGeneration,
+                            Long.parseLong(leftover.getName().substring(INDEX.length() + 1)));
+                }
+                catch (NumberFormatException e) {
+                    // Not one of ours - leave it alone
+                    continue;
+                }
+                deleteDirectory(leftover);
+            }
+        }
+
+        var shadow = new MtasDocumentIndex(this, maxGeneration + 1);
+        shadow.open();
+
+        LOG.debug("Created shadow index generation {} for project {}", shadow.generation,
+                project);
+
+        return shadow;
+    }
+
+    @Override
+    public void promoteShadowIndex(PhysicalIndex aShadowIndex) throws IOException
+    {
+        var shadow = (MtasDocumentIndex) aShadowIndex;
+
+        Validate.isTrue(Objects.equals(shadow.project.getId(), project.getId()),
+                "Shadow index belongs to a different project");
+
+        File oldIndexDir;
+        synchronized (shadow) {
+            shadow.schedulerService.shutdown();
+            shadow.ensureAllIsCommitted();
+
+            synchronized (this) {
+                // Once the generation file has been written, the shadow index is the current
+                // index - even if the application is stopped before we are done here
+                writeGeneration(shadow.generation);
+
+                oldIndexDir = getIndexDir();
+                closeIndex();
+
+                generation = shadow.generation;
+                _indexWriter = shadow._indexWriter;
+                _searcherManager = shadow._searcherManager;
+                if (_searcherManager != null) {
+                    _searcherManager.maybeRefresh();
+                }
+
+                statisticsCache.reset(generation);
+
+                shadow._indexWriter = null;
+                shadow._searcherManager = null;
+            }
+        }
+
+        LOG.info("Switched index for project {} to generation {}", project, generation);
+
+        try {
+            deleteDirectory(oldIndexDir);
+        }
+        catch (IOException e) {
+            LOG.warn("Unable to delete previous index at {} - will try again on next rebuild",
+                    oldIndexDir, e);
+        }
     }
 
     @Override
@@ -1441,6 +2402,7 @@ public class MtasDocumentIndex
 
         // Delete the index directory
         deleteDirectory(getIndexDir());
+        statisticsCache.reset(generation);
 
         LOG.debug("Index for project [{}]({}) has been deleted", project.getName(),
                 project.getId());
@@ -1507,6 +2469,173 @@ public class MtasDocumentIndex
                 .toString();
     }
 
+    /**
+     * Reads the identifiers of the index documents in a segment from the DocValues. Documents which
+     * were indexed before the DocValues were introduced fall back to the stored fields. The
+     * documents must be read in increasing order.
+     */
+    private class IdentifierReader
+    {
+        private final LeafReader reader;
+        private final NumericDocValues sourceDocumentIds;
+        private final NumericDocValues annotationDocumentIds;
+        private final SortedDocValues users;
+        private final SortedDocValues timestamps;
+        private final NumericDocValues units;
+
+        IdentifierReader(LeafReader aReader) throws IOException
+        {
+            reader = aReader;
+            sourceDocumentIds = aReader.getNumericDocValues(DV_SOURCE_DOCUMENT_ID);
+            annotationDocumentIds = aReader.getNumericDocValues(DV_ANNOTATION_DOCUMENT_ID);
+            users = aReader.getSortedDocValues(DV_USER);
+            timestamps = aReader.getSortedDocValues(DV_TIMESTAMP);
+            units = aReader.getNumericDocValues(DV_UNIT);
+        }
+
+        Identifiers read(int aDocId) throws IOException
+        {
+            if (sourceDocumentIds != null && annotationDocumentIds != null && users != null
+                    && timestamps != null && sourceDocumentIds.advanceExact(aDocId)
+                    && annotationDocumentIds.advanceExact(aDocId) && users.advanceExact(aDocId)
+                    && timestamps.advanceExact(aDocId)) {
+                // Only documents which have been indexed incrementally have a unit
+                var unit = units != null && units.advanceExact(aDocId) ? (int) units.longValue()
+                        : -1;
+                return new Identifiers(sourceDocumentIds.longValue(),
+                        annotationDocumentIds.longValue(),
+                        users.lookupOrd(users.ordValue()).utf8ToString(),
+                        timestamps.lookupOrd(timestamps.ordValue()).utf8ToString(), unit);
+            }
+
+            var document = reader.document(aDocId);
+            var rawSourceDocumentId = document.get(FIELD_SOURCE_DOCUMENT_ID);
+            var rawAnnotationDocumentId = document.get(FIELD_ANNOTATION_DOCUMENT_ID);
+            if (!validSourceAndDocumentIds(rawSourceDocumentId, rawAnnotationDocumentId)) {
+                return null;
+            }
+
+            var rawUnit = document.get(FIELD_UNIT);
+            return new Identifiers(Long.valueOf(rawSourceDocumentId),
+                    Long.valueOf(rawAnnotationDocumentId), document.get(FIELD_USER),
+                    Objects.toString(document.get(FIELD_TIMESTAMP), ""),
+                    rawUnit != null ? Integer.parseInt(rawUnit) : -1);
+        }
+    }
+
+    private record Identifiers(long sourceDocumentId, long annotationDocumentId, String user,
+            String timestamp, int unit)
+    {
+        String getDocumentId()
+        {
+            return sourceDocumentId + "/" + annotationDocumentId;
+        }
+    }
+
+    /**
+     * The newest version of each index document. A document which has been indexed as a whole
+     * has a single version per timestamp. A document which has been indexed incrementally
+     * consists of units which may have different timestamps. The units of a document count as
+     * the newest version unless there is a version of the document as a whole which is newer
+     * than all of them.
+     */
+    private static class DocumentVersions
+    {
+        private final Map<String, String> documents = new HashMap<>();
+        private final Map<String, String> units = new HashMap<>();
+        private final Map<String, String> newestUnits = new HashMap<>();
+
+        void add(Identifiers aIdentifiers)
+        {
+            var id = aIdentifiers.getDocumentId();
+            var timestamp = aIdentifiers.timestamp();
+            if (aIdentifiers.unit() < 0) {
+                documents.merge(id, timestamp, DocumentVersions::newest);
+            }
+            else {
+                units.merge(id + "/" + aIdentifiers.unit(), timestamp, DocumentVersions::newest);
+                newestUnits.merge(id, timestamp, DocumentVersions::newest);
+            }
+        }
+
+        void addAll(DocumentVersions aOther)
+        {
+            aOther.documents.forEach((k, v) -> documents.merge(k, v, DocumentVersions::newest));
+            aOther.units.forEach((k, v) -> units.merge(k, v, DocumentVersions::newest));
+            aOther.newestUnits.forEach((k, v) -> newestUnits.merge(k, v, DocumentVersions::newest));
+        }
+
+        boolean isNewest(Identifiers aIdentifiers)
+        {
+            var id = aIdentifiers.getDocumentId();
+            var timestamp = aIdentifiers.timestamp();
+            var document = documents.get(id);
+            var newestUnit = newestUnits.get(id);
+            var wholeDocumentIsNewest = document != null
+                    && (newestUnit == null || document.compareTo(newestUnit) > 0);
+
+            if (aIdentifiers.unit() < 0) {
+                return wholeDocumentIsNewest && timestamp.equals(document);
+            }
+
+            return !wholeDocumentIsNewest
+                    && timestamp.equals(units.get(id + "/" + aIdentifiers.unit()));
+        }
+
+        private static String newest(String aTimestamp1, String aTimestamp2)
+        {
+            // The timestamps are formatted by DateTools, so they can be compared as strings
+            return aTimestamp1.compareTo(aTimestamp2) >= 0 ? aTimestamp1 : aTimestamp2;
+        }
+    }
+
+    /**
+     * Everything needed to evaluate a query on the segments of the index. The weights can be
+     * shared between threads.
+     */
+    private class QueryContext
+    {
+        private final SearchQueryRequest request;
+        private final Map<SourceDocument, AnnotationDocument> annotatableDocuments;
+        private final Map<Long, SourceDocument> sourceDocumentIndex;
+        private final SpanWeight spanWeight;
+        private final Weight accessWeight;
+
+        QueryContext(IndexSearcher aSearcher, SearchQueryRequest aRequest, MtasSpanQuery aQuery)
+            throws IOException
+        {
+            request = aRequest;
+            annotatableDocuments = documentService.listAnnotatableDocuments(aRequest.getProject(),
+                    aRequest.getUser());
+            sourceDocumentIndex = new HashMap<>();
+            annotatableDocuments.keySet()
+                    .forEach(doc -> sourceDocumentIndex.put(doc.getId(), doc));
+            spanWeight = aQuery.rewrite(aSearcher.getIndexReader()).createWeight(aSearcher,
+                    COMPLETE_NO_SCORES, 0);
+            accessWeight = createAccessFilterWeight(aSearcher, aRequest,
+                    sourceDocumentIndex.keySet());
+        }
+    }
+
+    private record Match(int docId, SourceDocument sourceDocument,
+            AnnotationDocument annotationDocument, int start, int end) {}
+
+    private record LeafMatches(long minSourceDocumentId, List<Match> matches) {}
+
+    @FunctionalInterface
+    private interface DocumentConsumer
+    {
+        void accept(SourceDocument aSourceDocument, AnnotationDocument aAnnotationDocument,
+                Spans aSpans)
+            throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface LeafFunction<T>
+    {
+        T apply(LeafReaderContext aLeafReaderContext) throws IOException;
+    }
+
     @FunctionalInterface
     private interface QueryRunner<T>
     {
@@ -1535,6 +2664,13 @@ public class MtasDocumentIndex
         // oldTimestamp = getTimestamp(srcDocId, annoDocId);
         // }
 
+        if (incrementalIndexing) {
+            indexDocumentIncrementally(aDocument.getName(), srcDocId, annoDocId, user,
+                    aBinaryCas);
+            scheduleCommit();
+            return;
+        }
+
         var currentTimestamp = indexDocument(aDocument.getName(), srcDocId, annoDocId, user,
                 aBinaryCas);
 
@@ -1557,7 +2693,14 @@ public class MtasDocumentIndex
             deindexDocument(aSourceDocument.getId(), -1, "");
         }
 
-        indexDocument(aSourceDocument.getName(), aSourceDocument.getId(), -1, "", aBinaryCas);
+        if (incrementalIndexing) {
+            indexDocumentIncrementally(aSourceDocument.getName(), aSourceDocument.getId(), -1, "",
+                    aBinaryCas);
+        }
+        else {
+            indexDocument(aSourceDocument.getName(), aSourceDocument.getId(), -1, "",
+                    aBinaryCas);
+        }
         scheduleCommit();
     }
 }
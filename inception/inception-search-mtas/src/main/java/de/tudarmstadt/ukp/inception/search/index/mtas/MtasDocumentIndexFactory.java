@@ -21,13 +21,20 @@
  */
 package de.tudarmstadt.ukp.inception.search.index.mtas;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
 import de.tudarmstadt.ukp.inception.documents.api.RepositoryProperties;
+import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.schema.api.feature.FeatureSupportRegistry;
 import de.tudarmstadt.ukp.inception.search.FeatureIndexingSupportRegistry;
+import de.tudarmstadt.ukp.inception.search.config.SearchServiceProperties;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndex;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndexFactoryImplBase;
 import de.tudarmstadt.ukp.inception.search.index.mtas.config.MtasDocumentIndexAutoConfiguration;
@@ -41,22 +48,50 @@ import de.tudarmstadt.ukp.inception.search.index.mtas.config.MtasDocumentIndexAu
  */
 public class MtasDocumentIndexFactory
     extends PhysicalIndexFactoryImplBase
+    implements DisposableBean
 {
     private final DocumentService documentService;
     private final RepositoryProperties repositoryProperties;
     private final FeatureIndexingSupportRegistry featureIndexingSupportRegistry;
     private final FeatureSupportRegistry featureSupportRegistry;
+    private final AnnotationSchemaService annotationSchemaService;
+    private final SearchServiceProperties searchServiceProperties;
+    private final ExecutorService queryExecutor;
 
     @Autowired
     public MtasDocumentIndexFactory(DocumentService aDocumentService,
             RepositoryProperties aRepositoryProperties,
             FeatureIndexingSupportRegistry aFeatureIndexingSupportRegistry,
-            FeatureSupportRegistry aFeatureSupportRegistry)
+            FeatureSupportRegistry aFeatureSupportRegistry,
+            AnnotationSchemaService aAnnotationSchemaService,
+            SearchServiceProperties aSearchServiceProperties)
     {
         documentService = aDocumentService;
         repositoryProperties = aRepositoryProperties;
         featureIndexingSupportRegistry = aFeatureIndexingSupportRegistry;
         featureSupportRegistry = aFeatureSupportRegistry;
+        annotationSchemaService = aAnnotationSchemaService;
+        searchServiceProperties = aSearchServiceProperties;
+
+        // The executor is shared by the indexes of all projects
+        if (aSearchServiceProperties.getQueryThreads() > 1) {
+            queryExecutor = Executors.newFixedThreadPool(
+                    aSearchServiceProperties.getQueryThreads(), new BasicThreadFactory.Builder() //
+                            .namingPattern("mtas-query-%d") //
+                            .daemon(true) //
+                            .build());
+        }
+        else {
+            queryExecutor = null;
+        }
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (queryExecutor != null) {
+            queryExecutor.shutdownNow();
+        }
     }
 
     @Override
@@ -70,6 +105,7 @@ public class MtasDocumentIndexFactory
     {
         return new MtasDocumentIndex(aProject, documentService,
                 repositoryProperties.getPath().getAbsolutePath(), featureIndexingSupportRegistry,
-                featureSupportRegistry);
+                featureSupportRegistry, annotationSchemaService,
+                searchServiceProperties.isIncrementalIndexing(), queryExecutor);
     }
 }
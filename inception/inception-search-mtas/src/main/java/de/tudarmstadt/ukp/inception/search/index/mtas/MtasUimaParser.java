@@ -205,6 +205,22 @@ public class MtasUimaParser
         long start = System.currentTimeMillis();
         LOG.debug("Starting creation of token collection");
 
+        // When indexing incrementally, the content of the field is only a placeholder and the
+        // part of the CAS to be indexed is provided by the index
+        var unit = IndexingUnit.get();
+        if (unit.isPresent()) {
+            try {
+                createTokenCollection(unit.get());
+                LOG.debug("Created token collection for unit {} in {} ms", unit.get().getIndex(),
+                        (System.currentTimeMillis() - start));
+                return tokenCollection;
+            }
+            catch (Exception e) {
+                LOG.error("Unable to create token collection", e);
+                return new MtasTokenCollection();
+            }
+        }
+
         CAS cas;
         try {
             cas = readCas(aReader);
@@ -262,6 +278,23 @@ public class MtasUimaParser
         return tokenCollection;
     }
 
+    MtasTokenCollection createTokenCollection(IndexingUnit aUnit)
+    {
+        tokenCollection = new MtasTokenCollection();
+        int mtasId = 0;
+
+        // The token indexes span the whole document, so positions are the same as if the whole
+        // document had been indexed at once
+        tokenBeginIndex = aUnit.getTokenBeginIndex();
+        tokenEndIndex = aUnit.getTokenEndIndex();
+
+        for (AnnotationFS annotation : aUnit.getAnnotations()) {
+            mtasId = indexAnnotation(tokenCollection, annotation, mtasId);
+        }
+
+        return tokenCollection;
+    }
+
     private Range getRange(AnnotationFS aAnnotation)
     {
         // Get begin of the first token. Special cases:
@@ -23,9 +23,11 @@ import org.springframework.context.annotation.Bean;
 
 import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
 import de.tudarmstadt.ukp.inception.documents.api.RepositoryProperties;
+import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.schema.api.feature.FeatureSupportRegistry;
 import de.tudarmstadt.ukp.inception.search.FeatureIndexingSupportRegistry;
 import de.tudarmstadt.ukp.inception.search.config.SearchServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.search.config.SearchServiceProperties;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndexRegistry;
 import de.tudarmstadt.ukp.inception.search.index.mtas.MtasDocumentIndexFactory;
 
@@ -37,9 +39,12 @@ public class MtasDocumentIndexAutoConfiguration
     public MtasDocumentIndexFactory mtasDocumentIndexFactory(DocumentService aDocumentService,
             RepositoryProperties aRepositoryProperties,
             FeatureIndexingSupportRegistry aFeatureIndexingSupportRegistry,
-            FeatureSupportRegistry aFeatureSupportRegistry)
+            FeatureSupportRegistry aFeatureSupportRegistry,
+            AnnotationSchemaService aAnnotationSchemaService,
+            SearchServiceProperties aSearchServiceProperties)
     {
         return new MtasDocumentIndexFactory(aDocumentService, aRepositoryProperties,
-                aFeatureIndexingSupportRegistry, aFeatureSupportRegistry);
+                aFeatureIndexingSupportRegistry, aFeatureSupportRegistry,
+                aAnnotationSchemaService, aSearchServiceProperties);
     }
 }
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import org.apache.uima.cas.Type;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.testing.factory.TokenBuilder;
+import org.apache.uima.jcas.JCas;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+
+public class IndexingUnitTest
+{
+    private JCas jcas;
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        jcas = JCasFactory.createJCas();
+        var builder = TokenBuilder.create(Token.class, Sentence.class);
+        builder.buildTokens(jcas, "This is a test . \n This is sentence two .");
+    }
+
+    @Test
+    public void thatEachSentenceIsAUnit() throws Exception
+    {
+        var units = IndexingUnit.split(jcas.getCas(), type -> true);
+
+        assertThat(units).hasSize(2);
+        assertThat(units.get(0).getAnnotations()) //
+                .filteredOn(Token.class::isInstance) //
+                .hasSize(5);
+        assertThat(units.get(1).getAnnotations()) //
+                .filteredOn(Token.class::isInstance) //
+                .hasSize(5);
+    }
+
+    @Test
+    public void thatOnlyHashOfChangedUnitChanges() throws Exception
+    {
+        var before = IndexingUnit.split(jcas.getCas(), type -> true);
+
+        var ne = new NamedEntity(jcas, 27, 35);
+        ne.setValue("OTH");
+        ne.addToIndexes();
+
+        var after = IndexingUnit.split(jcas.getCas(), type -> true);
+
+        assertThat(after.get(0).getHash()).isEqualTo(before.get(0).getHash());
+        assertThat(after.get(1).getHash()).isNotEqualTo(before.get(1).getHash());
+
+        ne.setValue("PER");
+
+        var afterFeatureChange = IndexingUnit.split(jcas.getCas(), type -> true);
+
+        assertThat(afterFeatureChange.get(0).getHash()).isEqualTo(before.get(0).getHash());
+        assertThat(afterFeatureChange.get(1).getHash()).isNotEqualTo(after.get(1).getHash());
+    }
+
+    @Test
+    public void thatHashDoesNotDependOnOtherUnits() throws Exception
+    {
+        new NamedEntity(jcas, 0, 4).addToIndexes();
+
+        // Creating the annotation in the first unit before all other annotations changes the
+        // addresses of all feature structures, but it must not change the hash of the second unit
+        var other = JCasFactory.createJCas();
+        new NamedEntity(other, 0, 4).addToIndexes();
+        var builder = TokenBuilder.create(Token.class, Sentence.class);
+        builder.buildTokens(other, jcas.getDocumentText());
+
+        var units = IndexingUnit.split(jcas.getCas(), type -> true);
+        var otherUnits = IndexingUnit.split(other.getCas(), type -> true);
+
+        assertThat(otherUnits.get(1).getHash()).isEqualTo(units.get(1).getHash());
+    }
+
+    @Test
+    public void thatAnnotationAcrossUnitsIsDetected() throws Exception
+    {
+        var ne = new NamedEntity(jcas, 10, 24);
+        ne.addToIndexes();
+
+        assertThat(IndexingUnit.split(jcas.getCas(), indexed(Token.class, NamedEntity.class))) //
+                .extracting(IndexingUnit::isSelfContained) //
+                .containsExactly(false, true);
+
+        // Annotations which are not indexed do not matter
+        assertThat(IndexingUnit.split(jcas.getCas(), indexed(Token.class))) //
+                .extracting(IndexingUnit::isSelfContained) //
+                .containsExactly(true, true);
+    }
+
+    private static Predicate<Type> indexed(Class<?>... aTypes)
+    {
+        var names = Stream.of(aTypes).map(Class::getName).toList();
+        return type -> names.contains(type.getName());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LayerStatisticsCacheTest
+{
+    private LayerStatisticsCache sut;
+
+    @BeforeEach
+    public void setup()
+    {
+        sut = new LayerStatisticsCache(0);
+    }
+
+    @Test
+    public void thatOnlyInvalidatedDocumentsAreStale()
+    {
+        var entry = sut.get("user", "Segmentation.token", "<Token=\"\"/>");
+        assertThat(entry.isComplete()).isFalse();
+
+        entry.fill(Set.of("1/-1", "2/-1"), Map.of("1/-1", 5l, "2/-1", 7l));
+        sut.invalidate("2/-1");
+        sut.invalidate("3/-1");
+
+        // Documents which are not part of the entry are not counted again
+        assertThat(entry.takeStale()).containsExactly("2/-1");
+        assertThat(entry.getCount("1/-1")).isEqualTo(5l);
+        assertThat(entry.getCount("2/-1")).isZero();
+
+        entry.update(Map.of("2/-1", 8l));
+
+        assertThat(entry.getCount("2/-1")).isEqualTo(8l);
+        assertThat(entry.takeStale()).isEmpty();
+    }
+
+    @Test
+    public void thatEntriesAreKeptPerUserAndLayer()
+    {
+        var entry = sut.get("user1", "Segmentation.token", "<Token=\"\"/>");
+        entry.fill(Set.of("1/-1"), Map.of("1/-1", 5l));
+
+        assertThat(sut.get("user1", "Segmentation.token", "<Token=\"\"/>")).isSameAs(entry);
+        assertThat(sut.get("user2", "Segmentation.token", "<Token=\"\"/>").isComplete())
+                .isFalse();
+        assertThat(sut.get("user1", "Named entity.value", "<Token=\"\"/>").isComplete())
+                .isFalse();
+
+        sut.reset("user1");
+
+        assertThat(sut.get("user1", "Segmentation.token", "<Token=\"\"/>").isComplete())
+                .isFalse();
+    }
+
+    @Test
+    public void thatEntryOnlyMatchesTheDocumentsItWasFilledFor()
+    {
+        var entry = sut.get("user", "Segmentation.token", "<Token=\"\"/>");
+        entry.fill(Set.of("1/-1", "2/5"), Map.of("1/-1", 5l));
+
+        assertThat(entry.matches(Set.of("1/-1", "2/5"))).isTrue();
+        assertThat(entry.matches(Set.of("1/-1", "2/-1"))).isFalse();
+        assertThat(entry.matches(Set.of("1/-1"))).isFalse();
+    }
+
+    @Test
+    public void thatResetDropsAllEntries()
+    {
+        var entry = sut.get("user", "Segmentation.token", "<Token=\"\"/>");
+        entry.fill(Set.of("1/-1"), Map.of("1/-1", 5l));
+
+        sut.reset(1);
+
+        assertThat(sut.getGeneration()).isEqualTo(1);
+        assertThat(sut.get("user", "Segmentation.token", "<Token=\"\"/>").isComplete())
+                .isFalse();
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas;
+
+import static de.tudarmstadt.ukp.clarin.webanno.model.AnchoringMode.TOKENS;
+import static de.tudarmstadt.ukp.clarin.webanno.model.OverlapMode.ANY_OVERLAP;
+import static de.tudarmstadt.ukp.inception.support.WebAnnoConst.SPAN_TYPE;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.testing.factory.TokenBuilder;
+import org.apache.uima.jcas.JCas;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.transaction.annotation.Transactional;
+
+import de.tudarmstadt.ukp.clarin.webanno.constraints.config.ConstraintsServiceAutoConfiguration;
+import de.tudarmstadt.ukp.clarin.webanno.diag.config.CasDoctorAutoConfiguration;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.project.config.ProjectServiceAutoConfiguration;
+import de.tudarmstadt.ukp.clarin.webanno.security.config.SecurityAutoConfiguration;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.clarin.webanno.text.TextFormatSupport;
+import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
+import de.tudarmstadt.ukp.inception.documents.api.RepositoryProperties;
+import de.tudarmstadt.ukp.inception.documents.api.RepositoryPropertiesImpl;
+import de.tudarmstadt.ukp.inception.documents.config.DocumentServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.export.config.DocumentImportExportServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.io.xmi.XmiFormatSupport;
+import de.tudarmstadt.ukp.inception.io.xmi.config.UimaFormatsPropertiesImpl.XmiFormatProperties;
+import de.tudarmstadt.ukp.inception.preferences.config.PreferencesServiceAutoConfig;
+import de.tudarmstadt.ukp.inception.project.api.ProjectService;
+import de.tudarmstadt.ukp.inception.scheduling.config.SchedulingServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
+import de.tudarmstadt.ukp.inception.schema.api.feature.FeatureSupportRegistry;
+import de.tudarmstadt.ukp.inception.schema.config.AnnotationSchemaServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.search.FeatureIndexingSupportRegistry;
+import de.tudarmstadt.ukp.inception.search.SearchQueryRequest;
+import de.tudarmstadt.ukp.inception.search.SearchResult;
+import de.tudarmstadt.ukp.inception.search.config.SearchServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.search.model.AnnotationSearchState;
+import de.tudarmstadt.ukp.inception.support.spring.ApplicationContextProvider;
+import de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil;
+
+@Transactional
+@DataJpaTest( //
+        showSql = false, //
+        properties = { //
+                "spring.main.banner-mode=off", //
+                "debug.cas-doctor.force-release-behavior=true", //
+                "document-import.run-cas-doctor-on-import=OFF" })
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+@EnableAutoConfiguration
+@ImportAutoConfiguration( //
+        classes = { //
+                ConstraintsServiceAutoConfiguration.class, //
+                PreferencesServiceAutoConfig.class, //
+                ProjectServiceAutoConfiguration.class, //
+                AnnotationSchemaServiceAutoConfiguration.class, //
+                CasDoctorAutoConfiguration.class, //
+                DocumentServiceAutoConfiguration.class, //
+                CasStorageServiceAutoConfiguration.class, //
+                DocumentImportExportServiceAutoConfiguration.class, //
+                SchedulingServiceAutoConfiguration.class, //
+                SecurityAutoConfiguration.class, //
+                SearchServiceAutoConfiguration.class }, //
+        exclude = LiquibaseAutoConfiguration.class)
+@EntityScan({ //
+        "de.tudarmstadt.ukp.clarin.webanno.security.model", //
+        "de.tudarmstadt.ukp.inception.preferences.model", //
+        "de.tudarmstadt.ukp.inception.kb.model", //
+        "de.tudarmstadt.ukp.clarin.webanno.model" })
+public class MtasDocumentIndexIncrementalTest
+{
+    static final String WORK_DIR = "target/test-output/MtasDocumentIndexIncrementalTest";
+
+    @Autowired
+    ProjectService projectService;
+
+    @Autowired
+    DocumentService documentService;
+
+    @Autowired
+    AnnotationSchemaService annotationSchemaService;
+
+    @Autowired
+    RepositoryProperties repositoryProperties;
+
+    @Autowired
+    FeatureIndexingSupportRegistry featureIndexingSupportRegistry;
+
+    @Autowired
+    FeatureSupportRegistry featureSupportRegistry;
+
+    Project project;
+    SourceDocument srcDoc;
+    AnnotationDocument annDoc;
+    MtasDocumentIndex index;
+    JCas jcas;
+
+    @BeforeEach
+    void setup() throws Exception
+    {
+        deleteQuietly(new File(WORK_DIR));
+
+        project = new Project("test");
+        projectService.createProject(project);
+
+        annotationSchemaService.createOrUpdateLayer(new AnnotationLayer(
+                NamedEntity.class.getName(), "NE", SPAN_TYPE, project, true, TOKENS, ANY_OVERLAP));
+
+        srcDoc = new SourceDocument("test.txt", project, TextFormatSupport.ID);
+        annDoc = new AnnotationDocument("user", srcDoc);
+        documentService.createSourceDocument(srcDoc);
+        documentService.createOrUpdateAnnotationDocument(annDoc);
+
+        index = new MtasDocumentIndex(project, documentService,
+                repositoryProperties.getPath().getAbsolutePath(), featureIndexingSupportRegistry,
+                featureSupportRegistry, annotationSchemaService, true, null);
+        index.open();
+
+        jcas = JCasFactory.createJCas();
+        var builder = TokenBuilder.create(Token.class, Sentence.class);
+        builder.buildTokens(jcas, "This is a test .\nThis is sentence two .");
+    }
+
+    @AfterEach
+    void teardown() throws Exception
+    {
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    @Test
+    void thatCrossUnitQueryMatchesAfterIncrementalUpdate() throws Exception
+    {
+        index.indexDocument(annDoc, WebAnnoCasUtil.casToByteArray(jcas.getCas()));
+
+        assertThat(query("This")).hasSize(2);
+
+        // The named entity extends across the sentence boundary, so the document can no longer
+        // be indexed sentence by sentence
+        var ne = new NamedEntity(jcas, 10, 21);
+        ne.addToIndexes();
+        index.indexDocument(annDoc, WebAnnoCasUtil.casToByteArray(jcas.getCas()));
+
+        assertThat(query("<NE/>")) //
+                .extracting(SearchResult::getOffsetStart, SearchResult::getOffsetEnd) //
+                .containsExactly(tuple(10, 21));
+        assertThat(query("This")).hasSize(2);
+
+        // Once the named entity no longer extends across the boundary, the document is indexed
+        // sentence by sentence again and the previous version must be gone
+        ne.removeFromIndexes();
+        var ne2 = new NamedEntity(jcas, 17, 21);
+        ne2.addToIndexes();
+        index.indexDocument(annDoc, WebAnnoCasUtil.casToByteArray(jcas.getCas()));
+
+        assertThat(query("<NE/>")) //
+                .extracting(SearchResult::getOffsetStart, SearchResult::getOffsetEnd) //
+                .containsExactly(tuple(17, 21));
+        assertThat(query("This")).hasSize(2);
+
+        // Changing only the second sentence keeps the first one in the index
+        ne2.removeFromIndexes();
+        new NamedEntity(jcas, 25, 33).addToIndexes();
+        index.indexDocument(annDoc, WebAnnoCasUtil.casToByteArray(jcas.getCas()));
+
+        assertThat(query("<NE/>")) //
+                .extracting(SearchResult::getOffsetStart, SearchResult::getOffsetEnd) //
+                .containsExactly(tuple(25, 33));
+        assertThat(query("test")).hasSize(1);
+        assertThat(query("This")).hasSize(2);
+    }
+
+    private List<SearchResult> query(String aQuery) throws Exception
+    {
+        var results = index.executeQuery(new SearchQueryRequest(project, new User("user"),
+                aQuery, new AnnotationSearchState()));
+        return results.values().stream().flatMap(List::stream).toList();
+    }
+
+    @SpringBootConfiguration
+    public static class SpringConfig
+    {
+        @Bean
+        ApplicationContextProvider applicationContextProvider()
+        {
+            return new ApplicationContextProvider();
+        }
+
+        @Bean
+        RepositoryProperties repositoryProperties()
+        {
+            var props = new RepositoryPropertiesImpl();
+            props.setPath(new File(WORK_DIR));
+            return props;
+        }
+
+        @Bean
+        public XmiFormatSupport xmiFormatSupport()
+        {
+            return new XmiFormatSupport(new XmiFormatProperties());
+        }
+    }
+}
@@ -62,6 +62,7 @@ import de.tudarmstadt.ukp.clarin.webanno.conll.config.ConllFormatsAutoConfigurat
 import de.tudarmstadt.ukp.clarin.webanno.constraints.config.ConstraintsServiceAutoConfiguration;
 import de.tudarmstadt.ukp.clarin.webanno.diag.config.CasDoctorAutoConfiguration;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentState;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
@@ -324,6 +325,30 @@ public class MtasDocumentIndexTest
         LOG.info("Indexing complete!");
     }
 
+    @Test
+    public void testReindexIntoShadowIndex() throws Exception
+    {
+        var project = new Project("shadow-reindex");
+
+        createProject(project);
+
+        var sourceDocument = new SourceDocument("Raw text document", project, "text");
+
+        uploadDocument(Pair.of(sourceDocument, "The capital of Galicia is Santiago de Compostela."));
+
+        var projectDir = new File(TEST_OUTPUT_FOLDER, "project/" + project.getId());
+        assertThat(new File(projectDir, "indexMtas")).isDirectory();
+
+        searchService.reindex(project, null);
+
+        assertThat(searchService.isIndexValid(project)).isTrue();
+        assertThat(new File(projectDir, "indexMtas")).doesNotExist();
+        assertThat(new File(projectDir, "indexMtas-1")).isDirectory();
+        assertThat(searchService.query(user, project, "Galicia")) //
+                .extracting(SearchResult::getText) //
+                .containsExactly("Galicia");
+    }
+
     @Test
     public void testRawTextQuery() throws Exception
     {
@@ -629,6 +654,50 @@ public class MtasDocumentIndexTest
                 .containsExactlyElementsOf(resultsAfter.keySet());
     }
 
+    @Test
+    public void thatResultsWithoutAccessAreFilteredOut() throws Exception
+    {
+        var project = new Project("access-filter");
+
+        createProject(project);
+
+        if (!userRepository.exists("other")) {
+            userRepository.create(new User("other", Role.ROLE_USER));
+        }
+        var otherUser = userRepository.get("other");
+
+        var sourceDocument1 = new SourceDocument("Annotation document 1", project, "text");
+        var sourceDocument2 = new SourceDocument("Annotation document 2", project, "text");
+
+        uploadDocument(
+                Pair.of(sourceDocument1, "The capital of Galicia is Santiago de Compostela."),
+                Pair.of(sourceDocument2, "Galicia is in Spain."));
+        annotateDocument(project, user, sourceDocument1);
+
+        // The other user may not access the second document
+        var ignoredDocument = documentService.createOrGetAnnotationDocument(sourceDocument2,
+                otherUser);
+        ignoredDocument.setState(AnnotationDocumentState.IGNORE);
+        documentService.createOrUpdateAnnotationDocument(ignoredDocument);
+
+        var query = "<Named_entity.value=\"LOC\"/>";
+
+        // The annotations of the first user are not visible to the other user
+        assertThat(searchService.query(user, project, query)) //
+                .extracting(SearchResult::getDocumentId) //
+                .containsExactly(sourceDocument1.getId());
+        assertThat(searchService.query(otherUser, project, query)).isEmpty();
+
+        // The first user gets the results from their annotation document instead of the source
+        // document and the other user only gets results from the documents they can access
+        assertThat(searchService.query(user, project, "Galicia")) //
+                .extracting(SearchResult::getDocumentId) //
+                .containsExactlyInAnyOrder(sourceDocument1.getId(), sourceDocument2.getId());
+        assertThat(searchService.query(otherUser, project, "Galicia")) //
+                .extracting(SearchResult::getDocumentId) //
+                .containsExactly(sourceDocument1.getId());
+    }
+
     @Disabled("This test is flaky, but I do not know why - maybe some race condition in the indexing")
     @Test
     public void testStatistics() throws Exception
@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas;
+
+import static de.tudarmstadt.ukp.inception.search.index.mtas.MtasUimaParserLuceneTest.createBinaryCasDocument;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.transaction.annotation.Transactional;
+
+import de.tudarmstadt.ukp.clarin.webanno.constraints.config.ConstraintsServiceAutoConfiguration;
+import de.tudarmstadt.ukp.clarin.webanno.diag.config.CasDoctorAutoConfiguration;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.project.config.ProjectServiceAutoConfiguration;
+import de.tudarmstadt.ukp.clarin.webanno.security.config.SecurityAutoConfiguration;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.clarin.webanno.text.TextFormatSupport;
+import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
+import de.tudarmstadt.ukp.inception.documents.api.RepositoryProperties;
+import de.tudarmstadt.ukp.inception.documents.api.RepositoryPropertiesImpl;
+import de.tudarmstadt.ukp.inception.documents.config.DocumentServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.export.config.DocumentImportExportServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.io.xmi.XmiFormatSupport;
+import de.tudarmstadt.ukp.inception.io.xmi.config.UimaFormatsPropertiesImpl.XmiFormatProperties;
+import de.tudarmstadt.ukp.inception.preferences.config.PreferencesServiceAutoConfig;
+import de.tudarmstadt.ukp.inception.project.api.ProjectService;
+import de.tudarmstadt.ukp.inception.scheduling.config.SchedulingServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.schema.api.feature.FeatureSupportRegistry;
+import de.tudarmstadt.ukp.inception.schema.config.AnnotationSchemaServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.search.FeatureIndexingSupportRegistry;
+import de.tudarmstadt.ukp.inception.search.SearchQueryRequest;
+import de.tudarmstadt.ukp.inception.search.SearchResult;
+import de.tudarmstadt.ukp.inception.search.config.SearchServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.search.model.AnnotationSearchState;
+import de.tudarmstadt.ukp.inception.support.spring.ApplicationContextProvider;
+
+@Transactional
+@DataJpaTest( //
+        showSql = false, //
+        properties = { //
+                "spring.main.banner-mode=off", //
+                "debug.cas-doctor.force-release-behavior=true", //
+                "document-import.run-cas-doctor-on-import=OFF" })
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+@EnableAutoConfiguration
+@ImportAutoConfiguration( //
+        classes = { //
+                ConstraintsServiceAutoConfiguration.class, //
+                PreferencesServiceAutoConfig.class, //
+                ProjectServiceAutoConfiguration.class, //
+                AnnotationSchemaServiceAutoConfiguration.class, //
+                CasDoctorAutoConfiguration.class, //
+                DocumentServiceAutoConfiguration.class, //
+                CasStorageServiceAutoConfiguration.class, //
+                DocumentImportExportServiceAutoConfiguration.class, //
+                SchedulingServiceAutoConfiguration.class, //
+                SecurityAutoConfiguration.class, //
+                SearchServiceAutoConfiguration.class }, //
+        exclude = LiquibaseAutoConfiguration.class)
+@EntityScan({ //
+        "de.tudarmstadt.ukp.clarin.webanno.security.model", //
+        "de.tudarmstadt.ukp.inception.preferences.model", //
+        "de.tudarmstadt.ukp.inception.kb.model", //
+        "de.tudarmstadt.ukp.clarin.webanno.model" })
+public class MtasParallelQueryTest
+{
+    static final String WORK_DIR = "target/test-output/MtasParallelQueryTest";
+
+    @Autowired
+    ProjectService projectService;
+
+    @Autowired
+    DocumentService documentService;
+
+    @Autowired
+    RepositoryProperties repositoryProperties;
+
+    @Autowired
+    FeatureIndexingSupportRegistry featureIndexingSupportRegistry;
+
+    @Autowired
+    FeatureSupportRegistry featureSupportRegistry;
+
+    Project project;
+    ExecutorService queryExecutor;
+    MtasDocumentIndex index;
+
+    @BeforeEach
+    void setup() throws Exception
+    {
+        deleteQuietly(new File(WORK_DIR));
+
+        project = new Project("test");
+        projectService.createProject(project);
+
+        queryExecutor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void teardown() throws Exception
+    {
+        if (index != null) {
+            index.close();
+        }
+
+        queryExecutor.shutdownNow();
+    }
+
+    @Test
+    void thatParallelAndSequentialQueriesReturnTheSameResults() throws Exception
+    {
+        index = createIndex(null);
+
+        // Querying commits the index, so every document ends up in a segment of its own
+        for (var i = 0; i < 5; i++) {
+            var srcDoc = new SourceDocument("doc" + i + ".txt", project, TextFormatSupport.ID);
+            documentService.createSourceDocument(srcDoc);
+            index.indexDocument(srcDoc, createBinaryCasDocument(i, srcDoc.getName(),
+                    "This is a test . This is sentence two ."));
+            assertThat(query("This", 0, Integer.MAX_VALUE)).hasSize(2 * (i + 1));
+        }
+
+        var sequentialResults = query("This", 0, Integer.MAX_VALUE);
+        var sequentialPage = query("This", 3, 4);
+        var sequentialCount = count("This");
+        index.close();
+
+        index = createIndex(queryExecutor);
+
+        var parallelResults = query("This", 0, Integer.MAX_VALUE);
+        assertThat(parallelResults).hasSize(10).containsExactlyElementsOf(sequentialResults);
+        assertThat(count("This")).isEqualTo(sequentialCount).isEqualTo(10);
+
+        // Once the page is full, no more results are returned - the page must be the same
+        // regardless of which segments happen to be done first
+        assertThat(sequentialPage) //
+                .containsExactlyElementsOf(sequentialResults.subList(3, 7));
+        for (var i = 0; i < 10; i++) {
+            assertThat(query("This", 3, 4)).containsExactlyElementsOf(sequentialPage);
+        }
+        assertThat(query("This", 9, 4)) //
+                .containsExactlyElementsOf(sequentialResults.subList(9, 10));
+    }
+
+    private MtasDocumentIndex createIndex(ExecutorService aQueryExecutor) throws Exception
+    {
+        var newIndex = new MtasDocumentIndex(project, documentService,
+                repositoryProperties.getPath().getAbsolutePath(), featureIndexingSupportRegistry,
+                featureSupportRegistry, null, false, aQueryExecutor);
+        newIndex.open();
+        return newIndex;
+    }
+
+    private SearchQueryRequest request(String aQuery, long aOffset, long aCount)
+    {
+        return new SearchQueryRequest(project, new User("user"), aQuery, null, null, null,
+                aOffset, aCount, new AnnotationSearchState());
+    }
+
+    private List<SearchResult> query(String aQuery, long aOffset, long aCount) throws Exception
+    {
+        var results = new ArrayList<SearchResult>();
+        index.executeQuery(request(aQuery, aOffset, aCount)).values().forEach(results::addAll);
+        return results;
+    }
+
+    private long count(String aQuery) throws Exception
+    {
+        return index.numberOfQueryResults(request(aQuery, 0, Integer.MAX_VALUE));
+    }
+
+    @SpringBootConfiguration
+    public static class SpringConfig
+    {
+        @Bean
+        ApplicationContextProvider applicationContextProvider()
+        {
+            return new ApplicationContextProvider();
+        }
+
+        @Bean
+        RepositoryProperties repositoryProperties()
+        {
+            var props = new RepositoryPropertiesImpl();
+            props.setPath(new File(WORK_DIR));
+            return props;
+        }
+
+        @Bean
+        public XmiFormatSupport xmiFormatSupport()
+        {
+            return new XmiFormatSupport(new XmiFormatProperties());
+        }
+    }
+}
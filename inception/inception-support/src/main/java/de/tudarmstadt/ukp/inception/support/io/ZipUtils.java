@@ -24,12 +24,22 @@ import java.io.FileOutputStream;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
 
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 
 /**
  * A utility class.
@@ -86,27 +96,84 @@ public class ZipUtils
      */
     public static void zipFolder(File srcFolder, File destZipFile) throws IOException
     {
-        try (var zip = new ZipOutputStream(new FileOutputStream(destZipFile));) {
-            for (var file : srcFolder.getAbsoluteFile().listFiles()) {
-                addToZip(zip, srcFolder.getAbsoluteFile(), file);
+        try (var os = new FileOutputStream(destZipFile)) {
+            zipFolder(srcFolder, os);
+        }
+    }
+
+    /**
+     * Writes the contents of the given folder as a ZIP file to the given stream. The stream is not
+     * closed. The files are compressed in parallel, but they are added to the ZIP file in the
+     * order in which they are found in the folder. The compressed data is buffered in temporary
+     * files, so the size of the folder is not limited by the available memory.
+     * 
+     * @param srcFolder
+     *            source folder.
+     * @param aOut
+     *            target stream.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public static void zipFolder(File srcFolder, OutputStream aOut) throws IOException
+    {
+        var files = new ArrayList<File>();
+        collectFiles(srcFolder.getAbsoluteFile(), files);
+
+        var executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(files.size(), Runtime.getRuntime().availableProcessors())),
+                new BasicThreadFactory.Builder() //
+                        .namingPattern("zip-folder-%d") //
+                        .daemon(true) //
+                        .build());
+        try (var zip = new ZipArchiveOutputStream(CloseShieldOutputStream.wrap(aOut))) {
+            var scatterZip = new ParallelScatterZipCreator(executor);
+            for (var file : files) {
+                var entry = new ZipArchiveEntry(srcFolder.getAbsoluteFile().toURI()
+                        .relativize(file.toURI()).getPath());
+                entry.setMethod(ZipEntry.DEFLATED);
+                scatterZip.addArchiveEntry(entry, () -> openInputStream(file));
             }
-            zip.flush();
+            scatterZip.writeTo(zip);
+            zip.finish();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing " + srcFolder);
+        }
+        catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Unable to compress " + srcFolder, cause);
+        }
+        finally {
+            executor.shutdownNow();
         }
     }
 
-    private static void addToZip(ZipOutputStream zip, File aBasePath, File aPath) throws IOException
+    private static void collectFiles(File aPath, List<File> aFiles)
     {
         if (aPath.isDirectory()) {
             for (File file : aPath.listFiles()) {
-                addToZip(zip, aBasePath, file);
+                collectFiles(file, aFiles);
             }
         }
         else {
-            try (FileInputStream in = new FileInputStream(aPath)) {
-                String relativePath = aBasePath.toURI().relativize(aPath.toURI()).getPath();
-                zip.putNextEntry(new ZipEntry(relativePath));
-                IOUtils.copy(in, zip);
-            }
+            aFiles.add(aPath);
+        }
+    }
+
+    private static InputStream openInputStream(File aFile)
+    {
+        try {
+            return new FileInputStream(aFile);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
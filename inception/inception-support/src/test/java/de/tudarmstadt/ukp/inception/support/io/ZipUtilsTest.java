@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.support.io;
+
+import static de.tudarmstadt.ukp.inception.support.io.ZipUtils.zipFolder;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ZipUtilsTest
+{
+    private @TempDir File tempDir;
+
+    @Test
+    void thatFolderIsZippedToStream() throws Exception
+    {
+        var largeContent = "b".repeat(1_000_000);
+        Files.writeString(tempDir.toPath().resolve("a.txt"), "a");
+        Files.createDirectories(tempDir.toPath().resolve("sub"));
+        Files.writeString(tempDir.toPath().resolve("sub/b.txt"), largeContent);
+
+        var closed = new boolean[] { false };
+        var out = new ByteArrayOutputStream()
+        {
+            @Override
+            public void close()
+            {
+                closed[0] = true;
+            }
+        };
+
+        zipFolder(tempDir, out);
+
+        var entries = new LinkedHashMap<String, String>();
+        try (var zis = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (var entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                entries.put(entry.getName(), new String(zis.readAllBytes(), UTF_8));
+            }
+        }
+
+        assertThat(closed[0]).isFalse();
+        assertThat(entries).containsOnly( //
+                entry("a.txt", "a"), //
+                entry("sub/b.txt", largeContent));
+    }
+}
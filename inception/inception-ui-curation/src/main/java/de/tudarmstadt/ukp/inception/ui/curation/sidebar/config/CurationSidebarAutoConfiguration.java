@@ -41,6 +41,7 @@ import de.tudarmstadt.ukp.inception.ui.curation.sidebar.CurationSidebarDocumentN
 import de.tudarmstadt.ukp.inception.ui.curation.sidebar.CurationSidebarFactory;
 import de.tudarmstadt.ukp.inception.ui.curation.sidebar.CurationSidebarService;
 import de.tudarmstadt.ukp.inception.ui.curation.sidebar.CurationSidebarServiceImpl;
+import de.tudarmstadt.ukp.inception.ui.curation.sidebar.render.CurationDiffCache;
 import de.tudarmstadt.ukp.inception.ui.curation.sidebar.render.CurationSidebarRenderer;
 import jakarta.persistence.EntityManager;
 
@@ -85,11 +86,18 @@ public class CurationSidebarAutoConfiguration
 
     @Bean
     public CurationSidebarRenderer curationSidebarRenderer(CurationSidebarService aCurationService,
-            LayerSupportRegistry aLayerSupportRegistry, DocumentService aDocumentService,
-            UserDao aUserRepository, AnnotationSchemaService aAnnotationService)
+            LayerSupportRegistry aLayerSupportRegistry, UserDao aUserRepository,
+            AnnotationSchemaService aAnnotationService, CurationDiffCache aDiffCache)
     {
         return new CurationSidebarRenderer(aCurationService, aLayerSupportRegistry,
-                aDocumentService, aUserRepository, aAnnotationService);
+                aUserRepository, aAnnotationService, aDiffCache);
+    }
+
+    @Bean
+    public CurationDiffCache curationDiffCache(DocumentService aDocumentService,
+            AnnotationSchemaService aAnnotationService)
+    {
+        return new CurationDiffCache(aDocumentService, aAnnotationService);
     }
 
     @Deprecated
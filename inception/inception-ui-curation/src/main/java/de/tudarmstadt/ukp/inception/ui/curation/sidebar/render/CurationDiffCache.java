@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.ui.curation.sidebar.render;
+
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.SHARED_READ_ONLY_ACCESS;
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasUpgradeMode.AUTO_CAS_UPGRADE;
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.doDiff;
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.DiffAdapterRegistry.getDiffAdapters;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import org.apache.uima.cas.CAS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
+import de.tudarmstadt.ukp.inception.documents.event.AfterCasWrittenEvent;
+import de.tudarmstadt.ukp.inception.rendering.request.RenderRequest;
+import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
+import de.tudarmstadt.ukp.inception.schema.api.event.LayerConfigurationChangedEvent;
+import de.tudarmstadt.ukp.inception.ui.curation.sidebar.config.CurationSidebarAutoConfiguration;
+
+/**
+ * Keeps the diffs calculated by the {@link CurationSidebarRenderer} so that they do not have to be
+ * calculated from scratch on every render request. When the CAS of a single user changed, only the
+ * annotations of that user are compared again.
+ * <p>
+ * This class is exposed as a Spring Component via
+ * {@link CurationSidebarAutoConfiguration#curationDiffCache}.
+ * </p>
+ */
+public class CurationDiffCache
+{
+    private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private static final int MAX_ENTRIES = 100;
+    private static final int EXPIRE_MINUTES = 10;
+
+    private final DocumentService documentService;
+    private final AnnotationSchemaService annotationService;
+
+    private final Cache<Key, Entry> diffCache;
+
+    public CurationDiffCache(DocumentService aDocumentService,
+            AnnotationSchemaService aAnnotationService)
+    {
+        documentService = aDocumentService;
+        annotationService = aAnnotationService;
+        diffCache = Caffeine.newBuilder() //
+                .maximumSize(MAX_ENTRIES) //
+                .expireAfterAccess(EXPIRE_MINUTES, MINUTES) //
+                .build();
+    }
+
+    /**
+     * Obtains the diff between the CAS of the request user and the CASes of the given users. If a
+     * diff for the same document, session owner, render window and visible layers has been
+     * calculated before, only the CASes which changed since then are compared again.
+     * <p>
+     * The caller must synchronize on the returned diff while using it because the diff is updated
+     * in place by subsequent calls.
+     * </p>
+     * 
+     * @param aSessionOwner
+     *            the user owning the curation session.
+     * @param aRequest
+     *            the render request.
+     * @param aSelectedUsers
+     *            the users whose annotations are to be compared to the CAS of the request.
+     * @return the diff.
+     */
+    public CasDiff getDiff(String aSessionOwner, RenderRequest aRequest, List<User> aSelectedUsers)
+    {
+        var key = new Key(aSessionOwner, aRequest.getProject().getId(),
+                aRequest.getSourceDocument().getId(), aRequest.getAnnotationUser().getUsername(),
+                aRequest.getWindowBeginOffset(), aRequest.getWindowEndOffset(),
+                aRequest.getVisibleLayers().stream().map(AnnotationLayer::getId).toList());
+
+        var entry = diffCache.get(key, $ -> new Entry());
+        synchronized (entry) {
+            if (entry.diff == null) {
+                entry.diff = createDiff(aRequest, aSelectedUsers, entry);
+            }
+            else {
+                synchronized (entry.diff) {
+                    updateDiff(aRequest, aSelectedUsers, entry);
+                }
+            }
+            return entry.diff;
+        }
+    }
+
+    private CasDiff createDiff(RenderRequest aRequest, List<User> aSelectedUsers, Entry aEntry)
+    {
+        var casses = new LinkedHashMap<String, CAS>();
+
+        for (var username : getUsers(aRequest, aSelectedUsers)) {
+            var timestamp = getTimestamp(aRequest, username);
+            var userCas = readCas(aRequest, username);
+            if (userCas.isPresent()) {
+                aEntry.timestamps.put(username, timestamp);
+                casses.put(username, userCas.get());
+            }
+        }
+
+        aEntry.dirtyUsers.clear();
+
+        var adapters = getDiffAdapters(annotationService, aRequest.getVisibleLayers());
+        return doDiff(adapters, casses, aRequest.getWindowBeginOffset(),
+                aRequest.getWindowEndOffset());
+    }
+
+    private void updateDiff(RenderRequest aRequest, List<User> aSelectedUsers, Entry aEntry)
+    {
+        var users = getUsers(aRequest, aSelectedUsers);
+
+        // Drop users which are no longer selected
+        for (var username : List.copyOf(aEntry.diff.getCasMap().keySet())) {
+            if (!users.contains(username)) {
+                LOG.trace("Removing [{}] from curation diff", username);
+                aEntry.diff.removeCas(username);
+                aEntry.timestamps.remove(username);
+            }
+        }
+
+        for (var username : users) {
+            var timestamp = getTimestamp(aRequest, username);
+            if (!isOutdated(aEntry, username, timestamp)) {
+                continue;
+            }
+
+            var userCas = readCas(aRequest, username);
+            if (userCas.isPresent()) {
+                LOG.trace("Updating [{}] in curation diff", username);
+                aEntry.diff.updateCas(username, userCas.get());
+                aEntry.timestamps.put(username, timestamp);
+            }
+        }
+    }
+
+    /**
+     * @return the user whose CAS the user can actively edit followed by the selected users.
+     */
+    private Set<String> getUsers(RenderRequest aRequest, List<User> aSelectedUsers)
+    {
+        var users = new LinkedHashSet<String>();
+        users.add(aRequest.getAnnotationUser().getUsername());
+        aSelectedUsers.forEach(user -> users.add(user.getUsername()));
+        return users;
+    }
+
+    private boolean isOutdated(Entry aEntry, String aUsername, Optional<Long> aTimestamp)
+    {
+        synchronized (aEntry.dirtyUsers) {
+            if (aEntry.dirtyUsers.remove(aUsername)) {
+                return true;
+            }
+        }
+
+        return !aEntry.timestamps.containsKey(aUsername)
+                || !Objects.equals(aEntry.timestamps.get(aUsername), aTimestamp);
+    }
+
+    private Optional<Long> getTimestamp(RenderRequest aRequest, String aUsername)
+    {
+        try {
+            return documentService.getAnnotationCasTimestamp(aRequest.getSourceDocument(),
+                    aUsername);
+        }
+        catch (IOException e) {
+            LOG.error("Could not retrieve CAS timestamp for user [{}] and project {}", aUsername,
+                    aRequest.getProject(), e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads the CAS of a user. The diff is kept across requests, so we use shared read-only CASes
+     * which are never modified and can safely be held on to. This also applies to the user whose
+     * CAS the render request is for. The CAS of the request only belongs to that request, but as
+     * long as the timestamp of the stored CAS has not changed, both have the same content.
+     */
+    private Optional<CAS> readCas(RenderRequest aRequest, String aUsername)
+    {
+        try {
+            return Optional.of(documentService.readAnnotationCas(aRequest.getSourceDocument(),
+                    aUsername, AUTO_CAS_UPGRADE, SHARED_READ_ONLY_ACCESS));
+        }
+        catch (IOException e) {
+            LOG.error("Could not retrieve CAS for user [{}] and project {}", aUsername,
+                    aRequest.getProject(), e);
+            return Optional.empty();
+        }
+    }
+
+    @EventListener
+    public void onAfterCasWritten(AfterCasWrittenEvent aEvent)
+    {
+        var documentId = aEvent.getDocument().getDocument().getId();
+        var username = aEvent.getDocument().getUser();
+
+        diffCache.asMap().forEach((key, entry) -> {
+            if (Objects.equals(key.documentId(), documentId)) {
+                synchronized (entry.dirtyUsers) {
+                    entry.dirtyUsers.add(username);
+                }
+            }
+        });
+    }
+
+    @EventListener
+    public void onLayerConfigurationChanged(LayerConfigurationChangedEvent aEvent)
+    {
+        var projectId = aEvent.getProject().getId();
+        diffCache.asMap().keySet().removeIf(key -> Objects.equals(key.projectId(), projectId));
+    }
+
+    private static record Key(String sessionOwner, Long projectId, Long documentId,
+            String targetUser, int windowBegin, int windowEnd, List<Long> layers)
+    {}
+
+    private static class Entry
+    {
+        private CasDiff diff;
+        private final Map<String, Optional<Long>> timestamps = new HashMap<>();
+        private final Set<String> dirtyUsers = new HashSet<>();
+    }
+}
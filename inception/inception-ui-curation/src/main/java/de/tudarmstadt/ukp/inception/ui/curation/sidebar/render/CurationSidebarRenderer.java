@@ -17,21 +17,15 @@
  */
 package de.tudarmstadt.ukp.inception.ui.curation.sidebar.render;
 
-import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.doDiff;
-import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.DiffAdapterRegistry.getDiffAdapters;
 import static de.tudarmstadt.ukp.clarin.webanno.model.Mode.ANNOTATION;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toMap;
 import static org.apache.uima.cas.text.AnnotationPredicates.colocated;
 
-import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
-import java.util.List;
 
-import org.apache.uima.cas.CAS;
 import org.apache.uima.jcas.tcas.Annotation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,8 +38,6 @@ import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.internal.AID;
 import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.span.SpanPosition;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
 import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
-import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
-import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
 import de.tudarmstadt.ukp.inception.rendering.pipeline.RenderStep;
 import de.tudarmstadt.ukp.inception.rendering.request.RenderRequest;
 import de.tudarmstadt.ukp.inception.rendering.vmodel.VArc;
@@ -78,19 +70,19 @@ public class CurationSidebarRenderer
 
     private final CurationSidebarService curationService;
     private final LayerSupportRegistry layerSupportRegistry;
-    private final DocumentService documentService;
     private final UserDao userRepository;
     private final AnnotationSchemaService annotationService;
+    private final CurationDiffCache diffCache;
 
     public CurationSidebarRenderer(CurationSidebarService aCurationService,
-            LayerSupportRegistry aLayerSupportRegistry, DocumentService aDocumentService,
-            UserDao aUserRepository, AnnotationSchemaService aAnnotationService)
+            LayerSupportRegistry aLayerSupportRegistry, UserDao aUserRepository,
+            AnnotationSchemaService aAnnotationService, CurationDiffCache aDiffCache)
     {
         curationService = aCurationService;
         layerSupportRegistry = aLayerSupportRegistry;
-        documentService = aDocumentService;
         userRepository = aUserRepository;
         annotationService = aAnnotationService;
+        diffCache = aDiffCache;
     }
 
     @Override
@@ -134,10 +126,22 @@ public class CurationSidebarRenderer
             return;
         }
 
+        var casDiff = diffCache.getDiff(sessionOwner, aRequest, selectedUsers);
+
+        // The cached diff is updated in place when the CASes change, so we must not render while
+        // another request updates it
+        synchronized (casDiff) {
+            render(aVdoc, aRequest, casDiff);
+        }
+    }
+
+    private void render(VDocument aVdoc, RenderRequest aRequest, CasDiff aCasDiff)
+    {
+        var sessionOwner = userRepository.getCurrentUsername();
+        var project = aRequest.getProject();
         var targetUser = aRequest.getAnnotationUser().getUsername();
 
-        var casDiff = createDiff(aRequest, selectedUsers);
-        var diff = casDiff.toResult();
+        var diff = aCasDiff.toResult();
         var totalAnnotatorCount = diff.getCasGroupIds().stream() //
                 .filter($ -> !$.equals(targetUser)) //
                 .count();
@@ -175,7 +179,7 @@ public class CurationSidebarRenderer
 
             for (var cfg : cfgSet.getConfigurations()) {
                 LOG.trace("Processing configuration: {}", cfg);
-                var fs = cfg.getRepresentative(casDiff.getCasMap());
+                var fs = cfg.getRepresentative(aCasDiff.getCasMap());
                 if (!(fs instanceof Annotation)) {
                     continue;
                 }
@@ -300,30 +304,6 @@ public class CurationSidebarRenderer
         return sourceConfiguration.map($ -> $.getAID(aTargetUser) != null).orElse(false);
     }
 
-    private CasDiff createDiff(RenderRequest aRequest, List<User> selectedUsers)
-    {
-        var casses = new LinkedHashMap<String, CAS>();
-
-        // This is the CAS that the user can actively edit
-        casses.put(aRequest.getAnnotationUser().getUsername(), aRequest.getCas());
-
-        for (var user : selectedUsers) {
-            try {
-                var userCas = documentService.readAnnotationCas(aRequest.getSourceDocument(),
-                        user.getUsername());
-                casses.put(user.getUsername(), userCas);
-            }
-            catch (IOException e) {
-                LOG.error("Could not retrieve CAS for user [{}] and project {}", user.getUsername(),
-                        aRequest.getProject(), e);
-            }
-        }
-
-        var adapters = getDiffAdapters(annotationService, aRequest.getVisibleLayers());
-        return doDiff(adapters, casses, aRequest.getWindowBeginOffset(),
-                aRequest.getWindowEndOffset());
-    }
-
     private void resolveArcEndpoints(String targetUser, DiffResult diff, boolean showAll,
             Configuration cfg, VArc arc)
     {
@@ -17,10 +17,13 @@
  */
 package de.tudarmstadt.ukp.inception.ui.curation.sidebar.render;
 
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.SHARED_READ_ONLY_ACCESS;
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasUpgradeMode.AUTO_CAS_UPGRADE;
 import static de.tudarmstadt.ukp.clarin.webanno.model.LinkMode.WITH_ROLE;
 import static de.tudarmstadt.ukp.clarin.webanno.model.MultiValueMode.ARRAY;
 import static de.tudarmstadt.ukp.inception.support.WebAnnoConst.CURATION_USER;
 import static java.util.Arrays.asList;
+import static org.apache.uima.util.TypeSystemUtil.typeSystem2TypeSystemDescription;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
@@ -35,6 +38,7 @@ import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.fit.factory.CasFactory;
 import org.apache.uima.resource.metadata.impl.TypeSystemDescription_impl;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -89,6 +93,7 @@ class CurationSidebarRendererTest
     private LayerBehaviorRegistryImpl layerBehaviorRegistry;
     private LayerSupportRegistryImpl layerSupportRegistry;
 
+    private CurationDiffCache diffCache;
     private CurationSidebarRenderer sut;
 
     private Project project;
@@ -130,8 +135,9 @@ class CurationSidebarRendererTest
                         constraintsService)));
         layerSupportRegistry.init();
 
-        sut = new CurationSidebarRenderer(curationService, layerSupportRegistry, documentService,
-                userRepository, schemaService);
+        diffCache = new CurationDiffCache(documentService, schemaService);
+        sut = new CurationSidebarRenderer(curationService, layerSupportRegistry, userRepository,
+                schemaService, diffCache);
 
         curator = User.builder() //
                 .withUsername(CURATION_USER) //
@@ -286,6 +292,33 @@ class CurationSidebarRendererTest
         assertThat(vdoc.spans()).isEmpty();
     }
 
+    /**
+     * The CAS of a render request is only valid during that request, so the cached diff must use
+     * the stored CAS of the curator instead.
+     */
+    @Test
+    void thatCachedDiffDoesNotHoldOnToRequestCas() throws Exception
+    {
+        var storedRequest = renderRequest("anchor");
+        var requestCas = CasFactory
+                .createCas(typeSystem2TypeSystemDescription(curatorCas.getTypeSystem()));
+        requestCas.setDocumentText(curatorCas.getDocumentText());
+        var request = RenderRequest.builder() //
+                .withDocument(doc, curator) //
+                .withCas(requestCas) //
+                .withWindow(0, requestCas.getDocumentText().length()) //
+                .withVisibleLayers(storedRequest.getVisibleLayers()) //
+                .withAllLayers(storedRequest.getAllLayers()) //
+                .build();
+
+        sut.render(vdoc, request);
+
+        var diff = diffCache.getDiff(curator.getUsername(), request, asList(anno1, anno2));
+        assertThat(diff.getCasMap()) //
+                .containsEntry(curator.getUsername(), curatorCas) //
+                .doesNotContainValue(requestCas);
+    }
+
     /**
      * An overlapping span annotation in the curator's CAS hides the spans from the annotators.
      */
@@ -598,8 +631,12 @@ class CurationSidebarRendererTest
         vdoc.setText(aText);
         vdoc.setWindow(0, aText.length());
 
-        when(documentService.readAnnotationCas(doc, anno1.getUsername())).thenReturn(anno1Cas);
-        when(documentService.readAnnotationCas(doc, anno2.getUsername())).thenReturn(anno2Cas);
+        when(documentService.readAnnotationCas(doc, curator.getUsername(), AUTO_CAS_UPGRADE,
+                SHARED_READ_ONLY_ACCESS)).thenReturn(curatorCas);
+        when(documentService.readAnnotationCas(doc, anno1.getUsername(), AUTO_CAS_UPGRADE,
+                SHARED_READ_ONLY_ACCESS)).thenReturn(anno1Cas);
+        when(documentService.readAnnotationCas(doc, anno2.getUsername(), AUTO_CAS_UPGRADE,
+                SHARED_READ_ONLY_ACCESS)).thenReturn(anno2Cas);
 
         return RenderRequest.builder() //
                 .withDocument(doc, curator) //
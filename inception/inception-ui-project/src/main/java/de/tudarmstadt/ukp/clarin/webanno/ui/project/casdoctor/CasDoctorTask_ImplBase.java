@@ -18,6 +18,7 @@
 package de.tudarmstadt.ukp.clarin.webanno.ui.project.casdoctor;
 
 import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.UNMANAGED_NON_INITIALIZING_ACCESS;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.BULK;
 import static de.tudarmstadt.ukp.inception.scheduling.TaskScope.PROJECT;
 import static de.tudarmstadt.ukp.inception.support.WebAnnoConst.INITIAL_CAS_PSEUDO_USER;
 
@@ -49,7 +50,7 @@ public abstract class CasDoctorTask_ImplBase
 
     public CasDoctorTask_ImplBase(Builder<? extends Builder<?>> aBuilder)
     {
-        super(aBuilder.withCancellable(true).withScope(PROJECT));
+        super(aBuilder.withCancellable(true).withScope(PROJECT).withPriority(BULK));
     }
 
     public List<LogMessageSet> getMessageSets()
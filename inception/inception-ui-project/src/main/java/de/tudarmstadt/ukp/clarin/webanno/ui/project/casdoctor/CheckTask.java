@@ -95,6 +95,8 @@ public class CheckTask
                 monitor.setState(TaskState.CANCELLED);
             }
 
+            monitor.yieldIfRequested();
+
             // Check INITIAL CAS
             {
                 var messageSet = new LogMessageSet(sd.getName() + " [INITIAL]");
@@ -96,6 +96,8 @@ public class RepairTask
                 monitor.setState(TaskState.CANCELLED);
             }
 
+            monitor.yieldIfRequested();
+
             // Repair INITIAL CAS
             {
                 var messageSet = new LogMessageSet(sd.getName() + " [INITIAL]");